@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.envirocar.server.core.util.GeoJSONConstants;
+import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.guice.JerseyCodingModule;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+
+/**
+ * Compares reading and writing a track as JSON and as Smile. The JSON and
+ * Smile encoders and decoders share the conversion between entities and
+ * trees, so only the tree is read and written, using the mappers configured
+ * by {@link JerseyCodingModule}.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class TrackEncodingBenchmark {
+    @Param({ "100", "1000", "10000" })
+    private int measurements;
+    private ObjectMapper json;
+    private ObjectMapper smile;
+    private ObjectNode track;
+    private byte[] jsonTrack;
+    private byte[] smileTrack;
+
+    @Setup
+    public void setUp() throws IOException {
+        Injector injector = Guice.createInjector(new JerseyCodingModule());
+        json = injector.getInstance(ObjectMapper.class);
+        smile = injector.getInstance(Key.get(ObjectMapper.class, Names
+                .named(JerseyCodingModule.SMILE)));
+        track = createTrack(measurements);
+        jsonTrack = json.writeValueAsBytes(track);
+        smileTrack = smile.writeValueAsBytes(track);
+    }
+
+    @Benchmark
+    public byte[] writeJSON() throws IOException {
+        return json.writeValueAsBytes(track);
+    }
+
+    @Benchmark
+    public byte[] writeSmile() throws IOException {
+        return smile.writeValueAsBytes(track);
+    }
+
+    @Benchmark
+    public JsonNode readJSON() throws IOException {
+        return json.readTree(jsonTrack);
+    }
+
+    @Benchmark
+    public JsonNode readSmile() throws IOException {
+        return smile.readTree(smileTrack);
+    }
+
+    /**
+     * Creates a track as it is written by the track encoder, with a
+     * measurement every five seconds.
+     */
+    private ObjectNode createTrack(int size) {
+        DateTimeFormatter format = ISODateTimeFormat.dateTimeNoMillis();
+        DateTime time = new DateTime(2013, 6, 1, 12, 0, 0, 0);
+        ObjectNode root = json.createObjectNode();
+        root.put(GeoJSONConstants.TYPE_KEY,
+                 GeoJSONConstants.FEATURE_COLLECTION_TYPE);
+        ObjectNode properties = root.putObject(JSONConstants.PROPERTIES_KEY);
+        properties.put(JSONConstants.IDENTIFIER_KEY,
+                       "51c96afce4b0fe5a04fb8e06");
+        properties.put(JSONConstants.NAME_KEY, "Benchmark");
+        ArrayNode features = root.putArray(GeoJSONConstants.FEATURES_KEY);
+        for (int i = 0; i < size; ++i) {
+            ObjectNode feature = features.addObject();
+            feature.put(GeoJSONConstants.TYPE_KEY,
+                        GeoJSONConstants.FEATURE_TYPE);
+            ObjectNode geometry = feature
+                    .putObject(JSONConstants.GEOMETRY_KEY);
+            geometry.put(GeoJSONConstants.TYPE_KEY,
+                         GeoJSONConstants.POINT_TYPE);
+            geometry.putArray(GeoJSONConstants.COORDINATES_KEY)
+                    .add(7.6 + i * 1.3e-4).add(51.9 - i * 0.7e-4);
+            ObjectNode p = feature
+                    .putObject(GeoJSONConstants.PROPERTIES_KEY);
+            p.put(JSONConstants.IDENTIFIER_KEY, String.format("%024x", i));
+            p.put(JSONConstants.TIME_KEY,
+                  format.print(time.plusSeconds(5 * i)));
+            ObjectNode phenomenons = p
+                    .putObject(JSONConstants.PHENOMENONS_KEY);
+            addValue(phenomenons, "Speed", "km/h", 30.0 + i % 70 / 3.0);
+            addValue(phenomenons, "Rpm", "u/min", 800.0 + i % 2500);
+            addValue(phenomenons, "MAF", "l/s", 2.0 + i % 40 / 7.0);
+            addValue(phenomenons, "Intake Temperature", "c", 20.0 + i % 5);
+            addValue(phenomenons, "Intake Pressure", "kPa", 30.0 + i % 60);
+            addValue(phenomenons, "CO2", "kg/h", 3.0 + i % 17 / 11.0);
+            addValue(phenomenons, "Consumption", "l/h", 1.0 + i % 13 / 9.0);
+        }
+        return root;
+    }
+
+    private void addValue(ObjectNode phenomenons, String name, String unit,
+                          double value) {
+        ObjectNode phenomenon = phenomenons.putObject(name);
+        phenomenon.put(JSONConstants.VALUE_KEY, value);
+        phenomenon.put(JSONConstants.UNIT_KEY, unit);
+    }
+}
@@ -16,6 +16,7 @@
  */
 package org.envirocar.server.core;
 
+import java.util.Iterator;
 import java.util.List;
 
 import org.envirocar.server.core.entities.Announcement;
@@ -23,6 +24,7 @@ import org.envirocar.server.core.entities.Announcements;
 import org.envirocar.server.core.entities.Badges;
 import org.envirocar.server.core.entities.Fueling;
 import org.envirocar.server.core.entities.Fuelings;
+import org.envirocar.server.core.entities.IdempotencyKey;
 import org.envirocar.server.core.entities.Measurement;
 import org.envirocar.server.core.entities.Measurements;
 import org.envirocar.server.core.entities.Phenomenon;
@@ -58,6 +60,21 @@ public interface DataService {
 
     Measurement createMeasurement(Track track, Measurement measurement);
 
+    /**
+     * Appends the measurements to the track. The measurements are inserted
+     * in batches, the track is saved once and a single
+     * {@link org.envirocar.server.core.event.CreatedMeasurementsEvent} is
+     * posted. If a batch fails, the time range of the track still covers
+     * the measurements inserted before.
+     *
+     * @param track        the track
+     * @param measurements the measurements
+     *
+     * @return the created measurements
+     */
+    List<Measurement> createMeasurements(Track track,
+                                         List<Measurement> measurements);
+
     void deleteMeasurement(Measurement measurement);
 
     Measurement getMeasurement(String id) throws
@@ -71,6 +88,21 @@ public interface DataService {
     Track createTrack(Track track, List<Measurement> measurements) throws
             ValidationException;
 
+    /**
+     * Creates the track and consumes the measurements one at a time, so the
+     * upload never has to be held in memory as a whole. The measurements are
+     * saved in batches; if one of them is invalid the track is deleted again.
+     *
+     * @param track        the track
+     * @param measurements the measurements of the track
+     *
+     * @return the created track
+     *
+     * @throws ValidationException if the track or a measurement is invalid
+     */
+    Track createTrack(Track track, Iterator<Measurement> measurements) throws
+            ValidationException;
+
     void deleteTrack(Track track);
 
     Track getTrack(String id) throws
@@ -136,4 +168,43 @@ public interface DataService {
      *                                  is not owned by the specified user
      */
     Fueling getFueling(User user, String id) throws FuelingNotFoundException;
+
+    /**
+     * Gets the {@code IdempotencyKey} of the specified user.
+     *
+     * @param user the name of the user
+     * @param key  the key
+     *
+     * @return the {@code IdempotencyKey} or {@code null}
+     */
+    IdempotencyKey getIdempotencyKey(String user, String key);
+
+    /**
+     * Reserves a key for a request that is about to be processed.
+     *
+     * @param user the name of the user
+     * @param key  the key
+     *
+     * @return {@code false} if the key is already in use
+     */
+    boolean reserveIdempotencyKey(String user, String key);
+
+    /**
+     * Records the result of the request a key was reserved for.
+     *
+     * @param user     the name of the user
+     * @param key      the key
+     * @param hash     the hash of the request
+     * @param location the location of the created resource
+     */
+    void completeIdempotencyKey(String user, String key, String hash,
+                                String location);
+
+    /**
+     * Releases a key whose request did not create a resource.
+     *
+     * @param user the name of the user
+     * @param key  the key
+     */
+    void releaseIdempotencyKey(String user, String key);
 }
@@ -16,11 +16,16 @@
  */
 package org.envirocar.server.core;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
 import java.util.List;
 
 import org.envirocar.server.core.dao.AnnouncementsDao;
 import org.envirocar.server.core.dao.BadgesDao;
 import org.envirocar.server.core.dao.FuelingDao;
+import org.envirocar.server.core.dao.IdempotencyKeyDao;
 import org.envirocar.server.core.dao.MeasurementDao;
 import org.envirocar.server.core.dao.PhenomenonDao;
 import org.envirocar.server.core.dao.SensorDao;
@@ -31,6 +36,7 @@ import org.envirocar.server.core.entities.Announcements;
 import org.envirocar.server.core.entities.Badges;
 import org.envirocar.server.core.entities.Fueling;
 import org.envirocar.server.core.entities.Fuelings;
+import org.envirocar.server.core.entities.IdempotencyKey;
 import org.envirocar.server.core.entities.Measurement;
 import org.envirocar.server.core.entities.Measurements;
 import org.envirocar.server.core.entities.Phenomenon;
@@ -45,6 +51,7 @@ import org.envirocar.server.core.entities.User;
 import org.envirocar.server.core.event.ChangedTrackEvent;
 import org.envirocar.server.core.event.CreatedFuelingEvent;
 import org.envirocar.server.core.event.CreatedMeasurementEvent;
+import org.envirocar.server.core.event.CreatedMeasurementsEvent;
 import org.envirocar.server.core.event.CreatedPhenomenonEvent;
 import org.envirocar.server.core.event.CreatedSensorEvent;
 import org.envirocar.server.core.event.CreatedTrackEvent;
@@ -62,13 +69,20 @@ import org.envirocar.server.core.filter.FuelingFilter;
 import org.envirocar.server.core.filter.MeasurementFilter;
 import org.envirocar.server.core.filter.SensorFilter;
 import org.envirocar.server.core.filter.TrackFilter;
+import org.envirocar.server.core.update.ChangeSet;
 import org.envirocar.server.core.update.EntityUpdater;
+import org.envirocar.server.core.update.TrackUpdater;
+import org.envirocar.server.core.util.TrackSimplifier;
 import org.envirocar.server.core.util.pagination.Pagination;
 import org.envirocar.server.core.validation.EntityValidator;
 import org.joda.time.DateTime;
 
+import com.google.common.collect.Lists;
 import com.google.common.eventbus.EventBus;
 import com.google.inject.Inject;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.GeometryFactory;
 
 /**
  * TODO JavaDoc
@@ -78,12 +92,17 @@ import com.google.inject.Inject;
  * @author Jan Wirwahn <jan.wirwahn@wwu.de>
  */
 public class DataServiceImpl implements DataService {
+    /**
+     * The number of streamed measurements that are inserted at once.
+     */
+    public static final int MEASUREMENT_BATCH_SIZE = 500;
     private final TrackDao trackDao;
     private final MeasurementDao measurementDao;
     private final SensorDao sensorDao;
     private final PhenomenonDao phenomenonDao;
     private final TermsOfUseDao termsOfUseDao;
     private final FuelingDao fuelingDao;
+    private final IdempotencyKeyDao idempotencyKeyDao;
     private final EntityValidator<Track> trackValidator;
     private final EntityUpdater<Track> trackUpdater;
     private final EntityUpdater<Measurement> measurementUpdater;
@@ -92,6 +111,9 @@ public class DataServiceImpl implements DataService {
     private final EventBus eventBus;
 	private final AnnouncementsDao announcementsDao;
 	private final BadgesDao badgesDao;
+    private final TrackSimplifier trackSimplifier;
+    private final TrackOverviewUpdater trackOverviewUpdater;
+    private final GeometryFactory geometryFactory;
 
     @Inject
     public DataServiceImpl(TrackDao trackDao, MeasurementDao measurementDao,
@@ -99,11 +121,15 @@ public class DataServiceImpl implements DataService {
                            TermsOfUseDao termsOfUseDao,
                            AnnouncementsDao announcementsDao,
                            BadgesDao badgesDao, FuelingDao fuelingDao,
+                           IdempotencyKeyDao idempotencyKeyDao,
                            EntityValidator<Track> trackValidator,
                            EntityUpdater<Track> trackUpdater,
                            EntityUpdater<Measurement> measurementUpdater,
                            EntityValidator<Measurement> measurementValidator,
                            EntityValidator<Fueling> fuelingValidator,
+                           TrackSimplifier trackSimplifier,
+                           TrackOverviewUpdater trackOverviewUpdater,
+                           GeometryFactory geometryFactory,
                            EventBus eventBus) {
         this.trackDao = trackDao;
         this.measurementDao = measurementDao;
@@ -119,14 +145,17 @@ public class DataServiceImpl implements DataService {
         this.badgesDao = badgesDao;
         this.fuelingValidator = fuelingValidator;
         this.fuelingDao = fuelingDao;
+        this.idempotencyKeyDao = idempotencyKeyDao;
+        this.trackSimplifier = trackSimplifier;
+        this.trackOverviewUpdater = trackOverviewUpdater;
+        this.geometryFactory = geometryFactory;
     }
 
     @Override
     public Track modifyTrack(Track track, Track changes)
             throws ValidationException, IllegalModificationException {
         this.trackValidator.validateCreate(track);
-        this.trackUpdater.update(changes, track);
-        this.trackDao.save(track);
+        this.trackDao.update(track, this.trackUpdater.update(changes, track));
         this.eventBus.post(new ChangedTrackEvent(track.getUser(), track));
         return track;
     }
@@ -165,6 +194,8 @@ public class DataServiceImpl implements DataService {
         }
         track.setBegin(begin);
         track.setEnd(end);
+        track.setOverview(this.trackSimplifier
+                .simplify(sortedByTime(measurements)));
         this.trackDao.create(track);
         for (Measurement m : measurements) {
             this.measurementDao.create(m);
@@ -173,6 +204,90 @@ public class DataServiceImpl implements DataService {
         return track;
     }
 
+    @Override
+    public Track createTrack(Track track, Iterator<Measurement> measurements)
+            throws ValidationException {
+        this.trackValidator.validateCreate(track);
+        /* hide the track until the last batch is inserted */
+        track.setPending(true);
+        /* remove the remains of an interrupted attempt */
+        this.trackDao.deletePending(track);
+        this.trackDao.create(track);
+        try {
+            List<Position> positions = new ArrayList<Position>();
+            List<Measurement> batch =
+                    new ArrayList<Measurement>(MEASUREMENT_BATCH_SIZE);
+            Envelope bbox = new Envelope();
+            DateTime begin = null, end = null;
+            while (measurements.hasNext()) {
+                Measurement m = measurements.next();
+                m.setTrack(track);
+                m.setUser(track.getUser());
+                this.measurementValidator.validateCreate(m);
+                if (begin == null || m.getTime().isBefore(begin)) {
+                    begin = m.getTime();
+                }
+                if (end == null || m.getTime().isAfter(end)) {
+                    end = m.getTime();
+                }
+                if (m.hasGeometry()) {
+                    bbox.expandToInclude(m.getGeometry().getEnvelopeInternal());
+                    positions.add(new Position(m.getTime().getMillis(),
+                                               m.getGeometry().getCoordinate()));
+                }
+                batch.add(m);
+                if (batch.size() == MEASUREMENT_BATCH_SIZE) {
+                    this.measurementDao.create(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                this.measurementDao.create(batch);
+            }
+            ChangeSet changes = new ChangeSet();
+            track.setBegin(begin);
+            changes.set(TrackUpdater.BEGIN, begin);
+            track.setEnd(end);
+            changes.set(TrackUpdater.END, end);
+            if (!bbox.isNull()) {
+                track.setBoundingBox(this.geometryFactory.toGeometry(bbox));
+                changes.set(TrackUpdater.BOUNDING_BOX, track.getBoundingBox());
+            }
+            track.setOverview(this.trackSimplifier
+                    .simplify(coordinatesByTime(positions)));
+            changes.set(TrackUpdater.OVERVIEW, track.getOverview());
+            track.setPending(false);
+            changes.unset(TrackUpdater.PENDING);
+            this.trackDao.update(track, changes);
+        } catch (RuntimeException e) {
+            this.trackDao.deletePending(track);
+            throw e;
+        }
+        this.eventBus.post(new CreatedTrackEvent(track.getUser(), track));
+        return track;
+    }
+
+    private List<Coordinate> coordinatesByTime(List<Position> positions) {
+        Collections.sort(positions);
+        List<Coordinate> coordinates =
+                new ArrayList<Coordinate>(positions.size());
+        for (Position p : positions) {
+            coordinates.add(p.coordinate);
+        }
+        return coordinates;
+    }
+
+    private List<Measurement> sortedByTime(List<Measurement> measurements) {
+        List<Measurement> sorted = new ArrayList<Measurement>(measurements);
+        Collections.sort(sorted, new Comparator<Measurement>() {
+            @Override
+            public int compare(Measurement o1, Measurement o2) {
+                return o1.getTime().compareTo(o2.getTime());
+            }
+        });
+        return sorted;
+    }
+
     @Override
     public void deleteTrack(Track track) {
         this.trackDao.delete(track);
@@ -183,6 +298,9 @@ public class DataServiceImpl implements DataService {
     public Measurement createMeasurement(Measurement m) {
         this.measurementValidator.validateCreate(m);
         this.measurementDao.create(m);
+        if (m.hasTrack()) {
+            this.trackOverviewUpdater.schedule(m.getTrack());
+        }
         this.eventBus.post(new CreatedMeasurementEvent(m.getUser(), m));
         return m;
     }
@@ -198,11 +316,65 @@ public class DataServiceImpl implements DataService {
         if (!track.hasEnd() || m.getTime().isAfter(track.getEnd())) {
             track.setEnd(m.getTime());
         }
-        this.trackDao.save(track);
+        /* the time range is maintained atomically by the DAO */
+        this.trackDao.update(track, new ChangeSet()
+                .min(TrackUpdater.BEGIN, m.getTime())
+                .max(TrackUpdater.END, m.getTime()));
+        this.trackOverviewUpdater.schedule(track);
         this.eventBus.post(new CreatedMeasurementEvent(m.getUser(), m));
         return m;
     }
 
+    @Override
+    public List<Measurement> createMeasurements(Track track,
+                                                List<Measurement> measurements) {
+        if (measurements.isEmpty()) {
+            return measurements;
+        }
+        for (Measurement m : measurements) {
+            this.measurementValidator.validateCreate(m);
+            m.setTrack(track);
+        }
+        int created = 0;
+        try {
+            for (List<Measurement> batch :
+                    Lists.partition(measurements, MEASUREMENT_BATCH_SIZE)) {
+                this.measurementDao.create(batch);
+                created += batch.size();
+            }
+        } finally {
+            /* keep the track in line with what was actually inserted */
+            if (created > 0) {
+                updateTimeRange(track, measurements.subList(0, created));
+            }
+        }
+        this.eventBus.post(new CreatedMeasurementsEvent(
+                measurements.get(0).getUser(), track, measurements));
+        return measurements;
+    }
+
+    private void updateTimeRange(Track track, List<Measurement> measurements) {
+        DateTime first = null, last = null;
+        for (Measurement m : measurements) {
+            if (first == null || m.getTime().isBefore(first)) {
+                first = m.getTime();
+            }
+            if (last == null || m.getTime().isAfter(last)) {
+                last = m.getTime();
+            }
+        }
+        if (!track.hasBegin() || first.isBefore(track.getBegin())) {
+            track.setBegin(first);
+        }
+        if (!track.hasEnd() || last.isAfter(track.getEnd())) {
+            track.setEnd(last);
+        }
+        this.trackDao.update(track, new ChangeSet()
+                .min(TrackUpdater.BEGIN, first)
+                .max(TrackUpdater.END, last));
+        this.trackOverviewUpdater.schedule(track);
+    }
+
     @Override
     public Measurement getMeasurement(String id) throws
             MeasurementNotFoundException {
@@ -216,6 +388,9 @@ public class DataServiceImpl implements DataService {
     @Override
     public void deleteMeasurement(Measurement m) {
         this.measurementDao.delete(m);
+        if (m.hasTrack()) {
+            this.trackOverviewUpdater.schedule(m.getTrack());
+        }
         this.eventBus.post(new DeletedMeasurementEvent(m, m.getUser()));
     }
 
@@ -329,4 +504,44 @@ public class DataServiceImpl implements DataService {
         }
         return m;
     }
+
+    @Override
+    public IdempotencyKey getIdempotencyKey(String user, String key) {
+        return this.idempotencyKeyDao.get(user, key);
+    }
+
+    @Override
+    public boolean reserveIdempotencyKey(String user, String key) {
+        return this.idempotencyKeyDao.reserve(user, key);
+    }
+
+    @Override
+    public void completeIdempotencyKey(String user, String key, String hash,
+                                       String location) {
+        this.idempotencyKeyDao.complete(user, key, hash, location);
+    }
+
+    @Override
+    public void releaseIdempotencyKey(String user, String key) {
+        this.idempotencyKeyDao.release(user, key);
+    }
+
+    /**
+     * The position of a streamed measurement, kept to compute the overview
+     * without holding on to the measurement itself.
+     */
+    private static class Position implements Comparable<Position> {
+        private final long time;
+        private final Coordinate coordinate;
+
+        Position(long time, Coordinate coordinate) {
+            this.time = time;
+            this.coordinate = coordinate;
+        }
+
+        @Override
+        public int compareTo(Position o) {
+            return time < o.time ? -1 : (time == o.time ? 0 : 1);
+        }
+    }
 }
@@ -16,6 +16,8 @@
  */
 package org.envirocar.server.core;
 
+import java.util.Set;
+
 import org.envirocar.server.core.entities.User;
 import org.envirocar.server.core.entities.Users;
 import org.envirocar.server.core.exception.UserNotFoundException;
@@ -36,6 +38,17 @@ public interface FriendService {
 
     Users getFriends(User user);
 
+    /**
+     * Gets those of the specified users that have {@code friend} as a
+     * friend.
+     *
+     * @param friend the friend
+     * @param users  the names of the users to check
+     *
+     * @return the names of the users that have {@code friend} as a friend
+     */
+    Set<String> getUsersWithFriend(User friend, Set<String> users);
+
     void removeFriend(User user, User friend)
             throws UserNotFoundException;
     
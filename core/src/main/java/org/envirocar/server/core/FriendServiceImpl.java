@@ -16,6 +16,8 @@
  */
 package org.envirocar.server.core;
 
+import java.util.Set;
+
 import org.envirocar.server.core.dao.UserDao;
 import org.envirocar.server.core.entities.User;
 import org.envirocar.server.core.entities.Users;
@@ -82,6 +84,11 @@ public class FriendServiceImpl implements FriendService {
         return this.userDao.getFriend(user1, user2.getName()) != null;
     }
 
+    @Override
+    public Set<String> getUsersWithFriend(User friend, Set<String> users) {
+        return this.userDao.getUsersWithFriend(friend, users);
+    }
+
 	@Override
 	public Users pendingIncomingRequests(User user) {
 		return this.userDao.getPendingIncomingFriendRequests(user);
@@ -16,6 +16,9 @@
  */
 package org.envirocar.server.core;
 
+import java.util.Map;
+import java.util.Set;
+
 import org.envirocar.server.core.entities.Group;
 import org.envirocar.server.core.entities.Groups;
 import org.envirocar.server.core.entities.User;
@@ -69,4 +72,13 @@ public interface GroupService {
     Groups searchGroups(String search, Pagination p);
 
     boolean shareGroup(User user, User user0);
+
+    /**
+     * Gets the groups of the user together with their members.
+     *
+     * @param user the user
+     *
+     * @return the names of the members keyed by the group name
+     */
+    Map<String, Set<String>> getMemberships(User user);
 }
@@ -16,6 +16,9 @@
  */
 package org.envirocar.server.core;
 
+import java.util.Map;
+import java.util.Set;
+
 import org.envirocar.server.core.dao.GroupDao;
 import org.envirocar.server.core.entities.Group;
 import org.envirocar.server.core.entities.Groups;
@@ -84,8 +87,7 @@ public class GroupServiceImpl implements GroupService {
     public Group modifyGroup(Group group, Group changes)
             throws ValidationException, IllegalModificationException {
         this.groupValidator.validateUpdate(group);
-        this.groupUpdater.update(changes, group);
-        this.groupDao.save(group);
+        this.groupDao.update(group, this.groupUpdater.update(changes, group));
         this.eventBus.post(new ChangedGroupEvent(group, group.getOwner()));
         return group;
     }
@@ -143,6 +145,11 @@ public class GroupServiceImpl implements GroupService {
         return this.groupDao.shareGroup(user, user0);
     }
 
+    @Override
+    public Map<String, Set<String>> getMemberships(User user) {
+        return this.groupDao.getMemberships(user);
+    }
+
     @Override
     public Group getGroup(User user, String groupName) throws
             GroupNotFoundException {
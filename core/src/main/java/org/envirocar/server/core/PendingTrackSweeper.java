@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core;
+
+import java.io.Closeable;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.envirocar.server.core.dao.TrackDao;
+import org.envirocar.server.core.util.GroupedAndNamedThreadFactory;
+import org.envirocar.server.core.util.ShutdownHooks;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Periodically deletes pending tracks that are older than {@link #TTL}.
+ * Tracks stay pending until all of their measurements are inserted; an
+ * upload that is aborted without cleaning up, e.g. by a crash of the
+ * server, leaves a pending track whose measurements would otherwise be
+ * returned by measurement queries that are not restricted to a track.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class PendingTrackSweeper implements Closeable {
+    /**
+     * The age in hours after which a pending track is deleted.
+     */
+    public static final int TTL = 24;
+    private static final Logger log = LoggerFactory
+            .getLogger(PendingTrackSweeper.class);
+    private static final long INTERVAL = 1;
+    private static final long SHUTDOWN_TIMEOUT = 10;
+    private final TrackDao trackDao;
+    private final ScheduledThreadPoolExecutor executor;
+
+    @Inject
+    public PendingTrackSweeper(TrackDao trackDao,
+                               ShutdownHooks shutdownHooks) {
+        this.trackDao = trackDao;
+        this.executor = new ScheduledThreadPoolExecutor(
+                1, new GroupedAndNamedThreadFactory("pending-tracks"));
+        shutdownHooks.register(this);
+        this.executor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sweep();
+                } catch (RuntimeException e) {
+                    log.error("Could not delete stale pending tracks", e);
+                }
+            }
+        }, INTERVAL, INTERVAL, TimeUnit.HOURS);
+    }
+
+    /**
+     * Deletes the pending tracks that are older than {@link #TTL}.
+     *
+     * @return the number of deleted tracks
+     */
+    int sweep() {
+        int deleted = trackDao.deleteStalePending(
+                new DateTime().minusHours(TTL));
+        if (deleted > 0) {
+            log.info("Deleted {} stale pending tracks", deleted);
+        }
+        return deleted;
+    }
+
+    /**
+     * Stops the periodic sweeps.
+     */
+    @Override
+    public void close() {
+        ShutdownHooks.shutdown(executor, SHUTDOWN_TIMEOUT);
+    }
+}
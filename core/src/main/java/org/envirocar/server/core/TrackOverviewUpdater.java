@@ -0,0 +1,206 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.envirocar.server.core.dao.MeasurementDao;
+import org.envirocar.server.core.dao.TrackDao;
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.Track;
+import org.envirocar.server.core.filter.MeasurementFilter;
+import org.envirocar.server.core.update.ChangeSet;
+import org.envirocar.server.core.update.TrackUpdater;
+import org.envirocar.server.core.util.GroupedAndNamedThreadFactory;
+import org.envirocar.server.core.util.ShutdownHooks;
+import org.envirocar.server.core.util.TrackSimplifier;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.Sets;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Keeps the time range, bounding box and overview of tracks in line with
+ * their stored measurements after measurements were added or deleted.
+ * <p/>
+ * Changes only schedule an update of the track. Updates of the same track
+ * are coalesced until they run, so appending measurements one by one does not
+ * read the whole track for every measurement. An update reads the
+ * measurements from the database and writes the result only if the track was
+ * not modified in the meantime; otherwise it is scheduled again. Concurrent
+ * appends can therefore not overwrite each other's contribution.
+ * <p/>
+ * Scheduled tracks are flagged as {@linkplain TrackUpdater#OUTDATED outdated}
+ * until their update is written, and the updates of flagged tracks are
+ * resumed after a restart.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class TrackOverviewUpdater implements Closeable {
+    private static final Logger log = LoggerFactory
+            .getLogger(TrackOverviewUpdater.class);
+    private static final long DELAY = 1000;
+    private static final long SHUTDOWN_TIMEOUT = 10;
+    private final Set<String> pending = Sets.newSetFromMap(
+            new ConcurrentHashMap<String, Boolean>());
+    private final TrackDao trackDao;
+    private final MeasurementDao measurementDao;
+    private final TrackSimplifier trackSimplifier;
+    private final GeometryFactory geometryFactory;
+    private final ScheduledThreadPoolExecutor executor;
+
+    @Inject
+    public TrackOverviewUpdater(TrackDao trackDao,
+                                MeasurementDao measurementDao,
+                                TrackSimplifier trackSimplifier,
+                                GeometryFactory geometryFactory,
+                                ShutdownHooks shutdownHooks) {
+        this.trackDao = trackDao;
+        this.measurementDao = measurementDao;
+        this.trackSimplifier = trackSimplifier;
+        this.geometryFactory = geometryFactory;
+        this.executor = new ScheduledThreadPoolExecutor(
+                1, new GroupedAndNamedThreadFactory("track-overview"));
+        /* outstanding updates are resumed from the flags after a restart */
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        shutdownHooks.register(this);
+        this.executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    resume();
+                } catch (RuntimeException e) {
+                    log.error("Could not resume outdated tracks", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Schedules an update of the specified track.
+     *
+     * @param track the track whose measurements changed
+     */
+    public void schedule(Track track) {
+        String id = track.getIdentifier();
+        if (!pending.contains(id)) {
+            trackDao.update(track,
+                            new ChangeSet().set(TrackUpdater.OUTDATED, true));
+        }
+        schedule(id);
+    }
+
+    /**
+     * Schedules the updates of the tracks that were flagged as outdated but
+     * not updated, e.g. because the server was stopped in the meantime.
+     *
+     * @return the number of scheduled tracks
+     */
+    int resume() {
+        List<String> outdated = trackDao.getOutdated();
+        for (String id : outdated) {
+            schedule(id);
+        }
+        if (!outdated.isEmpty()) {
+            log.info("Resumed the update of {} outdated tracks",
+                     outdated.size());
+        }
+        return outdated.size();
+    }
+
+    /**
+     * Stops the updates. Tracks whose update did not run stay flagged as
+     * outdated.
+     */
+    @Override
+    public void close() {
+        ShutdownHooks.shutdown(executor, SHUTDOWN_TIMEOUT);
+    }
+
+    private void schedule(final String id) {
+        if (pending.add(id)) {
+            executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    pending.remove(id);
+                    try {
+                        if (!update(id)) {
+                            schedule(id);
+                        }
+                    } catch (RuntimeException e) {
+                        log.error("Could not update track " + id, e);
+                    }
+                }
+            }, DELAY, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Updates the specified track from its stored measurements.
+     *
+     * @param id the track identifier
+     *
+     * @return {@code false} if the track was modified concurrently
+     */
+    boolean update(String id) {
+        Track track = trackDao.getById(id);
+        if (track == null) {
+            return true;
+        }
+        DateTime begin = null, end = null;
+        Envelope bbox = new Envelope();
+        List<Coordinate> coordinates = new ArrayList<Coordinate>();
+        /* the measurements are ordered by time */
+        for (Measurement m : measurementDao.get(new MeasurementFilter(track))) {
+            if (begin == null) {
+                begin = m.getTime();
+            }
+            end = m.getTime();
+            if (m.hasGeometry()) {
+                bbox.expandToInclude(m.getGeometry().getEnvelopeInternal());
+                coordinates.add(m.getGeometry().getCoordinate());
+            }
+        }
+        Geometry boundingBox = null;
+        if (!bbox.isNull()) {
+            boundingBox = geometryFactory.toGeometry(bbox);
+        }
+        /* null values are unset */
+        ChangeSet changes = new ChangeSet()
+                .set(TrackUpdater.BEGIN, begin)
+                .set(TrackUpdater.END, end)
+                .set(TrackUpdater.BOUNDING_BOX, boundingBox)
+                .set(TrackUpdater.OVERVIEW,
+                     trackSimplifier.simplify(coordinates))
+                .unset(TrackUpdater.OUTDATED);
+        return trackDao.updateIfUnmodified(track, changes);
+    }
+}
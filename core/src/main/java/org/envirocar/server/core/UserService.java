@@ -26,6 +26,7 @@ import org.envirocar.server.core.exception.ResourceAlreadyExistException;
 import org.envirocar.server.core.exception.UserNotFoundException;
 import org.envirocar.server.core.exception.ValidationException;
 import org.envirocar.server.core.filter.ActivityFilter;
+import org.envirocar.server.core.filter.Projection;
 import org.envirocar.server.core.util.pagination.Pagination;
 
 /**
@@ -40,6 +41,8 @@ public interface UserService {
 
     Users getUsers(Pagination p);
 
+    Users getUsers(Pagination p, Projection projection);
+
     User getUser(String name) throws
             UserNotFoundException;
 
@@ -33,6 +33,7 @@ import org.envirocar.server.core.exception.ResourceAlreadyExistException;
 import org.envirocar.server.core.exception.UserNotFoundException;
 import org.envirocar.server.core.exception.ValidationException;
 import org.envirocar.server.core.filter.ActivityFilter;
+import org.envirocar.server.core.filter.Projection;
 import org.envirocar.server.core.update.EntityUpdater;
 import org.envirocar.server.core.util.pagination.Pagination;
 import org.envirocar.server.core.util.PasswordEncoder;
@@ -97,6 +98,11 @@ public class UserServiceImpl implements UserService {
         return this.userDao.get(p);
     }
 
+    @Override
+    public Users getUsers(Pagination p, Projection projection) {
+        return this.userDao.get(p, projection);
+    }
+
     @Override
     public User modifyUser(User user, User changes) throws UserNotFoundException,
                                                            IllegalModificationException,
@@ -108,8 +114,7 @@ public class UserServiceImpl implements UserService {
                 throw new ResourceAlreadyExistException();
             }
         }
-        this.userUpdater.update(changes, user);
-        this.userDao.save(user);
+        this.userDao.update(user, this.userUpdater.update(changes, user));
         this.eventBus.post(new ChangedProfileEvent(user));
         return user;
     }
@@ -26,6 +26,8 @@ import org.envirocar.server.core.event.FriendedUserEvent;
 import org.envirocar.server.core.event.JoinedGroupEvent;
 import org.envirocar.server.core.event.LeftGroupEvent;
 import org.envirocar.server.core.event.UnfriendedUserEvent;
+import org.envirocar.server.core.eventbus.EventLane;
+import org.envirocar.server.core.eventbus.Lane;
 
 import com.google.common.eventbus.AllowConcurrentEvents;
 import com.google.common.eventbus.Subscribe;
@@ -36,6 +38,7 @@ import com.google.inject.Inject;
  *
  * @author Christian Autermann <autermann@uni-muenster.de>
  */
+@EventLane(Lane.BACKGROUND)
 public class ActivityListener {
     private final ActivityDao dao;
     private final ActivityFactory fac;
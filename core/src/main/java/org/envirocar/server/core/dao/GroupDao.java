@@ -16,10 +16,14 @@
  */
 package org.envirocar.server.core.dao;
 
+import java.util.Map;
+import java.util.Set;
+
 import org.envirocar.server.core.entities.Group;
 import org.envirocar.server.core.entities.Groups;
 import org.envirocar.server.core.entities.User;
 import org.envirocar.server.core.entities.Users;
+import org.envirocar.server.core.update.ChangeSet;
 import org.envirocar.server.core.util.pagination.Pagination;
 
 /**
@@ -40,6 +44,14 @@ public interface GroupDao {
 
     Group save(Group group);
 
+    /**
+     * Writes the changed properties of the group.
+     *
+     * @param group   the group
+     * @param changes the changes
+     */
+    void update(Group group, ChangeSet changes);
+
     void delete(Group group);
 
     Group get(User user, String groupName);
@@ -55,4 +67,13 @@ public interface GroupDao {
     Users getMembers(Group group, Pagination pagination);
 
     boolean shareGroup(User user, User user0);
+
+    /**
+     * Gets the groups of the user together with their members.
+     *
+     * @param user the user
+     *
+     * @return the names of the members keyed by the group name
+     */
+    Map<String, Set<String>> getMemberships(User user);
 }
@@ -0,0 +1,65 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.dao;
+
+import org.envirocar.server.core.entities.IdempotencyKey;
+
+/**
+ * DAO for {@link IdempotencyKey}s. Keys expire a day after they were
+ * reserved.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public interface IdempotencyKeyDao {
+    /**
+     * Get the {@code IdempotencyKey} of the specified user.
+     *
+     * @param user the name of the user
+     * @param key  the key
+     *
+     * @return the {@code IdempotencyKey} or {@code null}
+     */
+    IdempotencyKey get(String user, String key);
+
+    /**
+     * Reserve the key for a request that is about to be processed.
+     *
+     * @param user the name of the user
+     * @param key  the key
+     *
+     * @return {@code false} if the key is already in use
+     */
+    boolean reserve(String user, String key);
+
+    /**
+     * Record the result of the request a key was reserved for.
+     *
+     * @param user     the name of the user
+     * @param key      the key
+     * @param hash     the hash of the request
+     * @param location the location of the created resource
+     */
+    void complete(String user, String key, String hash, String location);
+
+    /**
+     * Release a key whose request did not create a resource.
+     *
+     * @param user the name of the user
+     * @param key  the key
+     */
+    void release(String user, String key);
+}
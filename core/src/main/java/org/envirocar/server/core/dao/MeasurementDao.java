@@ -16,6 +16,8 @@
  */
 package org.envirocar.server.core.dao;
 
+import java.util.List;
+
 import org.envirocar.server.core.entities.Measurement;
 import org.envirocar.server.core.entities.Measurements;
 import org.envirocar.server.core.filter.MeasurementFilter;
@@ -28,6 +30,13 @@ import org.envirocar.server.core.filter.MeasurementFilter;
 public interface MeasurementDao {
     Measurement create(Measurement measurement);
 
+    /**
+     * Inserts the measurements with a single round trip.
+     *
+     * @param measurements the new measurements
+     */
+    void create(List<Measurement> measurements);
+
     Measurement save(Measurement measurement);
 
     void delete(Measurement measurement);
@@ -16,9 +16,13 @@
  */
 package org.envirocar.server.core.dao;
 
+import java.util.List;
+
 import org.envirocar.server.core.entities.Track;
 import org.envirocar.server.core.entities.Tracks;
 import org.envirocar.server.core.filter.TrackFilter;
+import org.envirocar.server.core.update.ChangeSet;
+import org.joda.time.DateTime;
 
 /**
  * TODO JavaDoc
@@ -32,8 +36,57 @@ public interface TrackDao {
 
     void update(Track track);
 
+    /**
+     * Writes the changed properties of the track.
+     *
+     * @param track   the track
+     * @param changes the changes
+     */
+    void update(Track track, ChangeSet changes);
+
+    /**
+     * Writes the changed properties of the track if it was not modified since
+     * it was read. Only {@linkplain ChangeSet#set(String, Object) set} and
+     * {@linkplain ChangeSet#unset(String) unset} changes are supported.
+     *
+     * @param track   the track as it was read
+     * @param changes the changes
+     *
+     * @return if the track was updated
+     */
+    boolean updateIfUnmodified(Track track, ChangeSet changes);
+
     void delete(Track track);
 
+    /**
+     * Deletes the track with the identifier of the specified track together
+     * with its measurements if it is {@linkplain Track#isPending() pending},
+     * e.g. the remains of an interrupted upload. Other tracks are not
+     * affected.
+     *
+     * @param track the track
+     */
+    void deletePending(Track track);
+
+    /**
+     * Deletes the pending tracks that were created before the specified
+     * time together with their measurements, i.e. the remains of uploads
+     * that were aborted without cleaning up.
+     *
+     * @param createdBefore the time before which pending tracks are stale
+     *
+     * @return the number of deleted tracks
+     */
+    int deleteStalePending(DateTime createdBefore);
+
+    /**
+     * Returns the identifiers of the tracks whose time range, bounding box
+     * and overview were not yet updated after their measurements changed.
+     *
+     * @return the track identifiers
+     */
+    List<String> getOutdated();
+
     Track getById(String id);
 
     Tracks get(TrackFilter request);
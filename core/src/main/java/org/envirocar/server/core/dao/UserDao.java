@@ -16,10 +16,14 @@
  */
 package org.envirocar.server.core.dao;
 
+import java.util.Set;
+
 import org.envirocar.server.core.entities.PasswordReset;
 import org.envirocar.server.core.entities.User;
 import org.envirocar.server.core.entities.Users;
 import org.envirocar.server.core.exception.BadRequestException;
+import org.envirocar.server.core.filter.Projection;
+import org.envirocar.server.core.update.ChangeSet;
 import org.envirocar.server.core.util.pagination.Pagination;
 
 /**
@@ -34,16 +38,37 @@ public interface UserDao {
 
     Users get(Pagination p);
 
+    Users get(Pagination p, Projection projection);
+
     User create(User user);
 
     User save(User user);
 
+    /**
+     * Writes the changed properties of the user.
+     *
+     * @param user    the user
+     * @param changes the changes
+     */
+    void update(User user, ChangeSet changes);
+
     void delete(User user);
 
     Users getFriends(User user);
 
     User getFriend(User user, String friendName);
 
+    /**
+     * Gets those of the specified users that have {@code friend} as a
+     * friend.
+     *
+     * @param friend the friend
+     * @param users  the names of the users to check
+     *
+     * @return the names of the users that have {@code friend} as a friend
+     */
+    Set<String> getUsersWithFriend(User friend, Set<String> users);
+
     void addFriend(User user, User friend);
 
     void removeFriend(User user, User friend);
@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.entities;
+
+/**
+ * A client supplied key that identifies a creating request, so that a
+ * retried request can be answered with the result of the first one.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public interface IdempotencyKey extends BaseEntity {
+    /**
+     * @return the key
+     */
+    String getKey();
+
+    /**
+     * @return the name of the user that issued the request
+     */
+    String getUser();
+
+    /**
+     * @return the hash of the request or {@code null} if the request is
+     *         still being processed
+     */
+    String getHash();
+
+    /**
+     * @return the location of the created resource or {@code null} if the
+     *         request is still being processed
+     */
+    String getLocation();
+
+    /**
+     * @return if the request was processed
+     */
+    boolean isCompleted();
+}
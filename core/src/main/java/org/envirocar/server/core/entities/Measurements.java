@@ -16,6 +16,7 @@
  */
 package org.envirocar.server.core.entities;
 
+import org.envirocar.server.core.util.MeasurementStream;
 import org.envirocar.server.core.util.UpCastingIterable;
 
 /**
@@ -24,8 +25,22 @@ import org.envirocar.server.core.util.UpCastingIterable;
  * @author Christian Autermann <autermann@uni-muenster.de>
  */
 public class Measurements extends UpCastingIterable<Measurement> {
+    private final MeasurementStream stream;
+
     protected Measurements(Builder builder) {
         super(builder);
+        this.stream = builder.getStream();
+    }
+
+    /**
+     * @return if the measurements can also be read without creating entities
+     */
+    public boolean hasStream() {
+        return stream != null;
+    }
+
+    public MeasurementStream getStream() {
+        return stream;
     }
 
     public static Builder from(Iterable<? extends Measurement> delegate) {
@@ -33,10 +48,21 @@ public class Measurements extends UpCastingIterable<Measurement> {
     }
 
     public static class Builder extends UpCastingIterable.Builder<Builder, Measurements, Measurement> {
+        private MeasurementStream stream;
+
         protected Builder(Iterable<? extends Measurement> delegate) {
             super(delegate);
         }
 
+        public Builder withStream(MeasurementStream stream) {
+            this.stream = stream;
+            return this;
+        }
+
+        protected MeasurementStream getStream() {
+            return stream;
+        }
+
         @Override
         public Measurements build() {
             return new Measurements(this);
@@ -50,6 +50,12 @@ public interface Track extends BaseEntity {
 
     boolean hasBoundingBox();
 
+    Geometry getOverview();
+
+    void setOverview(Geometry overview);
+
+    boolean hasOverview();
+
     User getUser();
 
     void setUser(User user);
@@ -91,4 +97,12 @@ public interface Track extends BaseEntity {
 	boolean hasObdDevice();
 
 	boolean hasTouVersion();
+
+    /**
+     * @return whether the measurements of the track are still being
+     *         inserted; pending tracks are not visible to clients
+     */
+    boolean isPending();
+
+    void setPending(boolean pending);
 }
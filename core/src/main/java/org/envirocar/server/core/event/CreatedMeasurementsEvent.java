@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.event;
+
+import java.util.List;
+
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.Track;
+import org.envirocar.server.core.entities.User;
+
+/**
+ * Posted once for a batch of measurements appended to a track.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class CreatedMeasurementsEvent implements TrackEvent {
+    private final User user;
+    private final Track track;
+    private final List<Measurement> measurements;
+
+    public CreatedMeasurementsEvent(User user, Track track,
+                                    List<Measurement> measurements) {
+        this.user = user;
+        this.track = track;
+        this.measurements = measurements;
+    }
+
+    @Override
+    public User getUser() {
+        return user;
+    }
+
+    @Override
+    public Track getTrack() {
+        return track;
+    }
+
+    public List<Measurement> getMeasurements() {
+        return measurements;
+    }
+}
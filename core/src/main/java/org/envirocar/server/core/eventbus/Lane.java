@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.eventbus;
+
+/**
+ * Priority lanes of the {@link LaneEventBus}. Every listener gets its own
+ * bounded executor sized by its lane, so slow listeners can not delay the
+ * listeners of another lane.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public enum Lane {
+    /**
+     * Short, latency-sensitive listeners, e.g. cache invalidation.
+     */
+    CRITICAL(2, 10000, Overflow.CALLER_RUNS),
+    /**
+     * Listeners that are not annotated with {@link EventLane}.
+     */
+    DEFAULT(2, 1000, Overflow.CALLER_RUNS),
+    /**
+     * Listeners writing activities or calling remote services.
+     */
+    BACKGROUND(1, 1000, Overflow.CALLER_RUNS);
+    private final int threads;
+    private final int queueSize;
+    private final Overflow overflow;
+
+    private Lane(int threads, int queueSize, Overflow overflow) {
+        this.threads = threads;
+        this.queueSize = queueSize;
+        this.overflow = overflow;
+    }
+
+    /**
+     * @return the default number of threads per listener
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the default number of queued events per listener
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * @return the default handling of events exceeding the queue
+     */
+    public Overflow getOverflow() {
+        return overflow;
+    }
+
+    /**
+     * Handling of events that do not fit into the queue of a listener.
+     */
+    public enum Overflow {
+        /**
+         * The posting thread handles the event itself, slowing down the
+         * producer.
+         */
+        CALLER_RUNS,
+        /**
+         * The event is dropped for this listener.
+         */
+        DISCARD
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.eventbus;
+
+import java.lang.reflect.Method;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.envirocar.server.core.metrics.Metrics;
+
+import com.google.common.eventbus.AsyncEventBus;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * Event bus that delivers the events of every listener through a bounded
+ * executor of its own, sized by the {@link Lane} of the listener. A busy
+ * listener therefore only fills its own queue and, once the queue is full,
+ * slows down the producers or drops its events instead of creating
+ * threads.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class LaneEventBus extends EventBus {
+    private final String identifier;
+    private final Map<Lane, LaneSettings> settings;
+    private final Metrics metrics;
+    private final CopyOnWriteArrayList<EventBus> buses =
+            new CopyOnWriteArrayList<EventBus>();
+    private final Map<Object, Registration> registrations =
+            new IdentityHashMap<Object, Registration>();
+
+    public LaneEventBus(String identifier, Map<Lane, LaneSettings> settings,
+                        Metrics metrics) {
+        super(identifier);
+        this.identifier = identifier;
+        this.settings = settings;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @param type the type
+     *
+     * @return if the type has methods annotated with {@link Subscribe}
+     */
+    public static boolean isListener(Class<?> type) {
+        for (Method method : type.getMethods()) {
+            if (method.isAnnotationPresent(Subscribe.class)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void register(Object listener) {
+        if (!isListener(listener.getClass())) {
+            return;
+        }
+        EventLane annotation = listener.getClass()
+                .getAnnotation(EventLane.class);
+        Lane lane = annotation == null ? Lane.DEFAULT : annotation.value();
+        String name = listener.getClass().getSimpleName();
+        ListenerExecutor executor = new ListenerExecutor(
+                name, lane, settings.get(lane), metrics);
+        EventBus bus = new AsyncEventBus(identifier + "-" + name, executor);
+        bus.register(listener);
+        synchronized (registrations) {
+            if (registrations.containsKey(listener)) {
+                executor.shutdown();
+                return;
+            }
+            registrations.put(listener, new Registration(bus, executor));
+        }
+        buses.add(bus);
+    }
+
+    @Override
+    public void unregister(Object listener) {
+        Registration registration;
+        synchronized (registrations) {
+            registration = registrations.remove(listener);
+        }
+        if (registration != null) {
+            buses.remove(registration.bus);
+            registration.bus.unregister(listener);
+            registration.executor.shutdown();
+        }
+    }
+
+    @Override
+    public void post(Object event) {
+        for (EventBus bus : buses) {
+            bus.post(event);
+        }
+    }
+
+    private static class Registration {
+        private final EventBus bus;
+        private final ListenerExecutor executor;
+
+        Registration(EventBus bus, ListenerExecutor executor) {
+            this.bus = bus;
+            this.executor = executor;
+        }
+    }
+}
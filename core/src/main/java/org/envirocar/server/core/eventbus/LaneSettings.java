@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.eventbus;
+
+/**
+ * The sizing of the executors of the listeners of a {@link Lane}.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class LaneSettings {
+    private final int threads;
+    private final int queueSize;
+    private final Lane.Overflow overflow;
+
+    public LaneSettings(int threads, int queueSize, Lane.Overflow overflow) {
+        this.threads = threads;
+        this.queueSize = queueSize;
+        this.overflow = overflow;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public Lane.Overflow getOverflow() {
+        return overflow;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.eventbus;
+
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.envirocar.server.core.metrics.Buckets;
+import org.envirocar.server.core.metrics.Gauge;
+import org.envirocar.server.core.metrics.Histogram;
+import org.envirocar.server.core.metrics.Metrics;
+import org.envirocar.server.core.util.GroupedAndNamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded executor delivering the events of a single listener. Records the
+ * number of queued events, the time events wait in the queue, the time the
+ * listener takes and the events that did not fit into the queue.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+class ListenerExecutor implements Executor {
+    static final String QUEUED = "envirocar_eventbus_queued_events";
+    static final String WAIT = "envirocar_eventbus_wait_seconds";
+    static final String DURATION = "envirocar_eventbus_handler_duration_seconds";
+    static final String REJECTED = "envirocar_eventbus_rejected_events_total";
+    private static final Logger log = LoggerFactory
+            .getLogger(ListenerExecutor.class);
+    private static final String LISTENER = "listener";
+    private static final String LANE = "lane";
+    private static final String OVERFLOW = "overflow";
+    private static final long KEEP_ALIVE_SECONDS = 60;
+    private final String listener;
+    private final Lane.Overflow overflow;
+    private final ThreadPoolExecutor executor;
+    private final Gauge queued;
+    private final Histogram wait;
+    private final Histogram duration;
+    private final Gauge rejected;
+
+    ListenerExecutor(String listener, Lane lane, LaneSettings settings,
+                     Metrics metrics) {
+        this.listener = listener;
+        this.overflow = settings.getOverflow();
+        this.executor = new ThreadPoolExecutor(
+                settings.getThreads(), settings.getThreads(),
+                KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(settings.getQueueSize()),
+                new GroupedAndNamedThreadFactory("eventbus-" + listener));
+        this.executor.allowCoreThreadTimeOut(true);
+        String laneName = lane.name().toLowerCase(Locale.ROOT);
+        this.queued = metrics.gauge(
+                QUEUED, "Events waiting to be delivered to a listener.",
+                LISTENER, listener, LANE, laneName);
+        this.wait = metrics.histogram(
+                WAIT, "Time events wait to be delivered to a listener.",
+                Buckets.LATENCY, LISTENER, listener, LANE, laneName);
+        this.duration = metrics.histogram(
+                DURATION, "Time a listener takes to handle an event.",
+                Buckets.LATENCY, LISTENER, listener, LANE, laneName);
+        this.rejected = metrics.counter(
+                REJECTED, "Events that did not fit into the queue of a listener.",
+                LISTENER, listener, LANE, laneName,
+                OVERFLOW, overflow.name().toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        Delivery delivery = new Delivery(command);
+        queued.increment();
+        try {
+            executor.execute(delivery);
+        } catch (RejectedExecutionException e) {
+            queued.decrement();
+            rejected.increment();
+            if (overflow == Lane.Overflow.CALLER_RUNS && !executor.isShutdown()) {
+                delivery.deliver();
+            } else {
+                log.warn("Discarding event for {}: queue is full", listener);
+            }
+        }
+    }
+
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    private class Delivery implements Runnable {
+        private final Runnable command;
+        private final long queuedAt = System.nanoTime();
+
+        Delivery(Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            queued.decrement();
+            deliver();
+        }
+
+        void deliver() {
+            long start = System.nanoTime();
+            wait.record(start - queuedAt);
+            try {
+                command.run();
+            } finally {
+                duration.record(System.nanoTime() - start);
+            }
+        }
+    }
+}
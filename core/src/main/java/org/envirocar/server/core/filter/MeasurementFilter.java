@@ -34,14 +34,21 @@ public class MeasurementFilter {
     private final Geometry geometry;
     private final Pagination pagination;
     private final TemporalFilter temporalFilter;
+    private final Projection projection;
 
     public MeasurementFilter(Track t, User u, Geometry g,
-                             TemporalFilter tf, Pagination p) {
+                             TemporalFilter tf, Pagination p, Projection pr) {
         this.track = t;
         this.user = u;
         this.geometry = g;
         this.pagination = p;
         this.temporalFilter = tf;
+        this.projection = pr;
+    }
+
+    public MeasurementFilter(Track t, User u, Geometry g,
+                             TemporalFilter tf, Pagination p) {
+        this(t, u, g, tf, p, null);
     }
 
     public MeasurementFilter(Track t, User u, Geometry g, Pagination p) {
@@ -111,4 +118,12 @@ public class MeasurementFilter {
     public boolean hasTemporalFilter() {
         return temporalFilter != null;
     }
+
+    public Projection getProjection() {
+        return projection == null ? Projection.all() : projection;
+    }
+
+    public boolean hasProjection() {
+        return projection != null && !projection.isAll();
+    }
 }
@@ -0,0 +1,128 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.filter;
+
+import java.util.Collections;
+import java.util.Set;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * The set of properties a client is interested in. Property names are the
+ * names used in the public representations (e.g. {@code time},
+ * {@code geometry} or the name of a phenomenon). Data access objects may use
+ * it to restrict the fields loaded from the database, encoders to restrict the
+ * properties written.
+ * <p/>
+ * Properties the client may not see at all can be excluded from a
+ * projection, so that they are not loaded either.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class Projection {
+    private static final Projection ALL =
+            new Projection(null, Collections.<String>emptySet());
+    private final Set<String> fields;
+    private final Set<String> excluded;
+
+    private Projection(Set<String> fields, Set<String> excluded) {
+        this.fields = fields;
+        this.excluded = excluded;
+    }
+
+    /**
+     * @return whether all properties are requested
+     */
+    public boolean isAll() {
+        return fields == null && excluded.isEmpty();
+    }
+
+    /**
+     * @param field the property name
+     *
+     * @return whether the property is requested
+     */
+    public boolean includes(String field) {
+        return (fields == null || fields.contains(field)) &&
+               !excluded.contains(field);
+    }
+
+    /**
+     * @return the requested properties or an empty set if all properties are
+     *         requested
+     */
+    public Set<String> getFields() {
+        return fields == null ? Collections.<String>emptySet() : fields;
+    }
+
+    /**
+     * @return the excluded properties
+     */
+    public Set<String> getExcluded() {
+        return excluded;
+    }
+
+    /**
+     * Creates a projection that additionally excludes the specified
+     * properties.
+     *
+     * @param fields the properties to exclude
+     *
+     * @return the new projection
+     */
+    public Projection without(Iterable<String> fields) {
+        Set<String> set = ImmutableSet.<String>builder()
+                .addAll(excluded).addAll(fields).build();
+        if (set.equals(excluded)) {
+            return this;
+        }
+        return new Projection(this.fields, set);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(fields, excluded);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        Projection that = (Projection) obj;
+        return Objects.equal(this.fields, that.fields) &&
+               Objects.equal(this.excluded, that.excluded);
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("fields", fields == null ? "*" : fields)
+                .add("excluded", excluded).toString();
+    }
+
+    public static Projection all() {
+        return ALL;
+    }
+
+    public static Projection of(Iterable<String> fields) {
+        Set<String> set = ImmutableSet.copyOf(fields);
+        return set.isEmpty() ? ALL
+               : new Projection(set, Collections.<String>emptySet());
+    }
+}
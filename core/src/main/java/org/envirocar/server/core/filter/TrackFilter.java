@@ -32,12 +32,19 @@ public class TrackFilter {
     private final Geometry geometry;
     private final TemporalFilter temporalFilter;
     private final Pagination pagination;
+    private final Projection projection;
 
-    public TrackFilter(User u, Geometry g, TemporalFilter tf, Pagination p) {
+    public TrackFilter(User u, Geometry g, TemporalFilter tf, Pagination p,
+                       Projection pr) {
         this.user = u;
         this.geometry = g;
         this.pagination = p;
         this.temporalFilter = tf;
+        this.projection = pr;
+    }
+
+    public TrackFilter(User u, Geometry g, TemporalFilter tf, Pagination p) {
+        this(u, g, tf, p, null);
     }
 
     public TrackFilter(User u, Geometry g, Pagination p) {
@@ -91,4 +98,12 @@ public class TrackFilter {
     public boolean hasTemporalFilter() {
         return temporalFilter != null;
     }
+
+    public Projection getProjection() {
+        return projection == null ? Projection.all() : projection;
+    }
+
+    public boolean hasProjection() {
+        return projection != null && !projection.isAll();
+    }
 }
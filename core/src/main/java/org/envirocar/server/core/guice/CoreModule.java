@@ -22,8 +22,10 @@ import org.envirocar.server.core.FriendService;
 import org.envirocar.server.core.FriendServiceImpl;
 import org.envirocar.server.core.GroupService;
 import org.envirocar.server.core.GroupServiceImpl;
+import org.envirocar.server.core.PendingTrackSweeper;
 import org.envirocar.server.core.StatisticsService;
 import org.envirocar.server.core.StatisticsServiceImpl;
+import org.envirocar.server.core.TrackOverviewUpdater;
 import org.envirocar.server.core.UserService;
 import org.envirocar.server.core.UserServiceImpl;
 import org.envirocar.server.core.activities.ActivityListener;
@@ -54,6 +56,8 @@ public class CoreModule extends AbstractModule {
         bind(GroupService.class).to(GroupServiceImpl.class);
         bind(StatisticsService.class).to(StatisticsServiceImpl.class);
         bind(ActivityListener.class).asEagerSingleton();
+        bind(PendingTrackSweeper.class).asEagerSingleton();
+        bind(TrackOverviewUpdater.class).asEagerSingleton();
         bind(PasswordEncoder.class).to(BCryptPasswordEncoder.class);
         DateTimeZone.setDefault(DateTimeZone.UTC);
     }
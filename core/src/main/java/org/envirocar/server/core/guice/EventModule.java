@@ -16,14 +16,26 @@
  */
 package org.envirocar.server.core.guice;
 
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
 
-import org.envirocar.server.core.util.GroupedAndNamedThreadFactory;
+import org.envirocar.server.core.eventbus.Lane;
+import org.envirocar.server.core.eventbus.LaneEventBus;
+import org.envirocar.server.core.eventbus.LaneSettings;
+import org.envirocar.server.core.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import com.google.common.eventbus.AsyncEventBus;
 import com.google.common.eventbus.EventBus;
+import com.google.common.io.Closeables;
 import com.google.inject.AbstractModule;
+import com.google.inject.Provider;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
 import com.google.inject.matcher.Matchers;
 import com.google.inject.spi.InjectionListener;
@@ -31,49 +43,108 @@ import com.google.inject.spi.TypeEncounter;
 import com.google.inject.spi.TypeListener;
 
 /**
- * TODO JavaDoc
+ * Binds the {@link EventBus} and registers every injected listener. The
+ * executors of the {@link Lane}s are configured from
+ * {@code /eventbus.properties}. For every lane the properties
+ * {@code eventbus.<lane>.threads}, {@code eventbus.<lane>.queueSize} and
+ * {@code eventbus.<lane>.overflow} ({@code caller_runs} or
+ * {@code discard}) may be set.
  *
  * @author Christian Autermann <autermann@uni-muenster.de>
  */
 public class EventModule extends AbstractModule {
+    private static final String PROPERTIES_FILE = "/eventbus.properties";
+    private static final String PREFIX = "eventbus.";
+    private static final String THREADS = ".threads";
+    private static final String QUEUE_SIZE = ".queueSize";
+    private static final String OVERFLOW = ".overflow";
+    private static final Logger log = LoggerFactory
+            .getLogger(EventModule.class);
+
     @Override
     protected void configure() {
-        EventBus eventBus = eventBus();
-        bind(EventBus.class).toInstance(eventBus);
-        bindListener(Matchers.any(), new EventBusTypeListener(eventBus));
+        bindListener(Matchers.any(), new EventBusTypeListener(
+                getProvider(EventBus.class)));
+    }
+
+    @Provides
+    @Singleton
+    public EventBus eventBus(Metrics metrics) {
+        Properties p;
+        try {
+            p = getProperties();
+        } catch (IOException ex) {
+            log.error("Error reading eventbus.properties. Using default values", ex);
+            p = new Properties();
+        }
+        Map<Lane, LaneSettings> settings =
+                new EnumMap<Lane, LaneSettings>(Lane.class);
+        for (Lane lane : Lane.values()) {
+            String prefix = PREFIX + lane.name().toLowerCase(Locale.ROOT);
+            int threads = lane.getThreads();
+            int queueSize = lane.getQueueSize();
+            Lane.Overflow overflow = lane.getOverflow();
+            if (p.containsKey(prefix + THREADS)) {
+                threads = Integer.valueOf(p
+                        .getProperty(prefix + THREADS).trim());
+            }
+            if (p.containsKey(prefix + QUEUE_SIZE)) {
+                queueSize = Integer.valueOf(p
+                        .getProperty(prefix + QUEUE_SIZE).trim());
+            }
+            if (p.containsKey(prefix + OVERFLOW)) {
+                overflow = Lane.Overflow.valueOf(p
+                        .getProperty(prefix + OVERFLOW).trim()
+                        .toUpperCase(Locale.ROOT));
+            }
+            settings.put(lane, new LaneSettings(threads, queueSize, overflow));
+        }
+        return new LaneEventBus("eventbus", settings, metrics);
     }
 
-    protected EventBus eventBus() {
-        GroupedAndNamedThreadFactory f =
-                new GroupedAndNamedThreadFactory("eventbus");
-        Executor e = Executors.newCachedThreadPool(f);
-        return new AsyncEventBus("eventbus", e);
+    private Properties getProperties() throws IOException {
+        InputStream is = EventModule.class
+                .getResourceAsStream(PROPERTIES_FILE);
+        Properties p = new Properties();
+        if (is != null) {
+            try {
+                p.load(is);
+            } finally {
+                Closeables.closeQuietly(is);
+            }
+        }
+        return p;
     }
 
     private class EventBusTypeListener implements TypeListener {
-        private final EventBus eventBus;
+        private final Provider<EventBus> eventBus;
 
-        EventBusTypeListener(EventBus eventBus) {
+        EventBusTypeListener(Provider<EventBus> eventBus) {
             this.eventBus = eventBus;
         }
 
         @Override
         public <I> void hear(TypeLiteral<I> typeLiteral,
                              TypeEncounter<I> typeEncounter) {
-            typeEncounter.register(new EventBusInjectionListener<I>(eventBus));
+            /* only look up the bus for listeners, as the bus itself
+             * depends on injected instances */
+            if (LaneEventBus.isListener(typeLiteral.getRawType())) {
+                typeEncounter.register(
+                        new EventBusInjectionListener<I>(eventBus));
+            }
         }
     }
 
     private class EventBusInjectionListener<I> implements InjectionListener<I> {
-        private final EventBus eventBus;
+        private final Provider<EventBus> eventBus;
 
-        EventBusInjectionListener(EventBus eventBus) {
+        EventBusInjectionListener(Provider<EventBus> eventBus) {
             this.eventBus = eventBus;
         }
 
         @Override
         public void afterInjection(I i) {
-            eventBus.register(i);
+            eventBus.get().register(i);
         }
     }
 }
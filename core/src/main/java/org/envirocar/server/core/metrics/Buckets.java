@@ -0,0 +1,95 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.metrics;
+
+/**
+ * The upper bounds of the buckets of a {@link Histogram} and the unit in
+ * which the recorded values are exported.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public enum Buckets {
+    /**
+     * Durations recorded in nanoseconds and exported in seconds.
+     */
+    LATENCY(1000000000D,
+            500000L, 1000000L, 2500000L, 5000000L, 10000000L, 25000000L,
+            50000000L, 100000000L, 250000000L, 500000000L, 1000000000L,
+            2500000000L, 5000000000L, 10000000000L, 30000000000L),
+    /**
+     * Payload sizes in bytes.
+     */
+    SIZE(1D,
+         256L, 1024L, 4096L, 16384L, 65536L, 262144L, 1048576L, 4194304L,
+         16777216L, 67108864L),
+    /**
+     * Numbers of documents or entities.
+     */
+    COUNT(1D,
+          0L, 1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L);
+    private final double unit;
+    private final long[] bounds;
+
+    private Buckets(double unit, long... bounds) {
+        this.unit = unit;
+        this.bounds = bounds;
+    }
+
+    /**
+     * @return the number of recorded units per exported unit
+     */
+    public double getUnit() {
+        return unit;
+    }
+
+    /**
+     * @return the number of buckets, including the overflow bucket
+     */
+    public int size() {
+        return bounds.length + 1;
+    }
+
+    /**
+     * @param bucket the bucket
+     *
+     * @return the inclusive upper bound of the bucket or
+     *         {@link Long#MAX_VALUE} for the overflow bucket
+     */
+    public long getBound(int bucket) {
+        return bucket < bounds.length ? bounds[bucket] : Long.MAX_VALUE;
+    }
+
+    /**
+     * @param value the value
+     *
+     * @return the first bucket whose upper bound is not below
+     *         {@code value}
+     */
+    int bucket(long value) {
+        int lo = 0;
+        int hi = bounds.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (bounds[mid] < value) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
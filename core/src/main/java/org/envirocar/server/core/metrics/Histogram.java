@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram with fixed buckets. Recording is allocation-free and the
+ * counters are striped by thread so that concurrent request threads rarely
+ * contend on the same cache line.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class Histogram {
+    /**
+     * The number of stripes. Has to be a power of two.
+     */
+    private static final int STRIPES = 8;
+    /**
+     * Distance between two striped sums (one cache line of longs).
+     */
+    private static final int PADDING = 8;
+    private final Buckets buckets;
+    private final int width;
+    private final AtomicLongArray counts;
+    private final AtomicLongArray sums;
+
+    public Histogram(Buckets buckets) {
+        this.buckets = buckets;
+        this.width = buckets.size();
+        this.counts = new AtomicLongArray(STRIPES * width);
+        this.sums = new AtomicLongArray(STRIPES * PADDING);
+    }
+
+    /**
+     * Records a value.
+     *
+     * @param value the value in the unit of the {@link Buckets}
+     */
+    public void record(long value) {
+        int stripe = (int) (Thread.currentThread().getId() & (STRIPES - 1));
+        counts.incrementAndGet(stripe * width + buckets.bucket(value));
+        sums.addAndGet(stripe * PADDING, value);
+    }
+
+    public Buckets getBuckets() {
+        return buckets;
+    }
+
+    /**
+     * @return the (non-cumulative) number of values recorded per bucket
+     */
+    public long[] getCounts() {
+        long[] result = new long[width];
+        for (int stripe = 0; stripe < STRIPES; ++stripe) {
+            for (int bucket = 0; bucket < width; ++bucket) {
+                result[bucket] += counts.get(stripe * width + bucket);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        long count = 0;
+        for (long c : getCounts()) {
+            count += c;
+        }
+        return count;
+    }
+
+    /**
+     * @return the sum of the recorded values
+     */
+    public long getSum() {
+        long sum = 0;
+        for (int stripe = 0; stripe < STRIPES; ++stripe) {
+            sum += sums.get(stripe * PADDING);
+        }
+        return sum;
+    }
+}
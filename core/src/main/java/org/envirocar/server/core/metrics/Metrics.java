@@ -0,0 +1,242 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import com.google.common.base.Preconditions;
+import com.google.inject.Singleton;
+
+/**
+ * Registry of the metrics of this server. Metrics are identified by their
+ * name and labels and are written in the Prometheus text exposition format.
+ * Lookups are meant to happen once per metric; the returned
+ * {@link Histogram}s and {@link Gauge}s should be kept by the caller.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class Metrics {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+    private static final String HISTOGRAM = "histogram";
+    private static final String GAUGE = "gauge";
+    private static final String COUNTER = "counter";
+    private final ConcurrentMap<String, Family> families =
+            new ConcurrentSkipListMap<String, Family>();
+
+    /**
+     * Gets or creates a histogram.
+     *
+     * @param name    the name of the metric
+     * @param help    the description of the metric
+     * @param buckets the buckets of the histogram
+     * @param labels  alternating label names and values
+     *
+     * @return the histogram
+     */
+    public Histogram histogram(String name, String help, Buckets buckets,
+                               String... labels) {
+        Family family = family(name, help, HISTOGRAM);
+        String key = labels(labels);
+        Object metric = family.series.get(key);
+        if (metric == null) {
+            Object created = new Histogram(buckets);
+            metric = family.series.putIfAbsent(key, created);
+            if (metric == null) {
+                metric = created;
+            }
+        }
+        return (Histogram) metric;
+    }
+
+    /**
+     * Gets or creates a gauge.
+     *
+     * @param name   the name of the metric
+     * @param help   the description of the metric
+     * @param labels alternating label names and values
+     *
+     * @return the gauge
+     */
+    public Gauge gauge(String name, String help, String... labels) {
+        return gauge(family(name, help, GAUGE), labels);
+    }
+
+    /**
+     * Gets or creates a counter. Counters are {@link Gauge}s that are only
+     * incremented.
+     *
+     * @param name   the name of the metric
+     * @param help   the description of the metric
+     * @param labels alternating label names and values
+     *
+     * @return the counter
+     */
+    public Gauge counter(String name, String help, String... labels) {
+        return gauge(family(name, help, COUNTER), labels);
+    }
+
+    private Gauge gauge(Family family, String... labels) {
+        String key = labels(labels);
+        Object metric = family.series.get(key);
+        if (metric == null) {
+            Object created = new Gauge();
+            metric = family.series.putIfAbsent(key, created);
+            if (metric == null) {
+                metric = created;
+            }
+        }
+        return (Gauge) metric;
+    }
+
+    /**
+     * Writes all metrics in the Prometheus text exposition format.
+     *
+     * @param writer the writer
+     *
+     * @throws IOException if writing fails
+     */
+    public void write(Writer writer) throws IOException {
+        for (Family family : families.values()) {
+            writer.append("# HELP ").append(family.name).append(' ')
+                    .append(family.help).append('\n');
+            writer.append("# TYPE ").append(family.name).append(' ')
+                    .append(family.type).append('\n');
+            for (Map.Entry<String, Object> e : family.series.entrySet()) {
+                if (e.getValue() instanceof Histogram) {
+                    write(writer, family.name, e.getKey(),
+                          (Histogram) e.getValue());
+                } else {
+                    write(writer, family.name, e.getKey(),
+                          (Gauge) e.getValue());
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    private void write(Writer writer, String name, String labels,
+                       Gauge gauge) throws IOException {
+        sample(writer, name, labels, null, Long.toString(gauge.get()));
+    }
+
+    private void write(Writer writer, String name, String labels,
+                       Histogram histogram) throws IOException {
+        Buckets buckets = histogram.getBuckets();
+        long[] counts = histogram.getCounts();
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; ++i) {
+            cumulative += counts[i];
+            String le = i < counts.length - 1
+                        ? format(buckets.getBound(i) / buckets.getUnit())
+                        : "+Inf";
+            sample(writer, name + "_bucket", labels, le,
+                   Long.toString(cumulative));
+        }
+        sample(writer, name + "_sum", labels, null,
+               format(histogram.getSum() / buckets.getUnit()));
+        sample(writer, name + "_count", labels, null,
+               Long.toString(cumulative));
+    }
+
+    private void sample(Writer writer, String name, String labels,
+                        String le, String value) throws IOException {
+        writer.append(name);
+        if (!labels.isEmpty() || le != null) {
+            writer.append('{').append(labels);
+            if (le != null) {
+                if (!labels.isEmpty()) {
+                    writer.append(',');
+                }
+                writer.append("le=\"").append(le).append('"');
+            }
+            writer.append('}');
+        }
+        writer.append(' ').append(value).append('\n');
+    }
+
+    private String format(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.get(name);
+        if (family == null) {
+            Family created = new Family(name, help, type);
+            family = families.putIfAbsent(name, created);
+            if (family == null) {
+                family = created;
+            }
+        }
+        Preconditions.checkArgument(family.type.equals(type),
+                                    "%s is a %s", name, family.type);
+        return family;
+    }
+
+    private String labels(String... labels) {
+        Preconditions.checkArgument(labels.length % 2 == 0,
+                                    "labels have to be name/value pairs");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"");
+            escape(sb, labels[i + 1]);
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    private void escape(StringBuilder sb, String value) {
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                default:
+                    sb.append(c);
+            }
+        }
+    }
+
+    private static class Family {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final ConcurrentMap<String, Object> series =
+                new ConcurrentSkipListMap<String, Object>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
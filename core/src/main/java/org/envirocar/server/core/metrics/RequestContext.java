@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.metrics;
+
+/**
+ * Names the resource method the current thread is processing, so that lower
+ * layers can attribute their work to it.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public final class RequestContext {
+    private static final ThreadLocal<String> RESOURCE =
+            new ThreadLocal<String>();
+
+    private RequestContext() {
+    }
+
+    /**
+     * @return the resource method of the current thread or {@code null} if
+     *         the thread is not processing a request
+     */
+    public static String getResource() {
+        return RESOURCE.get();
+    }
+
+    public static void setResource(String resource) {
+        RESOURCE.set(resource);
+    }
+
+    public static void clear() {
+        RESOURCE.remove();
+    }
+}
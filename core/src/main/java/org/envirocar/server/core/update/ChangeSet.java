@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.update;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.common.base.Objects;
+
+/**
+ * The changes made to an entity, expressed as operations on its properties,
+ * so that a DAO can write only the changed properties instead of the whole
+ * entity. Only the last operation on a property is kept.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class ChangeSet implements Iterable<ChangeSet.Change> {
+    private final Map<String, Change> changes =
+            new LinkedHashMap<String, Change>();
+
+    /**
+     * Sets the property to the value or removes it if the value is
+     * {@code null}.
+     *
+     * @param property the property
+     * @param value    the value
+     *
+     * @return this
+     */
+    public ChangeSet set(String property, Object value) {
+        if (value == null) {
+            return unset(property);
+        }
+        return add(new Change(property, Operation.SET, value));
+    }
+
+    /**
+     * Removes the property.
+     *
+     * @param property the property
+     *
+     * @return this
+     */
+    public ChangeSet unset(String property) {
+        return add(new Change(property, Operation.UNSET, null));
+    }
+
+    /**
+     * Sets the property to the value if it is absent or greater than the
+     * value.
+     *
+     * @param property the property
+     * @param value    the value
+     *
+     * @return this
+     */
+    public ChangeSet min(String property, Object value) {
+        return add(new Change(property, Operation.MIN, value));
+    }
+
+    /**
+     * Sets the property to the value if it is absent or less than the value.
+     *
+     * @param property the property
+     * @param value    the value
+     *
+     * @return this
+     */
+    public ChangeSet max(String property, Object value) {
+        return add(new Change(property, Operation.MAX, value));
+    }
+
+    private ChangeSet add(Change change) {
+        this.changes.put(change.getProperty(), change);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    public boolean contains(String property) {
+        return changes.containsKey(property);
+    }
+
+    @Override
+    public Iterator<Change> iterator() {
+        return Collections.unmodifiableCollection(changes.values()).iterator();
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("changes", changes.values()).toString();
+    }
+
+    /**
+     * The operation applied to a property.
+     */
+    public enum Operation {
+        SET,
+        UNSET,
+        MIN,
+        MAX
+    }
+
+    /**
+     * A change of a single property.
+     */
+    public static class Change {
+        private final String property;
+        private final Operation operation;
+        private final Object value;
+
+        Change(String property, Operation operation, Object value) {
+            this.property = property;
+            this.operation = operation;
+            this.value = value;
+        }
+
+        public String getProperty() {
+            return property;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        /**
+         * @return the value or {@code null} for {@link Operation#UNSET}
+         */
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return Objects.toStringHelper(this).omitNullValues()
+                    .add("property", property)
+                    .add("operation", operation)
+                    .add("value", value).toString();
+        }
+    }
+}
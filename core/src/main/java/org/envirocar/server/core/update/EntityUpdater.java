@@ -24,5 +24,16 @@ import org.envirocar.server.core.exception.IllegalModificationException;
  * @author Christian Autermann <autermann@uni-muenster.de>
  */
 public interface EntityUpdater<T> {
-    void update(T changes, T original) throws IllegalModificationException;
+    /**
+     * Applies the changes to the original entity.
+     *
+     * @param changes  the changes
+     * @param original the entity to update
+     *
+     * @return the changed properties of the original entity
+     *
+     * @throws IllegalModificationException if the changes are not allowed
+     */
+    ChangeSet update(T changes, T original)
+            throws IllegalModificationException;
 }
@@ -26,14 +26,21 @@ import org.envirocar.server.core.exception.IllegalModificationException;
  * @author Christian Autermann <autermann@uni-muenster.de>
  */
 public class GroupUpdater implements EntityUpdater<Group> {
+    public static final String NAME = "name";
+    public static final String DESCRIPTION = "description";
+
     @Override
-    public void update(Group changes, Group original) throws
+    public ChangeSet update(Group changes, Group original) throws
             IllegalModificationException {
+        ChangeSet changeSet = new ChangeSet();
         if (changes.getDescription() != null) {
             original.setDescription(changes.getDescription());
+            changeSet.set(DESCRIPTION, original.getDescription());
         }
         if (changes.getName() != null) {
             original.setName(changes.getName());
+            changeSet.set(NAME, original.getName());
         }
+        return changeSet;
     }
 }
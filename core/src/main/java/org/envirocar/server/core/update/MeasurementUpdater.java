@@ -26,11 +26,16 @@ import org.envirocar.server.core.exception.IllegalModificationException;
  * @author Arne de Wall <a.dewall@52north.org>
  */
 public class MeasurementUpdater implements EntityUpdater<Measurement> {
+    public static final String GEOMETRY = "geometry";
+
     @Override
-    public void update(Measurement changes, Measurement original)
+    public ChangeSet update(Measurement changes, Measurement original)
             throws IllegalModificationException {
+        ChangeSet changeSet = new ChangeSet();
         if (changes.getGeometry() != null) {
             original.setGeometry(changes.getGeometry());
+            changeSet.set(GEOMETRY, original.getGeometry());
         }
+        return changeSet;
     }
 }
@@ -26,11 +26,21 @@ import org.envirocar.server.core.exception.IllegalModificationException;
  * @author Arne de Wall <a.dewall@52north.org>
  */
 public class TrackUpdater implements EntityUpdater<Track> {
+    public static final String BOUNDING_BOX = "bbox";
+    public static final String OVERVIEW = "overview";
+    public static final String BEGIN = "begin";
+    public static final String END = "end";
+    public static final String PENDING = "pending";
+    public static final String OUTDATED = "outdated";
+
     @Override
-    public void update(Track changes, Track original)
+    public ChangeSet update(Track changes, Track original)
             throws IllegalModificationException {
+        ChangeSet changeSet = new ChangeSet();
         if (changes.getBoundingBox() != null) {
             original.setBoundingBox(changes.getBoundingBox());
+            changeSet.set(BOUNDING_BOX, original.getBoundingBox());
         }
+        return changeSet;
     }
 }
@@ -27,6 +27,18 @@ import com.google.inject.Inject;
  * @author Christian Autermann <autermann@uni-muenster.de>
  */
 public class UserUpdater implements EntityUpdater<User> {
+    public static final String MAIL = "mail";
+    public static final String TOKEN = "token";
+    public static final String ABOUT_ME = "aboutMe";
+    public static final String COUNTRY = "country";
+    public static final String DAY_OF_BIRTH = "dayOfBirth";
+    public static final String FIRST_NAME = "firstName";
+    public static final String GENDER = "gender";
+    public static final String LANGUAGE = "language";
+    public static final String LAST_NAME = "lastName";
+    public static final String LOCATION = "location";
+    public static final String URL = "url";
+    public static final String TERMS_OF_USE_VERSION = "touVersion";
     private final PasswordEncoder encoder;
 
     @Inject
@@ -35,12 +47,15 @@ public class UserUpdater implements EntityUpdater<User> {
     }
 
     @Override
-    public void update(User changes, User original) {
+    public ChangeSet update(User changes, User original) {
+        ChangeSet changeSet = new ChangeSet();
         if (changes.getMail() != null) {
             original.setMail(changes.getMail());
+            changeSet.set(MAIL, original.getMail());
         }
         if (changes.getToken() != null) {
             original.setToken(encoder.encode(changes.getToken()));
+            changeSet.set(TOKEN, original.getToken());
         }
         if (changes.getAboutMe() != null) {
             if (changes.getAboutMe().isEmpty()) {
@@ -48,6 +63,7 @@ public class UserUpdater implements EntityUpdater<User> {
             } else {
                 original.setAboutMe(changes.getAboutMe());
             }
+            changeSet.set(ABOUT_ME, original.getAboutMe());
         }
         if (changes.getCountry() != null) {
             if (changes.getCountry().isEmpty()) {
@@ -55,6 +71,7 @@ public class UserUpdater implements EntityUpdater<User> {
             } else {
                 original.setCountry(changes.getCountry());
             }
+            changeSet.set(COUNTRY, original.getCountry());
         }
         if (changes.getDayOfBirth() != null) {
             if (changes.getDayOfBirth().isEmpty()) {
@@ -62,6 +79,7 @@ public class UserUpdater implements EntityUpdater<User> {
             } else {
                 original.setDayOfBirth(changes.getDayOfBirth());
             }
+            changeSet.set(DAY_OF_BIRTH, original.getDayOfBirth());
         }
         if (changes.getFirstName() != null) {
             if (changes.getFirstName().isEmpty()) {
@@ -69,9 +87,11 @@ public class UserUpdater implements EntityUpdater<User> {
             } else {
                 original.setFirstName(changes.getFirstName());
             }
+            changeSet.set(FIRST_NAME, original.getFirstName());
         }
         if (changes.getGender() != null) {
             original.setGender(changes.getGender());
+            changeSet.set(GENDER, original.getGender());
         }
         if (changes.getLanguage() != null) {
             if (changes.getLanguage().isEmpty()) {
@@ -79,6 +99,7 @@ public class UserUpdater implements EntityUpdater<User> {
             } else {
                 original.setLanguage(changes.getLanguage());
             }
+            changeSet.set(LANGUAGE, original.getLanguage());
         }
         if (changes.getLastName() != null) {
             if (changes.getLastName().isEmpty()) {
@@ -86,15 +107,20 @@ public class UserUpdater implements EntityUpdater<User> {
             } else {
                 original.setLastName(changes.getLastName());
             }
+            changeSet.set(LAST_NAME, original.getLastName());
         }
         if (changes.getLocation() != null) {
             original.setLocation(changes.getLocation());
+            changeSet.set(LOCATION, original.getLocation());
         }
         if (changes.getUrl() != null) {
             original.setUrl(changes.getUrl());
+            changeSet.set(URL, original.getUrl());
         }
         if (changes.getTermsOfUseVersion() != null) {
-        	original.setTermsOfUseVersion(changes.getTermsOfUseVersion());
+            original.setTermsOfUseVersion(changes.getTermsOfUseVersion());
+            changeSet.set(TERMS_OF_USE_VERSION, original.getTermsOfUseVersion());
         }
+        return changeSet;
     }
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.MeasurementValue;
+import org.joda.time.DateTime;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.ImmutableSortedSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Lazily downsamples a time ordered measurement series using min/max per time
+ * bucket. The interval {@code [begin, end]} is split into buckets and for
+ * every bucket and every reference phenomenon the measurements holding the
+ * minimum and maximum value are kept, so peaks of all reference phenomena
+ * survive the reduction. Buckets without a value of any of them keep their
+ * first measurement.
+ * <p/>
+ * The reference phenomena are either specified explicitly or are the numeric
+ * phenomena of the first measurement of the series. The number of buckets is
+ * chosen so that every reference phenomenon can contribute its minimum and
+ * maximum of every bucket; if the resolution is too low for that, the
+ * extremes are kept in the order of the phenomenon names until the bucket is
+ * full. As measurements outside of {@code [begin, end]} are put into the first
+ * or last bucket, the resolution is an upper bound for the number of emitted
+ * measurements.
+ * <p/>
+ * The delegate is consumed while iterating, so the series is never held in
+ * memory as a whole.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class MeasurementDownsampler implements Iterable<Measurement> {
+    private static final Comparator<Measurement> TIME_ORDER =
+            new Comparator<Measurement>() {
+                @Override
+                public int compare(Measurement o1, Measurement o2) {
+                    if (!o1.hasTime() || !o2.hasTime()) {
+                        return o1.hasTime() ? 1 : o2.hasTime() ? -1 : 0;
+                    }
+                    return o1.getTime().compareTo(o2.getTime());
+                }
+            };
+    private static final long NO_BUCKET = -1;
+    private final Iterable<? extends Measurement> delegate;
+    private final long begin;
+    private final long end;
+    private final int resolution;
+    private final SortedSet<String> phenomena;
+
+    /**
+     * @param delegate   the measurements, ordered by time
+     * @param begin      the begin of the series
+     * @param end        the end of the series
+     * @param resolution the maximum number of points
+     */
+    public MeasurementDownsampler(Iterable<? extends Measurement> delegate,
+                                  DateTime begin, DateTime end,
+                                  int resolution) {
+        this(delegate, begin, end, resolution, null);
+    }
+
+    /**
+     * @param delegate   the measurements, ordered by time
+     * @param begin      the begin of the series
+     * @param end        the end of the series
+     * @param resolution the maximum number of points
+     * @param phenomena  the names of the reference phenomena or
+     *                   {@code null} to use the numeric phenomena of the
+     *                   first measurement
+     */
+    public MeasurementDownsampler(Iterable<? extends Measurement> delegate,
+                                  DateTime begin, DateTime end,
+                                  int resolution, Set<String> phenomena) {
+        Preconditions.checkArgument(resolution > 0);
+        Preconditions.checkArgument(!end.isBefore(begin));
+        Preconditions.checkArgument(phenomena == null || !phenomena.isEmpty());
+        this.delegate = Preconditions.checkNotNull(delegate);
+        this.begin = begin.getMillis();
+        this.end = end.getMillis();
+        this.resolution = resolution;
+        this.phenomena = phenomena == null ? null
+                         : ImmutableSortedSet.copyOf(phenomena);
+    }
+
+    @Override
+    public Iterator<Measurement> iterator() {
+        return new BucketIterator(delegate.iterator());
+    }
+
+    private static SortedSet<String> numericPhenomena(Measurement m) {
+        SortedSet<String> names = Sets.newTreeSet();
+        for (MeasurementValue mv : m.getValues()) {
+            if (mv.hasPhenomenon() && mv.hasValue() &&
+                mv.getValue() instanceof Number) {
+                names.add(mv.getPhenomenon().getName());
+            }
+        }
+        return names;
+    }
+
+    private class BucketIterator extends AbstractIterator<Measurement> {
+        private final Iterator<? extends Measurement> source;
+        private Iterator<Measurement> current = Collections
+                .<Measurement>emptyList().iterator();
+        private Measurement next;
+        private SortedSet<String> references;
+        private long buckets;
+        private int pointsPerBucket;
+        private double width;
+
+        BucketIterator(Iterator<? extends Measurement> source) {
+            this.source = source;
+        }
+
+        @Override
+        protected Measurement computeNext() {
+            while (!current.hasNext()) {
+                if (next == null && !source.hasNext()) {
+                    return endOfData();
+                }
+                current = nextBucket().iterator();
+            }
+            return current.next();
+        }
+
+        private void initialize(Measurement first) {
+            references = phenomena != null ? phenomena
+                         : numericPhenomena(first);
+            int perBucket = 2 * Math.max(1, references.size());
+            buckets = Math.max(1, resolution / perBucket);
+            pointsPerBucket = (int) Math.min(perBucket, resolution / buckets);
+            width = Math.max(1d, (double) (end - begin + 1) / buckets);
+        }
+
+        private long bucketOf(Measurement m) {
+            long bucket = (long) ((m.getTime().getMillis() - begin) / width);
+            return Math.max(0, Math.min(buckets - 1, bucket));
+        }
+
+        private List<Measurement> nextBucket() {
+            Measurement m = next != null ? next : source.next();
+            next = null;
+            if (references == null) {
+                initialize(m);
+            }
+            Bucket bucket = new Bucket(references);
+            bucket.add(m);
+            long id = m.hasTime() ? bucketOf(m) : NO_BUCKET;
+            while (source.hasNext()) {
+                m = source.next();
+                if (m.hasTime()) {
+                    long bucketOfM = bucketOf(m);
+                    if (id == NO_BUCKET) {
+                        id = bucketOfM;
+                    } else if (bucketOfM != id) {
+                        next = m;
+                        break;
+                    }
+                }
+                bucket.add(m);
+            }
+            return bucket.select(pointsPerBucket);
+        }
+    }
+
+    private static class Bucket {
+        private final SortedMap<String, Extremes> extremes = Maps.newTreeMap();
+        private Measurement first;
+
+        Bucket(Set<String> phenomena) {
+            for (String phenomenon : phenomena) {
+                extremes.put(phenomenon, new Extremes());
+            }
+        }
+
+        void add(Measurement m) {
+            if (first == null) {
+                first = m;
+            }
+            for (MeasurementValue mv : m.getValues()) {
+                if (mv.hasPhenomenon() && mv.hasValue() &&
+                    mv.getValue() instanceof Number) {
+                    Extremes e = extremes.get(mv.getPhenomenon().getName());
+                    if (e != null) {
+                        e.add(m, ((Number) mv.getValue()).doubleValue());
+                    }
+                }
+            }
+        }
+
+        List<Measurement> select(int points) {
+            Set<Measurement> selected = Sets.newIdentityHashSet();
+            for (Extremes e : extremes.values()) {
+                for (Measurement m : new Measurement[] { e.max, e.min }) {
+                    if (m != null && selected.size() < points) {
+                        selected.add(m);
+                    }
+                }
+            }
+            if (selected.isEmpty()) {
+                selected.add(first);
+            }
+            List<Measurement> list = new ArrayList<Measurement>(selected);
+            if (list.size() > 1) {
+                Collections.sort(list, TIME_ORDER);
+            }
+            return list;
+        }
+    }
+
+    private static class Extremes {
+        private Measurement min;
+        private Measurement max;
+        private double minValue;
+        private double maxValue;
+
+        void add(Measurement m, double value) {
+            if (min == null || value < minValue) {
+                minValue = value;
+                min = m;
+            }
+            if (max == null || value > maxValue) {
+                maxValue = value;
+                max = m;
+            }
+        }
+    }
+}
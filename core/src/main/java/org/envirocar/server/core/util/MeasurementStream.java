@@ -0,0 +1,31 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.util;
+
+import java.io.IOException;
+
+/**
+ * Passes stored measurements to a {@link MeasurementVisitor} as they are read
+ * from the data store, in the order and with the pagination of the originating
+ * query. This allows encoders to transcode measurements without creating
+ * entities for them.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public interface MeasurementStream {
+    void accept(MeasurementVisitor visitor) throws IOException;
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.util;
+
+import java.util.Map;
+
+/**
+ * Read-only view of a stored measurement that exposes the raw field values
+ * without materializing a {@link org.envirocar.server.core.entities.Measurement}.
+ * Instances are reused by the {@link MeasurementStream} for every visited
+ * measurement and must not be retained by a {@link MeasurementVisitor}.
+ * <p/>
+ * Times are milliseconds since the epoch. Measurements are located by points,
+ * so the geometry is only available as a coordinate pair.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public interface MeasurementView {
+    String getIdentifier();
+
+    boolean hasPoint();
+
+    double getX();
+
+    double getY();
+
+    boolean hasTime();
+
+    long getTime();
+
+    boolean hasCreationTime();
+
+    long getCreationTime();
+
+    boolean hasModificationTime();
+
+    long getModificationTime();
+
+    boolean hasSensor();
+
+    String getSensorIdentifier();
+
+    String getSensorType();
+
+    Map<String, Object> getSensorProperties();
+
+    boolean hasUser();
+
+    String getUserName();
+
+    boolean hasTrack();
+
+    String getTrackIdentifier();
+
+    int getValueCount();
+
+    String getPhenomenonName(int i);
+
+    String getPhenomenonUnit(int i);
+
+    Object getValue(int i);
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Singleton;
+
+/**
+ * Closes the registered services when the application is shut down, in
+ * the reverse order of their registration. Services that own threads or
+ * other resources outliving a request register themselves here, as the
+ * injector has no life cycle of its own.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class ShutdownHooks {
+    private static final Logger log = LoggerFactory
+            .getLogger(ShutdownHooks.class);
+    private final LinkedList<Closeable> hooks = new LinkedList<Closeable>();
+    private boolean shutdown;
+
+    /**
+     * Registers a service to be closed on shutdown.
+     *
+     * @param hook the service
+     */
+    public synchronized void register(Closeable hook) {
+        if (shutdown) {
+            throw new IllegalStateException("already shut down");
+        }
+        hooks.addFirst(hook);
+    }
+
+    /**
+     * Closes all registered services. Failures are logged.
+     */
+    public synchronized void shutdown() {
+        shutdown = true;
+        while (!hooks.isEmpty()) {
+            Closeable hook = hooks.removeFirst();
+            try {
+                hook.close();
+            } catch (IOException e) {
+                log.error("Could not close " + hook, e);
+            } catch (RuntimeException e) {
+                log.error("Could not close " + hook, e);
+            }
+        }
+    }
+
+    /**
+     * Stops an executor, interrupting running tasks that do not finish
+     * within the timeout.
+     *
+     * @param executor the executor
+     * @param timeout  the timeout in seconds
+     *
+     * @return if all tasks finished
+     */
+    public static boolean shutdown(ExecutorService executor, long timeout) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+                return executor.awaitTermination(timeout, TimeUnit.SECONDS);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.util;
+
+import java.util.List;
+
+import org.envirocar.server.core.entities.Measurement;
+
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.simplify.DouglasPeuckerSimplifier;
+
+/**
+ * Creates the overview of a track: a {@link GeometryCollection} holding one
+ * Douglas-Peucker simplified {@link LineString} per entry of
+ * {@link #TOLERANCES}, finest first.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class TrackSimplifier {
+    /**
+     * The simplification tolerances in degrees (roughly 1m, 10m, 100m and
+     * 1km).
+     */
+    public static final double[] TOLERANCES = { 0.00001, 0.0001, 0.001, 0.01 };
+    private final GeometryFactory geometryFactory;
+
+    @Inject
+    public TrackSimplifier(GeometryFactory geometryFactory) {
+        this.geometryFactory = geometryFactory;
+    }
+
+    /**
+     * Creates the overview for the specified measurements.
+     *
+     * @param measurements the measurements, ordered by time
+     *
+     * @return the overview or {@code null} if there are less than two
+     *         positions
+     */
+    public Geometry simplify(Iterable<? extends Measurement> measurements) {
+        List<Coordinate> coordinates = Lists.newArrayList();
+        for (Measurement m : measurements) {
+            if (m.hasGeometry()) {
+                coordinates.add(m.getGeometry().getCoordinate());
+            }
+        }
+        return simplify(coordinates);
+    }
+
+    /**
+     * Creates the overview for the specified positions.
+     *
+     * @param coordinates the positions, ordered by time
+     *
+     * @return the overview or {@code null} if there are less than two
+     *         positions
+     */
+    public Geometry simplify(List<Coordinate> coordinates) {
+        if (coordinates.size() < 2) {
+            return null;
+        }
+        Geometry line = geometryFactory.createLineString(coordinates
+                .toArray(new Coordinate[coordinates.size()]));
+        Geometry[] levels = new Geometry[TOLERANCES.length];
+        for (int i = 0; i < TOLERANCES.length; ++i) {
+            line = DouglasPeuckerSimplifier.simplify(line, TOLERANCES[i]);
+            levels[i] = line;
+        }
+        return geometryFactory.createGeometryCollection(levels);
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core;
+
+import static org.envirocar.server.core.stubs.Stubs.proxy;
+import static org.envirocar.server.core.stubs.Stubs.stub;
+import static org.envirocar.server.core.stubs.Stubs.unsupported;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+
+import org.envirocar.server.core.dao.MeasurementDao;
+import org.envirocar.server.core.dao.TrackDao;
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.Track;
+import org.envirocar.server.core.event.CreatedMeasurementsEvent;
+import org.envirocar.server.core.update.ChangeSet;
+import org.envirocar.server.core.update.ChangeSet.Change;
+import org.envirocar.server.core.update.TrackUpdater;
+import org.envirocar.server.core.util.ShutdownHooks;
+import org.envirocar.server.core.validation.EntityValidator;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.eventbus.EventBus;
+import com.google.common.eventbus.Subscribe;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class DataServiceImplTest {
+    private static final DateTime BEGIN = new DateTime(2013, 1, 1, 0, 0, 0, 0);
+    private final List<Object> events = Lists.newArrayList();
+    private final List<List<Measurement>> inserted = Lists.newArrayList();
+    private final Track track = stub(Track.class, "getIdentifier", "track");
+    private final List<ChangeSet> written = Lists.newArrayList();
+    private final ShutdownHooks shutdownHooks = new ShutdownHooks();
+    private int failingBatch = -1;
+
+    private List<Measurement> measurements(int count) {
+        List<Measurement> measurements = Lists.newArrayList();
+        for (int i = 0; i < count; ++i) {
+            measurements.add(stub(Measurement.class,
+                                  "getTime", BEGIN.plusSeconds(i)));
+        }
+        return measurements;
+    }
+
+    @SuppressWarnings("unchecked")
+    private DataServiceImpl dataService() {
+        TrackDao trackDao = proxy(TrackDao.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("update")) {
+                    written.add((ChangeSet) args[1]);
+                    return null;
+                } else if (method.getName().equals("getById")) {
+                    return null;
+                } else if (method.getName().equals("getOutdated")) {
+                    return Collections.emptyList();
+                }
+                throw unsupported(method);
+            }
+        });
+        MeasurementDao measurementDao = proxy(MeasurementDao.class,
+                                              new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("create") &&
+                    args[0] instanceof List) {
+                    if (inserted.size() == failingBatch) {
+                        throw new IllegalStateException();
+                    }
+                    inserted.add((List<Measurement>) args[0]);
+                    return null;
+                }
+                throw unsupported(method);
+            }
+        });
+        EntityValidator<Measurement> validator = proxy(EntityValidator.class,
+                                                       new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                return null;
+            }
+        });
+        EventBus eventBus = new EventBus();
+        eventBus.register(new Object() {
+            @Subscribe
+            public void on(Object event) {
+                events.add(event);
+            }
+        });
+        return new DataServiceImpl(
+                trackDao, measurementDao, null, null, null, null, null, null,
+                null, null, null, null, validator, null, null,
+                new TrackOverviewUpdater(trackDao, measurementDao, null,
+                                         new GeometryFactory(),
+                                         shutdownHooks),
+                null, eventBus);
+    }
+
+    private Object value(String property) {
+        assertThat(written.isEmpty(), is(false));
+        for (ChangeSet changes : written) {
+            for (Change change : changes) {
+                if (change.getProperty().equals(property)) {
+                    return change.getValue();
+                }
+            }
+        }
+        return null;
+    }
+
+    @After
+    public void shutdown() {
+        shutdownHooks.shutdown();
+    }
+
+    @Test
+    public void postsOneEventPerBatch() {
+        int count = 2 * DataServiceImpl.MEASUREMENT_BATCH_SIZE + 1;
+        List<Measurement> measurements = measurements(count);
+        dataService().createMeasurements(track, measurements);
+        assertThat(inserted.size(), is(3));
+        assertThat(events.size(), is(1));
+        assertThat(events.get(0), is(instanceOf(CreatedMeasurementsEvent.class)));
+        assertThat(((CreatedMeasurementsEvent) events.get(0))
+                .getMeasurements().size(), is(count));
+        assertThat(value(TrackUpdater.BEGIN), is((Object) BEGIN));
+        assertThat(value(TrackUpdater.END),
+                   is((Object) BEGIN.plusSeconds(count - 1)));
+    }
+
+    @Test
+    public void updatesRangeOfInsertedMeasurements() {
+        failingBatch = 1;
+        try {
+            dataService().createMeasurements(
+                    track, measurements(2 * DataServiceImpl.MEASUREMENT_BATCH_SIZE));
+            fail("expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            /* expected */
+        }
+        assertThat(events.size(), is(0));
+        assertThat(value(TrackUpdater.BEGIN), is((Object) BEGIN));
+        assertThat(value(TrackUpdater.END), is((Object) BEGIN
+                .plusSeconds(DataServiceImpl.MEASUREMENT_BATCH_SIZE - 1)));
+    }
+}
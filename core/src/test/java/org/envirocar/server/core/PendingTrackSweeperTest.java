@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core;
+
+import static org.envirocar.server.core.stubs.Stubs.proxy;
+import static org.envirocar.server.core.stubs.Stubs.unsupported;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+
+import org.envirocar.server.core.dao.TrackDao;
+import org.envirocar.server.core.util.ShutdownHooks;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class PendingTrackSweeperTest {
+    private DateTime cutoff;
+
+    @Test
+    public void deletesTracksOlderThanTTL() {
+        TrackDao trackDao = proxy(TrackDao.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws Throwable {
+                if (method.getName().equals("deleteStalePending")) {
+                    cutoff = (DateTime) args[0];
+                    return 2;
+                }
+                throw unsupported(method);
+            }
+        });
+        DateTime before = new DateTime().minusHours(PendingTrackSweeper.TTL);
+        ShutdownHooks shutdownHooks = new ShutdownHooks();
+        try {
+            assertThat(new PendingTrackSweeper(trackDao, shutdownHooks)
+                    .sweep(), is(2));
+        } finally {
+            shutdownHooks.shutdown();
+        }
+        DateTime after = new DateTime().minusHours(PendingTrackSweeper.TTL);
+        assertThat(cutoff.getMillis(),
+                   is(greaterThanOrEqualTo(before.getMillis())));
+        assertThat(cutoff.getMillis(),
+                   is(lessThanOrEqualTo(after.getMillis())));
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core;
+
+import static org.envirocar.server.core.stubs.Stubs.proxy;
+import static org.envirocar.server.core.stubs.Stubs.stub;
+import static org.envirocar.server.core.stubs.Stubs.unsupported;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.envirocar.server.core.dao.MeasurementDao;
+import org.envirocar.server.core.dao.TrackDao;
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.Measurements;
+import org.envirocar.server.core.entities.Track;
+import org.envirocar.server.core.update.ChangeSet;
+import org.envirocar.server.core.update.ChangeSet.Change;
+import org.envirocar.server.core.update.ChangeSet.Operation;
+import org.envirocar.server.core.update.TrackUpdater;
+import org.envirocar.server.core.util.ShutdownHooks;
+import org.envirocar.server.core.util.TrackSimplifier;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class TrackOverviewUpdaterTest {
+    private static final String ID = "track";
+    private static final DateTime BEGIN = new DateTime(2013, 1, 1, 0, 0, 0, 0);
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+    private final TrackSimplifier simplifier =
+            new TrackSimplifier(geometryFactory);
+    private final Track track = stub(Track.class, "getIdentifier", ID);
+    private final List<Measurement> measurements = Lists.newArrayList();
+    private final List<Coordinate> coordinates = Lists.newArrayList();
+    private final ShutdownHooks shutdownHooks = new ShutdownHooks();
+    private final List<ChangeSet> flagged = Lists.newArrayList();
+    private List<String> outdated = Collections.emptyList();
+    private ChangeSet written;
+    private boolean unmodified = true;
+
+    @After
+    public void shutdown() {
+        shutdownHooks.shutdown();
+    }
+
+    @Test
+    public void testOverviewMatchesFullSimplification() {
+        for (int i = 0; i < 500; ++i) {
+            /* every third measurement has no position */
+            if (i % 3 == 0) {
+                measurements.add(stub(Measurement.class,
+                                      "getTime", BEGIN.plusSeconds(i)));
+            } else {
+                Coordinate c = new Coordinate(7.6 + Math.sin(i / 10.0) / 100,
+                                              51.9 + i / 10000.0);
+                coordinates.add(c);
+                measurements.add(stub(Measurement.class,
+                                      "getTime", BEGIN.plusSeconds(i),
+                                      "getGeometry",
+                                      geometryFactory.createPoint(c)));
+            }
+        }
+        assertThat(updater().update(ID), is(true));
+        Map<String, Change> changes = changes();
+        assertThat(changes.get(TrackUpdater.BEGIN).getValue(),
+                   is((Object) BEGIN));
+        assertThat(changes.get(TrackUpdater.END).getValue(),
+                   is((Object) BEGIN.plusSeconds(499)));
+        Geometry overview = (Geometry) changes.get(TrackUpdater.OVERVIEW)
+                .getValue();
+        assertThat(overview, is(notNullValue()));
+        assertThat(overview.equalsExact(simplifier.simplify(coordinates)),
+                   is(true));
+        Geometry bbox = (Geometry) changes.get(TrackUpdater.BOUNDING_BOX)
+                .getValue();
+        assertThat(bbox.getEnvelopeInternal(), is(geometryFactory
+                .createMultiPoint(coordinates.toArray(
+                        new Coordinate[coordinates.size()]))
+                .getEnvelopeInternal()));
+    }
+
+    @Test
+    public void testEmptyTrackIsUnset() {
+        assertThat(updater().update(ID), is(true));
+        Map<String, Change> changes = changes();
+        assertThat(changes.get(TrackUpdater.BEGIN).getOperation(),
+                   is(Operation.UNSET));
+        assertThat(changes.get(TrackUpdater.END).getOperation(),
+                   is(Operation.UNSET));
+        assertThat(changes.get(TrackUpdater.BOUNDING_BOX).getOperation(),
+                   is(Operation.UNSET));
+        assertThat(changes.get(TrackUpdater.OVERVIEW).getOperation(),
+                   is(Operation.UNSET));
+        assertThat(changes.get(TrackUpdater.OUTDATED).getOperation(),
+                   is(Operation.UNSET));
+    }
+
+    @Test
+    public void testScheduleFlagsTrackAsOutdatedOnce() {
+        TrackOverviewUpdater updater = updater();
+        updater.schedule(track);
+        updater.schedule(track);
+        assertThat(flagged.size(), is(1));
+        Change change = flagged.get(0).iterator().next();
+        assertThat(change.getProperty(), is(TrackUpdater.OUTDATED));
+        assertThat(change.getValue(), is((Object) true));
+    }
+
+    @Test
+    public void testOutdatedTracksAreResumed() {
+        outdated = Collections.singletonList(ID);
+        assertThat(updater().resume(), is(1));
+    }
+
+    @Test
+    public void testConcurrentModificationIsReported() {
+        unmodified = false;
+        assertThat(updater().update(ID), is(false));
+        assertThat(written, is(notNullValue()));
+    }
+
+    @Test
+    public void testDeletedTrackIsIgnored() {
+        assertThat(updater().update("deleted"), is(true));
+        assertThat(written, is(nullValue()));
+    }
+
+    private Map<String, Change> changes() {
+        assertThat(written, is(notNullValue()));
+        Map<String, Change> changes = Maps.newHashMap();
+        for (Change change : written) {
+            changes.put(change.getProperty(), change);
+        }
+        return changes;
+    }
+
+    private TrackOverviewUpdater updater() {
+        TrackDao trackDao = proxy(TrackDao.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getById")) {
+                    return ID.equals(args[0]) ? track : null;
+                } else if (method.getName().equals("updateIfUnmodified")) {
+                    written = (ChangeSet) args[1];
+                    return unmodified;
+                } else if (method.getName().equals("update")) {
+                    flagged.add((ChangeSet) args[1]);
+                    return null;
+                } else if (method.getName().equals("getOutdated")) {
+                    return outdated;
+                }
+                throw unsupported(method);
+            }
+        });
+        MeasurementDao measurementDao = proxy(MeasurementDao.class,
+                                              new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("get")) {
+                    return Measurements.from(measurements).build();
+                }
+                throw unsupported(method);
+            }
+        });
+        return new TrackOverviewUpdater(trackDao, measurementDao,
+                                        simplifier, geometryFactory,
+                                        shutdownHooks);
+    }
+}
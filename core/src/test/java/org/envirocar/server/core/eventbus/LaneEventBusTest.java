@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.eventbus;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.envirocar.server.core.metrics.Metrics;
+import org.junit.Test;
+
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class LaneEventBusTest {
+    private final Metrics metrics = new Metrics();
+
+    private LaneEventBus createBus(int threads, int queueSize,
+                                   Lane.Overflow overflow) {
+        Map<Lane, LaneSettings> settings =
+                new EnumMap<Lane, LaneSettings>(Lane.class);
+        for (Lane lane : Lane.values()) {
+            settings.put(lane, new LaneSettings(threads, queueSize, overflow));
+        }
+        return new LaneEventBus("test", settings, metrics);
+    }
+
+    @Test
+    public void deliversToListeners() throws InterruptedException {
+        LaneEventBus bus = createBus(1, 10, Lane.Overflow.CALLER_RUNS);
+        CountingListener listener = new CountingListener(2);
+        bus.register(listener);
+        bus.register(new Object());
+        bus.post("a");
+        bus.post("b");
+        assertThat(listener.latch.await(5, TimeUnit.SECONDS), is(true));
+    }
+
+    @Test
+    public void runsOverflowOnCaller() throws InterruptedException {
+        LaneEventBus bus = createBus(1, 1, Lane.Overflow.CALLER_RUNS);
+        BlockingListener listener = new BlockingListener();
+        bus.register(listener);
+        /* the first event blocks the thread, the second fills the queue */
+        bus.post("a");
+        assertThat(listener.started.await(5, TimeUnit.SECONDS), is(true));
+        bus.post("b");
+        bus.post("c");
+        assertThat(listener.callerRuns, is(1));
+        listener.release.countDown();
+    }
+
+    @Test
+    public void exposesQueueMetrics() throws IOException,
+                                             InterruptedException {
+        LaneEventBus bus = createBus(1, 10, Lane.Overflow.DISCARD);
+        CountingListener listener = new CountingListener(1);
+        bus.register(listener);
+        bus.post("a");
+        assertThat(listener.latch.await(5, TimeUnit.SECONDS), is(true));
+        StringWriter writer = new StringWriter();
+        metrics.write(writer);
+        assertThat(writer.toString(), containsString(
+                ListenerExecutor.QUEUED +
+                "{listener=\"CountingListener\",lane=\"critical\"}"));
+    }
+
+    @EventLane(Lane.CRITICAL)
+    public static class CountingListener {
+        private final CountDownLatch latch;
+
+        CountingListener(int events) {
+            this.latch = new CountDownLatch(events);
+        }
+
+        @Subscribe
+        @AllowConcurrentEvents
+        public void on(String event) {
+            latch.countDown();
+        }
+    }
+
+    public static class BlockingListener {
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final Thread caller = Thread.currentThread();
+        private volatile int callerRuns;
+
+        @Subscribe
+        @AllowConcurrentEvents
+        public void on(String event) throws InterruptedException {
+            if (Thread.currentThread() == caller) {
+                ++callerRuns;
+                return;
+            }
+            started.countDown();
+            release.await();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.filter;
+
+import static org.hamcrest.Matchers.is;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.hamcrest.Matcher;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+public class ProjectionTest {
+
+    @Rule
+    public final ErrorCollector errors = new ErrorCollector();
+
+    protected <T> void assertThat(T value, Matcher<T> matcher) {
+        errors.checkThat(value, matcher);
+    }
+
+    @Test
+    public void testWithoutAll() {
+        Projection p = Projection.all().without(Arrays.asList("created"));
+        assertThat(p.isAll(), is(false));
+        assertThat(p.includes("time"), is(true));
+        assertThat(p.includes("created"), is(false));
+        assertThat(p.getFields().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testWithoutFields() {
+        Projection p = Projection.of(Arrays.asList("time", "created"))
+                .without(Arrays.asList("created", "modified"));
+        assertThat(p.includes("time"), is(true));
+        assertThat(p.includes("created"), is(false));
+        assertThat(p.includes("modified"), is(false));
+    }
+
+    @Test
+    public void testWithoutNothing() {
+        Projection p = Projection.all()
+                .without(Collections.<String>emptySet());
+        assertThat(p.isAll(), is(true));
+        assertThat(p, is(Projection.all()));
+    }
+
+    @Test
+    public void testEquality() {
+        Projection p1 = Projection.all().without(Arrays.asList("created"));
+        Projection p2 = Projection.all().without(Arrays.asList("created"));
+        assertThat(p1, is(p2));
+        assertThat(p1.equals(Projection.all()), is(false));
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.metrics;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class MetricsTest {
+
+    @Test
+    public void recordsIntoInclusiveBuckets() {
+        Histogram histogram = new Histogram(Buckets.SIZE);
+        histogram.record(0);
+        histogram.record(256);
+        histogram.record(257);
+        histogram.record(Long.MAX_VALUE / 2);
+        long[] counts = histogram.getCounts();
+        assertThat(counts[0], is(2L));
+        assertThat(counts[1], is(1L));
+        assertThat(counts[counts.length - 1], is(1L));
+        assertThat(histogram.getCount(), is(4L));
+    }
+
+    @Test
+    public void aggregatesAllThreads() throws InterruptedException {
+        final Histogram histogram = new Histogram(Buckets.LATENCY);
+        Thread[] threads = new Thread[16];
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 1000; ++j) {
+                        histogram.record(1000000L);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(histogram.getCount(), is(16000L));
+        assertThat(histogram.getSum(), is(16000L * 1000000L));
+    }
+
+    @Test
+    public void returnsTheSameSeries() {
+        Metrics metrics = new Metrics();
+        Histogram h = metrics.histogram("h", "help", Buckets.SIZE, "a", "b");
+        assertThat(metrics.histogram("h", "help", Buckets.SIZE, "a", "b"),
+                   is(sameInstance(h)));
+    }
+
+    @Test
+    public void writesTextFormat() throws IOException {
+        Metrics metrics = new Metrics();
+        metrics.histogram("duration", "Duration.", Buckets.LATENCY,
+                          "resource", "Tracks\"Resource")
+                .record(1500000000L);
+        metrics.gauge("in_flight", "In flight.").increment();
+        StringWriter writer = new StringWriter();
+        metrics.write(writer);
+        String text = writer.toString();
+        assertThat(text, containsString("# TYPE duration histogram\n"));
+        assertThat(text, containsString(
+                "duration_bucket{resource=\"Tracks\\\"Resource\",le=\"1\"} 0\n"));
+        assertThat(text, containsString(
+                "duration_bucket{resource=\"Tracks\\\"Resource\",le=\"2.5\"} 1\n"));
+        assertThat(text, containsString(
+                "duration_bucket{resource=\"Tracks\\\"Resource\",le=\"+Inf\"} 1\n"));
+        assertThat(text, containsString(
+                "duration_sum{resource=\"Tracks\\\"Resource\"} 1.5\n"));
+        assertThat(text, containsString("# TYPE in_flight gauge\n"));
+        assertThat(text, containsString("in_flight 1\n"));
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.stubs;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+/**
+ * Creates read-only stubs of entity interfaces and proxies of service
+ * interfaces.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public final class Stubs {
+    private Stubs() {
+    }
+
+    /**
+     * Creates a stub whose getters return the given values. {@code has*}
+     * methods return whether the matching getter has a value, all other
+     * methods return {@code null}.
+     *
+     * @param type       the interface to stub
+     * @param properties pairs of getter name and value
+     *
+     * @return the stub
+     */
+    public static <T> T stub(Class<T> type, final Object... properties) {
+        InvocationHandler handler = new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("equals")) {
+                    return proxy == args[0];
+                } else if (name.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else if (name.equals("toString")) {
+                    return "stub";
+                }
+                boolean has = name.startsWith("has");
+                String getter = has ? "get" + name.substring(3) : name;
+                Object value = null;
+                for (int i = 0; i < properties.length; i += 2) {
+                    if (properties[i].equals(getter)) {
+                        value = properties[i + 1];
+                    }
+                }
+                return has ? value != null : value;
+            }
+        };
+        return proxy(type, handler);
+    }
+
+    /**
+     * Creates a proxy of an interface. Handlers should fail calls they do
+     * not expect with {@link #unsupported(Method)}.
+     *
+     * @param type    the interface to implement
+     * @param handler the handler of the calls
+     *
+     * @return the proxy
+     */
+    public static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(
+                type.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    /**
+     * @param method the unexpected method
+     *
+     * @return the exception to fail the call with
+     */
+    public static UnsupportedOperationException unsupported(Method method) {
+        return new UnsupportedOperationException(method.getName());
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.util;
+
+import static org.envirocar.server.core.stubs.Stubs.stub;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.Random;
+
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.MeasurementValue;
+import org.envirocar.server.core.entities.MeasurementValues;
+import org.envirocar.server.core.entities.Phenomenon;
+import org.joda.time.DateTime;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class MeasurementDownsamplerTest {
+    private static final String[] PHENOMENONS = {
+        "Speed", "Rpm", "MAF", "CO2", "Consumption" };
+    private static final DateTime BEGIN = new DateTime(2013, 1, 1, 0, 0, 0, 0);
+
+    @Test
+    public void testResolutionIsUpperBound() {
+        List<Measurement> series = series(10000);
+        DateTime end = series.get(series.size() - 1).getTime();
+        for (int resolution : new int[] { 1, 2, 3, 10, 99, 500, 20000 }) {
+            List<Measurement> result = Lists.newArrayList(
+                    new MeasurementDownsampler(series, BEGIN, end, resolution));
+            assertThat(result.size(), is(lessThanOrEqualTo(resolution)));
+        }
+    }
+
+    @Test
+    public void testOutOfRangeIsClamped() {
+        List<Measurement> series = series(1000);
+        /* the series exceeds the track's time range */
+        DateTime end = BEGIN.plusSeconds(10);
+        List<Measurement> result = Lists.newArrayList(
+                new MeasurementDownsampler(series, BEGIN, end, 10));
+        assertThat(result.size(), is(lessThanOrEqualTo(10)));
+    }
+
+    @Test
+    public void testPeaksAreKept() {
+        List<Measurement> series = series(1000);
+        Measurement peak = measurement(BEGIN.plusSeconds(500), 1000d);
+        series.set(500, peak);
+        DateTime end = series.get(series.size() - 1).getTime();
+        List<Measurement> result = Lists.newArrayList(
+                new MeasurementDownsampler(series, BEGIN, end, 20));
+        assertThat(result.contains(peak), is(true));
+    }
+
+    @Test
+    public void testPeaksOfAllPhenomenaAreKept() {
+        List<Measurement> series = series(1000);
+        Measurement speed = measurement(BEGIN.plusSeconds(100),
+                                        1000d, 50d, 50d, 50d, 50d);
+        Measurement rpm = measurement(BEGIN.plusSeconds(300),
+                                      50d, -1000d, 50d, 50d, 50d);
+        Measurement co2 = measurement(BEGIN.plusSeconds(700),
+                                      50d, 50d, 50d, 1000d, 50d);
+        series.set(100, speed);
+        series.set(300, rpm);
+        series.set(700, co2);
+        DateTime end = series.get(series.size() - 1).getTime();
+        List<Measurement> result = Lists.newArrayList(
+                new MeasurementDownsampler(series, BEGIN, end, 20));
+        assertThat(result.size(), is(lessThanOrEqualTo(20)));
+        assertThat(result.contains(speed), is(true));
+        assertThat(result.contains(rpm), is(true));
+        assertThat(result.contains(co2), is(true));
+    }
+
+    @Test
+    public void testSelectionIsIndependentOfValueOrder() {
+        List<Measurement> series = series(1000);
+        List<Measurement> reversed = Lists.newArrayList();
+        for (Measurement m : series) {
+            List<MeasurementValue> values = Lists.newArrayList(m.getValues());
+            reversed.add(stub(Measurement.class, "getTime", m.getTime(),
+                              "getValues", MeasurementValues
+                              .from(Lists.reverse(values)).build()));
+        }
+        DateTime end = series.get(series.size() - 1).getTime();
+        List<Measurement> expected = Lists.newArrayList(
+                new MeasurementDownsampler(series, BEGIN, end, 50));
+        List<Measurement> actual = Lists.newArrayList(
+                new MeasurementDownsampler(reversed, BEGIN, end, 50));
+        assertThat(actual.size(), is(expected.size()));
+        for (int i = 0; i < expected.size(); ++i) {
+            assertThat(actual.get(i).getTime(), is(expected.get(i).getTime()));
+        }
+    }
+
+    @Test
+    public void testExplicitPhenomenon() {
+        List<Measurement> series = series(1000);
+        Measurement speed = measurement(BEGIN.plusSeconds(100),
+                                        1000d, 50d, 50d, 50d, 50d);
+        Measurement co2 = measurement(BEGIN.plusSeconds(700),
+                                      50d, 50d, 50d, 1000d, 50d);
+        series.set(100, speed);
+        series.set(700, co2);
+        DateTime end = series.get(series.size() - 1).getTime();
+        List<Measurement> result = Lists.newArrayList(
+                new MeasurementDownsampler(series, BEGIN, end, 4,
+                                           ImmutableSet.of("CO2")));
+        assertThat(result.size(), is(lessThanOrEqualTo(4)));
+        assertThat(result.contains(co2), is(true));
+    }
+
+    private static List<Measurement> series(int size) {
+        Random random = new Random(42);
+        List<Measurement> series = Lists.newArrayListWithCapacity(size);
+        for (int i = 0; i < size; ++i) {
+            Double[] values = new Double[PHENOMENONS.length];
+            for (int j = 0; j < values.length; ++j) {
+                values[j] = random.nextDouble() * 100;
+            }
+            series.add(measurement(BEGIN.plusSeconds(i), values));
+        }
+        return series;
+    }
+
+    private static Measurement measurement(DateTime time, Double... values) {
+        ImmutableList.Builder<MeasurementValue> mvs = ImmutableList.builder();
+        for (int i = 0; i < values.length; ++i) {
+            mvs.add(stub(MeasurementValue.class,
+                         "getPhenomenon", stub(Phenomenon.class,
+                                               "getName", PHENOMENONS[i]),
+                         "getValue", values[i]));
+        }
+        return stub(Measurement.class, "getTime", time,
+                    "getValues", MeasurementValues.from(mvs.build()).build());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.core.util;
+
+import static org.envirocar.server.core.stubs.Stubs.stub;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.envirocar.server.core.entities.Measurement;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class TrackSimplifierTest {
+    private final GeometryFactory geometryFactory = new GeometryFactory();
+    private final TrackSimplifier simplifier =
+            new TrackSimplifier(geometryFactory);
+
+    @Test
+    public void testLessThanTwoPositions() {
+        assertThat(simplifier.simplify(Collections.<Coordinate>emptyList()),
+                   is(nullValue()));
+        assertThat(simplifier.simplify(Collections
+                .singletonList(new Coordinate(7, 51))), is(nullValue()));
+    }
+
+    @Test
+    public void testLevelsAreWithinTolerance() {
+        List<Coordinate> coordinates = randomWalk(2000);
+        Geometry overview = simplifier.simplify(coordinates);
+        assertThat(overview, is(notNullValue()));
+        assertThat(overview.getNumGeometries(),
+                   is(TrackSimplifier.TOLERANCES.length));
+        LineString line = geometryFactory.createLineString(coordinates
+                .toArray(new Coordinate[coordinates.size()]));
+        /* every level is simplified from the previous one */
+        double tolerance = 0;
+        int points = coordinates.size();
+        for (int i = 0; i < TrackSimplifier.TOLERANCES.length; ++i) {
+            tolerance += TrackSimplifier.TOLERANCES[i];
+            Geometry level = overview.getGeometryN(i);
+            assertThat(level.getNumPoints(), is(lessThanOrEqualTo(points)));
+            for (Coordinate c : coordinates) {
+                assertThat(level.distance(geometryFactory.createPoint(c)),
+                           is(lessThanOrEqualTo(tolerance)));
+            }
+            assertThat(level.getCoordinates()[0],
+                       is(line.getCoordinates()[0]));
+            points = level.getNumPoints();
+        }
+    }
+
+    @Test
+    public void testMeasurementsWithoutGeometryAreIgnored() {
+        List<Coordinate> coordinates = randomWalk(100);
+        List<Measurement> measurements = Lists.newArrayList();
+        for (Coordinate c : coordinates) {
+            measurements.add(stub(Measurement.class));
+            measurements.add(stub(Measurement.class, "getGeometry",
+                                  geometryFactory.createPoint(c)));
+        }
+        assertThat(simplifier.simplify(measurements)
+                .equalsExact(simplifier.simplify(coordinates)), is(true));
+    }
+
+    private static List<Coordinate> randomWalk(int size) {
+        Random random = new Random(42);
+        List<Coordinate> coordinates = Lists.newArrayListWithCapacity(size);
+        double x = 7.6, y = 51.9;
+        for (int i = 0; i < size; ++i) {
+            x += (random.nextDouble() - 0.5) * 0.001;
+            y += (random.nextDouble() - 0.5) * 0.001;
+            coordinates.add(new Coordinate(x, y));
+        }
+        return coordinates;
+    }
+}
@@ -29,6 +29,8 @@ import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.util.EntityUtils;
 import org.envirocar.server.core.entities.Track;
 import org.envirocar.server.core.event.CreatedTrackEvent;
+import org.envirocar.server.core.eventbus.EventLane;
+import org.envirocar.server.core.eventbus.Lane;
 import org.envirocar.server.rest.MediaTypes;
 import org.envirocar.server.rest.encoding.JSONEntityEncoder;
 import org.envirocar.server.rest.rights.AccessRightsImpl;
@@ -42,6 +44,7 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
 @Singleton
+@EventLane(Lane.BACKGROUND)
 public class HTTPPushListener {
     //TODO make configurable
     private static final String host =
@@ -84,6 +87,8 @@ public class HTTPPushListener {
             logger.warn(e.getMessage(), e);
         } catch (IOException e) {
             logger.warn(e.getMessage(), e);
+        } catch (RuntimeException e) {
+            logger.warn(e.getMessage(), e);
         } finally {
             if (resp != null) {
                 try {
@@ -32,6 +32,7 @@ import com.github.jmkgreen.morphia.logging.MorphiaLoggerFactory;
 import com.github.jmkgreen.morphia.logging.slf4j.SLF4JLogrImplFactory;
 import com.github.jmkgreen.morphia.mapping.DefaultCreator;
 import com.github.jmkgreen.morphia.mapping.Mapper;
+import com.github.jmkgreen.morphia.query.Query;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.LinkedListMultimap;
 import com.google.common.collect.ListMultimap;
@@ -44,9 +45,14 @@ import com.mongodb.BasicDBObject;
 import com.mongodb.DBCollection;
 import com.mongodb.DBRef;
 import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
 import com.mongodb.ServerAddress;
 
 import org.envirocar.server.mongo.entity.MongoMeasurement;
+import org.envirocar.server.mongo.index.QueryPlanChecker;
+import org.envirocar.server.mongo.metrics.CountingDBDecoder;
+import org.envirocar.server.mongo.metrics.MongoMetrics;
+import org.envirocar.server.mongo.metrics.QueryTimer;
 
 import com.mongodb.BasicDBObjectBuilder;
 
@@ -66,19 +72,28 @@ public class MongoDB {
     private final MongoClient mongo;
     private final Morphia morphia;
     private final Datastore datastore;
+    private final MongoMetrics metrics;
+    private final QueryTimer derefTimer;
 
     @Inject
     public MongoDB(Injector injector,
+                   MongoMetrics metrics,
                    Set<TypeConverter> converters,
                    @Named(MAPPED_CLASSES) Set<Class<?>> mappedClasses,
                    @Named(HOST_PROPERTY) String host,
                    @Named(PORT_PROPERTY) int port,
                    @Named(DATABASE_PROPERTY) String database,
                    @Nullable @Named(USER_PROPERTY) String username,
-                   @Nullable @Named(PASS_PROPERTY) char[] password) {
+                   @Nullable @Named(PASS_PROPERTY) char[] password,
+                   @Named(QueryPlanChecker.CHECK_QUERY_PLANS)
+                   QueryPlanChecker.Mode checkQueryPlans) {
+        this.metrics = metrics;
+        this.derefTimer = metrics.timer(MongoDB.class, MongoMetrics.DEREF);
         try {
             MorphiaLoggerFactory.registerLogger(SLF4JLogrImplFactory.class);
-            mongo = new MongoClient(new ServerAddress(host, port));
+            mongo = new MongoClient(new ServerAddress(host, port),
+                                    MongoClientOptions.builder()
+                    .dbDecoderFactory(CountingDBDecoder.FACTORY).build());
             morphia = new Morphia();
             morphia.getMapper().getOptions().objectFactory =
                     new CustomGuiceObjectFactory(new DefaultCreator(), injector);
@@ -89,6 +104,7 @@ public class MongoDB {
             datastore.ensureIndexes();
             ensureIndexes();
             datastore.ensureCaps();
+            new QueryPlanChecker(datastore).run(checkQueryPlans);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -110,6 +126,10 @@ public class MongoDB {
         return getMorphia().getMapper();
     }
 
+    public MongoMetrics getMetrics() {
+        return this.metrics;
+    }
+
     private void addConverters(Set<TypeConverter> converters) {
         DefaultConverters dc = getMapper().getConverters();
         for (TypeConverter tc : converters) {
@@ -136,7 +156,13 @@ public class MongoDB {
     }
 
     public <T> T deref(Class<T> c, Key<T> key) {
-        return key == null ? null : getDatastore().getByKey(c, key);
+        if (key == null) {
+            return null;
+        }
+        QueryTimer.Sample sample = derefTimer.start();
+        T entity = getDatastore().getByKey(c, key);
+        derefTimer.stop(sample, entity == null ? 0 : 1, null);
+        return entity;
     }
 
     public <T> Iterable<T> deref(Class<T> c, Iterable<Key<T>> keys) {
@@ -159,12 +185,12 @@ public class MongoDB {
             for (Key<T> key : kindKeys) {
                 objIds.add(key.getId());
             }
-            fetched.add(getDatastore()
+            Query<T> q = getDatastore()
                     .find(kind, kindClass)
                     .disableValidation()
                     .field(Mapper.ID_KEY)
-                    .in(objIds)
-                    .fetch());
+                    .in(objIds);
+            fetched.add(derefTimer.instrument(q.fetch(), q));
         }
         return Iterables.concat(fetched);
     }
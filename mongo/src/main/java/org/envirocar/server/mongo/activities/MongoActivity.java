@@ -27,7 +27,9 @@ import org.joda.time.DateTime;
 import com.github.jmkgreen.morphia.Key;
 import com.github.jmkgreen.morphia.annotations.Entity;
 import com.github.jmkgreen.morphia.annotations.Id;
+import com.github.jmkgreen.morphia.annotations.Index;
 import com.github.jmkgreen.morphia.annotations.Indexed;
+import com.github.jmkgreen.morphia.annotations.Indexes;
 import com.github.jmkgreen.morphia.annotations.Polymorphic;
 import com.github.jmkgreen.morphia.annotations.Property;
 import com.github.jmkgreen.morphia.annotations.Transient;
@@ -46,6 +48,7 @@ import com.google.inject.assistedinject.AssistedInject;
  */
 @Polymorphic
 @Entity("activities")
+@Indexes(@Index(MongoActivity.USER + ", -" + MongoActivity.TIME))
 public class MongoActivity implements Activity {
     public static final String ID = Mapper.ID_KEY;
     public static final String USER = "user";
@@ -56,7 +59,6 @@ public class MongoActivity implements Activity {
     @Indexed(IndexDirection.DESC)
     @Property(TIME)
     private DateTime time = new DateTime();
-    @Indexed
     @Property(USER)
     private Key<MongoUser> user;
     @Transient
@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.codec;
+
+import java.util.Date;
+import java.util.Map;
+
+import org.bson.BSONObject;
+import org.bson.types.ObjectId;
+import org.envirocar.server.core.exception.GeometryConverterException;
+import org.envirocar.server.core.util.GeometryConverter;
+import org.envirocar.server.mongo.MongoDB;
+import org.envirocar.server.mongo.entity.MongoEntityBase;
+import org.envirocar.server.mongo.entity.MongoPhenomenon;
+import org.envirocar.server.mongo.entity.MongoSensor;
+import org.joda.time.DateTime;
+
+import com.github.jmkgreen.morphia.Key;
+import com.github.jmkgreen.morphia.mapping.Mapper;
+import com.github.jmkgreen.morphia.mapping.MappingException;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Base class for codecs that convert entities from and to the documents
+ * written by the Morphia {@link Mapper} without using reflection. Null values
+ * and empty collections are omitted and only top level documents carry a
+ * {@link Mapper#CLASS_NAME_FIELDNAME}, just like Morphia does.
+ *
+ * @param <T> the entity type
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public abstract class AbstractEntityCodec<T> {
+    private final Mapper mapper;
+    private final GeometryConverter<BSONObject> geometryConverter;
+    private final MongoDB mongoDB;
+
+    AbstractEntityCodec(Mapper mapper,
+                        GeometryConverter<BSONObject> geometryConverter,
+                        MongoDB mongoDB) {
+        this.mapper = mapper;
+        this.geometryConverter = geometryConverter;
+        this.mongoDB = mongoDB;
+    }
+
+    public abstract DBObject encode(T entity);
+
+    public abstract T decode(DBObject dbObject);
+
+    /**
+     * Injects the dependencies Morphia would inject into a decoded entity.
+     */
+    protected <E extends MongoEntityBase> E inject(E entity) {
+        entity.setMongoDB(mongoDB);
+        return entity;
+    }
+
+    protected void encodeBase(MongoEntityBase entity, DBObject dbObject) {
+        put(dbObject, MongoEntityBase.CREATION_DATE,
+            encodeDateTime(entity.getCreationTime()));
+        put(dbObject, MongoEntityBase.LAST_MODIFIED,
+            encodeDateTime(entity.getModificationTime()));
+    }
+
+    protected void decodeBase(DBObject dbObject, MongoEntityBase entity) {
+        entity.setCreationTime(
+                decodeDateTime(dbObject.get(MongoEntityBase.CREATION_DATE)));
+        entity.setModificationTime(
+                decodeDateTime(dbObject.get(MongoEntityBase.LAST_MODIFIED)));
+    }
+
+    protected static void put(DBObject dbObject, String key, Object value) {
+        if (value != null) {
+            dbObject.put(key, value);
+        }
+    }
+
+    protected static Date encodeDateTime(DateTime dateTime) {
+        return dateTime == null ? null : new Date(dateTime.getMillis());
+    }
+
+    protected static DateTime decodeDateTime(Object o) {
+        if (o == null) {
+            return null;
+        } else if (o instanceof Date) {
+            return new DateTime(((Date) o).getTime());
+        } else if (o instanceof Number) {
+            return new DateTime(((Number) o).longValue());
+        } else {
+            return new DateTime(o);
+        }
+    }
+
+    protected BSONObject encodeGeometry(Geometry geometry) {
+        if (geometry == null) {
+            return null;
+        }
+        try {
+            return geometryConverter.encode(geometry);
+        } catch (GeometryConverterException ex) {
+            throw new MappingException("Can not encode geometry", ex);
+        }
+    }
+
+    protected Geometry decodeGeometry(Object o) {
+        if (o == null) {
+            return null;
+        } else if (o instanceof BSONObject) {
+            try {
+                return geometryConverter.decode((BSONObject) o);
+            } catch (GeometryConverterException ex) {
+                throw new MappingException("Can not decode geometry", ex);
+            }
+        } else {
+            throw new MappingException("value is not a BSONObject");
+        }
+    }
+
+    protected DBRef encodeKey(Key<?> key) {
+        return key == null ? null : mapper.keyToRef(key);
+    }
+
+    protected <K> Key<K> decodeKey(Object o) {
+        if (o == null) {
+            return null;
+        } else if (o instanceof DBRef) {
+            return mapper.refToKey((DBRef) o);
+        } else {
+            throw new MappingException("value is not a DBRef");
+        }
+    }
+
+    protected DBObject encodeSensor(MongoSensor sensor) {
+        if (sensor == null) {
+            return null;
+        }
+        DBObject dbObject = new BasicDBObject();
+        put(dbObject, MongoSensor.NAME, sensor.getId());
+        put(dbObject, MongoSensor.TYPE, sensor.getType());
+        if (sensor.hasProperties()) {
+            dbObject.put(MongoSensor.PROPERTIES,
+                         new BasicDBObject(sensor.getProperties()));
+        }
+        encodeBase(sensor, dbObject);
+        return dbObject;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected MongoSensor decodeSensor(Object o) {
+        if (o == null) {
+            return null;
+        }
+        DBObject dbObject = (DBObject) o;
+        MongoSensor sensor = inject(new MongoSensor());
+        sensor.setId((ObjectId) dbObject.get(MongoSensor.NAME));
+        sensor.setType((String) dbObject.get(MongoSensor.TYPE));
+        Object properties = dbObject.get(MongoSensor.PROPERTIES);
+        if (properties instanceof BSONObject) {
+            for (Map.Entry<String, Object> e :
+                    ((Map<String, Object>) ((BSONObject) properties).toMap())
+                    .entrySet()) {
+                sensor.addProperty(e.getKey(), e.getValue());
+            }
+        }
+        decodeBase(dbObject, sensor);
+        return sensor;
+    }
+
+    protected DBObject encodePhenomenon(MongoPhenomenon phenomenon) {
+        if (phenomenon == null) {
+            return null;
+        }
+        DBObject dbObject = new BasicDBObject();
+        put(dbObject, MongoPhenomenon.NAME, phenomenon.getName());
+        put(dbObject, MongoPhenomenon.UNIT, phenomenon.getUnit());
+        encodeBase(phenomenon, dbObject);
+        return dbObject;
+    }
+
+    protected MongoPhenomenon decodePhenomenon(Object o) {
+        if (o == null) {
+            return null;
+        }
+        DBObject dbObject = (DBObject) o;
+        MongoPhenomenon phenomenon = inject(new MongoPhenomenon());
+        phenomenon.setName((String) dbObject.get(MongoPhenomenon.NAME));
+        phenomenon.setUnit((String) dbObject.get(MongoPhenomenon.UNIT));
+        decodeBase(dbObject, phenomenon);
+        return phenomenon;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.codec;
+
+import org.envirocar.server.core.entities.MeasurementValue;
+import org.envirocar.server.core.entities.MeasurementValues;
+import org.envirocar.server.core.entities.Sensor;
+import org.envirocar.server.core.entities.Track;
+import org.envirocar.server.core.entities.User;
+import org.envirocar.server.mongo.entity.MongoMeasurement;
+import org.envirocar.server.mongo.entity.MongoSensor;
+import org.envirocar.server.mongo.entity.MongoTrack;
+import org.envirocar.server.mongo.entity.MongoUser;
+import org.joda.time.DateTime;
+
+import com.github.jmkgreen.morphia.Key;
+import com.mongodb.DBObject;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * {@link MongoMeasurement} that converts the fields of its document on first
+ * access. Setting a field discards the pending document value.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+class LazyMongoMeasurement extends MongoMeasurement {
+    private static final int GEOMETRY = 1;
+    private static final int TIME = 1 << 1;
+    private static final int USER = 1 << 2;
+    private static final int SENSOR = 1 << 3;
+    private static final int TRACK = 1 << 4;
+    private static final int VALUES = 1 << 5;
+    private static final int CREATED = 1 << 6;
+    private static final int MODIFIED = 1 << 7;
+    private static final int ALL = (1 << 8) - 1;
+    private final MongoMeasurementCodec codec;
+    private final DBObject dbObject;
+    private int pending = ALL;
+
+    LazyMongoMeasurement(MongoMeasurementCodec codec, DBObject dbObject) {
+        this.codec = codec;
+        this.dbObject = dbObject;
+    }
+
+    private boolean load(int field) {
+        if ((pending & field) == 0) {
+            return false;
+        }
+        pending &= ~field;
+        return true;
+    }
+
+    @Override
+    public Geometry getGeometry() {
+        if (load(GEOMETRY)) {
+            super.setGeometry(codec.getGeometry(dbObject));
+        }
+        return super.getGeometry();
+    }
+
+    @Override
+    public void setGeometry(Geometry geometry) {
+        pending &= ~GEOMETRY;
+        super.setGeometry(geometry);
+    }
+
+    @Override
+    public DateTime getTime() {
+        if (load(TIME)) {
+            super.setTime(codec.getTime(dbObject));
+        }
+        return super.getTime();
+    }
+
+    @Override
+    public void setTime(DateTime time) {
+        pending &= ~TIME;
+        super.setTime(time);
+    }
+
+    @Override
+    public Key<MongoUser> getUserKey() {
+        if (load(USER)) {
+            super.setUserKey(codec.getUser(dbObject));
+        }
+        return super.getUserKey();
+    }
+
+    @Override
+    public MongoUser getUser() {
+        getUserKey();
+        return super.getUser();
+    }
+
+    @Override
+    public void setUserKey(Key<MongoUser> user) {
+        pending &= ~USER;
+        super.setUserKey(user);
+    }
+
+    @Override
+    public void setUser(User user) {
+        pending &= ~USER;
+        super.setUser(user);
+    }
+
+    @Override
+    public Key<MongoTrack> getTrackKey() {
+        if (load(TRACK)) {
+            super.setTrackKey(codec.getTrack(dbObject));
+        }
+        return super.getTrackKey();
+    }
+
+    @Override
+    public MongoTrack getTrack() {
+        getTrackKey();
+        return super.getTrack();
+    }
+
+    @Override
+    public void setTrackKey(Key<MongoTrack> track) {
+        pending &= ~TRACK;
+        super.setTrackKey(track);
+    }
+
+    @Override
+    public void setTrack(Track track) {
+        pending &= ~TRACK;
+        super.setTrack(track);
+    }
+
+    @Override
+    public MongoSensor getSensor() {
+        if (load(SENSOR)) {
+            super.setSensor(codec.getSensor(dbObject));
+        }
+        return super.getSensor();
+    }
+
+    @Override
+    public void setSensor(Sensor sensor) {
+        pending &= ~SENSOR;
+        super.setSensor(sensor);
+    }
+
+    private void loadValues() {
+        if (load(VALUES)) {
+            codec.addValues(dbObject, this);
+        }
+    }
+
+    @Override
+    public MeasurementValues getValues() {
+        loadValues();
+        return super.getValues();
+    }
+
+    @Override
+    public void addValue(MeasurementValue value) {
+        loadValues();
+        super.addValue(value);
+    }
+
+    @Override
+    public void removeValue(MeasurementValue value) {
+        loadValues();
+        super.removeValue(value);
+    }
+
+    @Override
+    public DateTime getCreationTime() {
+        if (load(CREATED)) {
+            super.setCreationTime(codec.getCreationTime(dbObject));
+        }
+        return super.getCreationTime();
+    }
+
+    @Override
+    public void setCreationTime(DateTime creationTime) {
+        pending &= ~CREATED;
+        super.setCreationTime(creationTime);
+    }
+
+    @Override
+    public DateTime getModificationTime() {
+        if (load(MODIFIED)) {
+            super.setModificationTime(codec.getModificationTime(dbObject));
+        }
+        return super.getModificationTime();
+    }
+
+    @Override
+    public void setModificationTime(DateTime modificationTime) {
+        pending &= ~MODIFIED;
+        super.setModificationTime(modificationTime);
+    }
+
+    @Override
+    public String toString() {
+        getGeometry();
+        getTime();
+        getUserKey();
+        getSensor();
+        getTrackKey();
+        loadValues();
+        getCreationTime();
+        getModificationTime();
+        return super.toString();
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.codec;
+
+import org.envirocar.server.core.entities.Sensor;
+import org.envirocar.server.core.entities.User;
+import org.envirocar.server.mongo.entity.MongoSensor;
+import org.envirocar.server.mongo.entity.MongoTrack;
+import org.envirocar.server.mongo.entity.MongoUser;
+import org.joda.time.DateTime;
+
+import com.github.jmkgreen.morphia.Key;
+import com.mongodb.DBObject;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * {@link MongoTrack} that converts the non-string fields of its document on
+ * first access. Setting a field discards the pending document value.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+class LazyMongoTrack extends MongoTrack {
+    private static final int USER = 1;
+    private static final int SENSOR = 1 << 1;
+    private static final int BBOX = 1 << 2;
+    private static final int OVERVIEW = 1 << 3;
+    private static final int BEGIN = 1 << 4;
+    private static final int END = 1 << 5;
+    private static final int CREATED = 1 << 6;
+    private static final int MODIFIED = 1 << 7;
+    private static final int ALL = (1 << 8) - 1;
+    private final MongoTrackCodec codec;
+    private final DBObject dbObject;
+    private int pending = ALL;
+
+    LazyMongoTrack(MongoTrackCodec codec, DBObject dbObject) {
+        this.codec = codec;
+        this.dbObject = dbObject;
+    }
+
+    private boolean load(int field) {
+        if ((pending & field) == 0) {
+            return false;
+        }
+        pending &= ~field;
+        return true;
+    }
+
+    @Override
+    public Key<MongoUser> getUserKey() {
+        if (load(USER)) {
+            super.setUserKey(codec.getUser(dbObject));
+        }
+        return super.getUserKey();
+    }
+
+    @Override
+    public MongoUser getUser() {
+        getUserKey();
+        return super.getUser();
+    }
+
+    @Override
+    public void setUserKey(Key<MongoUser> user) {
+        pending &= ~USER;
+        super.setUserKey(user);
+    }
+
+    @Override
+    public void setUser(User user) {
+        pending &= ~USER;
+        super.setUser(user);
+    }
+
+    @Override
+    public MongoSensor getSensor() {
+        if (load(SENSOR)) {
+            super.setSensor(codec.getSensor(dbObject));
+        }
+        return super.getSensor();
+    }
+
+    @Override
+    public void setSensor(Sensor sensor) {
+        pending &= ~SENSOR;
+        super.setSensor(sensor);
+    }
+
+    @Override
+    public Geometry getBoundingBox() {
+        if (load(BBOX)) {
+            super.setBoundingBox(codec.getBoundingBox(dbObject));
+        }
+        return super.getBoundingBox();
+    }
+
+    @Override
+    public void setBoundingBox(Geometry bbox) {
+        pending &= ~BBOX;
+        super.setBoundingBox(bbox);
+    }
+
+    @Override
+    public Geometry getOverview() {
+        if (load(OVERVIEW)) {
+            super.setOverview(codec.getOverview(dbObject));
+        }
+        return super.getOverview();
+    }
+
+    @Override
+    public void setOverview(Geometry overview) {
+        pending &= ~OVERVIEW;
+        super.setOverview(overview);
+    }
+
+    @Override
+    public DateTime getBegin() {
+        if (load(BEGIN)) {
+            super.setBegin(codec.getBegin(dbObject));
+        }
+        return super.getBegin();
+    }
+
+    @Override
+    public void setBegin(DateTime begin) {
+        pending &= ~BEGIN;
+        super.setBegin(begin);
+    }
+
+    @Override
+    public DateTime getEnd() {
+        if (load(END)) {
+            super.setEnd(codec.getEnd(dbObject));
+        }
+        return super.getEnd();
+    }
+
+    @Override
+    public void setEnd(DateTime end) {
+        pending &= ~END;
+        super.setEnd(end);
+    }
+
+    @Override
+    public DateTime getCreationTime() {
+        if (load(CREATED)) {
+            super.setCreationTime(codec.getCreationTime(dbObject));
+        }
+        return super.getCreationTime();
+    }
+
+    @Override
+    public void setCreationTime(DateTime creationTime) {
+        pending &= ~CREATED;
+        super.setCreationTime(creationTime);
+    }
+
+    @Override
+    public DateTime getModificationTime() {
+        if (load(MODIFIED)) {
+            super.setModificationTime(codec.getModificationTime(dbObject));
+        }
+        return super.getModificationTime();
+    }
+
+    @Override
+    public void setModificationTime(DateTime modificationTime) {
+        pending &= ~MODIFIED;
+        super.setModificationTime(modificationTime);
+    }
+
+    @Override
+    public String toString() {
+        getUserKey();
+        getSensor();
+        getBoundingBox();
+        getOverview();
+        getBegin();
+        getEnd();
+        getCreationTime();
+        getModificationTime();
+        return super.toString();
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.codec;
+
+import java.util.List;
+
+import org.bson.BSONObject;
+import org.bson.types.ObjectId;
+import org.envirocar.server.core.entities.MeasurementValue;
+import org.envirocar.server.core.util.GeometryConverter;
+import org.envirocar.server.mongo.MongoDB;
+import org.envirocar.server.mongo.entity.MongoMeasurement;
+import org.envirocar.server.mongo.entity.MongoMeasurementValue;
+import org.envirocar.server.mongo.entity.MongoSensor;
+import org.envirocar.server.mongo.entity.MongoTrack;
+import org.envirocar.server.mongo.entity.MongoUser;
+import org.joda.time.DateTime;
+
+import com.github.jmkgreen.morphia.Key;
+import com.github.jmkgreen.morphia.mapping.Mapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Codec for {@link MongoMeasurement}s. Decoded measurements only convert the
+ * fields that are actually accessed.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class MongoMeasurementCodec extends AbstractEntityCodec<MongoMeasurement> {
+    private final MongoMeasurementValueCodec valueCodec;
+
+    @Inject
+    public MongoMeasurementCodec(MongoDB mongoDB,
+                                 GeometryConverter<BSONObject> geometryConverter,
+                                 MongoMeasurementValueCodec valueCodec) {
+        this(mongoDB.getMapper(), geometryConverter, mongoDB, valueCodec);
+    }
+
+    MongoMeasurementCodec(Mapper mapper,
+                          GeometryConverter<BSONObject> geometryConverter,
+                          MongoDB mongoDB,
+                          MongoMeasurementValueCodec valueCodec) {
+        super(mapper, geometryConverter, mongoDB);
+        this.valueCodec = valueCodec;
+    }
+
+    @Override
+    public DBObject encode(MongoMeasurement measurement) {
+        DBObject dbObject = new BasicDBObject();
+        dbObject.put(Mapper.CLASS_NAME_FIELDNAME,
+                     MongoMeasurement.class.getName());
+        put(dbObject, MongoMeasurement.IDENTIFIER, measurement.getId());
+        put(dbObject, MongoMeasurement.GEOMETRY,
+            encodeGeometry(measurement.getGeometry()));
+        put(dbObject, MongoMeasurement.TIME,
+            encodeDateTime(measurement.getTime()));
+        put(dbObject, MongoMeasurement.USER,
+            encodeKey(measurement.getUserKey()));
+        put(dbObject, MongoMeasurement.SENSOR,
+            encodeSensor(measurement.getSensor()));
+        put(dbObject, MongoMeasurement.TRACK,
+            encodeKey(measurement.getTrackKey()));
+        BasicDBList values = new BasicDBList();
+        for (MeasurementValue value : measurement.getValues()) {
+            values.add(valueCodec.encode((MongoMeasurementValue) value));
+        }
+        if (!values.isEmpty()) {
+            dbObject.put(MongoMeasurement.PHENOMENONS, values);
+        }
+        encodeBase(measurement, dbObject);
+        return dbObject;
+    }
+
+    @Override
+    public MongoMeasurement decode(DBObject dbObject) {
+        MongoMeasurement measurement =
+                inject(new LazyMongoMeasurement(this, dbObject));
+        measurement.setId((ObjectId) dbObject.get(MongoMeasurement.IDENTIFIER));
+        return measurement;
+    }
+
+    Geometry getGeometry(DBObject dbObject) {
+        return decodeGeometry(dbObject.get(MongoMeasurement.GEOMETRY));
+    }
+
+    DateTime getTime(DBObject dbObject) {
+        return decodeDateTime(dbObject.get(MongoMeasurement.TIME));
+    }
+
+    Key<MongoUser> getUser(DBObject dbObject) {
+        return decodeKey(dbObject.get(MongoMeasurement.USER));
+    }
+
+    Key<MongoTrack> getTrack(DBObject dbObject) {
+        return decodeKey(dbObject.get(MongoMeasurement.TRACK));
+    }
+
+    MongoSensor getSensor(DBObject dbObject) {
+        return decodeSensor(dbObject.get(MongoMeasurement.SENSOR));
+    }
+
+    DateTime getCreationTime(DBObject dbObject) {
+        return decodeDateTime(dbObject.get(MongoMeasurement.CREATION_DATE));
+    }
+
+    DateTime getModificationTime(DBObject dbObject) {
+        return decodeDateTime(dbObject.get(MongoMeasurement.LAST_MODIFIED));
+    }
+
+    void addValues(DBObject dbObject, MongoMeasurement measurement) {
+        Object values = dbObject.get(MongoMeasurement.PHENOMENONS);
+        if (values instanceof List) {
+            for (Object value : (List<?>) values) {
+                measurement.addValue(valueCodec.decode((DBObject) value));
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.codec;
+
+import org.bson.BSONObject;
+import org.envirocar.server.core.util.GeometryConverter;
+import org.envirocar.server.mongo.MongoDB;
+import org.envirocar.server.mongo.entity.MongoMeasurementValue;
+import org.envirocar.server.mongo.entity.MongoPhenomenon;
+
+import com.github.jmkgreen.morphia.mapping.Mapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * Codec for the {@link MongoMeasurementValue}s embedded in measurements.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class MongoMeasurementValueCodec
+        extends AbstractEntityCodec<MongoMeasurementValue> {
+    @Inject
+    public MongoMeasurementValueCodec(
+            MongoDB mongoDB, GeometryConverter<BSONObject> geometryConverter) {
+        this(mongoDB.getMapper(), geometryConverter, mongoDB);
+    }
+
+    MongoMeasurementValueCodec(Mapper mapper,
+                               GeometryConverter<BSONObject> geometryConverter,
+                               MongoDB mongoDB) {
+        super(mapper, geometryConverter, mongoDB);
+    }
+
+    @Override
+    public DBObject encode(MongoMeasurementValue value) {
+        DBObject dbObject = new BasicDBObject();
+        put(dbObject, MongoMeasurementValue.VALUE, value.getValue());
+        put(dbObject, MongoMeasurementValue.PHENOMENON,
+            encodePhenomenon((MongoPhenomenon) value.getPhenomenon()));
+        return dbObject;
+    }
+
+    @Override
+    public MongoMeasurementValue decode(DBObject dbObject) {
+        MongoMeasurementValue value = new MongoMeasurementValue();
+        value.setValue(dbObject.get(MongoMeasurementValue.VALUE));
+        value.setPhenomenon(decodePhenomenon(
+                dbObject.get(MongoMeasurementValue.PHENOMENON)));
+        return value;
+    }
+}
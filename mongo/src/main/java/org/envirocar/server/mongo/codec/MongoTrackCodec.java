@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.codec;
+
+import org.bson.BSONObject;
+import org.bson.types.ObjectId;
+import org.envirocar.server.core.util.GeometryConverter;
+import org.envirocar.server.mongo.MongoDB;
+import org.envirocar.server.mongo.entity.MongoSensor;
+import org.envirocar.server.mongo.entity.MongoTrack;
+import org.envirocar.server.mongo.entity.MongoUser;
+import org.joda.time.DateTime;
+
+import com.github.jmkgreen.morphia.Key;
+import com.github.jmkgreen.morphia.mapping.Mapper;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Codec for {@link MongoTrack}s. Strings are decoded right away, all other
+ * fields on first access.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class MongoTrackCodec extends AbstractEntityCodec<MongoTrack> {
+    @Inject
+    public MongoTrackCodec(MongoDB mongoDB,
+                           GeometryConverter<BSONObject> geometryConverter) {
+        this(mongoDB.getMapper(), geometryConverter, mongoDB);
+    }
+
+    MongoTrackCodec(Mapper mapper,
+                    GeometryConverter<BSONObject> geometryConverter,
+                    MongoDB mongoDB) {
+        super(mapper, geometryConverter, mongoDB);
+    }
+
+    @Override
+    public DBObject encode(MongoTrack track) {
+        DBObject dbObject = new BasicDBObject();
+        dbObject.put(Mapper.CLASS_NAME_FIELDNAME, MongoTrack.class.getName());
+        put(dbObject, MongoTrack.ID, track.getId());
+        put(dbObject, MongoTrack.USER, encodeKey(track.getUserKey()));
+        put(dbObject, MongoTrack.SENSOR, encodeSensor(track.getSensor()));
+        put(dbObject, MongoTrack.NAME, track.getName());
+        put(dbObject, MongoTrack.DESCRIPTION, track.getDescription());
+        put(dbObject, MongoTrack.BBOX,
+            encodeGeometry(track.getBoundingBox()));
+        put(dbObject, MongoTrack.OVERVIEW,
+            encodeGeometry(track.getOverview()));
+        put(dbObject, MongoTrack.BEGIN, encodeDateTime(track.getBegin()));
+        put(dbObject, MongoTrack.END, encodeDateTime(track.getEnd()));
+        put(dbObject, MongoTrack.APP_VERSION, track.getAppVersion());
+        put(dbObject, MongoTrack.OBD_DEVICE, track.getObdDevice());
+        put(dbObject, MongoTrack.TERMS_OF_USE_VERSION, track.getTouVersion());
+        put(dbObject, MongoTrack.PENDING, track.isPending() ? true : null);
+        put(dbObject, MongoTrack.OUTDATED, track.isOutdated() ? true : null);
+        encodeBase(track, dbObject);
+        return dbObject;
+    }
+
+    @Override
+    public MongoTrack decode(DBObject dbObject) {
+        MongoTrack track = inject(new LazyMongoTrack(this, dbObject));
+        track.setId((ObjectId) dbObject.get(MongoTrack.ID));
+        track.setName((String) dbObject.get(MongoTrack.NAME));
+        track.setDescription((String) dbObject.get(MongoTrack.DESCRIPTION));
+        track.setAppVersion((String) dbObject.get(MongoTrack.APP_VERSION));
+        track.setObdDevice((String) dbObject.get(MongoTrack.OBD_DEVICE));
+        track.setTouVersion(
+                (String) dbObject.get(MongoTrack.TERMS_OF_USE_VERSION));
+        track.setPending(Boolean.TRUE.equals(dbObject.get(MongoTrack.PENDING)));
+        track.setOutdated(
+                Boolean.TRUE.equals(dbObject.get(MongoTrack.OUTDATED)));
+        return track;
+    }
+
+    Key<MongoUser> getUser(DBObject dbObject) {
+        return decodeKey(dbObject.get(MongoTrack.USER));
+    }
+
+    MongoSensor getSensor(DBObject dbObject) {
+        return decodeSensor(dbObject.get(MongoTrack.SENSOR));
+    }
+
+    Geometry getBoundingBox(DBObject dbObject) {
+        return decodeGeometry(dbObject.get(MongoTrack.BBOX));
+    }
+
+    Geometry getOverview(DBObject dbObject) {
+        return decodeGeometry(dbObject.get(MongoTrack.OVERVIEW));
+    }
+
+    DateTime getBegin(DBObject dbObject) {
+        return decodeDateTime(dbObject.get(MongoTrack.BEGIN));
+    }
+
+    DateTime getEnd(DBObject dbObject) {
+        return decodeDateTime(dbObject.get(MongoTrack.END));
+    }
+
+    DateTime getCreationTime(DBObject dbObject) {
+        return decodeDateTime(dbObject.get(MongoTrack.CREATION_DATE));
+    }
+
+    DateTime getModificationTime(DBObject dbObject) {
+        return decodeDateTime(dbObject.get(MongoTrack.LAST_MODIFIED));
+    }
+}
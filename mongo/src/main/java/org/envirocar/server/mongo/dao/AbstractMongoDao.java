@@ -16,10 +16,17 @@
  */
 package org.envirocar.server.mongo.dao;
 
+import java.util.List;
+import java.util.Map;
+
+import org.envirocar.server.core.update.ChangeSet;
 import org.envirocar.server.core.util.pagination.Paginated;
 import org.envirocar.server.core.util.pagination.Pagination;
 import org.envirocar.server.mongo.MongoDB;
+import org.envirocar.server.mongo.codec.AbstractEntityCodec;
 import org.envirocar.server.mongo.entity.MongoEntityBase;
+import org.envirocar.server.mongo.metrics.MongoMetrics;
+import org.envirocar.server.mongo.metrics.QueryTimer;
 import org.joda.time.DateTime;
 
 import com.github.jmkgreen.morphia.Datastore;
@@ -27,8 +34,15 @@ import com.github.jmkgreen.morphia.Key;
 import com.github.jmkgreen.morphia.dao.BasicDAO;
 import com.github.jmkgreen.morphia.mapping.Mapper;
 import com.github.jmkgreen.morphia.query.Query;
+import com.github.jmkgreen.morphia.query.QueryImpl;
 import com.github.jmkgreen.morphia.query.UpdateOperations;
 import com.github.jmkgreen.morphia.query.UpdateResults;
+import com.google.common.base.Function;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
 import com.mongodb.DBRef;
 import com.mongodb.WriteResult;
 
@@ -42,12 +56,43 @@ import com.mongodb.WriteResult;
  * @author Christian Autermann <autermann@uni-muenster.de>
  */
 public abstract class AbstractMongoDao<K, E, C extends Paginated<? super E>> {
+    /**
+     * Query shape logged for lookups by key.
+     */
+    private static final DBObject BY_KEY = new BasicDBObject(Mapper.ID_KEY, "?");
+    /**
+     * Query shape logged for operations on the whole collection.
+     */
+    private static final DBObject ALL = new BasicDBObject();
     private final BasicDAO<E, K> dao;
     private MongoDB mongoDB;
+    private final QueryTimer getTimer;
+    private final QueryTimer findTimer;
+    private final QueryTimer countTimer;
+    private final QueryTimer saveTimer;
+    private final QueryTimer updateTimer;
+    private final QueryTimer deleteTimer;
 
     public AbstractMongoDao(Class<E> type, MongoDB mongoDB) {
         this.mongoDB = mongoDB;
         this.dao = new BasicDAO<E, K>(type, this.mongoDB.getDatastore());
+        this.getTimer = timer(MongoMetrics.GET);
+        this.findTimer = timer(MongoMetrics.FIND);
+        this.countTimer = timer(MongoMetrics.COUNT);
+        this.saveTimer = timer(MongoMetrics.SAVE);
+        this.updateTimer = timer(MongoMetrics.UPDATE);
+        this.deleteTimer = timer(MongoMetrics.DELETE);
+    }
+
+    /**
+     * Creates a timer for an operation of this DAO.
+     *
+     * @param operation the operation
+     *
+     * @return the timer
+     */
+    protected QueryTimer timer(String operation) {
+        return mongoDB.getMetrics().timer(getClass(), operation);
     }
 
     protected Query<E> q() {
@@ -59,31 +104,228 @@ public abstract class AbstractMongoDao<K, E, C extends Paginated<? super E>> {
     }
 
     protected E get(K key) {
-        return dao.get(key);
+        QueryTimer.Sample sample = getTimer.start();
+        E entity = dao.get(key);
+        getTimer.stop(sample, entity == null ? 0 : 1, BY_KEY);
+        return entity;
+    }
+
+    /**
+     * @return the first entity matching the query or {@code null}
+     */
+    protected E findOne(Query<E> q) {
+        QueryTimer.Sample sample = getTimer.start();
+        E entity = q.get();
+        getTimer.stop(sample, entity == null ? 0 : 1, q);
+        return entity;
+    }
+
+    /**
+     * @return the key of the first entity matching the query or
+     *         {@code null}
+     */
+    protected Key<E> findKey(Query<E> q) {
+        QueryTimer.Sample sample = getTimer.start();
+        Key<E> key = q.getKey();
+        getTimer.stop(sample, key == null ? 0 : 1, q);
+        return key;
     }
 
     protected long count() {
-        return dao.count();
+        QueryTimer.Sample sample = countTimer.start();
+        long count = dao.count();
+        countTimer.stop(sample, count, ALL);
+        return count;
     }
 
     protected long count(Query<E> q) {
-        return dao.count(q);
+        QueryTimer.Sample sample = countTimer.start();
+        long count = dao.count(q);
+        countTimer.stop(sample, count, q);
+        return count;
+    }
+
+    protected long count(DBObject query) {
+        QueryTimer.Sample sample = countTimer.start();
+        long count = dao.getCollection().count(query);
+        countTimer.stop(sample, count, query);
+        return count;
     }
 
     protected Key<E> save(E entity) {
-        return dao.save(entity);
+        QueryTimer.Sample sample = saveTimer.start();
+        Key<E> key = dao.save(entity);
+        saveTimer.stop(sample, 1, BY_KEY);
+        return key;
     }
 
     protected UpdateResults<E> update(K key, UpdateOperations<E> ops) {
-        return dao.update(q().field(Mapper.ID_KEY).equal(key), ops);
+        return update(q().field(Mapper.ID_KEY).equal(key), ops);
     }
 
     protected UpdateResults<E> update(Query<E> q, UpdateOperations<E> ops) {
-        return dao.update(q, ops);
+        QueryTimer.Sample sample = updateTimer.start();
+        UpdateResults<E> results = dao.update(q, ops);
+        updateTimer.stop(sample, results.getUpdatedCount(), q);
+        return results;
     }
 
     protected Iterable<E> fetch(Query<E> q) {
-        return dao.find(q).fetch();
+        return findTimer.instrument(dao.find(q).fetch(), q);
+    }
+
+    /**
+     * Fetches the documents matching the query and decodes them using the
+     * supplied codec instead of the Morphia mapper.
+     */
+    protected Iterable<E> fetch(Query<E> q, AbstractEntityCodec<E> codec) {
+        Iterable<DBObject> cursor = ((QueryImpl<E>) q).prepareCursor();
+        return decode(findTimer.instrument(cursor, q), codec);
+    }
+
+    /**
+     * Fetches the documents of a cursor and decodes them using the supplied
+     * codec.
+     */
+    protected Iterable<E> fetch(DBCursor cursor, AbstractEntityCodec<E> codec) {
+        return decode(findTimer.instrument((Iterable<DBObject>) cursor,
+                                           cursor.getQuery()), codec);
+    }
+
+    protected Iterable<Key<E>> fetchKeys(Query<E> q) {
+        return findTimer.instrument(q.fetchKeys(), q);
+    }
+
+    protected Iterable<E> decode(Iterable<DBObject> documents,
+                                 final AbstractEntityCodec<E> codec) {
+        return Iterables.transform(documents, new Function<DBObject, E>() {
+            @Override
+            public E apply(DBObject input) {
+                return codec.decode(input);
+            }
+        });
+    }
+
+    protected E get(K key, AbstractEntityCodec<E> codec) {
+        QueryTimer.Sample sample = getTimer.start();
+        DBObject dbObject = dao.getCollection()
+                .findOne(new BasicDBObject(Mapper.ID_KEY, key));
+        getTimer.stop(sample, dbObject == null ? 0 : 1, BY_KEY);
+        return dbObject == null ? null : codec.decode(dbObject);
+    }
+
+    protected void save(E entity, AbstractEntityCodec<E> codec) {
+        DBObject document = codec.encode(entity);
+        QueryTimer.Sample sample = saveTimer.start();
+        dao.getCollection().save(document);
+        saveTimer.stop(sample, 1, BY_KEY);
+    }
+
+    /**
+     * Inserts the entities using a single batch insert.
+     */
+    protected void insert(Iterable<? extends E> entities,
+                          AbstractEntityCodec<E> codec) {
+        List<DBObject> documents = Lists.newArrayList();
+        for (E entity : entities) {
+            documents.add(codec.encode(entity));
+        }
+        if (!documents.isEmpty()) {
+            QueryTimer.Sample sample = saveTimer.start();
+            dao.getCollection().insert(documents);
+            saveTimer.stop(sample, documents.size(), ALL);
+        }
+    }
+
+    /**
+     * Writes a change set to the document with the specified key. Set and
+     * unset properties are written in a single update. A minimum or maximum
+     * is written as a separate update that only matches if it changes the
+     * property, so concurrent writers can not undo each other's bounds.
+     *
+     * @param key     the document key
+     * @param changes the changes
+     * @param paths   the document paths of the changed properties
+     */
+    protected void update(K key, ChangeSet changes, Map<String, String> paths) {
+        UpdateOperations<E> ops = up()
+                .set(MongoEntityBase.LAST_MODIFIED, new DateTime());
+        List<ChangeSet.Change> bounds = Lists.newLinkedList();
+        for (ChangeSet.Change change : changes) {
+            if (!apply(ops, change, path(change, paths))) {
+                bounds.add(change);
+            }
+        }
+        update(key, ops);
+        for (ChangeSet.Change change : bounds) {
+            String path = path(change, paths);
+            Query<E> q = q().field(Mapper.ID_KEY).equal(key);
+            if (change.getOperation() == ChangeSet.Operation.MIN) {
+                q.or(q.criteria(path).doesNotExist(),
+                     q.criteria(path).greaterThan(change.getValue()));
+            } else {
+                q.or(q.criteria(path).doesNotExist(),
+                     q.criteria(path).lessThan(change.getValue()));
+            }
+            update(q, up().set(path, change.getValue()));
+        }
+    }
+
+    /**
+     * Applies the changes to the document if its modification time still
+     * matches, i.e. if it was not modified since it was read. Bounds can not
+     * be written conditionally.
+     *
+     * @param key      the document key
+     * @param modified the modification time of the document as it was read
+     * @param changes  the changes
+     * @param paths    the document paths of the changed properties
+     *
+     * @return if the document was updated
+     */
+    protected boolean update(K key, DateTime modified, ChangeSet changes,
+                             Map<String, String> paths) {
+        Query<E> q = q().field(Mapper.ID_KEY).equal(key);
+        if (modified == null) {
+            q.field(MongoEntityBase.LAST_MODIFIED).doesNotExist();
+        } else {
+            q.field(MongoEntityBase.LAST_MODIFIED).equal(modified);
+        }
+        UpdateOperations<E> ops = up()
+                .set(MongoEntityBase.LAST_MODIFIED, new DateTime());
+        for (ChangeSet.Change change : changes) {
+            if (!apply(ops, change, path(change, paths))) {
+                throw new IllegalArgumentException(
+                        "Can not write bounds conditionally: " + change);
+            }
+        }
+        return update(q, ops).getUpdatedCount() > 0;
+    }
+
+    private String path(ChangeSet.Change change, Map<String, String> paths) {
+        String path = paths.get(change.getProperty());
+        if (path == null) {
+            throw new IllegalArgumentException(
+                    "Unsupported property: " + change.getProperty());
+        }
+        return path;
+    }
+
+    /**
+     * @return {@code false} if the change is a bound
+     */
+    private boolean apply(UpdateOperations<E> ops, ChangeSet.Change change,
+                          String path) {
+        switch (change.getOperation()) {
+            case SET:
+                ops.set(path, change.getValue());
+                return true;
+            case UNSET:
+                ops.unset(path);
+                return true;
+            default:
+                return false;
+        }
     }
 
     protected C fetch(Query<E> q, Pagination p) {
@@ -99,11 +341,17 @@ public abstract class AbstractMongoDao<K, E, C extends Paginated<? super E>> {
             Iterable<E> i, Pagination p, long count);
 
     protected WriteResult delete(K id) {
-        return dao.deleteById(id);
+        QueryTimer.Sample sample = deleteTimer.start();
+        WriteResult result = dao.deleteById(id);
+        deleteTimer.stop(sample, result.getN(), BY_KEY);
+        return result;
     }
 
     protected WriteResult delete(Query<E> q) {
-        return dao.deleteByQuery(q);
+        QueryTimer.Sample sample = deleteTimer.start();
+        WriteResult result = dao.deleteByQuery(q);
+        deleteTimer.stop(sample, result.getN(), q);
+        return result;
     }
 
     @SuppressWarnings("unchecked")
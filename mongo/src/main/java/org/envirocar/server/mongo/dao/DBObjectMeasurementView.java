@@ -0,0 +1,213 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.dao;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.BSONObject;
+import org.envirocar.server.core.util.GeoJSONConstants;
+import org.envirocar.server.core.util.MeasurementView;
+import org.envirocar.server.mongo.entity.MongoMeasurement;
+import org.envirocar.server.mongo.entity.MongoMeasurementValue;
+import org.envirocar.server.mongo.entity.MongoPhenomenon;
+import org.envirocar.server.mongo.entity.MongoSensor;
+
+import com.mongodb.DBObject;
+import com.mongodb.DBRef;
+
+/**
+ * {@link MeasurementView} that reads the fields of a raw measurement document
+ * following the layout of {@link MongoMeasurement}. The view is reset for every
+ * document of the cursor instead of being recreated.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+class DBObjectMeasurementView implements MeasurementView {
+    private DBObject document;
+    private List<?> coordinates;
+    private BSONObject sensor;
+    private List<?> values;
+
+    DBObjectMeasurementView reset(DBObject document) {
+        this.document = document;
+        this.coordinates = null;
+        this.sensor = null;
+        this.values = null;
+        BSONObject geometry = (BSONObject) document
+                .get(MongoMeasurement.GEOMETRY);
+        if (geometry != null && GeoJSONConstants.POINT_TYPE
+                .equals(geometry.get(GeoJSONConstants.TYPE_KEY))) {
+            this.coordinates = (List<?>) geometry
+                    .get(GeoJSONConstants.COORDINATES_KEY);
+        }
+        this.sensor = (BSONObject) document.get(MongoMeasurement.SENSOR);
+        this.values = (List<?>) document.get(MongoMeasurement.PHENOMENONS);
+        return this;
+    }
+
+    @Override
+    public String getIdentifier() {
+        Object id = document.get(MongoMeasurement.IDENTIFIER);
+        return id == null ? null : id.toString();
+    }
+
+    @Override
+    public boolean hasPoint() {
+        return coordinates != null && coordinates.size() >= 2;
+    }
+
+    @Override
+    public double getX() {
+        return ((Number) coordinates.get(0)).doubleValue();
+    }
+
+    @Override
+    public double getY() {
+        return ((Number) coordinates.get(1)).doubleValue();
+    }
+
+    @Override
+    public boolean hasTime() {
+        return document.get(MongoMeasurement.TIME) != null;
+    }
+
+    @Override
+    public long getTime() {
+        return getMillis(MongoMeasurement.TIME);
+    }
+
+    @Override
+    public boolean hasCreationTime() {
+        return document.get(MongoMeasurement.CREATION_DATE) != null;
+    }
+
+    @Override
+    public long getCreationTime() {
+        return getMillis(MongoMeasurement.CREATION_DATE);
+    }
+
+    @Override
+    public boolean hasModificationTime() {
+        return document.get(MongoMeasurement.LAST_MODIFIED) != null;
+    }
+
+    @Override
+    public long getModificationTime() {
+        return getMillis(MongoMeasurement.LAST_MODIFIED);
+    }
+
+    @Override
+    public boolean hasSensor() {
+        return sensor != null;
+    }
+
+    @Override
+    public String getSensorIdentifier() {
+        Object id = sensor.get(MongoSensor.NAME);
+        return id == null ? null : id.toString();
+    }
+
+    @Override
+    public String getSensorType() {
+        return (String) sensor.get(MongoSensor.TYPE);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getSensorProperties() {
+        Object properties = sensor.get(MongoSensor.PROPERTIES);
+        if (properties instanceof Map) {
+            return (Map<String, Object>) properties;
+        } else if (properties instanceof BSONObject) {
+            return ((BSONObject) properties).toMap();
+        } else {
+            return Collections.emptyMap();
+        }
+    }
+
+    @Override
+    public boolean hasUser() {
+        return document.get(MongoMeasurement.USER) != null;
+    }
+
+    @Override
+    public String getUserName() {
+        return getRefId(MongoMeasurement.USER);
+    }
+
+    @Override
+    public boolean hasTrack() {
+        return document.get(MongoMeasurement.TRACK) != null;
+    }
+
+    @Override
+    public String getTrackIdentifier() {
+        return getRefId(MongoMeasurement.TRACK);
+    }
+
+    @Override
+    public int getValueCount() {
+        return values == null ? 0 : values.size();
+    }
+
+    @Override
+    public String getPhenomenonName(int i) {
+        BSONObject phenomenon = getPhenomenon(i);
+        if (phenomenon == null) {
+            return null;
+        }
+        Object name = phenomenon.get(MongoPhenomenon.NAME);
+        return name == null ? null : name.toString();
+    }
+
+    @Override
+    public String getPhenomenonUnit(int i) {
+        BSONObject phenomenon = getPhenomenon(i);
+        return phenomenon == null ? null
+               : (String) phenomenon.get(MongoPhenomenon.UNIT);
+    }
+
+    @Override
+    public Object getValue(int i) {
+        return getValueObject(i).get(MongoMeasurementValue.VALUE);
+    }
+
+    private BSONObject getValueObject(int i) {
+        return (BSONObject) values.get(i);
+    }
+
+    private BSONObject getPhenomenon(int i) {
+        return (BSONObject) getValueObject(i)
+                .get(MongoMeasurementValue.PHENOMENON);
+    }
+
+    private long getMillis(String field) {
+        return ((Date) document.get(field)).getTime();
+    }
+
+    private String getRefId(String field) {
+        Object ref = document.get(field);
+        if (ref instanceof DBRef) {
+            Object id = ((DBRef) ref).getId();
+            return id == null ? null : id.toString();
+        }
+        return null;
+    }
+}
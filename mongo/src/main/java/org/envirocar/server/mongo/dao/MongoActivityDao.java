@@ -135,6 +135,6 @@ public class MongoActivityDao extends AbstractMongoDao<ObjectId, MongoActivity,
         } catch (IllegalArgumentException e) {
             return null;
         }
-        return q.get();
+        return findOne(q);
     }
 }
@@ -17,6 +17,7 @@
 package org.envirocar.server.mongo.dao;
 
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 import org.joda.time.DateTime;
@@ -26,7 +27,10 @@ import org.slf4j.LoggerFactory;
 import com.github.jmkgreen.morphia.Key;
 import com.github.jmkgreen.morphia.query.Query;
 import com.github.jmkgreen.morphia.query.UpdateResults;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 
 import org.envirocar.server.core.dao.GroupDao;
@@ -35,6 +39,8 @@ import org.envirocar.server.core.entities.Group;
 import org.envirocar.server.core.entities.Groups;
 import org.envirocar.server.core.entities.User;
 import org.envirocar.server.core.entities.Users;
+import org.envirocar.server.core.update.ChangeSet;
+import org.envirocar.server.core.update.GroupUpdater;
 import org.envirocar.server.core.util.pagination.Pagination;
 import org.envirocar.server.mongo.MongoDB;
 import org.envirocar.server.mongo.entity.MongoGroup;
@@ -49,6 +55,11 @@ public class MongoGroupDao extends AbstractMongoDao<String, MongoGroup, Groups>
         implements GroupDao {
     private static final Logger log = LoggerFactory
             .getLogger(MongoGroupDao.class);
+    /**
+     * Maps the properties of change sets to document paths.
+     */
+    private static final Map<String, String> CHANGE_PATHS = ImmutableMap
+            .of(GroupUpdater.DESCRIPTION, MongoGroup.DESCRIPTION);
     private MongoUserDao userDao;
 
     @Inject
@@ -67,7 +78,7 @@ public class MongoGroupDao extends AbstractMongoDao<String, MongoGroup, Groups>
 
     @Override
     public MongoGroup getByName(String name) {
-        return q().field(MongoGroup.NAME).equal(name).get();
+        return findOne(q().field(MongoGroup.NAME).equal(name));
     }
 
     @Override
@@ -92,6 +103,16 @@ public class MongoGroupDao extends AbstractMongoDao<String, MongoGroup, Groups>
         return mug;
     }
 
+    @Override
+    public void update(Group group, ChangeSet changes) {
+        if (changes.contains(GroupUpdater.NAME)) {
+            // the name is the document key and can not be updated in place
+            save(group);
+        } else {
+            update(group.getName(), changes, CHANGE_PATHS);
+        }
+    }
+
     @Override
     public void delete(Group group) {
         delete(group.getName());
@@ -118,11 +139,11 @@ public class MongoGroupDao extends AbstractMongoDao<String, MongoGroup, Groups>
 
     @Override
     public Group get(User user, String groupName) {
-        return q()
+        return findOne(q()
                 .field(MongoGroup.NAME)
                 .equal(groupName)
                 .field(MongoGroup.MEMBERS)
-                .hasThisElement(key(user)).get();
+                .hasThisElement(key(user)));
     }
 
     @Override
@@ -210,9 +231,9 @@ public class MongoGroupDao extends AbstractMongoDao<String, MongoGroup, Groups>
         MongoGroup g = (MongoGroup) group;
         Set<Key<MongoUser>> memberRefs = g.getMembers();
         if (memberRefs == null) {
-            MongoGroup groupWithMembers = q()
+            MongoGroup groupWithMembers = findOne(q()
                     .field(MongoGroup.NAME).equal(g.getName())
-                    .retrievedFields(true, MongoGroup.MEMBERS).get();
+                    .retrievedFields(true, MongoGroup.MEMBERS));
             if (groupWithMembers != null) {
                 memberRefs = groupWithMembers.getMembers();
             }
@@ -225,6 +246,24 @@ public class MongoGroupDao extends AbstractMongoDao<String, MongoGroup, Groups>
         @SuppressWarnings("unchecked")
         Iterable<Key<User>> users = Lists.newArrayList(key(user1),
                                                        key(user2));
-        return q().field(MongoGroup.MEMBERS).hasAllOf(users).getKey() != null;
+        return findKey(q().field(MongoGroup.MEMBERS).hasAllOf(users)) != null;
+    }
+
+    @Override
+    public Map<String, Set<String>> getMemberships(User user) {
+        Map<String, Set<String>> memberships = Maps.newHashMap();
+        Iterable<MongoGroup> groups = fetch(q()
+                .field(MongoGroup.MEMBERS).hasThisElement(key(user))
+                .retrievedFields(true, MongoGroup.MEMBERS));
+        for (MongoGroup group : groups) {
+            Set<String> members = Sets.newHashSet();
+            if (group.getMembers() != null) {
+                for (Key<MongoUser> member : group.getMembers()) {
+                    members.add((String) member.getId());
+                }
+            }
+            memberships.put(group.getName(), members);
+        }
+        return memberships;
     }
 }
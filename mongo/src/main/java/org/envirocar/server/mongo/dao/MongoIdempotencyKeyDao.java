@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.dao;
+
+import org.envirocar.server.core.dao.IdempotencyKeyDao;
+import org.envirocar.server.core.entities.IdempotencyKey;
+import org.envirocar.server.core.util.pagination.Paginated;
+import org.envirocar.server.core.util.pagination.Pagination;
+import org.envirocar.server.mongo.MongoDB;
+import org.envirocar.server.mongo.entity.MongoEntityBase;
+import org.envirocar.server.mongo.entity.MongoIdempotencyKey;
+import org.joda.time.DateTime;
+
+import com.google.inject.Inject;
+import com.mongodb.MongoException;
+
+/**
+ * Mongo implementation of a {@link IdempotencyKeyDao}. The keys are stored
+ * in a collection with a TTL index on their expiration date.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class MongoIdempotencyKeyDao
+        extends AbstractMongoDao<String, MongoIdempotencyKey, Paginated<MongoIdempotencyKey>>
+        implements IdempotencyKeyDao {
+    private final MongoDB mongoDB;
+
+    @Inject
+    public MongoIdempotencyKeyDao(MongoDB mongoDB) {
+        super(MongoIdempotencyKey.class, mongoDB);
+        this.mongoDB = mongoDB;
+    }
+
+    @Override
+    protected Paginated<MongoIdempotencyKey> createPaginatedIterable(
+            Iterable<MongoIdempotencyKey> i, Pagination p, long count) {
+        /*
+         * not required
+         */
+        return null;
+    }
+
+    @Override
+    public IdempotencyKey get(String user, String key) {
+        return get(MongoIdempotencyKey.id(user, key));
+    }
+
+    @Override
+    public boolean reserve(String user, String key) {
+        MongoIdempotencyKey entity = new MongoIdempotencyKey(user, key);
+        entity.prePersist();
+        try {
+            /* an insert instead of a save to fail on existing keys */
+            getDatastore().getCollection(MongoIdempotencyKey.class)
+                    .insert(mongoDB.getMapper().toDBObject(entity));
+            return true;
+        } catch (MongoException.DuplicateKey e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void complete(String user, String key, String hash,
+                         String location) {
+        update(MongoIdempotencyKey.id(user, key), up()
+                .set(MongoIdempotencyKey.HASH, hash)
+                .set(MongoIdempotencyKey.LOCATION, location)
+                .set(MongoEntityBase.LAST_MODIFIED, new DateTime()));
+    }
+
+    @Override
+    public void release(String user, String key) {
+        delete(MongoIdempotencyKey.id(user, key));
+    }
+}
@@ -19,6 +19,8 @@ package org.envirocar.server.mongo.dao;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.bson.BSONObject;
 import org.bson.types.ObjectId;
@@ -30,12 +32,17 @@ import org.envirocar.server.core.entities.Track;
 import org.envirocar.server.core.entities.User;
 import org.envirocar.server.core.exception.GeometryConverterException;
 import org.envirocar.server.core.filter.MeasurementFilter;
+import org.envirocar.server.core.update.ChangeSet;
+import org.envirocar.server.core.update.TrackUpdater;
 import org.envirocar.server.core.util.GeometryConverter;
 import org.envirocar.server.core.util.pagination.Pagination;
 import org.envirocar.server.mongo.MongoDB;
+import org.envirocar.server.mongo.codec.MongoMeasurementCodec;
 import org.envirocar.server.mongo.entity.MongoMeasurement;
 import org.envirocar.server.mongo.entity.MongoTrack;
 import org.envirocar.server.mongo.entity.MongoUser;
+import org.envirocar.server.mongo.metrics.MongoMetrics;
+import org.envirocar.server.mongo.metrics.QueryTimer;
 import org.envirocar.server.mongo.util.MongoUtils;
 import org.envirocar.server.mongo.util.MorphiaUtils;
 import org.slf4j.Logger;
@@ -44,10 +51,12 @@ import org.slf4j.LoggerFactory;
 import com.github.jmkgreen.morphia.Datastore;
 import com.github.jmkgreen.morphia.Key;
 import com.github.jmkgreen.morphia.mapping.Mapper;
-import com.github.jmkgreen.morphia.query.MorphiaIterator;
 import com.github.jmkgreen.morphia.query.Query;
 import com.github.jmkgreen.morphia.query.QueryImpl;
 import com.github.jmkgreen.morphia.query.UpdateResults;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.mongodb.AggregationOutput;
@@ -58,6 +67,7 @@ import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
 import com.mongodb.DBRef;
+import com.mongodb.WriteResult;
 import com.vividsolutions.jts.geom.Geometry;
 
 /**
@@ -77,17 +87,40 @@ public class MongoMeasurementDao extends AbstractMongoDao<ObjectId, MongoMeasure
             .valueOf(TRACK_NAME_PATH);
     public static final String TRACK_VALUE = MongoUtils
             .valueOf(MongoMeasurement.TRACK);
+    /**
+     * Maps the properties of the public representation to document paths.
+     * Unknown properties are phenomenon names.
+     */
+    private static final Map<String, String> PROJECTION_PATHS =
+            ImmutableMap.<String, String>builder()
+            .put("id", MongoMeasurement.IDENTIFIER)
+            .put("time", MongoMeasurement.TIME)
+            .put("geometry", MongoMeasurement.GEOMETRY)
+            .put("sensor", MongoMeasurement.SENSOR)
+            .put("user", MongoMeasurement.USER)
+            .put("track", MongoMeasurement.TRACK)
+            .put("phenomenons", MongoMeasurement.PHENOMENONS)
+            .put("created", MongoMeasurement.CREATION_DATE)
+            .put("modified", MongoMeasurement.LAST_MODIFIED)
+            .build();
     private final MongoDB mongoDB;
     private final GeometryConverter<BSONObject> geometryConverter;
+    private final MongoMeasurementCodec codec;
+    private final QueryTimer aggregateTimer;
+    private final QueryTimer streamTimer;
     @Inject
     private MongoTrackDao trackDao;
 
     @Inject
     protected MongoMeasurementDao(MongoDB mongoDB,
-                                  GeometryConverter<BSONObject> geometryConverter) {
+                                  GeometryConverter<BSONObject> geometryConverter,
+                                  MongoMeasurementCodec codec) {
         super(MongoMeasurement.class, mongoDB);
         this.mongoDB = mongoDB;
         this.geometryConverter = geometryConverter;
+        this.codec = codec;
+        this.aggregateTimer = timer(MongoMetrics.AGGREGATE);
+        this.streamTimer = timer(MongoMetrics.STREAM);
     }
 
     @Override
@@ -95,10 +128,23 @@ public class MongoMeasurementDao extends AbstractMongoDao<ObjectId, MongoMeasure
         return save(measurement);
     }
 
+    @Override
+    public void create(List<Measurement> measurements) {
+        List<MongoMeasurement> mongoMeasurements =
+                Lists.newArrayListWithExpectedSize(measurements.size());
+        for (Measurement measurement : measurements) {
+            MongoMeasurement mongoMeasurement = (MongoMeasurement) measurement;
+            mongoMeasurement.prePersist();
+            mongoMeasurements.add(mongoMeasurement);
+        }
+        insert(mongoMeasurements, codec);
+    }
+
     @Override
     public MongoMeasurement save(Measurement measurement) {
         MongoMeasurement mongoMeasurement = (MongoMeasurement) measurement;
-        save(mongoMeasurement);
+        mongoMeasurement.prePersist();
+        save(mongoMeasurement, codec);
         return mongoMeasurement;
     }
 
@@ -111,25 +157,25 @@ public class MongoMeasurementDao extends AbstractMongoDao<ObjectId, MongoMeasure
     }
 
     public void updateTrackTimeForDeletedMeasurement(Measurement m) {
-        boolean update = false;
+        ChangeSet changes = new ChangeSet();
         Track track = m.getTrack();
         if (track.hasBegin() && m.getTime().equals(track.getBegin())) {
-            MongoMeasurement newBegin = q()
+            MongoMeasurement newBegin = findOne(q()
                     .field(MongoMeasurement.TRACK).equal(key(track))
-                    .order(MongoMeasurement.TIME).limit(1).get();
+                    .order(MongoMeasurement.TIME).limit(1));
             track.setBegin(newBegin == null ? null : newBegin.getTime());
-            update = true;
+            changes.set(TrackUpdater.BEGIN, track.getBegin());
         }
         if (track.hasEnd() && m.getTime().equals(track.getEnd())) {
-            MongoMeasurement newEnd = q()
+            MongoMeasurement newEnd = findOne(q()
                     .field(MongoMeasurement.TRACK).equal(key(track))
                     .order(MongoUtils.reverse(MongoMeasurement.TIME))
-                    .limit(1).get();
+                    .limit(1));
             track.setEnd(newEnd == null ? null : newEnd.getTime());
-            update = true;
+            changes.set(TrackUpdater.END, track.getEnd());
         }
-        if (update) {
-            trackDao.save(track);
+        if (!changes.isEmpty()) {
+            trackDao.update(track, changes);
         }
     }
 
@@ -145,6 +191,8 @@ public class MongoMeasurementDao extends AbstractMongoDao<ObjectId, MongoMeasure
 
     private Measurements getMorphia(MeasurementFilter request) {
         Query<MongoMeasurement> q = q().order(MongoMeasurement.TIME);
+        MorphiaUtils.retrievedFields(q, paths(request));
+        MorphiaUtils.excludedFields(q, excludedPaths(request));
         if (request.hasTrack()) {
             q.field(MongoMeasurement.TRACK)
                     .equal(key(request.getTrack()));
@@ -157,7 +205,22 @@ public class MongoMeasurementDao extends AbstractMongoDao<ObjectId, MongoMeasure
             MorphiaUtils.temporalFilter(q.field(MongoMeasurement.TIME),
                                            request.getTemporalFilter());
         }
-        return fetch(q, request.getPagination());
+        Pagination p = request.getPagination();
+        long count = 0;
+        if (p != null) {
+            count = count(q);
+            q.offset((int) p.getBegin()).limit((int) p.getLimit());
+        }
+        final QueryImpl<MongoMeasurement> query =
+                (QueryImpl<MongoMeasurement>) q;
+        return Measurements.from(fetch(q, codec))
+                .withPagination(p).withElements(count)
+                .withStream(new MongoMeasurementStream(new Supplier<DBCursor>() {
+            @Override
+            public DBCursor get() {
+                return query.prepareCursor();
+            }
+        }, streamTimer)).build();
     }
 
     private Measurements getMongo(MeasurementFilter request) {
@@ -176,7 +239,22 @@ public class MongoMeasurementDao extends AbstractMongoDao<ObjectId, MongoMeasure
             q.add(MongoMeasurement.TIME,
                   MongoUtils.temporalFilter(request.getTemporalFilter()));
         }
-        return query(q.get(), request.getPagination());
+        return query(q.get(), MongoUtils.keys(paths(request),
+                                              excludedPaths(request)),
+                     request.getPagination());
+    }
+
+    private Set<String> paths(MeasurementFilter request) {
+        /* the user is needed to evaluate the access rights */
+        return MongoUtils.paths(request.getProjection(), PROJECTION_PATHS,
+                                MongoMeasurement.PHENOMENONS,
+                                MongoMeasurement.USER);
+    }
+
+    private Set<String> excludedPaths(MeasurementFilter request) {
+        return MongoUtils.excludedPaths(request.getProjection(),
+                                        PROJECTION_PATHS,
+                                        MongoMeasurement.USER);
     }
 
     @Override
@@ -187,7 +265,7 @@ public class MongoMeasurementDao extends AbstractMongoDao<ObjectId, MongoMeasure
         } catch (IllegalArgumentException e) {
             return null;
         }
-        return get(oid);
+        return get(oid, codec);
     }
 
     void removeUser(MongoUser user) {
@@ -211,6 +289,13 @@ public class MongoMeasurementDao extends AbstractMongoDao<ObjectId, MongoMeasure
                 .build();
     }
 
+    void deleteTrack(MongoTrack track) {
+        WriteResult result = delete(
+                q().field(MongoMeasurement.TRACK).equal(key(track)));
+        log.debug("Deleted {} measurements of track {}",
+                  result.getN(), track);
+    }
+
     void removeTrack(MongoTrack track) {
         UpdateResults<MongoMeasurement> result = update(
                 q().field(MongoMeasurement.TRACK).equal(key(track)),
@@ -262,10 +347,13 @@ public class MongoMeasurementDao extends AbstractMongoDao<ObjectId, MongoMeasure
 
     private AggregationOutput aggregate(DBObject firstOp,
                                         DBObject... additionalOps) {
+        QueryTimer.Sample sample = aggregateTimer.start();
         AggregationOutput result = mongoDB.getDatastore()
                 .getCollection(MongoMeasurement.class)
                 .aggregate(firstOp, additionalOps);
         result.getCommandResult().throwOnError();
+        aggregateTimer.stop(sample, Iterables.size(result.results()),
+                            Lists.asList(firstOp, additionalOps));
         return result;
     }
 
@@ -320,17 +408,30 @@ public class MongoMeasurementDao extends AbstractMongoDao<ObjectId, MongoMeasure
         return keys;
     }
 
-    private Measurements query(DBObject query, Pagination p) {
+    private Measurements query(final DBObject query, final DBObject keys,
+                               final Pagination p) {
+        long count = 0;
+        if (p != null) {
+            count = count(query);
+        }
+        Iterable<MongoMeasurement> i = fetch(cursor(query, keys, p), codec);
+        return Measurements.from(i).withPagination(p).withElements(count)
+                .withStream(new MongoMeasurementStream(new Supplier<DBCursor>() {
+            @Override
+            public DBCursor get() {
+                return cursor(query, keys, p);
+            }
+        }, streamTimer)).build();
+    }
+
+    private DBCursor cursor(DBObject query, DBObject keys, Pagination p) {
         final Mapper mapper = this.mongoDB.getMapper();
         final Datastore ds = this.mongoDB.getDatastore();
         final DBCollection coll = ds.getCollection(MongoMeasurement.class);
 
-        DBCursor cursor = coll.find(query, null);
-        long count = 0;
-
+        DBCursor cursor = coll.find(query, keys);
         cursor.setDecoderFactory(ds.getDecoderFact());
         if (p != null) {
-            count = coll.count(query);
             if (p.getBegin()> 0) {
                 cursor.skip((int) p.getBegin());
             }
@@ -341,10 +442,6 @@ public class MongoMeasurementDao extends AbstractMongoDao<ObjectId, MongoMeasure
         cursor.sort(QueryImpl.parseFieldsString(MongoMeasurement.TIME,
                                                 MongoMeasurement.class,
                                                 mapper, true));
-        Iterable<MongoMeasurement> i =
-                new MorphiaIterator<MongoMeasurement, MongoMeasurement>(
-                cursor, mapper, MongoMeasurement.class, coll.getName(),
-                mapper.createEntityCache());
-        return createPaginatedIterable(i, p, count);
+        return cursor;
     }
 }
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.dao;
+
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.envirocar.server.core.util.MeasurementStream;
+import org.envirocar.server.core.util.MeasurementVisitor;
+import org.envirocar.server.mongo.metrics.QueryTimer;
+
+import com.google.common.base.Supplier;
+import com.mongodb.DBCursor;
+import com.mongodb.DBObject;
+
+/**
+ * {@link MeasurementStream} that walks the raw documents of a cursor without
+ * mapping them to {@link org.envirocar.server.mongo.entity.MongoMeasurement}s.
+ * The time spent in the cursor is recorded by a {@link QueryTimer}; the time
+ * spent by the visitor is not.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+class MongoMeasurementStream implements MeasurementStream {
+    private final Supplier<DBCursor> cursor;
+    private final QueryTimer timer;
+
+    MongoMeasurementStream(Supplier<DBCursor> cursor, QueryTimer timer) {
+        this.cursor = cursor;
+        this.timer = timer;
+    }
+
+    @Override
+    public void accept(MeasurementVisitor visitor) throws IOException {
+        DBCursor c = cursor.get();
+        QueryTimer.InstrumentedIterator<DBObject> i =
+                timer.instrument((Iterator<DBObject>) c, c.getQuery());
+        try {
+            DBObjectMeasurementView view = new DBObjectMeasurementView();
+            while (i.hasNext()) {
+                visitor.visit(view.reset(i.next()));
+            }
+        } finally {
+            i.close();
+        }
+    }
+}
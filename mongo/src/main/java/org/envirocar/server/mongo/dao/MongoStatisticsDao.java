@@ -20,6 +20,7 @@ import java.util.List;
 
 import com.github.jmkgreen.morphia.dao.BasicDAO;
 import com.github.jmkgreen.morphia.mapping.Mapper;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.mongodb.AggregationOutput;
@@ -44,6 +45,8 @@ import org.envirocar.server.mongo.entity.MongoStatisticKey;
 import org.envirocar.server.mongo.entity.MongoStatistics;
 import org.envirocar.server.mongo.entity.MongoTrack;
 import org.envirocar.server.mongo.entity.MongoUser;
+import org.envirocar.server.mongo.metrics.MongoMetrics;
+import org.envirocar.server.mongo.metrics.QueryTimer;
 
 import org.envirocar.server.mongo.util.MongoUtils;
 import org.envirocar.server.mongo.util.Ops;
@@ -81,12 +84,15 @@ public class MongoStatisticsDao implements StatisticsDao {
     private final MongoDB mongoDB;
     private MongoPhenomenonDao phenomenonDao;
     private final BasicDAO<MongoStatistics, MongoStatisticKey> dao;
+    private final QueryTimer aggregateTimer;
 
     @Inject
     public MongoStatisticsDao(MongoDB mongoDB) {
         this.mongoDB = mongoDB;
         this.dao = new BasicDAO<MongoStatistics, MongoStatisticKey>(
                 MongoStatistics.class, mongoDB.getDatastore());
+        this.aggregateTimer = mongoDB.getMetrics()
+                .timer(MongoStatisticsDao.class, MongoMetrics.AGGREGATE);
     }
 
     @Override
@@ -128,10 +134,13 @@ public class MongoStatisticsDao implements StatisticsDao {
 
     private AggregationOutput aggregate(DBObject firstOp,
                                         DBObject... additionalOps) {
+        QueryTimer.Sample sample = aggregateTimer.start();
         AggregationOutput result = mongoDB.getDatastore()
                 .getCollection(MongoMeasurement.class)
                 .aggregate(firstOp, additionalOps);
         result.getCommandResult().throwOnError();
+        aggregateTimer.stop(sample, Iterables.size(result.results()),
+                            Lists.asList(firstOp, additionalOps));
         return result;
     }
 
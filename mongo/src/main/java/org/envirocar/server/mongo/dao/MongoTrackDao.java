@@ -16,7 +16,9 @@
  */
 package org.envirocar.server.mongo.dao;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import org.bson.types.ObjectId;
 import org.envirocar.server.core.dao.TrackDao;
@@ -24,17 +26,23 @@ import org.envirocar.server.core.entities.Track;
 import org.envirocar.server.core.entities.Tracks;
 import org.envirocar.server.core.filter.MeasurementFilter;
 import org.envirocar.server.core.filter.TrackFilter;
+import org.envirocar.server.core.update.ChangeSet;
+import org.envirocar.server.core.update.TrackUpdater;
 import org.envirocar.server.core.util.pagination.Pagination;
 import org.envirocar.server.mongo.MongoDB;
+import org.envirocar.server.mongo.codec.MongoTrackCodec;
 import org.envirocar.server.mongo.entity.MongoTrack;
 import org.envirocar.server.mongo.entity.MongoUser;
+import org.envirocar.server.mongo.util.MongoUtils;
 import org.envirocar.server.mongo.util.MorphiaUtils;
+import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.github.jmkgreen.morphia.Key;
 import com.github.jmkgreen.morphia.query.Query;
 import com.github.jmkgreen.morphia.query.UpdateResults;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 
@@ -47,11 +55,42 @@ public class MongoTrackDao extends AbstractMongoDao<ObjectId, MongoTrack, Tracks
         implements TrackDao {
     private static final Logger log = LoggerFactory
             .getLogger(MongoTrackDao.class);
+    /**
+     * Maps the properties of the public representation to document paths.
+     */
+    private static final Map<String, String> PROJECTION_PATHS =
+            ImmutableMap.<String, String>builder()
+            .put("id", MongoTrack.ID)
+            .put("name", MongoTrack.NAME)
+            .put("description", MongoTrack.DESCRIPTION)
+            .put("sensor", MongoTrack.SENSOR)
+            .put("user", MongoTrack.USER)
+            .put("appVersion", MongoTrack.APP_VERSION)
+            .put("touVersion", MongoTrack.TERMS_OF_USE_VERSION)
+            .put("overview", MongoTrack.OVERVIEW)
+            .put("created", MongoTrack.CREATION_DATE)
+            .put("modified", MongoTrack.LAST_MODIFIED)
+            .build();
+    /**
+     * Maps the properties of change sets to document paths.
+     */
+    private static final Map<String, String> CHANGE_PATHS =
+            ImmutableMap.<String, String>builder()
+            .put(TrackUpdater.BOUNDING_BOX, MongoTrack.BBOX)
+            .put(TrackUpdater.OVERVIEW, MongoTrack.OVERVIEW)
+            .put(TrackUpdater.BEGIN, MongoTrack.BEGIN)
+            .put(TrackUpdater.END, MongoTrack.END)
+            .put(TrackUpdater.PENDING, MongoTrack.PENDING)
+            .put(TrackUpdater.OUTDATED, MongoTrack.OUTDATED)
+            .build();
     private MongoMeasurementDao measurementDao;
 
+    private final MongoTrackCodec codec;
+
     @Inject
-    public MongoTrackDao(MongoDB mongoDB) {
+    public MongoTrackDao(MongoDB mongoDB, MongoTrackCodec codec) {
         super(MongoTrack.class, mongoDB);
+        this.codec = codec;
     }
 
     public MongoMeasurementDao getMeasurementDao() {
@@ -71,7 +110,9 @@ public class MongoTrackDao extends AbstractMongoDao<ObjectId, MongoTrack, Tracks
         } catch (IllegalArgumentException e) {
             return null;
         }
-        return get(oid);
+        MongoTrack track = get(oid, codec);
+        /* tracks are hidden until all measurements are inserted */
+        return track == null || track.isPending() ? null : track;
     }
 
     @Override
@@ -82,7 +123,8 @@ public class MongoTrackDao extends AbstractMongoDao<ObjectId, MongoTrack, Tracks
     @Override
     public MongoTrack save(Track track) {
         MongoTrack mongoTrack = (MongoTrack) track;
-        save(mongoTrack);
+        mongoTrack.prePersist();
+        save(mongoTrack, codec);
         return mongoTrack;
     }
 
@@ -93,9 +135,45 @@ public class MongoTrackDao extends AbstractMongoDao<ObjectId, MongoTrack, Tracks
         delete(t.getId());
     }
 
+    @Override
+    public void deletePending(Track track) {
+        MongoTrack t = (MongoTrack) track;
+        Query<MongoTrack> q = q().field(MongoTrack.ID).equal(t.getId())
+                .field(MongoTrack.PENDING).exists();
+        if (count(q) > 0) {
+            measurementDao.deleteTrack(t);
+            delete(q);
+        }
+    }
+
+    @Override
+    public int deleteStalePending(DateTime createdBefore) {
+        Query<MongoTrack> q = q().field(MongoTrack.PENDING).exists()
+                .field(MongoTrack.CREATION_DATE).lessThan(createdBefore);
+        int deleted = 0;
+        for (Key<MongoTrack> key : fetchKeys(q)) {
+            MongoTrack t = new MongoTrack();
+            t.setId((ObjectId) key.getId());
+            deletePending(t);
+            ++deleted;
+        }
+        return deleted;
+    }
+
+    @Override
+    public List<String> getOutdated() {
+        List<String> ids = new ArrayList<String>();
+        for (Key<MongoTrack> key : fetchKeys(
+                q().field(MongoTrack.OUTDATED).exists())) {
+            ids.add(key.getId().toString());
+        }
+        return ids;
+    }
+
     @Override
     public Tracks get(TrackFilter request) {
         Query<MongoTrack> q = q();
+        q.field(MongoTrack.PENDING).doesNotExist();
         if (request.hasGeometry()) {
             List<Key<MongoTrack>> keys = measurementDao
                     .getTrackKeysByBbox(new MeasurementFilter(
@@ -112,6 +190,12 @@ public class MongoTrackDao extends AbstractMongoDao<ObjectId, MongoTrack, Tracks
                                            q.field(MongoTrack.END),
                                            request.getTemporalFilter());
         }
+        /* the user is needed to evaluate the access rights */
+        MorphiaUtils.retrievedFields(q, MongoUtils.paths(
+                request.getProjection(), PROJECTION_PATHS, null,
+                MongoTrack.USER));
+        MorphiaUtils.excludedFields(q, MongoUtils.excludedPaths(
+                request.getProjection(), PROJECTION_PATHS, MongoTrack.USER));
         return fetch(q, request.getPagination());
     }
 
@@ -120,6 +204,17 @@ public class MongoTrackDao extends AbstractMongoDao<ObjectId, MongoTrack, Tracks
         updateTimestamp((MongoTrack) track);
     }
 
+    @Override
+    public void update(Track track, ChangeSet changes) {
+        update(((MongoTrack) track).getId(), changes, CHANGE_PATHS);
+    }
+
+    @Override
+    public boolean updateIfUnmodified(Track track, ChangeSet changes) {
+        return update(((MongoTrack) track).getId(),
+                      track.getModificationTime(), changes, CHANGE_PATHS);
+    }
+
     void removeUser(MongoUser user) {
         UpdateResults<MongoTrack> result = update(
                 q().field(MongoTrack.USER).equal(key(user)),
@@ -141,7 +236,7 @@ public class MongoTrackDao extends AbstractMongoDao<ObjectId, MongoTrack, Tracks
 
     @Override
     protected Iterable<MongoTrack> fetch(Query<MongoTrack> q) {
-        return super.fetch(q.order(MongoTrack.RECENTLY_CREATED_ORDER));
+        return fetch(q.order(MongoTrack.RECENTLY_CREATED_ORDER), codec);
     }
 
     @Override
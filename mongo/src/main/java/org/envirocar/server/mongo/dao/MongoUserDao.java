@@ -17,6 +17,7 @@
 package org.envirocar.server.mongo.dao;
 
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 import org.envirocar.server.core.dao.UserDao;
@@ -25,11 +26,16 @@ import org.envirocar.server.core.entities.User;
 import org.envirocar.server.core.entities.Users;
 import org.envirocar.server.core.exception.BadRequestException;
 import org.envirocar.server.core.exception.InvalidUserMailCombinationException;
+import org.envirocar.server.core.filter.Projection;
+import org.envirocar.server.core.update.ChangeSet;
+import org.envirocar.server.core.update.UserUpdater;
 import org.envirocar.server.core.util.pagination.Pagination;
 import org.envirocar.server.mongo.MongoDB;
 import org.envirocar.server.mongo.dao.privates.PasswordResetDAO;
 import org.envirocar.server.mongo.entity.MongoPasswordReset;
 import org.envirocar.server.mongo.entity.MongoUser;
+import org.envirocar.server.mongo.util.MongoUtils;
+import org.envirocar.server.mongo.util.MorphiaUtils;
 import org.joda.time.DateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -37,6 +43,7 @@ import org.slf4j.LoggerFactory;
 import com.github.jmkgreen.morphia.Key;
 import com.github.jmkgreen.morphia.query.Query;
 import com.github.jmkgreen.morphia.query.UpdateResults;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 
@@ -50,6 +57,44 @@ public class MongoUserDao extends AbstractMongoDao<String, MongoUser, Users>
         implements UserDao {
     private static final Logger log = LoggerFactory
             .getLogger(MongoUserDao.class);
+    /**
+     * Maps the properties of the public representation to document paths.
+     */
+    private static final Map<String, String> PROJECTION_PATHS =
+            ImmutableMap.<String, String>builder()
+            .put("name", MongoUser.NAME)
+            .put("mail", MongoUser.MAIL)
+            .put("firstName", MongoUser.FIRST_NAME)
+            .put("lastName", MongoUser.LAST_NAME)
+            .put("gender", MongoUser.GENDER)
+            .put("dayOfBirth", MongoUser.DAY_OF_BIRTH)
+            .put("aboutMe", MongoUser.ABOUT_ME)
+            .put("country", MongoUser.COUNTRY)
+            .put("location", MongoUser.LOCATION)
+            .put("language", MongoUser.LANGUAGE)
+            .put("badges", MongoUser.BADGES)
+            .put("touVersion", MongoUser.TERMS_OF_USE_VERSION)
+            .put("created", MongoUser.CREATION_DATE)
+            .put("modified", MongoUser.LAST_MODIFIED)
+            .build();
+    /**
+     * Maps the properties of change sets to document paths.
+     */
+    private static final Map<String, String> CHANGE_PATHS =
+            ImmutableMap.<String, String>builder()
+            .put(UserUpdater.MAIL, MongoUser.MAIL)
+            .put(UserUpdater.TOKEN, MongoUser.TOKEN)
+            .put(UserUpdater.ABOUT_ME, MongoUser.ABOUT_ME)
+            .put(UserUpdater.COUNTRY, MongoUser.COUNTRY)
+            .put(UserUpdater.DAY_OF_BIRTH, MongoUser.DAY_OF_BIRTH)
+            .put(UserUpdater.FIRST_NAME, MongoUser.FIRST_NAME)
+            .put(UserUpdater.GENDER, MongoUser.GENDER)
+            .put(UserUpdater.LANGUAGE, MongoUser.LANGUAGE)
+            .put(UserUpdater.LAST_NAME, MongoUser.LAST_NAME)
+            .put(UserUpdater.LOCATION, MongoUser.LOCATION)
+            .put(UserUpdater.URL, MongoUser.URL)
+            .put(UserUpdater.TERMS_OF_USE_VERSION, MongoUser.TERMS_OF_USE_VERSION)
+            .build();
     private MongoTrackDao trackDao;
     private MongoMeasurementDao measurementDao;
     private MongoGroupDao groupDao;
@@ -84,12 +129,12 @@ public class MongoUserDao extends AbstractMongoDao<String, MongoUser, Users>
 
     @Override
     public MongoUser getByName(final String name) {
-        return q().field(MongoUser.NAME).equal(name).get();
+        return findOne(q().field(MongoUser.NAME).equal(name));
     }
 
     @Override
     public MongoUser getByMail(String mail) {
-        return q().field(MongoUser.MAIL).equal(mail).get();
+        return findOne(q().field(MongoUser.MAIL).equal(mail));
     }
 
     @Override
@@ -97,6 +142,14 @@ public class MongoUserDao extends AbstractMongoDao<String, MongoUser, Users>
         return fetch(q().order(MongoUser.CREATION_DATE), p);
     }
 
+    @Override
+    public Users get(Pagination p, Projection projection) {
+        Query<MongoUser> q = q().order(MongoUser.CREATION_DATE);
+        MorphiaUtils.retrievedFields(q, MongoUtils
+                .paths(projection, PROJECTION_PATHS, null));
+        return fetch(q, p);
+    }
+
     @Override
     public MongoUser create(User user) {
         return save(user);
@@ -109,6 +162,11 @@ public class MongoUserDao extends AbstractMongoDao<String, MongoUser, Users>
         return mu;
     }
 
+    @Override
+    public void update(User user, ChangeSet changes) {
+        update(user.getName(), changes, CHANGE_PATHS);
+    }
+
     @Override
     public void delete(User u) {
         MongoUser user = (MongoUser) u;
@@ -162,6 +220,20 @@ public class MongoUserDao extends AbstractMongoDao<String, MongoUser, Users>
         return null;
     }
 
+    @Override
+    public Set<String> getUsersWithFriend(User friend, Set<String> users) {
+        Set<String> names = Sets.newHashSet();
+        if (!users.isEmpty()) {
+            Iterable<Key<MongoUser>> keys = fetchKeys(q()
+                    .field(MongoUser.NAME).in(users)
+                    .field(MongoUser.FRIENDS).hasThisElement(key(friend)));
+            for (Key<MongoUser> key : keys) {
+                names.add((String) key.getId());
+            }
+        }
+        return names;
+    }
+
     @Override
     public void addFriend(User user, User friend) {
         MongoUser g = (MongoUser) user;
@@ -187,9 +259,9 @@ public class MongoUserDao extends AbstractMongoDao<String, MongoUser, Users>
         MongoUser u = (MongoUser) user;
         Set<Key<MongoUser>> friendRefs = u.getFriends();
         if (friendRefs == null) {
-            MongoUser userWithFriends = q()
+            MongoUser userWithFriends = findOne(q()
                     .field(MongoUser.NAME).equal(u.getName())
-                    .retrievedFields(true, MongoUser.FRIENDS).get();
+                    .retrievedFields(true, MongoUser.FRIENDS));
             if (userWithFriends != null) {
                 friendRefs = userWithFriends.getFriends();
             }
@@ -207,10 +279,9 @@ public class MongoUserDao extends AbstractMongoDao<String, MongoUser, Users>
         
         if (ids.isEmpty()) return Sets.newHashSet();
         
-        final Iterable<Key<MongoUser>> filtered =q()
+        final Iterable<Key<MongoUser>> filtered = fetchKeys(q()
                 .field(MongoUser.NAME).in(ids)
-                .field(MongoUser.FRIENDS).hasThisElement(key(user))
-                .fetchKeys();
+                .field(MongoUser.FRIENDS).hasThisElement(key(user)));
         return Sets.newHashSet(filtered);
     }
 
@@ -253,15 +324,13 @@ public class MongoUserDao extends AbstractMongoDao<String, MongoUser, Users>
         final Iterable<Key<MongoUser>> filtered;
         
         if (ids.isEmpty()) {
-        	filtered = q()
-                    .field(MongoUser.FRIENDS).hasThisElement(key(user))
-                    .fetchKeys();	
+        	filtered = fetchKeys(q()
+                    .field(MongoUser.FRIENDS).hasThisElement(key(user)));
         } 
         else {
-        	filtered = q()
+        	filtered = fetchKeys(q()
                     .field(MongoUser.NAME).notIn(ids)
-                    .field(MongoUser.FRIENDS).hasThisElement(key(user))
-                    .fetchKeys();	
+                    .field(MongoUser.FRIENDS).hasThisElement(key(user)));
         }
 
         return Users.from(deref(MongoUser.class, filtered)).build();
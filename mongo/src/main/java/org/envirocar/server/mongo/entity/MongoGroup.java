@@ -22,6 +22,7 @@ import java.util.Set;
 import com.github.jmkgreen.morphia.Key;
 import com.github.jmkgreen.morphia.annotations.Entity;
 import com.github.jmkgreen.morphia.annotations.Id;
+import com.github.jmkgreen.morphia.annotations.Indexed;
 import com.github.jmkgreen.morphia.annotations.Property;
 import com.github.jmkgreen.morphia.annotations.Transient;
 import com.github.jmkgreen.morphia.mapping.Mapper;
@@ -45,6 +46,7 @@ public class MongoGroup extends MongoEntityBase implements Group {
     private Key<MongoUser> owner;
     @Transient
     private MongoUser _owner;
+    @Indexed
     @Property(MEMBERS)
     private Set<Key<MongoUser>> members;
     @Id
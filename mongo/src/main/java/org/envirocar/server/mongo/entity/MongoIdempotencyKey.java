@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.entity;
+
+import org.envirocar.server.core.entities.IdempotencyKey;
+import org.joda.time.DateTime;
+
+import com.github.jmkgreen.morphia.annotations.Entity;
+import com.github.jmkgreen.morphia.annotations.Id;
+import com.github.jmkgreen.morphia.annotations.Indexed;
+import com.github.jmkgreen.morphia.annotations.Property;
+import com.github.jmkgreen.morphia.mapping.Mapper;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Entity("idempotencyKeys")
+public class MongoIdempotencyKey extends MongoEntityBase
+        implements IdempotencyKey {
+    public static final String ID = Mapper.ID_KEY;
+    public static final String USER = "user";
+    public static final String KEY = "key";
+    public static final String HASH = "hash";
+    public static final String LOCATION = "location";
+    public static final String EXPIRES = "expires";
+    public static final int EXPIRATION_PERIOD_HOURS = 24;
+    @Id
+    private String id;
+    @Property(USER)
+    private String user;
+    @Property(KEY)
+    private String key;
+    @Property(HASH)
+    private String hash;
+    @Property(LOCATION)
+    private String location;
+    @Indexed(expireAfterSeconds = 0)
+    @Property(EXPIRES)
+    private DateTime expires;
+
+    public MongoIdempotencyKey() {
+    }
+
+    public MongoIdempotencyKey(String user, String key) {
+        this.id = id(user, key);
+        this.user = user;
+        this.key = key;
+        this.expires = new DateTime().plusHours(EXPIRATION_PERIOD_HOURS);
+    }
+
+    /**
+     * @return the document identifier of the key of the specified user
+     */
+    public static String id(String user, String key) {
+        return user + ":" + key;
+    }
+
+    @Override
+    public String getKey() {
+        return key;
+    }
+
+    @Override
+    public String getUser() {
+        return user;
+    }
+
+    @Override
+    public String getHash() {
+        return hash;
+    }
+
+    @Override
+    public String getLocation() {
+        return location;
+    }
+
+    @Override
+    public boolean isCompleted() {
+        return location != null;
+    }
+
+    public DateTime getExpires() {
+        return expires;
+    }
+
+    @Override
+    public String toString() {
+        return toStringHelper()
+                .add(ID, id)
+                .add(HASH, hash)
+                .add(LOCATION, location)
+                .toString();
+    }
+}
@@ -25,7 +25,9 @@ import com.github.jmkgreen.morphia.Key;
 import com.github.jmkgreen.morphia.annotations.Embedded;
 import com.github.jmkgreen.morphia.annotations.Entity;
 import com.github.jmkgreen.morphia.annotations.Id;
+import com.github.jmkgreen.morphia.annotations.Index;
 import com.github.jmkgreen.morphia.annotations.Indexed;
+import com.github.jmkgreen.morphia.annotations.Indexes;
 import com.github.jmkgreen.morphia.annotations.Property;
 import com.github.jmkgreen.morphia.annotations.Transient;
 import com.github.jmkgreen.morphia.mapping.Mapper;
@@ -48,6 +50,11 @@ import org.envirocar.server.core.entities.User;
  * @author Arne de Wall
  */
 @Entity("measurements")
+@Indexes({
+    @Index(MongoMeasurement.TRACK + ", " + MongoMeasurement.TIME),
+    @Index(MongoMeasurement.USER + ", " + MongoMeasurement.TIME),
+    @Index(MongoMeasurement.SENSOR + "." + MongoMeasurement.IDENTIFIER)
+})
 public class MongoMeasurement extends MongoEntityBase implements Measurement {
     public static final String IDENTIFIER = Mapper.ID_KEY;
     public static final String PHENOMENONS = "phenomenons";
@@ -63,12 +70,10 @@ public class MongoMeasurement extends MongoEntityBase implements Measurement {
     @Indexed(IndexDirection.ASC)
     @Property(TIME)
     private DateTime time;
-    @Indexed
     @Property(USER)
     private Key<MongoUser> user;
     @Embedded(SENSOR)
     private MongoSensor sensor;
-    @Indexed
     @Property(TRACK)
     private Key<MongoTrack> track;
     @Embedded(PHENOMENONS)
@@ -196,6 +201,24 @@ public class MongoMeasurement extends MongoEntityBase implements Measurement {
         return getTrack() != null;
     }
 
+    public Key<MongoUser> getUserKey() {
+        return this.user;
+    }
+
+    public void setUserKey(Key<MongoUser> user) {
+        this.user = user;
+        this._user = null;
+    }
+
+    public Key<MongoTrack> getTrackKey() {
+        return this.track;
+    }
+
+    public void setTrackKey(Key<MongoTrack> track) {
+        this.track = track;
+        this._track = null;
+    }
+
     public ObjectId getId() {
         return id;
     }
@@ -227,7 +250,7 @@ public class MongoMeasurement extends MongoEntityBase implements Measurement {
         if (obj == null) {
             return false;
         }
-        if (getClass() != obj.getClass()) {
+        if (!(obj instanceof MongoMeasurement)) {
             return false;
         }
         final MongoMeasurement other = (MongoMeasurement) obj;
@@ -28,6 +28,8 @@ import com.github.jmkgreen.morphia.Key;
 import com.github.jmkgreen.morphia.annotations.Embedded;
 import com.github.jmkgreen.morphia.annotations.Entity;
 import com.github.jmkgreen.morphia.annotations.Id;
+import com.github.jmkgreen.morphia.annotations.Index;
+import com.github.jmkgreen.morphia.annotations.Indexes;
 import com.github.jmkgreen.morphia.annotations.Property;
 import com.github.jmkgreen.morphia.annotations.Transient;
 import com.github.jmkgreen.morphia.mapping.Mapper;
@@ -40,6 +42,7 @@ import com.vividsolutions.jts.geom.Geometry;
  * @author Christian Autermann <autermann@uni-muenster.de>
  */
 @Entity("tracks")
+@Indexes(@Index(MongoTrack.USER + ", -" + MongoTrack.CREATION_DATE))
 public class MongoTrack extends MongoEntityBase implements Track {
     public static final String ID = Mapper.ID_KEY;
     public static final String USER = "user";
@@ -47,11 +50,14 @@ public class MongoTrack extends MongoEntityBase implements Track {
     public static final String NAME = "name";
     public static final String DESCRIPTION = "description";
     public static final String BBOX = "bbox";
+    public static final String OVERVIEW = "overview";
     public static final String BEGIN = "begin";
     public static final String END = "end";
 	public static final String APP_VERSION = "appVersion";
 	public static final String OBD_DEVICE = "obdDevice";
 	public static final String TERMS_OF_USE_VERSION = "touVersion";
+    public static final String PENDING = "pending";
+    public static final String OUTDATED = "outdated";
     @Id
     private ObjectId id = new ObjectId();
     @Property(USER)
@@ -66,6 +72,8 @@ public class MongoTrack extends MongoEntityBase implements Track {
     private String description;
     @Property(BBOX)
     private Geometry bbox;
+    @Property(OVERVIEW)
+    private Geometry overview;
     @Property(BEGIN)
     private DateTime begin;
     @Property(END)
@@ -76,6 +84,12 @@ public class MongoTrack extends MongoEntityBase implements Track {
     private String obdDevice;
     @Property(TERMS_OF_USE_VERSION)
     private String touVersion;
+    /* only stored for pending tracks */
+    @Property(PENDING)
+    private Boolean pending;
+    /* only stored while an update of the overview is outstanding */
+    @Property(OUTDATED)
+    private Boolean outdated;
 
     @Override
     public MongoUser getUser() {
@@ -171,6 +185,30 @@ public class MongoTrack extends MongoEntityBase implements Track {
         return getBoundingBox() != null && !getBoundingBox().isEmpty();
     }
 
+    @Override
+    public Geometry getOverview() {
+        return this.overview;
+    }
+
+    @Override
+    public void setOverview(Geometry overview) {
+        this.overview = overview;
+    }
+
+    @Override
+    public boolean hasOverview() {
+        return getOverview() != null && !getOverview().isEmpty();
+    }
+
+    public Key<MongoUser> getUserKey() {
+        return this.user;
+    }
+
+    public void setUserKey(Key<MongoUser> user) {
+        this.user = user;
+        this._user = null;
+    }
+
     public ObjectId getId() {
         return id;
     }
@@ -203,7 +241,7 @@ public class MongoTrack extends MongoEntityBase implements Track {
         if (obj == null) {
             return false;
         }
-        if (getClass() != obj.getClass()) {
+        if (!(obj instanceof MongoTrack)) {
             return false;
         }
         final MongoTrack other = (MongoTrack) obj;
@@ -284,5 +322,22 @@ public class MongoTrack extends MongoEntityBase implements Track {
 	public boolean hasTouVersion() {
 		return touVersion != null && !touVersion.isEmpty();
 	}
-    
+
+    @Override
+    public boolean isPending() {
+        return pending != null && pending;
+    }
+
+    @Override
+    public void setPending(boolean pending) {
+        this.pending = pending ? Boolean.TRUE : null;
+    }
+
+    public boolean isOutdated() {
+        return outdated != null && outdated;
+    }
+
+    public void setOutdated(boolean outdated) {
+        this.outdated = outdated ? Boolean.TRUE : null;
+    }
 }
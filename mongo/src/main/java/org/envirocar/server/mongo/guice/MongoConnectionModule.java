@@ -21,6 +21,8 @@ import java.io.InputStream;
 import java.util.Properties;
 
 import org.envirocar.server.mongo.MongoDB;
+import org.envirocar.server.mongo.index.QueryPlanChecker;
+import org.envirocar.server.mongo.metrics.MongoMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -46,6 +48,8 @@ public class MongoConnectionModule extends AbstractModule {
         int port = 27017;
         String user = null;
         char[] pass = null;
+        long slowQueryThreshold = 100;
+        QueryPlanChecker.Mode checkQueryPlans = QueryPlanChecker.Mode.OFF;
         try {
             Properties p = getProperties();
             if (p.containsKey(MongoDB.DATABASE_PROPERTY)) {
@@ -64,6 +68,14 @@ public class MongoConnectionModule extends AbstractModule {
             if (p.containsKey(MongoDB.PASS_PROPERTY)) {
                 pass = p.getProperty(MongoDB.PASS_PROPERTY).trim().toCharArray();
             }
+            if (p.containsKey(MongoMetrics.SLOW_QUERY_THRESHOLD)) {
+                slowQueryThreshold = Long.valueOf(p.getProperty(
+                        MongoMetrics.SLOW_QUERY_THRESHOLD).trim());
+            }
+            if (p.containsKey(QueryPlanChecker.CHECK_QUERY_PLANS)) {
+                checkQueryPlans = QueryPlanChecker.Mode.valueOf(p.getProperty(
+                        QueryPlanChecker.CHECK_QUERY_PLANS).trim().toUpperCase());
+            }
         } catch (IOException ex) {
             log
                     .error("Error reading mongo.properties. Using default values", ex);
@@ -78,6 +90,11 @@ public class MongoConnectionModule extends AbstractModule {
                 .toProvider(Providers.of(user));
         bind(char[].class).annotatedWith(Names.named(MongoDB.PASS_PROPERTY))
                 .toProvider(Providers.of(pass));
+        bind(Long.class).annotatedWith(Names.named(MongoMetrics.SLOW_QUERY_THRESHOLD))
+                .toInstance(slowQueryThreshold);
+        bind(QueryPlanChecker.Mode.class)
+                .annotatedWith(Names.named(QueryPlanChecker.CHECK_QUERY_PLANS))
+                .toInstance(checkQueryPlans);
     }
 
     private Properties getProperties() throws IOException {
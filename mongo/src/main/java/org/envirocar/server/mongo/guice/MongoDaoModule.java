@@ -21,6 +21,7 @@ import org.envirocar.server.core.dao.AnnouncementsDao;
 import org.envirocar.server.core.dao.BadgesDao;
 import org.envirocar.server.core.dao.FuelingDao;
 import org.envirocar.server.core.dao.GroupDao;
+import org.envirocar.server.core.dao.IdempotencyKeyDao;
 import org.envirocar.server.core.dao.MeasurementDao;
 import org.envirocar.server.core.dao.PhenomenonDao;
 import org.envirocar.server.core.dao.SensorDao;
@@ -33,6 +34,7 @@ import org.envirocar.server.mongo.dao.MongoAnnouncementsDao;
 import org.envirocar.server.mongo.dao.MongoBadgesDao;
 import org.envirocar.server.mongo.dao.MongoFuelingDao;
 import org.envirocar.server.mongo.dao.MongoGroupDao;
+import org.envirocar.server.mongo.dao.MongoIdempotencyKeyDao;
 import org.envirocar.server.mongo.dao.MongoMeasurementDao;
 import org.envirocar.server.mongo.dao.MongoPhenomenonDao;
 import org.envirocar.server.mongo.dao.MongoSensorDao;
@@ -66,5 +68,6 @@ public class MongoDaoModule extends AbstractModule {
         bind(BadgesDao.class).to(MongoBadgesDao.class);
         bind(PasswordResetDAO.class).to(MongoPasswordResetDAO.class);
         bind(FuelingDao.class).to(MongoFuelingDao.class);
+        bind(IdempotencyKeyDao.class).to(MongoIdempotencyKeyDao.class);
     }
 }
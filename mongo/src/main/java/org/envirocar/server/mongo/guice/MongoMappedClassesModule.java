@@ -25,6 +25,7 @@ import org.envirocar.server.mongo.entity.MongoAnnouncement;
 import org.envirocar.server.mongo.entity.MongoBadge;
 import org.envirocar.server.mongo.entity.MongoFueling;
 import org.envirocar.server.mongo.entity.MongoGroup;
+import org.envirocar.server.mongo.entity.MongoIdempotencyKey;
 import org.envirocar.server.mongo.entity.MongoMeasurement;
 import org.envirocar.server.mongo.entity.MongoPasswordReset;
 import org.envirocar.server.mongo.entity.MongoPhenomenon;
@@ -72,5 +73,6 @@ public class MongoMappedClassesModule extends AbstractModule {
         mb.addBinding().toInstance(MongoBadge.class);
         mb.addBinding().toInstance(MongoPasswordReset.class);
         mb.addBinding().toInstance(MongoFueling.class);
+        mb.addBinding().toInstance(MongoIdempotencyKey.class);
     }
 }
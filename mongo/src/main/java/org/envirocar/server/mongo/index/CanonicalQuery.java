@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.index;
+
+import java.util.Set;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.Sets;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * A query as it is issued by a DAO, used to check that it is supported by an
+ * index.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class CanonicalQuery {
+    private static final String OPERATOR_PREFIX = "$";
+    private static final String IN = "$in";
+    private static final String ELEM_MATCH = "$elemMatch";
+    private final String name;
+    private final Class<?> type;
+    private final DBObject query;
+    private final DBObject sort;
+
+    /**
+     * @param name  a descriptive name of the query
+     * @param type  the entity class of the queried collection
+     * @param query the query document
+     * @param sort  the sort document, may be {@code null}
+     */
+    public CanonicalQuery(String name, Class<?> type, DBObject query,
+                          DBObject sort) {
+        this.name = name;
+        this.type = type;
+        this.query = query;
+        this.sort = sort == null ? new BasicDBObject() : sort;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public DBObject getQuery() {
+        return query;
+    }
+
+    public DBObject getSort() {
+        return sort;
+    }
+
+    /**
+     * Proposes an index for this query: fields matched for equality first,
+     * then the sort fields and last the fields matched by range.
+     *
+     * @return the proposed index keys
+     */
+    public DBObject proposeIndex() {
+        BasicDBObject index = new BasicDBObject();
+        Set<String> ranges = Sets.newLinkedHashSet();
+        for (String field : query.keySet()) {
+            if (field.startsWith(OPERATOR_PREFIX)) {
+                continue;
+            }
+            if (isEquality(query.get(field))) {
+                index.put(field, 1);
+            } else {
+                ranges.add(field);
+            }
+        }
+        for (String field : sort.keySet()) {
+            if (!index.containsField(field)) {
+                index.put(field, sort.get(field));
+            }
+        }
+        for (String field : ranges) {
+            if (!index.containsField(field)) {
+                index.put(field, 1);
+            }
+        }
+        return index;
+    }
+
+    private boolean isEquality(Object value) {
+        if (!(value instanceof DBObject)) {
+            return true;
+        }
+        Set<String> keys = ((DBObject) value).keySet();
+        if (keys.isEmpty() || !keys.iterator().next().startsWith(OPERATOR_PREFIX)) {
+            /* an embedded document or reference */
+            return true;
+        }
+        return keys.size() == 1 && (keys.contains(IN) ||
+                                    keys.contains(ELEM_MATCH));
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("name", name)
+                .add("query", query)
+                .add("sort", sort)
+                .toString();
+    }
+}
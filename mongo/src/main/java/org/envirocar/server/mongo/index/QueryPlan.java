@@ -0,0 +1,136 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.index;
+
+import java.util.List;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.mongodb.DBObject;
+
+/**
+ * The parts of the output of {@code explain()} that indicate a missing index.
+ * Understands the output of MongoDB 2.x ({@code cursor} and
+ * {@code scanAndOrder}) as well as the query planner output of later
+ * versions ({@code COLLSCAN} and {@code SORT} stages).
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class QueryPlan {
+    private static final String QUERY_PLANNER = "queryPlanner";
+    private static final String WINNING_PLAN = "winningPlan";
+    private static final String STAGE = "stage";
+    private static final String INPUT_STAGE = "inputStage";
+    private static final String INPUT_STAGES = "inputStages";
+    private static final String COLLSCAN = "COLLSCAN";
+    private static final String SORT = "SORT";
+    private static final String CURSOR = "cursor";
+    private static final String BASIC_CURSOR = "BasicCursor";
+    private static final String SCAN_AND_ORDER = "scanAndOrder";
+    private static final String CLAUSES = "clauses";
+    private final List<String> steps = Lists.newLinkedList();
+    private boolean collectionScan;
+    private boolean inMemorySort;
+
+    private QueryPlan() {
+    }
+
+    /**
+     * @param explain the output of {@code explain()}
+     *
+     * @return the plan
+     */
+    public static QueryPlan of(DBObject explain) {
+        QueryPlan plan = new QueryPlan();
+        Object planner = explain.get(QUERY_PLANNER);
+        if (planner instanceof DBObject) {
+            plan.stage(((DBObject) planner).get(WINNING_PLAN));
+        } else {
+            plan.legacy(explain);
+        }
+        return plan;
+    }
+
+    private void stage(Object stage) {
+        if (!(stage instanceof DBObject)) {
+            return;
+        }
+        DBObject o = (DBObject) stage;
+        String name = String.valueOf(o.get(STAGE));
+        steps.add(name);
+        if (COLLSCAN.equals(name)) {
+            collectionScan = true;
+        } else if (SORT.equals(name)) {
+            inMemorySort = true;
+        }
+        stage(o.get(INPUT_STAGE));
+        Object inputs = o.get(INPUT_STAGES);
+        if (inputs instanceof List) {
+            for (Object input : (List<?>) inputs) {
+                stage(input);
+            }
+        }
+    }
+
+    private void legacy(DBObject explain) {
+        Object clauses = explain.get(CLAUSES);
+        if (clauses instanceof List) {
+            for (Object clause : (List<?>) clauses) {
+                if (clause instanceof DBObject) {
+                    legacy((DBObject) clause);
+                }
+            }
+        }
+        Object cursor = explain.get(CURSOR);
+        if (cursor != null) {
+            steps.add(cursor.toString());
+            if (cursor.toString().startsWith(BASIC_CURSOR)) {
+                collectionScan = true;
+            }
+        }
+        if (Boolean.TRUE.equals(explain.get(SCAN_AND_ORDER))) {
+            steps.add(SCAN_AND_ORDER);
+            inMemorySort = true;
+        }
+    }
+
+    /**
+     * @return if the plan scans the whole collection
+     */
+    public boolean isCollectionScan() {
+        return collectionScan;
+    }
+
+    /**
+     * @return if the plan sorts the documents in memory
+     */
+    public boolean isInMemorySort() {
+        return inMemorySort;
+    }
+
+    /**
+     * @return if the query is not supported by an index
+     */
+    public boolean isProblematic() {
+        return collectionScan || inMemorySort;
+    }
+
+    @Override
+    public String toString() {
+        return Joiner.on(" <- ").join(steps);
+    }
+}
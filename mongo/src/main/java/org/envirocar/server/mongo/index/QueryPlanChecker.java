@@ -0,0 +1,217 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.index;
+
+import java.util.List;
+import java.util.Map;
+
+import org.bson.types.ObjectId;
+import org.envirocar.server.mongo.activities.MongoActivity;
+import org.envirocar.server.mongo.dao.MongoStatisticsDao;
+import org.envirocar.server.mongo.entity.MongoGroup;
+import org.envirocar.server.mongo.entity.MongoMeasurement;
+import org.envirocar.server.mongo.entity.MongoTrack;
+import org.envirocar.server.mongo.entity.MongoUser;
+import org.envirocar.server.mongo.util.MongoUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.jmkgreen.morphia.Datastore;
+import com.github.jmkgreen.morphia.Key;
+import com.github.jmkgreen.morphia.query.Query;
+import com.github.jmkgreen.morphia.query.QueryImpl;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+/**
+ * Runs {@code explain()} on the queries the DAOs issue most and reports the
+ * ones that scan the whole collection or sort in memory, together with an
+ * index that would support them. The check is run on startup according to
+ * the {@link #CHECK_QUERY_PLANS} property and by the tests against a local
+ * {@code mongod}.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class QueryPlanChecker {
+    /**
+     * Property controlling the check on startup, one of {@link Mode}.
+     */
+    public static final String CHECK_QUERY_PLANS = "checkQueryPlans";
+    private static final Logger log = LoggerFactory
+            .getLogger(QueryPlanChecker.class);
+    /**
+     * Name of the placeholder user, group member and track owner.
+     */
+    private static final String USER = "queryPlanChecker";
+    private final Datastore datastore;
+
+    /**
+     * What to do on startup.
+     */
+    public enum Mode {
+        /**
+         * Do not check the query plans.
+         */
+        OFF,
+        /**
+         * Log the queries that are not supported by an index.
+         */
+        WARN,
+        /**
+         * Log the queries that are not supported by an index and create the
+         * proposed indexes.
+         */
+        CREATE
+    }
+
+    @Inject
+    public QueryPlanChecker(Datastore datastore) {
+        this.datastore = datastore;
+    }
+
+    /**
+     * @return the queries to check
+     */
+    public List<CanonicalQuery> getCanonicalQueries() {
+        Key<MongoUser> user = datastore.getKey(new MongoUser(USER));
+        /* friends and group members are looked up as a list of references */
+        List<Key<MongoUser>> users = ImmutableList.of(
+                user, datastore.getKey(new MongoUser(USER + "Friend")));
+        Key<MongoTrack> track = new Key<MongoTrack>(MongoTrack.class,
+                                                    new ObjectId());
+        DBObject sensor = new BasicDBObject(MongoStatisticsDao.SENSOR_ID_PATH,
+                                            new ObjectId());
+        return ImmutableList.of(
+                query("activities of a user", MongoActivity.class, datastore
+                        .createQuery(MongoActivity.class)
+                        .field(MongoActivity.USER).equal(user)
+                        .order(MongoUtils.reverse(MongoActivity.TIME))),
+                query("activities of friends or group members",
+                      MongoActivity.class, datastore
+                        .createQuery(MongoActivity.class)
+                        .field(MongoActivity.USER).in(users)
+                        .order(MongoUtils.reverse(MongoActivity.TIME))),
+                query("groups of a member", MongoGroup.class, datastore
+                        .createQuery(MongoGroup.class)
+                        .field(MongoGroup.MEMBERS).hasThisElement(user)),
+                query("recently created tracks", MongoTrack.class, datastore
+                        .createQuery(MongoTrack.class)
+                        .field(MongoTrack.PENDING).doesNotExist()
+                        .order(MongoTrack.RECENTLY_CREATED_ORDER)),
+                query("recently created tracks of a user",
+                      MongoTrack.class, datastore
+                        .createQuery(MongoTrack.class)
+                        .field(MongoTrack.PENDING).doesNotExist()
+                        .field(MongoTrack.USER).equal(user)
+                        .order(MongoTrack.RECENTLY_CREATED_ORDER)),
+                query("measurements of a track",
+                      MongoMeasurement.class, datastore
+                        .createQuery(MongoMeasurement.class)
+                        .field(MongoMeasurement.TRACK).equal(track)
+                        .order(MongoMeasurement.TIME)),
+                query("measurements of a user",
+                      MongoMeasurement.class, datastore
+                        .createQuery(MongoMeasurement.class)
+                        .field(MongoMeasurement.USER).equal(user)
+                        .order(MongoMeasurement.TIME)),
+                new CanonicalQuery("statistics of a sensor",
+                                   MongoMeasurement.class, sensor, null));
+    }
+
+    /**
+     * Explains a query.
+     *
+     * @param query the query
+     *
+     * @return the plan of the query
+     */
+    public QueryPlan explain(CanonicalQuery query) {
+        DBCollection collection = datastore.getCollection(query.getType());
+        DBObject explain = collection.find(query.getQuery())
+                .sort(query.getSort()).explain();
+        return QueryPlan.of(explain);
+    }
+
+    /**
+     * Explains all canonical queries and logs the ones that are not
+     * supported by an index.
+     *
+     * @return the problematic queries and their plans
+     */
+    public Map<CanonicalQuery, QueryPlan> check() {
+        Map<CanonicalQuery, QueryPlan> problems = Maps.newLinkedHashMap();
+        for (CanonicalQuery query : getCanonicalQueries()) {
+            QueryPlan plan = explain(query);
+            if (plan.isProblematic()) {
+                log.warn("Query for {} is not supported by an index ({}); " +
+                         "proposed index on {}: {}",
+                         query.getName(), plan,
+                         datastore.getCollection(query.getType()).getName(),
+                         query.proposeIndex());
+                problems.put(query, plan);
+            } else {
+                log.debug("Query for {} uses {}", query.getName(), plan);
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * Creates the proposed indexes of the queries. The indexes are built in
+     * the background to not block the database while starting up.
+     *
+     * @param queries the queries
+     */
+    public void createIndexes(Iterable<CanonicalQuery> queries) {
+        for (CanonicalQuery query : queries) {
+            DBObject index = query.proposeIndex();
+            log.info("Creating index {} for {}", index, query.getName());
+            datastore.getCollection(query.getType())
+                    .ensureIndex(index, new BasicDBObject("background", true));
+        }
+    }
+
+    /**
+     * Runs the check in the supplied mode.
+     *
+     * @param mode the mode
+     */
+    public void run(Mode mode) {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        try {
+            Map<CanonicalQuery, QueryPlan> problems = check();
+            if (mode == Mode.CREATE) {
+                createIndexes(problems.keySet());
+            }
+        } catch (RuntimeException e) {
+            log.error("Error checking query plans", e);
+        }
+    }
+
+    private CanonicalQuery query(String name, Class<?> type, Query<?> q) {
+        QueryImpl<?> query = (QueryImpl<?>) q;
+        return new CanonicalQuery(name, type,
+                                  query.getQueryObject(),
+                                  query.getSortObject());
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.metrics;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.mongodb.DBCollection;
+import com.mongodb.DBDecoder;
+import com.mongodb.DBDecoderFactory;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBDecoder;
+
+/**
+ * Decoder that counts the bytes of the documents decoded by the current
+ * thread, so that a {@link QueryTimer} can attribute them to an operation.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class CountingDBDecoder extends DefaultDBDecoder {
+    public static final DBDecoderFactory FACTORY = new DBDecoderFactory() {
+        @Override
+        public DBDecoder create() {
+            return new CountingDBDecoder();
+        }
+    };
+    private static final ThreadLocal<long[]> BYTES = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[1];
+        }
+    };
+
+    /**
+     * @return the number of bytes decoded by the current thread so far
+     */
+    public static long bytesRead() {
+        return BYTES.get()[0];
+    }
+
+    @Override
+    public DBObject decode(byte[] b, DBCollection collection) {
+        BYTES.get()[0] += b.length;
+        return super.decode(b, collection);
+    }
+
+    @Override
+    public DBObject decode(InputStream in, DBCollection collection)
+            throws IOException {
+        return super.decode(new CountingInputStream(in), collection);
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private final long[] bytes = BYTES.get();
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                ++bytes[0];
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                bytes[0] += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            bytes[0] += skipped;
+            return skipped;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.metrics;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.envirocar.server.core.metrics.Metrics;
+import org.envirocar.server.core.metrics.RequestContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.github.jmkgreen.morphia.query.QueryImpl;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
+
+/**
+ * Creates the {@link QueryTimer}s of the DAOs and logs operations that take
+ * longer than the {@link #SLOW_QUERY_THRESHOLD} to the {@code SlowQueries}
+ * logger, together with the shape of the query, the calling DAO method and
+ * the resource method of the request.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class MongoMetrics {
+    /**
+     * Duration in milliseconds after which an operation is logged as slow.
+     */
+    public static final String SLOW_QUERY_THRESHOLD = "slowQueryThreshold";
+    public static final String GET = "get";
+    public static final String FIND = "find";
+    public static final String COUNT = "count";
+    public static final String SAVE = "save";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+    public static final String AGGREGATE = "aggregate";
+    public static final String DEREF = "deref";
+    public static final String STREAM = "stream";
+    private static final Logger log = LoggerFactory
+            .getLogger(MongoMetrics.class.getPackage().getName() +
+                       ".SlowQueries");
+    private static final String PACKAGE = "org.envirocar.server.";
+    private static final String PLACEHOLDER = "?";
+    private final Metrics metrics;
+    private final long threshold;
+
+    @Inject
+    public MongoMetrics(Metrics metrics,
+                        @Named(SLOW_QUERY_THRESHOLD) long threshold) {
+        this.metrics = metrics;
+        this.threshold = TimeUnit.MILLISECONDS.toNanos(threshold);
+    }
+
+    /**
+     * Creates the timer of an operation.
+     *
+     * @param source    the class performing the operation
+     * @param operation the operation
+     *
+     * @return the timer
+     */
+    public QueryTimer timer(Class<?> source, String operation) {
+        return new QueryTimer(this, metrics, source.getSimpleName(), operation);
+    }
+
+    void checkSlowQuery(String source, String operation, long nanos,
+                        long documents, long bytes, Object query) {
+        if (nanos < threshold || !log.isWarnEnabled()) {
+            return;
+        }
+        String resource = RequestContext.getResource();
+        log.warn("Slow {}.{} took {} ms ({} documents, {} bytes) " +
+                 "called by {} for {}: {}",
+                 source, operation, TimeUnit.NANOSECONDS.toMillis(nanos),
+                 documents, bytes, caller(),
+                 resource == null ? "-" : resource, shape(query));
+    }
+
+    /**
+     * Normalizes a query by replacing all values by placeholders, so that
+     * queries of the same shape are logged identically.
+     *
+     * @param query the query, pipeline or {@code Query}
+     *
+     * @return the shape of the query
+     */
+    static Object shape(Object query) {
+        if (query instanceof QueryImpl) {
+            return shape(((QueryImpl<?>) query).getQueryObject());
+        } else if (query instanceof List) {
+            BasicDBList shape = new BasicDBList();
+            for (Object element : (List<?>) query) {
+                if (element instanceof DBObject) {
+                    shape.add(shape(element));
+                }
+            }
+            return shape.isEmpty() ? PLACEHOLDER : shape;
+        } else if (query instanceof DBObject) {
+            DBObject object = (DBObject) query;
+            BasicDBObject shape = new BasicDBObject();
+            for (String key : object.keySet()) {
+                shape.put(key, shape(object.get(key)));
+            }
+            return shape;
+        } else {
+            return PLACEHOLDER;
+        }
+    }
+
+    /**
+     * @return the first method outside the database layer on the call stack
+     */
+    private static String caller() {
+        String layer = MongoMetrics.class.getPackage().getName();
+        for (StackTraceElement e : new Throwable().getStackTrace()) {
+            String c = e.getClassName();
+            if (c.startsWith(PACKAGE) && !c.startsWith(layer) &&
+                !c.endsWith(".AbstractMongoDao") && !c.endsWith(".MongoDB")) {
+                return c.substring(c.lastIndexOf('.') + 1) + "." +
+                       e.getMethodName();
+            }
+        }
+        return "-";
+    }
+}
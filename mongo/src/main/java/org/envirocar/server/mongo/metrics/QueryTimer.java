@@ -0,0 +1,226 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+
+import org.envirocar.server.core.metrics.Buckets;
+import org.envirocar.server.core.metrics.Histogram;
+import org.envirocar.server.core.metrics.Metrics;
+
+/**
+ * Records the duration, the number of documents and the decoded bytes of a
+ * single kind of database operation of a DAO.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class QueryTimer {
+    static final String DURATION = "envirocar_mongo_operation_duration_seconds";
+    static final String DOCUMENTS = "envirocar_mongo_operation_documents";
+    static final String BYTES = "envirocar_mongo_operation_bytes";
+    private static final String SOURCE = "dao";
+    private static final String OPERATION = "operation";
+    private final MongoMetrics owner;
+    private final String source;
+    private final String operation;
+    private final Histogram duration;
+    private final Histogram documents;
+    private final Histogram bytes;
+
+    QueryTimer(MongoMetrics owner, Metrics metrics,
+               String source, String operation) {
+        this.owner = owner;
+        this.source = source;
+        this.operation = operation;
+        this.duration = metrics.histogram(
+                DURATION, "Duration of database operations.",
+                Buckets.LATENCY, SOURCE, source, OPERATION, operation);
+        this.documents = metrics.histogram(
+                DOCUMENTS, "Documents returned or changed by database operations.",
+                Buckets.COUNT, SOURCE, source, OPERATION, operation);
+        this.bytes = metrics.histogram(
+                BYTES, "Bytes decoded by database operations.",
+                Buckets.SIZE, SOURCE, source, OPERATION, operation);
+    }
+
+    /**
+     * Starts timing an operation on the current thread.
+     *
+     * @return the started sample
+     */
+    public Sample start() {
+        return new Sample(System.nanoTime(), CountingDBDecoder.bytesRead());
+    }
+
+    /**
+     * Stops timing an operation that was started on the current thread.
+     *
+     * @param sample    the sample returned by {@link #start()}
+     * @param documents the number of documents returned or changed
+     * @param query     the query, pipeline or {@code Query}; only inspected
+     *                  if the operation was slow
+     */
+    public void stop(Sample sample, long documents, Object query) {
+        record(System.nanoTime() - sample.start,
+               documents,
+               CountingDBDecoder.bytesRead() - sample.bytes,
+               query);
+    }
+
+    /**
+     * Times the iteration of lazily fetched documents. The operation is
+     * recorded once the iterator is exhausted, fails or is closed; only the
+     * time spent in the iterator counts towards it.
+     *
+     * @param <T>      the document type
+     * @param iterable the documents
+     * @param query    the query
+     *
+     * @return the instrumented documents
+     */
+    public <T> Iterable<T> instrument(final Iterable<T> iterable,
+                                      final Object query) {
+        return new Iterable<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return instrument(iterable.iterator(), query);
+            }
+        };
+    }
+
+    /**
+     * Times the iteration of lazily fetched documents. The operation is
+     * recorded once the iterator is exhausted, fails or is closed; only the
+     * time spent in the iterator counts towards it. Callers that may stop
+     * early have to close the iterator.
+     *
+     * @param <T>      the document type
+     * @param iterator the documents
+     * @param query    the query
+     *
+     * @return the instrumented documents
+     */
+    public <T> InstrumentedIterator<T> instrument(Iterator<T> iterator,
+                                                  Object query) {
+        return new InstrumentedIterator<T>(iterator, query);
+    }
+
+    private void record(long nanos, long documents, long bytes,
+                        Object query) {
+        this.duration.record(nanos);
+        this.documents.record(documents);
+        this.bytes.record(bytes);
+        owner.checkSlowQuery(source, operation, nanos, documents, bytes,
+                             query);
+    }
+
+    /**
+     * The start of an operation.
+     */
+    public static class Sample {
+        private final long start;
+        private final long bytes;
+
+        Sample(long start, long bytes) {
+            this.start = start;
+            this.bytes = bytes;
+        }
+    }
+
+    /**
+     * Iterator that times the calls to its delegate. Closing it records the
+     * operation, if that did not happen yet, and closes the delegate.
+     *
+     * @param <T> the document type
+     */
+    public class InstrumentedIterator<T> implements Iterator<T>, Closeable {
+        private final Iterator<T> delegate;
+        private final Object query;
+        private long nanos;
+        private long bytes;
+        private long documents;
+        private boolean recorded;
+
+        InstrumentedIterator(Iterator<T> delegate, Object query) {
+            this.delegate = delegate;
+            this.query = query;
+        }
+
+        @Override
+        public boolean hasNext() {
+            long start = System.nanoTime();
+            long read = CountingDBDecoder.bytesRead();
+            boolean hasNext = false;
+            try {
+                hasNext = delegate.hasNext();
+            } finally {
+                nanos += System.nanoTime() - start;
+                bytes += CountingDBDecoder.bytesRead() - read;
+                if (!hasNext) {
+                    finish();
+                }
+            }
+            return hasNext;
+        }
+
+        @Override
+        public T next() {
+            long start = System.nanoTime();
+            long read = CountingDBDecoder.bytesRead();
+            boolean failed = true;
+            try {
+                T next = delegate.next();
+                ++documents;
+                failed = false;
+                return next;
+            } finally {
+                nanos += System.nanoTime() - start;
+                bytes += CountingDBDecoder.bytesRead() - read;
+                if (failed) {
+                    finish();
+                }
+            }
+        }
+
+        @Override
+        public void remove() {
+            delegate.remove();
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (delegate instanceof Closeable) {
+                    ((Closeable) delegate).close();
+                }
+            } catch (IOException e) {
+                /* cursors do not fail on close */
+            } finally {
+                finish();
+            }
+        }
+
+        private void finish() {
+            if (!recorded) {
+                recorded = true;
+                record(nanos, documents, bytes, query);
+            }
+        }
+    }
+}
@@ -23,12 +23,18 @@ import static org.envirocar.server.core.TemporalFilterOperator.during;
 import static org.envirocar.server.core.TemporalFilterOperator.ends;
 import static org.envirocar.server.core.TemporalFilterOperator.equals;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.bson.BSONObject;
 import org.envirocar.server.core.TemporalFilter;
+import org.envirocar.server.core.filter.Projection;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.Sets;
 import com.mongodb.BasicDBObject;
 import com.mongodb.DBObject;
 
@@ -109,6 +115,111 @@ public class MongoUtils {
         return new BasicDBObject(Ops.PROJECT, fields);
     }
 
+    /**
+     * Translates a projection into document paths.
+     *
+     * @param projection the projection
+     * @param paths      the document path of every known property
+     * @param fallback   the path for unknown properties (may be
+     *                   {@code null} to ignore them)
+     * @param always     paths that are always needed
+     *
+     * @return the paths or {@code null} if the whole document is needed
+     *         (apart from the {@link #excludedPaths excluded paths})
+     */
+    public static Set<String> paths(Projection projection,
+                                    Map<String, String> paths,
+                                    String fallback, String... always) {
+        if (projection == null || projection.getFields().isEmpty()) {
+            return null;
+        }
+        Set<String> excluded = excludedPaths(projection.getExcluded(), paths);
+        Set<String> result = Sets.newHashSet(always);
+        for (String field : projection.getFields()) {
+            String path = paths.get(field);
+            if (path != null) {
+                if (!excluded.contains(path)) {
+                    result.add(path);
+                }
+            } else if (fallback != null) {
+                result.add(fallback);
+            }
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * Translates the exclusions of a projection that requests all
+     * properties into document paths.
+     *
+     * @param projection the projection
+     * @param paths      the document path of every known property
+     * @param always     paths that are always needed
+     *
+     * @return the paths to exclude or {@code null} if nothing is excluded or
+     *         the projection is translated by
+     *         {@link #paths(Projection, Map, String, String...)}
+     */
+    public static Set<String> excludedPaths(Projection projection,
+                                            Map<String, String> paths,
+                                            String... always) {
+        if (projection == null || !projection.getFields().isEmpty()) {
+            return null;
+        }
+        Set<String> result = Sets.newHashSet(
+                excludedPaths(projection.getExcluded(), paths));
+        result.removeAll(Arrays.asList(always));
+        return result.isEmpty() ? null : Collections.unmodifiableSet(result);
+    }
+
+    private static Set<String> excludedPaths(Set<String> excluded,
+                                             Map<String, String> paths) {
+        Set<String> result = Sets.newHashSet();
+        for (String field : excluded) {
+            String path = paths.get(field);
+            if (path != null) {
+                result.add(path);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param paths the paths to include (may be {@code null})
+     *
+     * @return the keys object for {@code DBCollection.find()} or
+     *         {@code null} to retrieve the whole document
+     */
+    public static DBObject keys(Set<String> paths) {
+        return keys(paths, null);
+    }
+
+    /**
+     * @param paths    the paths to include (may be {@code null})
+     * @param excluded the paths to exclude if no paths are included (may be
+     *                 {@code null})
+     *
+     * @return the keys object for {@code DBCollection.find()} or
+     *         {@code null} to retrieve the whole document
+     */
+    public static DBObject keys(Set<String> paths, Set<String> excluded) {
+        if (paths == null) {
+            if (excluded == null) {
+                return null;
+            }
+            BasicDBObject keys = new BasicDBObject();
+            for (String path : excluded) {
+                keys.put(path, 0);
+            }
+            return keys;
+        }
+        BasicDBObject keys = new BasicDBObject();
+        for (String path : paths) {
+            keys.put(path, 1);
+        }
+        return keys;
+    }
+
     public static String order(String order, String second, String... orders) {
         return Joiner.on(',').join(order, second, (Object[]) orders);
     }
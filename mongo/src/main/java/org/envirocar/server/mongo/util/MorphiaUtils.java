@@ -16,10 +16,13 @@
  */
 package org.envirocar.server.mongo.util;
 
+import java.util.Set;
+
 import org.envirocar.server.core.TemporalFilter;
 import org.joda.time.DateTime;
 
 import com.github.jmkgreen.morphia.query.FieldEnd;
+import com.github.jmkgreen.morphia.query.Query;
 
 /**
  * TODO JavaDoc
@@ -30,6 +33,29 @@ public class MorphiaUtils {
     private MorphiaUtils() {
     }
 
+    /**
+     * Restricts the retrieved fields of the query.
+     *
+     * @param q     the query
+     * @param paths the paths to retrieve or {@code null} for the whole
+     *              document
+     *
+     * @return the query
+     */
+    public static <T> Query<T> retrievedFields(Query<T> q, Set<String> paths) {
+        if (paths != null) {
+            q.retrievedFields(true, paths.toArray(new String[paths.size()]));
+        }
+        return q;
+    }
+
+    public static <T> Query<T> excludedFields(Query<T> q, Set<String> paths) {
+        if (paths != null) {
+            q.retrievedFields(false, paths.toArray(new String[paths.size()]));
+        }
+        return q;
+    }
+
     public static void temporalFilter(
             FieldEnd<?> thisBegin,
             FieldEnd<?> thisEnd,
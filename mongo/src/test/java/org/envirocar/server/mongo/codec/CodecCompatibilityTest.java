@@ -0,0 +1,282 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.codec;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+import org.bson.io.BasicOutputBuffer;
+import org.bson.io.OutputBuffer;
+import org.bson.types.ObjectId;
+import org.envirocar.server.core.entities.MeasurementValue;
+import org.envirocar.server.mongo.convert.DateTimeConverter;
+import org.envirocar.server.mongo.convert.JTSConverter;
+import org.envirocar.server.mongo.convert.URLConverter;
+import org.envirocar.server.mongo.entity.MongoMeasurement;
+import org.envirocar.server.mongo.entity.MongoMeasurementValue;
+import org.envirocar.server.mongo.entity.MongoPhenomenon;
+import org.envirocar.server.mongo.entity.MongoSensor;
+import org.envirocar.server.mongo.entity.MongoTrack;
+import org.envirocar.server.mongo.entity.MongoUser;
+import org.envirocar.server.mongo.util.GeoBSON;
+import org.hamcrest.Matcher;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ErrorCollector;
+
+import com.github.jmkgreen.morphia.Key;
+import com.github.jmkgreen.morphia.Morphia;
+import com.github.jmkgreen.morphia.mapping.Mapper;
+import com.google.common.collect.Iterables;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+import com.mongodb.DefaultDBDecoder;
+import com.mongodb.DefaultDBEncoder;
+import com.mongodb.util.JSON;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.PrecisionModel;
+
+/**
+ * Checks that the codecs read and write the same documents as the Morphia
+ * mapper.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class CodecCompatibilityTest {
+    @Rule
+    public final ErrorCollector errors = new ErrorCollector();
+    private final GeometryFactory geometryFactory =
+            new GeometryFactory(new PrecisionModel(), 4326);
+    private Mapper mapper;
+    private MongoMeasurementCodec measurementCodec;
+    private MongoTrackCodec trackCodec;
+
+    protected <T> void assertThat(T value, Matcher<T> matcher) {
+        errors.checkThat(value, matcher);
+    }
+
+    @Before
+    public void setUp() {
+        GeoBSON geoBSON = new GeoBSON(geometryFactory);
+        Morphia morphia = new Morphia();
+        mapper = morphia.getMapper();
+        mapper.getConverters().addConverter(new DateTimeConverter());
+        mapper.getConverters().addConverter(new JTSConverter(geoBSON));
+        mapper.getConverters().addConverter(new URLConverter());
+        morphia.map(MongoUser.class, MongoTrack.class, MongoMeasurement.class);
+        measurementCodec = new MongoMeasurementCodec(
+                mapper, geoBSON, null,
+                new MongoMeasurementValueCodec(mapper, geoBSON, null));
+        trackCodec = new MongoTrackCodec(mapper, geoBSON, null);
+    }
+
+    @Test
+    public void testMeasurementEncoding() {
+        MongoMeasurement m = createMeasurement();
+        DBObject expected = mapper.toDBObject(m);
+        assertThat(json(measurementCodec.encode(m)), is(json(expected)));
+    }
+
+    @Test
+    public void testMeasurementDecoding() {
+        MongoMeasurement m = createMeasurement();
+        assertMeasurementEquals(
+                measurementCodec.decode(wire(mapper.toDBObject(m))), m);
+    }
+
+    @Test
+    public void testMeasurementReadableByMorphia() {
+        MongoMeasurement m = createMeasurement();
+        m.prePersist();
+        assertMeasurementEquals(
+                (MongoMeasurement) mapper.fromDBObject(
+                MongoMeasurement.class, wire(measurementCodec.encode(m)),
+                mapper.createEntityCache()), m);
+    }
+
+    @Test
+    public void testEmptyMeasurement() {
+        MongoMeasurement m = new MongoMeasurement();
+        DBObject expected = mapper.toDBObject(m);
+        assertThat(json(measurementCodec.encode(m)), is(json(expected)));
+        assertMeasurementEquals(measurementCodec.decode(wire(expected)), m);
+    }
+
+    @Test
+    public void testLazyMeasurementSetter() {
+        MongoMeasurement m = measurementCodec.decode(
+                wire(mapper.toDBObject(createMeasurement())));
+        m.setGeometry(null);
+        m.setTime(null);
+        assertThat(m.getGeometry(), is(nullValue()));
+        assertThat(m.getTime(), is(nullValue()));
+        assertThat(Iterables.size(m.getValues()), is(2));
+    }
+
+    @Test
+    public void testTrackEncoding() {
+        MongoTrack t = createTrack();
+        DBObject expected = mapper.toDBObject(t);
+        assertThat(json(trackCodec.encode(t)), is(json(expected)));
+    }
+
+    @Test
+    public void testTrackDecoding() {
+        MongoTrack t = createTrack();
+        assertTrackEquals(trackCodec.decode(wire(mapper.toDBObject(t))), t);
+    }
+
+    @Test
+    public void testTrackReadableByMorphia() {
+        MongoTrack t = createTrack();
+        t.prePersist();
+        assertTrackEquals((MongoTrack) mapper.fromDBObject(
+                MongoTrack.class, wire(trackCodec.encode(t)),
+                mapper.createEntityCache()), t);
+    }
+
+    private void assertMeasurementEquals(MongoMeasurement actual,
+                                         MongoMeasurement expected) {
+        assertThat(actual.getId(), is(expected.getId()));
+        assertThat(actual.getGeometry(), is(expected.getGeometry()));
+        assertThat(millis(actual.getTime()), is(millis(expected.getTime())));
+        assertThat(millis(actual.getCreationTime()),
+                   is(millis(expected.getCreationTime())));
+        assertThat(millis(actual.getModificationTime()),
+                   is(millis(expected.getModificationTime())));
+        assertThat(id(actual.getUserKey()), is(id(expected.getUserKey())));
+        assertThat(id(actual.getTrackKey()), is(id(expected.getTrackKey())));
+        assertSensorEquals(actual.getSensor(), expected.getSensor());
+        assertThat(Iterables.size(actual.getValues()),
+                   is(Iterables.size(expected.getValues())));
+        for (MeasurementValue value : expected.getValues()) {
+            boolean found = false;
+            for (MeasurementValue other : actual.getValues()) {
+                found |= value.equals(other);
+            }
+            assertThat(found, is(true));
+        }
+    }
+
+    private void assertTrackEquals(MongoTrack actual, MongoTrack expected) {
+        assertThat(actual.getId(), is(expected.getId()));
+        assertThat(actual.getName(), is(expected.getName()));
+        assertThat(actual.getDescription(), is(expected.getDescription()));
+        assertThat(actual.getAppVersion(), is(expected.getAppVersion()));
+        assertThat(actual.getObdDevice(), is(expected.getObdDevice()));
+        assertThat(actual.getTouVersion(), is(expected.getTouVersion()));
+        assertThat(actual.getBoundingBox(), is(expected.getBoundingBox()));
+        assertThat(actual.getOverview(), is(expected.getOverview()));
+        assertThat(millis(actual.getBegin()), is(millis(expected.getBegin())));
+        assertThat(millis(actual.getEnd()), is(millis(expected.getEnd())));
+        assertThat(millis(actual.getCreationTime()),
+                   is(millis(expected.getCreationTime())));
+        assertThat(millis(actual.getModificationTime()),
+                   is(millis(expected.getModificationTime())));
+        assertThat(id(actual.getUserKey()), is(id(expected.getUserKey())));
+        assertSensorEquals(actual.getSensor(), expected.getSensor());
+    }
+
+    private void assertSensorEquals(MongoSensor actual, MongoSensor expected) {
+        if (expected == null) {
+            assertThat(actual, is(nullValue()));
+        } else {
+            assertThat(actual.getId(), is(expected.getId()));
+            assertThat(actual.getType(), is(expected.getType()));
+            assertThat(actual.getProperties(), is(expected.getProperties()));
+        }
+    }
+
+    private MongoMeasurement createMeasurement() {
+        MongoMeasurement m = new MongoMeasurement();
+        m.setGeometry(geometryFactory.createPoint(new Coordinate(7.6, 51.9)));
+        m.setTime(new DateTime(1381224000000L));
+        m.setCreationTime(new DateTime(1381224060000L));
+        m.setUserKey(new Key<MongoUser>(MongoUser.class, "user"));
+        m.setTrackKey(new Key<MongoTrack>(MongoTrack.class, new ObjectId()));
+        m.setSensor(createSensor());
+        m.addValue(createValue("Speed", "km/h", 42.0));
+        m.addValue(createValue("MAF", "l/s", 13.37));
+        return m;
+    }
+
+    private MongoTrack createTrack() {
+        MongoTrack t = new MongoTrack();
+        t.setName("name");
+        t.setDescription("description");
+        t.setAppVersion("1.0");
+        t.setTouVersion("2013-10-01");
+        t.setUserKey(new Key<MongoUser>(MongoUser.class, "user"));
+        t.setSensor(createSensor());
+        t.setBegin(new DateTime(1381224000000L));
+        t.setEnd(new DateTime(1381227600000L));
+        t.setBoundingBox(geometryFactory.createPoint(new Coordinate(7.6, 51.9))
+                .buffer(0.1).getEnvelope());
+        t.setOverview(geometryFactory.createLineString(new Coordinate[] {
+            new Coordinate(7.6, 51.9), new Coordinate(7.7, 51.95) }));
+        return t;
+    }
+
+    private MongoSensor createSensor() {
+        MongoSensor sensor = new MongoSensor();
+        sensor.setType("car");
+        sensor.addProperty("manufacturer", "VW");
+        sensor.addProperty("constructionYear", 2010);
+        return sensor;
+    }
+
+    private MongoMeasurementValue createValue(String name, String unit,
+                                              Object value) {
+        MongoPhenomenon phenomenon = new MongoPhenomenon();
+        phenomenon.setName(name);
+        phenomenon.setUnit(unit);
+        MongoMeasurementValue mv = new MongoMeasurementValue();
+        mv.setPhenomenon(phenomenon);
+        mv.setValue(value);
+        return mv;
+    }
+
+    /**
+     * Sends the document through BSON as the driver does, so nested lists
+     * are read back as {@code BasicDBList}.
+     */
+    private static DBObject wire(DBObject document) {
+        OutputBuffer buffer = new BasicOutputBuffer();
+        DefaultDBEncoder.FACTORY.create().writeObject(buffer, document);
+        return DefaultDBDecoder.FACTORY.create()
+                .decode(buffer.toByteArray(), (DBCollection) null);
+    }
+
+    /**
+     * Compares documents by their serialization, which includes the field
+     * order.
+     */
+    private static String json(DBObject document) {
+        return JSON.serialize(document);
+    }
+
+    private static Long millis(DateTime time) {
+        return time == null ? null : time.getMillis();
+    }
+
+    private static Object id(Key<?> key) {
+        return key == null ? null : key.getId();
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.index;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeNoException;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import org.envirocar.server.mongo.activities.MongoActivity;
+import org.envirocar.server.mongo.convert.DateTimeConverter;
+import org.envirocar.server.mongo.convert.JTSConverter;
+import org.envirocar.server.mongo.convert.URLConverter;
+import org.envirocar.server.mongo.entity.MongoGroup;
+import org.envirocar.server.mongo.entity.MongoMeasurement;
+import org.envirocar.server.mongo.entity.MongoTrack;
+import org.envirocar.server.mongo.entity.MongoUser;
+import org.envirocar.server.mongo.util.GeoBSON;
+import org.junit.Test;
+
+import com.github.jmkgreen.morphia.Datastore;
+import com.github.jmkgreen.morphia.Morphia;
+import com.mongodb.BasicDBObject;
+import com.mongodb.BasicDBObjectBuilder;
+import com.mongodb.DBObject;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.ServerAddress;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.PrecisionModel;
+
+/**
+ * Checks the detection of missing indexes and, if a {@code mongod} is
+ * running on localhost, that the canonical queries are supported by the
+ * declared indexes.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class QueryPlanCheckerTest {
+    private static final String DATABASE = "envirocar-query-plans";
+
+    @Test
+    public void detectsLegacyCollectionScan() {
+        QueryPlan plan = QueryPlan.of(BasicDBObjectBuilder.start()
+                .add("cursor", "BasicCursor")
+                .add("scanAndOrder", false).get());
+        assertThat(plan.isCollectionScan(), is(true));
+        assertThat(plan.isInMemorySort(), is(false));
+    }
+
+    @Test
+    public void detectsLegacyInMemorySort() {
+        QueryPlan plan = QueryPlan.of(BasicDBObjectBuilder.start()
+                .add("cursor", "BtreeCursor user_1")
+                .add("scanAndOrder", true).get());
+        assertThat(plan.isCollectionScan(), is(false));
+        assertThat(plan.isInMemorySort(), is(true));
+    }
+
+    @Test
+    public void acceptsLegacyIndexScan() {
+        QueryPlan plan = QueryPlan.of(BasicDBObjectBuilder.start()
+                .add("cursor", "BtreeCursor user_1_time_-1")
+                .add("scanAndOrder", false).get());
+        assertThat(plan.isProblematic(), is(false));
+    }
+
+    @Test
+    public void detectsSortStage() {
+        DBObject explain = BasicDBObjectBuilder.start()
+                .push("queryPlanner")
+                .push("winningPlan")
+                .add("stage", "SORT")
+                .push("inputStage")
+                .add("stage", "FETCH")
+                .push("inputStage")
+                .add("stage", "IXSCAN").get();
+        QueryPlan plan = QueryPlan.of(explain);
+        assertThat(plan.isCollectionScan(), is(false));
+        assertThat(plan.isInMemorySort(), is(true));
+    }
+
+    @Test
+    public void detectsCollectionScanStage() {
+        DBObject explain = BasicDBObjectBuilder.start()
+                .push("queryPlanner")
+                .push("winningPlan")
+                .add("stage", "COLLSCAN").get();
+        assertThat(QueryPlan.of(explain).isCollectionScan(), is(true));
+    }
+
+    @Test
+    public void proposesEqualityThenSortThenRange() {
+        DBObject query = BasicDBObjectBuilder.start()
+                .push("time").add("$gte", 1).pop()
+                .add("user", "user").get();
+        CanonicalQuery q = new CanonicalQuery(
+                "test", MongoMeasurement.class, query,
+                new BasicDBObject("created", -1));
+        assertThat(q.proposeIndex().keySet(),
+                   contains("user", "created", "time"));
+        assertThat(q.proposeIndex().get("created"), is((Object) Integer.valueOf(-1)));
+    }
+
+    @Test
+    public void proposesInAsEqualityAndExistsAsRange() {
+        DBObject query = BasicDBObjectBuilder.start()
+                .push("pending").add("$exists", false).pop()
+                .push("user").add("$in", Arrays.asList("a", "b")).pop()
+                .get();
+        CanonicalQuery q = new CanonicalQuery(
+                "test", MongoTrack.class, query,
+                new BasicDBObject("created", -1));
+        assertThat(q.proposeIndex().keySet(),
+                   contains("user", "created", "pending"));
+    }
+
+    @Test
+    public void canonicalQueriesAreSupportedByIndexes() {
+        MongoClient client = connect();
+        try {
+            Datastore datastore = createDatastore(client);
+            datastore.ensureIndexes();
+            Map<CanonicalQuery, QueryPlan> problems =
+                    new QueryPlanChecker(datastore).check();
+            assertThat(problems.toString(), problems.isEmpty(), is(true));
+        } finally {
+            client.dropDatabase(DATABASE);
+            client.close();
+        }
+    }
+
+    private MongoClient connect() {
+        MongoClient client = null;
+        try {
+            client = new MongoClient(new ServerAddress(),
+                                     MongoClientOptions.builder()
+                    .connectTimeout(1000).build());
+            client.getDB(DATABASE).command("ping").throwOnError();
+        } catch (Exception e) {
+            if (client != null) {
+                client.close();
+            }
+            assumeNoException(e);
+        }
+        return client;
+    }
+
+    private Datastore createDatastore(MongoClient client) {
+        GeoBSON geoBSON = new GeoBSON(
+                new GeometryFactory(new PrecisionModel(), 4326));
+        Morphia morphia = new Morphia();
+        morphia.getMapper().getConverters()
+                .addConverter(new DateTimeConverter());
+        morphia.getMapper().getConverters()
+                .addConverter(new JTSConverter(geoBSON));
+        morphia.getMapper().getConverters()
+                .addConverter(new URLConverter());
+        morphia.map(MongoUser.class)
+                .map(MongoGroup.class)
+                .map(MongoTrack.class)
+                .map(MongoMeasurement.class)
+                .map(MongoActivity.class);
+        return morphia.createDatastore(client, DATABASE);
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.metrics;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import org.bson.BSON;
+import org.junit.Test;
+
+import com.mongodb.BasicDBObject;
+import com.mongodb.DBCollection;
+import com.mongodb.DBObject;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class CountingDBDecoderTest {
+    private final byte[] document = BSON.encode(
+            new BasicDBObject("user", "alice").append("time", 1L));
+
+    @Test
+    public void countsDecodedArrays() {
+        long before = CountingDBDecoder.bytesRead();
+        DBObject decoded = new CountingDBDecoder()
+                .decode(document, (DBCollection) null);
+        assertThat(decoded.get("user"), is((Object) "alice"));
+        assertThat(CountingDBDecoder.bytesRead() - before,
+                   is((long) document.length));
+    }
+
+    @Test
+    public void countsDecodedStreams() throws IOException {
+        long before = CountingDBDecoder.bytesRead();
+        DBObject decoded = new CountingDBDecoder().decode(
+                new ByteArrayInputStream(document), (DBCollection) null);
+        assertThat(decoded.get("user"), is((Object) "alice"));
+        assertThat(CountingDBDecoder.bytesRead() - before,
+                   is((long) document.length));
+    }
+
+    @Test
+    public void countsPerThread() throws InterruptedException {
+        long before = CountingDBDecoder.bytesRead();
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                new CountingDBDecoder().decode(document, (DBCollection) null);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertThat(CountingDBDecoder.bytesRead(), is(before));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.metrics;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.mongodb.BasicDBList;
+import com.mongodb.BasicDBObjectBuilder;
+import com.mongodb.DBObject;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class MongoMetricsTest {
+
+    @Test
+    public void replacesValues() {
+        DBObject query = BasicDBObjectBuilder.start()
+                .add("user", "alice")
+                .push("time").add("$gte", 1).add("$lt", 2).pop()
+                .add("pending", BasicDBObjectBuilder.start()
+                        .add("$exists", false).get()).get();
+        assertThat(MongoMetrics.shape(query).toString(),
+                   is(BasicDBObjectBuilder.start()
+                           .add("user", "?")
+                           .push("time").add("$gte", "?").add("$lt", "?").pop()
+                           .push("pending").add("$exists", "?").pop()
+                           .get().toString()));
+    }
+
+    @Test
+    public void queriesOfSameShapeAreEqual() {
+        DBObject a = BasicDBObjectBuilder.start()
+                .push("user").add("$in", Arrays.asList("a", "b")).get();
+        DBObject b = BasicDBObjectBuilder.start()
+                .push("user").add("$in", Arrays.asList("c")).get();
+        assertThat(MongoMetrics.shape(a), is(MongoMetrics.shape(b)));
+    }
+
+    @Test
+    public void keepsPipelineStages() {
+        Object shape = MongoMetrics.shape(Arrays.asList(
+                BasicDBObjectBuilder.start()
+                        .push("$match").add("track", "t1").get(),
+                BasicDBObjectBuilder.start()
+                        .add("$limit", 10).get()));
+        BasicDBList expected = new BasicDBList();
+        expected.add(BasicDBObjectBuilder.start()
+                .push("$match").add("track", "?").get());
+        expected.add(BasicDBObjectBuilder.start().add("$limit", "?").get());
+        assertThat(shape.toString(), is(expected.toString()));
+    }
+
+    @Test
+    public void replacesScalars() {
+        assertThat(MongoMetrics.shape("alice"), is((Object) "?"));
+        assertThat(MongoMetrics.shape(null), is((Object) "?"));
+    }
+}
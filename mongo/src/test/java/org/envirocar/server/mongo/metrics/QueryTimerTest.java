@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.mongo.metrics;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.envirocar.server.core.metrics.Buckets;
+import org.envirocar.server.core.metrics.Histogram;
+import org.envirocar.server.core.metrics.Metrics;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mongodb.BasicDBObject;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class QueryTimerTest {
+    private static final String OPERATION = MongoMetrics.FIND;
+    private final BasicDBObject query = new BasicDBObject("user", "?");
+    private Metrics metrics;
+    private QueryTimer timer;
+
+    @Before
+    public void setUp() {
+        metrics = new Metrics();
+        timer = new MongoMetrics(metrics, Long.MAX_VALUE)
+                .timer(QueryTimerTest.class, OPERATION);
+    }
+
+    @Test
+    public void recordsStoppedSample() {
+        timer.stop(timer.start(), 5, query);
+        assertThat(documents().getCount(), is(1L));
+        assertThat(documents().getSum(), is(5L));
+        assertThat(duration().getCount(), is(1L));
+    }
+
+    @Test
+    public void recordsExhaustedIterator() {
+        for (Integer i : timer.instrument(Arrays.asList(1, 2, 3), query)) {
+            assertThat(documents().getCount(), is(0L));
+        }
+        assertThat(documents().getCount(), is(1L));
+        assertThat(documents().getSum(), is(3L));
+    }
+
+    @Test
+    public void recordsClosedIterator() {
+        QueryTimer.InstrumentedIterator<Integer> i = timer
+                .instrument(Arrays.asList(1, 2, 3).iterator(), query);
+        i.next();
+        assertThat(documents().getCount(), is(0L));
+        i.close();
+        i.close();
+        assertThat(documents().getCount(), is(1L));
+        assertThat(documents().getSum(), is(1L));
+    }
+
+    @Test
+    public void recordsFailedIterator() {
+        Iterator<Integer> failing = new Iterator<Integer>() {
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Integer next() {
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+        QueryTimer.InstrumentedIterator<Integer> i =
+                timer.instrument(failing, query);
+        try {
+            i.next();
+            fail("iterator did not fail");
+        } catch (NoSuchElementException e) {
+            assertThat(documents().getCount(), is(1L));
+            assertThat(documents().getSum(), is(0L));
+        }
+    }
+
+    @Test
+    public void closesDelegate() {
+        final boolean[] closed = new boolean[1];
+        class ClosingIterator implements Iterator<Integer>, Closeable {
+            @Override
+            public boolean hasNext() {
+                return false;
+            }
+
+            @Override
+            public Integer next() {
+                throw new NoSuchElementException();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() throws IOException {
+                closed[0] = true;
+            }
+        }
+        timer.instrument(new ClosingIterator(), query).close();
+        assertThat(closed[0], is(true));
+        assertThat(documents().getCount(), is(1L));
+    }
+
+    private Histogram documents() {
+        return histogram(QueryTimer.DOCUMENTS, Buckets.COUNT);
+    }
+
+    private Histogram duration() {
+        return histogram(QueryTimer.DURATION, Buckets.LATENCY);
+    }
+
+    private Histogram histogram(String name, Buckets buckets) {
+        return metrics.histogram(name, "", buckets,
+                                 "dao", QueryTimerTest.class.getSimpleName(),
+                                 "operation", OPERATION);
+    }
+}
@@ -106,4 +106,15 @@ public interface JSONConstants {
     String MISSED_FUEL_STOP = "missedFuelStop";
     String FUEL_TYPE = "fuelType";
     String VOLUME = "volume";
+    String SIZE_KEY = "size";
+    String START_KEY = "start";
+    String LONGITUDE_KEY = "lon";
+    String LATITUDE_KEY = "lat";
+    String OVERVIEW_KEY = "overview";
+    String STATE_KEY = "state";
+    String ATTEMPTS_KEY = "attempts";
+    String MESSAGE_KEY = "message";
+    String CHUNKS_KEY = "chunks";
+    String UNITS_KEY = "units";
+    String NEXT_KEY = "next";
 }
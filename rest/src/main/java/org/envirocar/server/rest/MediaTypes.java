@@ -56,12 +56,16 @@ public interface MediaTypes {
     MediaType TRACK_CREATE_TYPE = MediaType.valueOf(TRACK_CREATE);
     String TRACK_MODIFY = "application/json; schema=\"" + Schemas.TRACK_MODIFY + "\"";
     MediaType TRACK_MODIFY_TYPE = MediaType.valueOf(TRACK_MODIFY);
+    String TRACK_CHUNK = "application/json; schema=\"" + Schemas.TRACK_CHUNK + "\"";
+    MediaType TRACK_CHUNK_TYPE = MediaType.valueOf(TRACK_CHUNK);
     String MEASUREMENT = "application/json; schema=\"" + Schemas.MEASUREMENT + "\"";
     MediaType MEASUREMENT_TYPE = MediaType.valueOf(MEASUREMENT);
     String MEASUREMENTS = "application/json; schema=\"" + Schemas.MEASUREMENTS + "\"";
     MediaType MEASUREMENTS_TYPE = MediaType.valueOf(MEASUREMENTS);
     String MEASUREMENT_CREATE = "application/json; schema=\"" + Schemas.MEASUREMENT_CREATE + "\"";
     MediaType MEASUREMENT_CREATE_TYPE = MediaType.valueOf(MEASUREMENT_CREATE);
+    String MEASUREMENTS_CREATE = "application/json; schema=\"" + Schemas.MEASUREMENTS_CREATE + "\"";
+    MediaType MEASUREMENTS_CREATE_TYPE = MediaType.valueOf(MEASUREMENTS_CREATE);
     String SENSOR = "application/json; schema=\"" + Schemas.SENSOR + "\"";
     MediaType SENSOR_TYPE = MediaType.valueOf(SENSOR);
     String SENSORS = "application/json; schema=\"" + Schemas.SENSORS + "\"";
@@ -90,6 +94,10 @@ public interface MediaTypes {
     MediaType APPLICATION_ZIPPED_SHP_TYPE = MediaType.valueOf(APPLICATION_ZIPPED_SHP);
     String TEXT_CSV = "text/csv";
     MediaType TEXT_CSV_TYPE = MediaType.valueOf(TEXT_CSV);
+    String APPLICATION_SMILE = "application/x-jackson-smile";
+    MediaType APPLICATION_SMILE_TYPE = MediaType.valueOf(APPLICATION_SMILE);
+    String COLUMNAR = "application/vnd.envirocar.columnar+json";
+    MediaType COLUMNAR_TYPE = MediaType.valueOf(COLUMNAR);
     String TURTLE = "text/turtle";
     MediaType TURTLE_TYPE = MediaType.valueOf(TURTLE);
     String TURTLE_ALT = "application/x-turtle";
@@ -27,4 +27,8 @@ public interface RESTConstants {
     String SEARCH = "q";
     String TYPE = "type";
     String BBOX = "bbox";
+    String RESOLUTION = "resolution";
+    String PHENOMENON = "phenomenon";
+    String INCLUDE = "include";
+    String FIELDS = "fields";
 }
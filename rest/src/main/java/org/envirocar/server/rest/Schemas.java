@@ -38,10 +38,13 @@ public class Schemas {
     public static final String TRACKS = PREFIX + "tracks.json#";
     public static final String TRACK_CREATE = PREFIX + "track.create.json#";
     public static final String TRACK_MODIFY = PREFIX + "track.modify.json#";
+    public static final String TRACK_CHUNK = PREFIX + "track.chunk.json#";
     public static final String MEASUREMENT = PREFIX + "measurement.json#";
     public static final String MEASUREMENTS = PREFIX + "measurements.json#";
     public static final String MEASUREMENT_CREATE = PREFIX +
                                                     "measurement.create.json#";
+    public static final String MEASUREMENTS_CREATE = PREFIX +
+                                                     "measurements.create.json#";
     public static final String MEASUREMENT_MODIFY = PREFIX +
                                                     "measurement.modify.json#";
     public static final String SENSOR = PREFIX + "sensor.json#";
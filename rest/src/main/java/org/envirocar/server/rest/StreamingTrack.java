@@ -0,0 +1,46 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest;
+
+import java.util.Iterator;
+
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.Track;
+
+/**
+ * A track upload whose measurements are decoded while they are consumed.
+ * The iterator reads from the request entity and can only be used once.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class StreamingTrack {
+    private final Track track;
+    private final Iterator<Measurement> measurements;
+
+    public StreamingTrack(Track track, Iterator<Measurement> measurements) {
+        this.track = track;
+        this.measurements = measurements;
+    }
+
+    public Track getTrack() {
+        return track;
+    }
+
+    public Iterator<Measurement> getMeasurements() {
+        return measurements;
+    }
+}
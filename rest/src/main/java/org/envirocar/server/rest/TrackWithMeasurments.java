@@ -168,6 +168,21 @@ public class TrackWithMeasurments implements Track, Iterable<Measurement> {
         return track.hasBoundingBox();
     }
 
+    @Override
+    public Geometry getOverview() {
+        return track.getOverview();
+    }
+
+    @Override
+    public void setOverview(Geometry overview) {
+        track.setOverview(overview);
+    }
+
+    @Override
+    public boolean hasOverview() {
+        return track.hasOverview();
+    }
+
     @Override
     public boolean hasCreationTime() {
         return track.hasCreationTime();
@@ -252,4 +267,14 @@ public class TrackWithMeasurments implements Track, Iterable<Measurement> {
 	public boolean hasTouVersion() {
 		return track.hasTouVersion();
 	}
+
+    @Override
+    public boolean isPending() {
+        return track.isPending();
+    }
+
+    @Override
+    public void setPending(boolean pending) {
+        track.setPending(pending);
+    }
 }
@@ -30,6 +30,8 @@ public class URIContentNegotiationFilter extends UriConnegFilter {
                 .put("rdf", MediaTypes.XML_RDF_TYPE)
                 .put("shp", MediaTypes.APPLICATION_ZIPPED_SHP_TYPE)
                 .put("csv", MediaTypes.TEXT_CSV_TYPE)
+                .put("sml", MediaTypes.APPLICATION_SMILE_TYPE)
+                .put("cols", MediaTypes.COLUMNAR_TYPE)
                 .build());
     }
 
@@ -30,6 +30,7 @@ import org.envirocar.server.core.entities.User;
 
 import org.envirocar.server.core.exception.UserNotFoundException;
 import org.envirocar.server.core.util.PasswordEncoder;
+import org.envirocar.server.rest.ratelimit.AuthenticationThrottle;
 
 /**
  * TODO JavaDoc
@@ -39,12 +40,15 @@ import org.envirocar.server.core.util.PasswordEncoder;
 public class AuthenticationFilter implements ContainerRequestFilter {
     private final UserService service;
     private final PasswordEncoder passwordEncoder;
+    private final AuthenticationThrottle throttle;
 
     @Inject
     public AuthenticationFilter(UserService service,
-                                PasswordEncoder passwordEncoder) {
+                                PasswordEncoder passwordEncoder,
+                                AuthenticationThrottle throttle) {
         this.service = service;
         this.passwordEncoder = passwordEncoder;
+        this.throttle = throttle;
     }
 
     @Override
@@ -73,15 +77,18 @@ public class AuthenticationFilter implements ContainerRequestFilter {
             if (username.isEmpty() || token == null || token.isEmpty()) {
                 throw new WebApplicationException(Status.BAD_REQUEST);
             }
+            throttle.check();
             try {
                 User user = service.getUser(username);
                 if (passwordEncoder.verify(token, user.getToken())) {
                     request.setSecurityContext(
                             new SecurityContextImpl(user, request.isSecure()));
                 } else {
+                    throttle.failed();
                     throw new WebApplicationException(Status.FORBIDDEN);
                 }
             } catch (UserNotFoundException ex) {
+                throttle.failed();
                 throw new WebApplicationException(ex, Status.FORBIDDEN);
             }
         }
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.bulkhead;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of concurrent requests of a {@link Workload}. Requests
+ * exceeding the limit wait briefly in a bounded queue, as every waiting
+ * request blocks a thread of the container. The limit itself adapts to
+ * the observed latency: it grows by one per round trip while requests
+ * complete within the target latency and is cut by a fixed factor if they
+ * do not (additive increase, multiplicative decrease). This sheds load
+ * before the queue fills up.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class AdaptiveLimiter {
+    private static final double DECREASE = 0.8;
+    private static final int MIN_LIMIT = 1;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final int maxLimit;
+    private final int queueSize;
+    private final long maxWait;
+    private final long targetLatency;
+    private double limit;
+    private int inFlight;
+    private int waiting;
+
+    /**
+     * Creates a new limiter.
+     *
+     * @param maxLimit      the maximum of concurrent requests
+     * @param queueSize     the maximum of waiting requests
+     * @param maxWait       the time in milliseconds a request waits for a
+     *                      free slot
+     * @param targetLatency the latency in milliseconds above which the limit
+     *                      is reduced
+     */
+    public AdaptiveLimiter(int maxLimit, int queueSize, long maxWait,
+                           long targetLatency) {
+        this.maxLimit = Math.max(MIN_LIMIT, maxLimit);
+        this.queueSize = Math.max(0, queueSize);
+        this.maxWait = TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWait));
+        this.targetLatency = TimeUnit.MILLISECONDS.toNanos(targetLatency);
+        this.limit = this.maxLimit;
+    }
+
+    /**
+     * Tries to admit a request, waiting at most the configured maximum wait
+     * time for a free slot.
+     *
+     * @return if the request was admitted
+     *
+     * @throws InterruptedException if the thread was interrupted while
+     *                              waiting
+     */
+    public boolean acquire() throws InterruptedException {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                ++inFlight;
+                return true;
+            }
+            if (waiting >= queueSize) {
+                return false;
+            }
+            ++waiting;
+            try {
+                long nanos = maxWait;
+                while (inFlight >= (int) limit) {
+                    if (nanos <= 0) {
+                        return false;
+                    }
+                    nanos = available.awaitNanos(nanos);
+                }
+                ++inFlight;
+                return true;
+            } finally {
+                --waiting;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Releases a slot and adapts the limit to the latency of the request.
+     *
+     * @param latency the latency of the request in nanoseconds
+     */
+    public void release(long latency) {
+        lock.lock();
+        try {
+            --inFlight;
+            if (latency > targetLatency) {
+                limit = Math.max(MIN_LIMIT, limit * DECREASE);
+            } else {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            if (inFlight < (int) limit) {
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the current limit
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of requests in flight
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
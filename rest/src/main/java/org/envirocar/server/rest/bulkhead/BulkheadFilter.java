@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.bulkhead;
+
+import java.io.IOException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import com.google.inject.Singleton;
+
+/**
+ * Releases the slot acquired by the {@link BulkheadResourceFilterFactory}
+ * after the response was written or the request failed.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class BulkheadFilter implements Filter {
+    /**
+     * Request attribute holding the {@link Permit} of the request.
+     */
+    public static final String PERMIT = BulkheadFilter.class.getName() +
+                                        ".permit";
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response,
+                         FilterChain chain) throws IOException,
+                                                   ServletException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Permit permit = (Permit) request.getAttribute(PERMIT);
+            if (permit != null) {
+                request.removeAttribute(PERMIT);
+                permit.release();
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * A slot of an {@link AdaptiveLimiter}. The latency reported to the
+     * limiter ends when the entity was written, so that the time the
+     * container needs to flush the response to a slow client does not count
+     * towards it.
+     */
+    static class Permit {
+        private final AdaptiveLimiter limiter;
+        private final long start = System.nanoTime();
+        private long end;
+
+        Permit(AdaptiveLimiter limiter) {
+            this.limiter = limiter;
+        }
+
+        void written() {
+            if (end == 0) {
+                end = System.nanoTime();
+            }
+        }
+
+        void release() {
+            written();
+            limiter.release(end - start);
+        }
+    }
+}
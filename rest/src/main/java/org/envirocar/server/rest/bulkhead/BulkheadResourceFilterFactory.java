@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.bulkhead;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.util.Exports;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.sun.jersey.api.model.AbstractMethod;
+import com.sun.jersey.api.model.AbstractSubResourceLocator;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ContainerResponseWriter;
+import com.sun.jersey.spi.container.ResourceFilter;
+import com.sun.jersey.spi.container.ResourceFilterFactory;
+
+/**
+ * Admits requests to resource methods through the {@link AdaptiveLimiter}
+ * of their {@link Workload}. Requests that can not be admitted are answered
+ * with {@code 503 Service Unavailable}. The slot is released by the
+ * {@link BulkheadFilter} once the response is written completely, as
+ * exports are mostly produced while writing the entity. The latency of the
+ * request ends when Jersey finished writing the entity.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class BulkheadResourceFilterFactory implements ResourceFilterFactory {
+    private static final String RETRY_AFTER = "Retry-After";
+    private static final int RETRY_AFTER_SECONDS = 1;
+    private final Bulkheads bulkheads;
+    private final Provider<HttpServletRequest> servletRequest;
+    private final JsonNodeFactory factory;
+
+    @Inject
+    public BulkheadResourceFilterFactory(
+            Bulkheads bulkheads,
+            Provider<HttpServletRequest> servletRequest,
+            JsonNodeFactory factory) {
+        this.bulkheads = bulkheads;
+        this.servletRequest = servletRequest;
+        this.factory = factory;
+    }
+
+    @Override
+    public List<ResourceFilter> create(AbstractMethod am) {
+        if (am instanceof AbstractSubResourceLocator) {
+            /* admit the request at the method that finally handles it */
+            return null;
+        }
+        Bulkhead bulkhead = am.getAnnotation(Bulkhead.class);
+        if (bulkhead == null) {
+            bulkhead = am.getResource().getAnnotation(Bulkhead.class);
+        }
+        Workload workload = bulkhead == null ? Workload.DEFAULT
+                            : bulkhead.value();
+        return Collections.<ResourceFilter>singletonList(
+                new BulkheadResourceFilter(workload));
+    }
+
+    private class BulkheadResourceFilter implements ResourceFilter,
+                                                    ContainerRequestFilter,
+                                                    ContainerResponseFilter {
+        private final Workload workload;
+
+        BulkheadResourceFilter(Workload workload) {
+            this.workload = workload;
+        }
+
+        @Override
+        public ContainerRequestFilter getRequestFilter() {
+            return this;
+        }
+
+        @Override
+        public ContainerResponseFilter getResponseFilter() {
+            return this;
+        }
+
+        @Override
+        public ContainerResponse filter(ContainerRequest request,
+                                        ContainerResponse response) {
+            final BulkheadFilter.Permit permit = (BulkheadFilter.Permit)
+                    servletRequest.get().getAttribute(BulkheadFilter.PERMIT);
+            if (permit != null) {
+                final ContainerResponseWriter writer =
+                        response.getContainerResponseWriter();
+                response.setContainerResponseWriter(
+                        new ContainerResponseWriter() {
+                    @Override
+                    public OutputStream writeStatusAndHeaders(
+                            long contentLength, ContainerResponse response)
+                            throws IOException {
+                        return writer.writeStatusAndHeaders(contentLength,
+                                                            response);
+                    }
+
+                    @Override
+                    public void finish() throws IOException {
+                        permit.written();
+                        writer.finish();
+                    }
+                });
+            }
+            return response;
+        }
+
+        @Override
+        public ContainerRequest filter(ContainerRequest request) {
+            HttpServletRequest sr = servletRequest.get();
+            if (sr.getAttribute(BulkheadFilter.PERMIT) != null) {
+                return request;
+            }
+            Workload w = Exports.isExport(request) ? Workload.EXPORT
+                         : workload;
+            AdaptiveLimiter limiter = bulkheads.get(w);
+            boolean admitted;
+            try {
+                admitted = limiter.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                admitted = false;
+            }
+            if (!admitted) {
+                ObjectNode error = factory.objectNode();
+                error.put(JSONConstants.ERROR_KEY,
+                          "The server is overloaded");
+                throw new WebApplicationException(Response
+                        .status(Status.SERVICE_UNAVAILABLE)
+                        .header(RETRY_AFTER, RETRY_AFTER_SECONDS)
+                        .type(MediaType.APPLICATION_JSON_TYPE)
+                        .entity(error).build());
+            }
+            sr.setAttribute(BulkheadFilter.PERMIT,
+                            new BulkheadFilter.Permit(limiter));
+            return request;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.bulkhead;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The {@link AdaptiveLimiter}s of all {@link Workload}s.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class Bulkheads {
+    private final Map<Workload, AdaptiveLimiter> limiters;
+
+    public Bulkheads(Map<Workload, AdaptiveLimiter> limiters) {
+        this.limiters = new EnumMap<Workload, AdaptiveLimiter>(limiters);
+        for (Workload workload : Workload.values()) {
+            if (!this.limiters.containsKey(workload)) {
+                this.limiters.put(workload, new AdaptiveLimiter(
+                        workload.getMaxConcurrency(),
+                        workload.getQueueSize(),
+                        workload.getMaxWait(),
+                        workload.getTargetLatency()));
+            }
+        }
+    }
+
+    /**
+     * @param workload the workload
+     *
+     * @return the limiter of the workload
+     */
+    public AdaptiveLimiter get(Workload workload) {
+        return limiters.get(workload);
+    }
+}
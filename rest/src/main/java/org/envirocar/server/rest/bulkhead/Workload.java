@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.bulkhead;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The classes of endpoints that are isolated from each other. The defaults
+ * can be overridden in {@code /bulkhead.properties}. Together they admit
+ * and queue fewer requests than the 200 threads of a default Jetty or
+ * Tomcat pool, so that a saturated workload can not block all threads.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public enum Workload {
+    /**
+     * Simple reads and modifications of entities.
+     */
+    DEFAULT(64, 32, 100, 2, TimeUnit.SECONDS),
+    /**
+     * Statistic aggregations.
+     */
+    STATISTICS(8, 8, 250, 10, TimeUnit.SECONDS),
+    /**
+     * Uploads of tracks and measurements.
+     */
+    UPLOAD(16, 8, 250, 10, TimeUnit.SECONDS),
+    /**
+     * Exports in formats like shapefile, CSV or RDF.
+     */
+    EXPORT(4, 4, 250, 60, TimeUnit.SECONDS);
+    private final int maxConcurrency;
+    private final int queueSize;
+    private final long maxWait;
+    private final long targetLatency;
+
+    private Workload(int maxConcurrency, int queueSize, long maxWait,
+                     long targetLatency, TimeUnit unit) {
+        this.maxConcurrency = maxConcurrency;
+        this.queueSize = queueSize;
+        this.maxWait = maxWait;
+        this.targetLatency = unit.toMillis(targetLatency);
+    }
+
+    /**
+     * @return the default maximum of concurrent requests
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return the default maximum of waiting requests
+     */
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * @return the default time in milliseconds a request waits for a free
+     *         slot
+     */
+    public long getMaxWait() {
+        return maxWait;
+    }
+
+    /**
+     * @return the default latency in milliseconds above which the
+     *         concurrency is reduced
+     */
+    public long getTargetLatency() {
+        return targetLatency;
+    }
+}
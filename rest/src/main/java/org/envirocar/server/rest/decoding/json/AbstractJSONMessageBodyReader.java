@@ -35,8 +35,11 @@ import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.sun.jersey.api.core.HttpContext;
 
 import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.validation.JSONSchemaResourceFilterFactory;
 
 /**
  * TODO JavaDoc
@@ -50,6 +53,8 @@ public abstract class AbstractJSONMessageBodyReader<T>
     private ObjectReader reader;
     @Inject
     private JsonNodeFactory factory;
+    @Inject(optional = true)
+    private Provider<HttpContext> context;
     private final Class<T> classType;
 
     public AbstractJSONMessageBodyReader(Class<T> classType) {
@@ -68,6 +73,10 @@ public abstract class AbstractJSONMessageBodyReader<T>
                       MultivaluedMap<String, String> h,
                       InputStream in) throws IOException,
                                              WebApplicationException {
+        JsonNode parsed = getParsedEntity();
+        if (parsed != null) {
+            return decode(parsed, mt);
+        }
         try {
             return decode(reader.readTree(in), mt);
         } catch (JsonParseException e) {
@@ -80,5 +89,17 @@ public abstract class AbstractJSONMessageBodyReader<T>
         }
     }
 
+    /**
+     * @return the entity already parsed by the schema validation or
+     *         {@code null}
+     */
+    protected JsonNode getParsedEntity() {
+        if (context == null) {
+            return null;
+        }
+        return (JsonNode) context.get().getProperties()
+                .remove(JSONSchemaResourceFilterFactory.PARSED_ENTITY);
+    }
+
     public abstract T decode(JsonNode j, MediaType mt);
 }
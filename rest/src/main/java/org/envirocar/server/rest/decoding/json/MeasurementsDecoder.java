@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.decoding.json;
+
+import java.util.List;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.ext.Provider;
+
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.Measurements;
+import org.envirocar.server.core.util.GeoJSONConstants;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+
+/**
+ * Decodes a batch of measurements, given either as an array of features or
+ * as a feature collection.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Provider
+public class MeasurementsDecoder
+        extends AbstractJSONMessageBodyReader<Measurements> {
+    private final JSONEntityDecoder<Measurement> measurementDecoder;
+
+    @Inject
+    public MeasurementsDecoder(JSONEntityDecoder<Measurement> measurementDecoder) {
+        super(Measurements.class);
+        this.measurementDecoder = measurementDecoder;
+    }
+
+    @Override
+    public Measurements decode(JsonNode j, MediaType mediaType) {
+        JsonNode features = j.isArray() ? j
+                            : j.path(GeoJSONConstants.FEATURES_KEY);
+        List<Measurement> measurements = Lists
+                .newArrayListWithCapacity(features.size());
+        for (JsonNode feature : features) {
+            measurements.add(measurementDecoder.decode(feature, mediaType));
+        }
+        return Measurements.from(measurements).build();
+    }
+}
@@ -0,0 +1,437 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.decoding.json;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.Iterator;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.MessageBodyReader;
+import javax.ws.rs.ext.Provider;
+
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.Track;
+import org.envirocar.server.core.exception.ValidationException;
+import org.envirocar.server.core.util.GeoJSONConstants;
+import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.MediaTypes;
+import org.envirocar.server.rest.Schemas;
+import org.envirocar.server.rest.StreamingTrack;
+import org.envirocar.server.rest.guice.JerseyCodingModule;
+import org.envirocar.server.rest.validation.FastValidator;
+import org.envirocar.server.rest.validation.FastValidators;
+import org.envirocar.server.rest.validation.JSONSchemaResourceFilterFactory;
+import org.envirocar.server.rest.validation.JSONValidationException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.github.fge.jsonschema.exceptions.ProcessingException;
+import com.github.fge.jsonschema.main.JsonSchemaFactory;
+import com.github.fge.jsonschema.report.ProcessingMessage;
+import com.github.fge.jsonschema.report.ProcessingReport;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.google.common.io.Closeables;
+import com.google.inject.Inject;
+import com.google.inject.name.Named;
+import com.sun.jersey.api.container.ContainerException;
+import com.sun.jersey.core.util.ReaderWriter;
+
+/**
+ * Reads track uploads incrementally. The track properties are decoded up
+ * front, the features are parsed, validated against
+ * {@code measurement.create.json} and decoded one at a time while the
+ * {@link StreamingTrack} is consumed. Features that precede the track
+ * properties are buffered as tokens until the properties have been read;
+ * if there are more than {@link #MAX_BUFFERED_FEATURES} of them, they are
+ * spooled to a temporary file in Smile format instead.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Provider
+@Consumes({ MediaType.APPLICATION_JSON, MediaTypes.APPLICATION_SMILE })
+public class StreamingTrackDecoder implements MessageBodyReader<StreamingTrack> {
+    /**
+     * The maximum number of features preceding the track properties that
+     * are buffered in memory.
+     */
+    public static final int MAX_BUFFERED_FEATURES = 10000;
+    private static final String UTF = "UTF-";
+    private final ObjectMapper mapper;
+    private final ObjectMapper smileMapper;
+    private final JsonNodeFactory factory;
+    private final JSONEntityDecoder<Track> trackDecoder;
+    private final JSONEntityDecoder<Measurement> measurementDecoder;
+    private final JsonSchemaFactory schemaFactory;
+    private final FastValidators fastValidators;
+    private final boolean validate;
+
+    @Inject
+    public StreamingTrackDecoder(ObjectMapper mapper,
+                                 @Named(JerseyCodingModule.SMILE) ObjectMapper smileMapper,
+                                 JsonNodeFactory factory,
+                                 JSONEntityDecoder<Track> trackDecoder,
+                                 JSONEntityDecoder<Measurement> measurementDecoder,
+                                 JsonSchemaFactory schemaFactory,
+                                 FastValidators fastValidators,
+                                 @Named(JSONSchemaResourceFilterFactory.VALIDATE_REQUESTS) boolean validate) {
+        this.mapper = mapper;
+        this.smileMapper = smileMapper;
+        this.factory = factory;
+        this.trackDecoder = trackDecoder;
+        this.measurementDecoder = measurementDecoder;
+        this.schemaFactory = schemaFactory;
+        this.fastValidators = fastValidators;
+        this.validate = validate;
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType,
+                              Annotation[] annotations, MediaType mediaType) {
+        return StreamingTrack.class.isAssignableFrom(type) &&
+               (mediaType.isCompatible(MediaType.APPLICATION_JSON_TYPE) ||
+                mediaType.isCompatible(MediaTypes.APPLICATION_SMILE_TYPE));
+    }
+
+    @Override
+    public StreamingTrack readFrom(Class<StreamingTrack> c, Type gt,
+                                   Annotation[] a, MediaType mt,
+                                   MultivaluedMap<String, String> h,
+                                   InputStream in) throws IOException,
+                                                          WebApplicationException {
+        ObjectMapper m;
+        MediaType jsonType;
+        JsonParser parser;
+        if (mt.isCompatible(MediaTypes.APPLICATION_SMILE_TYPE)) {
+            m = smileMapper;
+            jsonType = MediaTypes.TRACK_CREATE_TYPE;
+            parser = m.getFactory().createParser(in);
+        } else {
+            m = mapper;
+            jsonType = mt;
+            Charset charset = ReaderWriter.getCharset(mt);
+            /* let jackson detect the unicode encoding itself */
+            if (charset.name().startsWith(UTF)) {
+                parser = m.getFactory().createParser(in);
+            } else {
+                parser = m.getFactory()
+                        .createParser(new InputStreamReader(in, charset));
+            }
+        }
+        try {
+            return read(parser, m, jsonType);
+        } catch (JsonParseException e) {
+            throw badRequest(e.getMessage());
+        }
+    }
+
+    private StreamingTrack read(JsonParser parser, ObjectMapper m,
+                                MediaType mt) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw badRequest("expected a JSON object");
+        }
+        ObjectNode envelope = factory.objectNode();
+        JsonParser buffered = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            if (name.equals(GeoJSONConstants.FEATURES_KEY) &&
+                token == JsonToken.START_ARRAY) {
+                if (envelope.has(GeoJSONConstants.PROPERTIES_KEY)) {
+                    Track track = decodeTrack(envelope, mt);
+                    return new StreamingTrack(track, new FeatureIterator(
+                            parser, m, mt, track, envelope));
+                }
+                buffered = buffer(parser, m);
+            } else {
+                JsonNode value = m.readTree(parser);
+                envelope.put(name, value);
+            }
+        }
+        Track track = decodeTrack(envelope, mt);
+        if (buffered == null) {
+            return new StreamingTrack(track,
+                                      Iterators.<Measurement>emptyIterator());
+        }
+        return new StreamingTrack(track, new FeatureIterator(
+                buffered, m, mt, track, null));
+    }
+
+    /**
+     * Copies the features the parser is positioned at into a buffer, or
+     * into a temporary file if there are more than
+     * {@link #MAX_BUFFERED_FEATURES}.
+     *
+     * @return a parser of the copy, positioned at the start of the array
+     */
+    private JsonParser buffer(JsonParser parser, ObjectMapper m)
+            throws IOException {
+        TokenBuffer buffer = new TokenBuffer(m);
+        buffer.writeStartArray();
+        int features = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (token == null) {
+                throw badRequest("unexpected end of input");
+            }
+            if (++features > MAX_BUFFERED_FEATURES) {
+                return spool(buffer, parser);
+            }
+            buffer.copyCurrentStructure(parser);
+        }
+        buffer.writeEndArray();
+        JsonParser buffered = buffer.asParser(m);
+        buffered.nextToken();
+        return buffered;
+    }
+
+    /**
+     * Writes the buffered features and the remaining features the parser
+     * is positioned at to a temporary file. The file is deleted once it is
+     * opened for reading, or on exit where open files can not be deleted.
+     *
+     * @param buffer the buffered features
+     * @param parser the parser, positioned at the first feature that is not
+     *               buffered
+     *
+     * @return a parser of the file, positioned at the start of the array
+     */
+    private JsonParser spool(TokenBuffer buffer, JsonParser parser)
+            throws IOException {
+        File file = File.createTempFile("track", ".sml");
+        try {
+            OutputStream out = new BufferedOutputStream(
+                    new FileOutputStream(file));
+            JsonGenerator generator = null;
+            try {
+                generator = smileMapper.getFactory().createGenerator(out);
+                buffer.serialize(generator);
+                JsonToken token = parser.getCurrentToken();
+                while (token != JsonToken.END_ARRAY) {
+                    if (token == null) {
+                        throw badRequest("unexpected end of input");
+                    }
+                    generator.copyCurrentStructure(parser);
+                    token = parser.nextToken();
+                }
+                generator.writeEndArray();
+            } finally {
+                if (generator != null) {
+                    generator.close();
+                }
+                Closeables.closeQuietly(out);
+            }
+            JsonParser spooled = smileMapper.getFactory()
+                    .createParser(new FileInputStream(file));
+            spooled.nextToken();
+            return spooled;
+        } finally {
+            if (!file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Decodes the track properties of a chunked upload.
+     *
+     * @param envelope a {@code track.create.json} instance without features
+     *
+     * @return the track
+     */
+    public Track readTrack(ObjectNode envelope) {
+        return decodeTrack(envelope, MediaTypes.TRACK_CREATE_TYPE);
+    }
+
+    /**
+     * Decodes the features of a {@code track.chunk.json} document one at a
+     * time while the returned iterator is consumed.
+     *
+     * @param in    the chunk
+     * @param track the track the measurements belong to
+     *
+     * @return the measurements of the chunk
+     *
+     * @throws IOException if the chunk can not be read
+     */
+    public Iterator<Measurement> readFeatures(InputStream in, Track track)
+            throws IOException {
+        JsonParser parser = mapper.getFactory().createParser(in);
+        try {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw badRequest("expected a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (name.equals(GeoJSONConstants.FEATURES_KEY) &&
+                    token == JsonToken.START_ARRAY) {
+                    return new FeatureIterator(parser, mapper,
+                                               MediaTypes.TRACK_CHUNK_TYPE,
+                                               track, null);
+                }
+                parser.skipChildren();
+            }
+            return Iterators.emptyIterator();
+        } catch (JsonParseException e) {
+            throw badRequest(e.getMessage());
+        }
+    }
+
+    private Track decodeTrack(ObjectNode envelope, MediaType mt) {
+        validate(envelope, Schemas.TRACK_CREATE);
+        /* the features are never decoded from the tree */
+        envelope.remove(GeoJSONConstants.FEATURES_KEY);
+        return trackDecoder.decode(envelope, mt);
+    }
+
+    private void validate(JsonNode instance, String schema) {
+        if (!validate) {
+            return;
+        }
+        FastValidator fastValidator = fastValidators.get(schema);
+        if (fastValidator != null && fastValidator.accepts(instance)) {
+            return;
+        }
+        try {
+            ProcessingReport report = schemaFactory.getJsonSchema(schema)
+                    .validate(instance);
+            if (!report.isSuccess()) {
+                ObjectNode error = factory.objectNode();
+                ArrayNode errors = error.putArray(JSONConstants.ERRORS_KEY);
+                for (ProcessingMessage message : report) {
+                    errors.add(message.asJson());
+                }
+                error.put(JSONConstants.INSTANCE_KEY, instance);
+                throw new JSONValidationException(error);
+            }
+        } catch (ProcessingException ex) {
+            throw new ValidationException(ex);
+        }
+    }
+
+    private WebApplicationException badRequest(String message) {
+        ObjectNode error = factory.objectNode();
+        error.put(JSONConstants.ERROR_KEY, message);
+        return new WebApplicationException(Response
+                .status(Status.BAD_REQUEST)
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .entity(error).build());
+    }
+
+    /**
+     * Decodes the features of the array the parser is positioned at.
+     */
+    private class FeatureIterator extends AbstractIterator<Measurement> {
+        private final JsonParser parser;
+        private final ObjectMapper mapper;
+        private final MediaType mediaType;
+        private final Track track;
+        private final ObjectNode envelope;
+
+        /**
+         * @param envelope the track properties if the parser still has to
+         *                 read the remainder of the track object, otherwise
+         *                 {@code null}
+         */
+        FeatureIterator(JsonParser parser, ObjectMapper mapper,
+                        MediaType mediaType, Track track,
+                        ObjectNode envelope) {
+            this.parser = parser;
+            this.mapper = mapper;
+            this.mediaType = mediaType;
+            this.track = track;
+            this.envelope = envelope;
+        }
+
+        @Override
+        protected Measurement computeNext() {
+            try {
+                JsonToken token = parser.nextToken();
+                if (token == JsonToken.END_ARRAY) {
+                    readRemainder();
+                    if (envelope == null) {
+                        /* releases the spooled features */
+                        parser.close();
+                    }
+                    return endOfData();
+                } else if (token == null) {
+                    throw badRequest("unexpected end of input");
+                }
+                JsonNode feature = mapper.readTree(parser);
+                validate(feature, Schemas.MEASUREMENT_CREATE);
+                if (!feature.isObject()) {
+                    throw badRequest("expected a feature");
+                }
+                Measurement m = measurementDecoder.decode(feature, mediaType);
+                if (m.getSensor() == null) {
+                    m.setSensor(track.getSensor());
+                }
+                return m;
+            } catch (JsonParseException e) {
+                throw badRequest(e.getMessage());
+            } catch (IOException e) {
+                throw new ContainerException(e);
+            }
+        }
+
+        /**
+         * Reads and validates the members of the track object that follow
+         * the features.
+         */
+        private void readRemainder() throws IOException {
+            if (envelope == null) {
+                return;
+            }
+            ObjectNode remainder = factory.objectNode();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                parser.nextToken();
+                JsonNode value = mapper.readTree(parser);
+                remainder.put(name, value);
+            }
+            if (remainder.size() > 0) {
+                ObjectNode complete = envelope.deepCopy();
+                complete.setAll(remainder);
+                validate(complete, Schemas.TRACK_CREATE);
+            }
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.decoding.smile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Consumes;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.MessageBodyReader;
+
+import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.MediaTypes;
+import org.envirocar.server.rest.decoding.json.JSONEntityDecoder;
+import org.envirocar.server.rest.guice.JerseyCodingModule;
+import org.envirocar.server.rest.validation.JSONSchemaResourceFilterFactory;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.name.Named;
+import com.sun.jersey.api.core.HttpContext;
+
+/**
+ * Reads Smile encoded entities. The parsed tree is handed to the
+ * corresponding {@link JSONEntityDecoder}.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Consumes(MediaTypes.APPLICATION_SMILE)
+public abstract class AbstractSmileMessageBodyReader<T>
+        implements MessageBodyReader<T> {
+    private final Class<T> classType;
+    private final MediaType jsonType;
+    private ObjectReader reader;
+    private JsonNodeFactory factory;
+    private JSONEntityDecoder<T> decoder;
+    private Provider<HttpContext> context;
+
+    /**
+     * @param classType the entity class
+     * @param jsonType  the JSON media type that is passed to the decoder
+     */
+    public AbstractSmileMessageBodyReader(Class<T> classType,
+                                          MediaType jsonType) {
+        this.classType = classType;
+        this.jsonType = jsonType;
+    }
+
+    @Inject
+    public void setReader(@Named(JerseyCodingModule.SMILE) ObjectReader reader) {
+        this.reader = reader;
+    }
+
+    @Inject
+    public void setFactory(JsonNodeFactory factory) {
+        this.factory = factory;
+    }
+
+    @Inject
+    public void setDecoder(JSONEntityDecoder<T> decoder) {
+        this.decoder = decoder;
+    }
+
+    @Inject(optional = true)
+    public void setContext(Provider<HttpContext> context) {
+        this.context = context;
+    }
+
+    @Override
+    public boolean isReadable(Class<?> type, Type genericType,
+                              Annotation[] annotations, MediaType mediaType) {
+        return this.classType.isAssignableFrom(type) &&
+               mediaType.isCompatible(MediaTypes.APPLICATION_SMILE_TYPE);
+    }
+
+    @Override
+    public T readFrom(Class<T> c, Type gt, Annotation[] a, MediaType mt,
+                      MultivaluedMap<String, String> h,
+                      InputStream in) throws IOException,
+                                             WebApplicationException {
+        if (context != null) {
+            JsonNode parsed = (JsonNode) context.get().getProperties()
+                    .remove(JSONSchemaResourceFilterFactory.PARSED_ENTITY);
+            if (parsed != null) {
+                return decoder.decode(parsed, jsonType);
+            }
+        }
+        try {
+            return decoder.decode(reader.readTree(in), jsonType);
+        } catch (JsonParseException e) {
+            ObjectNode error = factory.objectNode();
+            error.put(JSONConstants.ERROR_KEY, e.getMessage());
+            throw new WebApplicationException(Response
+                    .status(Status.BAD_REQUEST)
+                    .type(MediaType.APPLICATION_JSON_TYPE)
+                    .entity(error).build());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.encoding.columnar;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.MediaTypes;
+import org.envirocar.server.rest.rights.AccessRights;
+import org.joda.time.format.DateTimeFormatter;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+/**
+ * Streams measurements as parallel arrays ({@link MediaTypes#COLUMNAR}).
+ * Subclasses write the enclosing object's header fields and supply the
+ * measurements to collect. The first chunk is collected before the
+ * {@code start} and {@code units} of the series are added to the header.
+ * The columns are written in {@code chunks} of at most
+ * {@value MeasurementColumns#CHUNK_SIZE} rows while iterating, followed by
+ * the total {@code size}.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Produces(MediaTypes.COLUMNAR)
+public abstract class AbstractColumnarMessageBodyWriter<T>
+        implements MessageBodyWriter<T> {
+    private final Class<T> classType;
+    private JsonFactory jsonFactory;
+    private DateTimeFormatter dateTimeFormat;
+    private Provider<AccessRights> rights;
+
+    public AbstractColumnarMessageBodyWriter(Class<T> classType) {
+        this.classType = classType;
+    }
+
+    @Inject
+    public void setObjectMapper(ObjectMapper mapper) {
+        this.jsonFactory = mapper.getFactory();
+    }
+
+    @Inject
+    public void setDateTimeFormat(DateTimeFormatter dateTimeFormat) {
+        this.dateTimeFormat = dateTimeFormat;
+    }
+
+    @Inject
+    public void setRights(Provider<AccessRights> rights) {
+        this.rights = rights;
+    }
+
+    public DateTimeFormatter getDateTimeFormat() {
+        return dateTimeFormat;
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType,
+                               Annotation[] annotations, MediaType mediaType) {
+        return this.classType.isAssignableFrom(type) &&
+               mediaType.isCompatible(MediaTypes.COLUMNAR_TYPE);
+    }
+
+    @Override
+    public void writeTo(T t, Class<?> c, Type gt, Annotation[] a, MediaType mt,
+                        MultivaluedMap<String, Object> h,
+                        OutputStream out) throws IOException,
+                                                 WebApplicationException {
+        AccessRights r = rights.get();
+        JsonGenerator g = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        g.writeStartObject();
+        writeHeader(g, t, r);
+        MeasurementColumns columns = new MeasurementColumns(dateTimeFormat);
+        long size = 0;
+        for (Measurement m : getMeasurements(t, r)) {
+            if (columns.isFull()) {
+                writeChunk(g, columns);
+                columns.clear();
+            }
+            columns.add(m, r);
+            ++size;
+        }
+        if (!columns.isEmpty()) {
+            writeChunk(g, columns);
+        } else if (!columns.isHeaderWritten()) {
+            columns.writeHeader(g);
+            g.writeArrayFieldStart(JSONConstants.CHUNKS_KEY);
+        }
+        g.writeEndArray();
+        g.writeNumberField(JSONConstants.SIZE_KEY, size);
+        g.writeEndObject();
+        g.flush();
+    }
+
+    /**
+     * Writes a chunk, preceded by the {@code start} and {@code units} and the
+     * start of the {@code chunks} if it is the first one.
+     */
+    private void writeChunk(JsonGenerator g, MeasurementColumns columns)
+            throws IOException {
+        if (!columns.isHeaderWritten()) {
+            columns.writeHeader(g);
+            g.writeArrayFieldStart(JSONConstants.CHUNKS_KEY);
+        }
+        columns.write(g);
+    }
+
+    @Override
+    public long getSize(T t, Class<?> type, Type genericType,
+                        Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+
+    protected void writeHeader(JsonGenerator g, T t, AccessRights rights)
+            throws IOException {
+    }
+
+    protected abstract Iterable<? extends Measurement> getMeasurements(
+            T t, AccessRights rights);
+}
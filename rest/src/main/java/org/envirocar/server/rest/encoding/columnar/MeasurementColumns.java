@@ -0,0 +1,227 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.encoding.columnar;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Set;
+
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.MeasurementValue;
+import org.envirocar.server.core.entities.Phenomenon;
+import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.rights.AccessRights;
+import org.joda.time.format.DateTimeFormatter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.vividsolutions.jts.geom.Coordinate;
+
+/**
+ * Collects up to {@link #CHUNK_SIZE} measurements into primitive column
+ * buffers. Time is stored as delta to the previous measurement across chunks,
+ * the first one relative to the {@code start} of the series; missing cells
+ * are written as {@code null}. The buffer is {@linkplain #clear() cleared}
+ * after each chunk is written, so memory use does not grow with the length
+ * of the series.
+ * <p/>
+ * The {@code start} and the {@code units} of the phenomenons are written once
+ * in the {@linkplain #writeHeader(JsonGenerator) header} after the first
+ * chunk was collected. The unit of a phenomenon that first appears in a later
+ * chunk is written in the {@code units} of that chunk. If the header has no
+ * {@code start}, the first time is absolute.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+class MeasurementColumns {
+    static final int CHUNK_SIZE = 1000;
+    private static final long NO_TIME = Long.MIN_VALUE;
+    private final Map<String, ValueColumn> phenomenons = Maps
+            .newLinkedHashMap();
+    /**
+     * The units that were not written yet.
+     */
+    private final Map<String, String> units = Maps.newLinkedHashMap();
+    private final Set<String> knownUnits = Sets.newHashSet();
+    private final DateTimeFormatter formatter;
+    private final long[] time = new long[CHUNK_SIZE];
+    private final double[] lon = new double[CHUNK_SIZE];
+    private final double[] lat = new double[CHUNK_SIZE];
+    private int size = 0;
+    private long start = NO_TIME;
+    private long last = NO_TIME;
+    private boolean headerWritten = false;
+
+    /**
+     * @param formatter the format of the {@code start}
+     */
+    MeasurementColumns(DateTimeFormatter formatter) {
+        this.formatter = formatter;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean isFull() {
+        return size == CHUNK_SIZE;
+    }
+
+    boolean isHeaderWritten() {
+        return headerWritten;
+    }
+
+    /**
+     * Clears the rows of the chunk. The time of the last measurement and the
+     * units are kept for the following chunks.
+     */
+    void clear() {
+        size = 0;
+        phenomenons.clear();
+    }
+
+    void add(Measurement m, AccessRights rights) {
+        if (isFull()) {
+            throw new IllegalStateException("chunk is full");
+        }
+        if (m.hasTime() && rights.canSeeTimeOf(m)) {
+            long t = m.getTime().getMillis();
+            if (last == NO_TIME) {
+                if (headerWritten) {
+                    last = 0;
+                } else {
+                    /* the start is truncated to the precision of the format,
+                     * the first delta contains the remainder */
+                    start = formatter.parseMillis(formatter.print(t));
+                    last = start;
+                }
+            }
+            time[size] = t - last;
+            last = t;
+        } else {
+            time[size] = NO_TIME;
+        }
+        Coordinate c = null;
+        if (m.hasGeometry() && rights.canSeeGeometryOf(m)) {
+            c = m.getGeometry().getCoordinate();
+        }
+        lon[size] = c == null ? Double.NaN : c.x;
+        lat[size] = c == null ? Double.NaN : c.y;
+        if (rights.canSeeValuesOf(m)) {
+            for (MeasurementValue mv : m.getValues()) {
+                if (mv.hasPhenomenon() && mv.hasValue() &&
+                    mv.getValue() instanceof Number) {
+                    getColumn(mv.getPhenomenon())
+                            .set(size, ((Number) mv.getValue()).doubleValue());
+                }
+            }
+        }
+        ++size;
+    }
+
+    /**
+     * Writes the {@code start} and the {@code units} known so far as fields
+     * of the enclosing object.
+     */
+    void writeHeader(JsonGenerator g) throws IOException {
+        if (start != NO_TIME) {
+            g.writeStringField(JSONConstants.START_KEY,
+                               formatter.print(start));
+        }
+        writeUnits(g);
+        headerWritten = true;
+    }
+
+    void write(JsonGenerator g) throws IOException {
+        g.writeStartObject();
+        g.writeNumberField(JSONConstants.SIZE_KEY, size);
+        if (!units.isEmpty()) {
+            writeUnits(g);
+        }
+        g.writeArrayFieldStart(JSONConstants.TIME_KEY);
+        for (int i = 0; i < size; ++i) {
+            if (time[i] == NO_TIME) {
+                g.writeNull();
+            } else {
+                g.writeNumber(time[i]);
+            }
+        }
+        g.writeEndArray();
+        writeColumn(g, JSONConstants.LONGITUDE_KEY, lon, size);
+        writeColumn(g, JSONConstants.LATITUDE_KEY, lat, size);
+        g.writeObjectFieldStart(JSONConstants.PHENOMENONS_KEY);
+        for (Map.Entry<String, ValueColumn> e : phenomenons.entrySet()) {
+            writeColumn(g, e.getKey(), e.getValue().values, size);
+        }
+        g.writeEndObject();
+        g.writeEndObject();
+    }
+
+    /**
+     * Writes the units that were not written before.
+     */
+    private void writeUnits(JsonGenerator g) throws IOException {
+        g.writeObjectFieldStart(JSONConstants.UNITS_KEY);
+        for (Map.Entry<String, String> e : units.entrySet()) {
+            g.writeStringField(e.getKey(), e.getValue());
+        }
+        g.writeEndObject();
+        units.clear();
+    }
+
+    private ValueColumn getColumn(Phenomenon phenomenon) {
+        ValueColumn column = phenomenons.get(phenomenon.getName());
+        if (column == null) {
+            column = new ValueColumn();
+            phenomenons.put(phenomenon.getName(), column);
+            if (phenomenon.hasUnit() &&
+                !knownUnits.contains(phenomenon.getName())) {
+                knownUnits.add(phenomenon.getName());
+                units.put(phenomenon.getName(), phenomenon.getUnit());
+            }
+        }
+        return column;
+    }
+
+    private static void writeColumn(JsonGenerator g, String name,
+                                    double[] values, int size)
+            throws IOException {
+        g.writeArrayFieldStart(name);
+        for (int i = 0; i < size; ++i) {
+            if (Double.isNaN(values[i])) {
+                g.writeNull();
+            } else {
+                g.writeNumber(values[i]);
+            }
+        }
+        g.writeEndArray();
+    }
+
+    private static class ValueColumn {
+        private final double[] values = new double[CHUNK_SIZE];
+
+        ValueColumn() {
+            Arrays.fill(this.values, Double.NaN);
+        }
+
+        void set(int i, double value) {
+            values[i] = value;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.encoding.columnar;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriInfo;
+
+import org.envirocar.server.core.DataService;
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.Measurements;
+import org.envirocar.server.core.entities.Track;
+import org.envirocar.server.core.exception.BadRequestException;
+import org.envirocar.server.core.filter.MeasurementFilter;
+import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.rights.AccessRights;
+import org.envirocar.server.rest.util.Downsampling;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@javax.ws.rs.ext.Provider
+public class TrackColumnarEncoder
+        extends AbstractColumnarMessageBodyWriter<Track> {
+    private final DataService dataService;
+    private final Provider<UriInfo> uriInfo;
+
+    @Inject
+    public TrackColumnarEncoder(DataService dataService,
+                                Provider<UriInfo> uriInfo) {
+        super(Track.class);
+        this.dataService = dataService;
+        this.uriInfo = uriInfo;
+    }
+
+    @Override
+    protected void writeHeader(JsonGenerator g, Track t, AccessRights rights)
+            throws IOException {
+        if (t.hasIdentifier()) {
+            g.writeStringField(JSONConstants.IDENTIFIER_KEY, t.getIdentifier());
+        }
+        if (t.hasName() && rights.canSeeNameOf(t)) {
+            g.writeStringField(JSONConstants.NAME_KEY, t.getName());
+        }
+    }
+
+    @Override
+    protected Iterable<? extends Measurement> getMeasurements(
+            Track t, AccessRights rights) {
+        if (rights.canSeeMeasurementsOf(t)) {
+            Measurements measurements = dataService
+                    .getMeasurements(new MeasurementFilter(t));
+            Integer resolution;
+            try {
+                resolution = Downsampling.getResolution(uriInfo.get());
+            } catch (BadRequestException e) {
+                throw new WebApplicationException(e, Status.BAD_REQUEST);
+            }
+            if (resolution != null) {
+                measurements = Downsampling.downsample(
+                        measurements, t, resolution,
+                        Downsampling.getPhenomena(uriInfo.get()));
+            }
+            return measurements;
+        } else {
+            return Collections.<Measurement>emptyList();
+        }
+    }
+}
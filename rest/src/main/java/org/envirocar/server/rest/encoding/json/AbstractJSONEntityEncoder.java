@@ -25,9 +25,11 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 
+import org.envirocar.server.core.filter.Projection;
 import org.envirocar.server.rest.encoding.JSONEntityEncoder;
 
 import org.envirocar.server.rest.rights.AccessRights;
+import org.envirocar.server.rest.util.RequestScope;
 
 /**
  * TODO JavaDoc
@@ -40,6 +42,7 @@ public abstract class AbstractJSONEntityEncoder<T>
     private JsonNodeFactory jsonFactory;
     private DateTimeFormatter dateTimeFormat;
     private Provider<AccessRights> rights;
+    private Provider<Projection> projection;
 
     public AbstractJSONEntityEncoder(Class<T> classType) {
         super(classType);
@@ -68,6 +71,23 @@ public abstract class AbstractJSONEntityEncoder<T>
         this.rights = rights;
     }
 
+    @Inject
+    public void setProjection(Provider<Projection> projection) {
+        this.projection = projection;
+    }
+
+    public AccessRights getRights() {
+        return rights.get();
+    }
+
+    /**
+     * @return the properties requested by the client or all properties if
+     *         the encoder is used outside of a request
+     */
+    public Projection getProjection() {
+        return RequestScope.get(projection).or(Projection.all());
+    }
+
     @Override
     public ObjectNode encodeJSON(T t, MediaType mt) {
         return encodeJSON(t, rights.get(), mt);
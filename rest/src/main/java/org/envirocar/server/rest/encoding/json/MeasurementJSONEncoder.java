@@ -23,6 +23,7 @@ import org.envirocar.server.core.entities.Measurement;
 import org.envirocar.server.core.entities.MeasurementValue;
 import org.envirocar.server.core.entities.Sensor;
 import org.envirocar.server.core.entities.User;
+import org.envirocar.server.core.filter.Projection;
 import org.envirocar.server.core.util.GeoJSONConstants;
 import org.envirocar.server.rest.JSONConstants;
 import org.envirocar.server.rest.MediaTypes;
@@ -58,10 +59,12 @@ public class MeasurementJSONEncoder extends AbstractJSONEntityEncoder<Measuremen
     @Override
     public ObjectNode encodeJSON(Measurement t, AccessRights rights,
                                  MediaType mediaType) {
+        Projection p = getProjection();
         ObjectNode measurement = getJsonFactory().objectNode();
         measurement.put(GeoJSONConstants.TYPE_KEY,
                         GeoJSONConstants.FEATURE_TYPE);
-        if (t.hasGeometry() && rights.canSeeGeometryOf(t)) {
+        if (t.hasGeometry() && rights.canSeeGeometryOf(t) &&
+            p.includes(JSONConstants.GEOMETRY_KEY)) {
             measurement.put(JSONConstants.GEOMETRY_KEY,
                             geometryEncoder
                     .encodeJSON(t.getGeometry(), rights, mediaType));
@@ -72,30 +75,36 @@ public class MeasurementJSONEncoder extends AbstractJSONEntityEncoder<Measuremen
         if (t.hasIdentifier()) {
             properties.put(JSONConstants.IDENTIFIER_KEY, t.getIdentifier());
         }
-        if (t.hasTime() && rights.canSeeTimeOf(t)) {
+        if (t.hasTime() && rights.canSeeTimeOf(t) &&
+            p.includes(JSONConstants.TIME_KEY)) {
             properties.put(JSONConstants.TIME_KEY,
                            getDateTimeFormat().print(t.getTime()));
         }
 
         if (!mediaType.equals(MediaTypes.TRACK_TYPE)) {
-            if (t.hasSensor() && rights.canSeeSensorOf(t)) {
+            if (t.hasSensor() && rights.canSeeSensorOf(t) &&
+                p.includes(JSONConstants.SENSOR_KEY)) {
                 properties.put(JSONConstants.SENSOR_KEY,
                                sensorProvider
                         .encodeJSON(t.getSensor(), rights, mediaType));
             }
-            if (t.hasUser() && rights.canSeeUserOf(t)) {
+            if (t.hasUser() && rights.canSeeUserOf(t) &&
+                p.includes(JSONConstants.USER_KEY)) {
                 properties.put(JSONConstants.USER_KEY, userProvider
                         .encodeJSON(t.getUser(), rights, mediaType));
             }
-            if (t.hasModificationTime() && rights.canSeeModificationTimeOf(t)) {
+            if (t.hasModificationTime() && rights.canSeeModificationTimeOf(t) &&
+                p.includes(JSONConstants.MODIFIED_KEY)) {
                 properties.put(JSONConstants.MODIFIED_KEY, getDateTimeFormat()
                         .print(t.getModificationTime()));
             }
-            if (t.hasCreationTime() && rights.canSeeCreationTimeOf(t)) {
+            if (t.hasCreationTime() && rights.canSeeCreationTimeOf(t) &&
+                p.includes(JSONConstants.CREATED_KEY)) {
                 properties.put(JSONConstants.CREATED_KEY,
                                getDateTimeFormat().print(t.getCreationTime()));
             }
-            if (t.hasTrack() && rights.canSeeTracks()) {
+            if (t.hasTrack() && rights.canSeeTracks() &&
+                p.includes(JSONConstants.TRACK_KEY)) {
             	properties.put(JSONConstants.TRACK_KEY, t.getTrack().getIdentifier());
             }
         }
@@ -107,7 +116,9 @@ public class MeasurementJSONEncoder extends AbstractJSONEntityEncoder<Measuremen
                         .putObject(JSONConstants.PHENOMENONS_KEY);
 
                 for (MeasurementValue mv : t.getValues()) {
-                    if (mv.hasPhenomenon() && mv.hasValue()) {
+                    if (mv.hasPhenomenon() && mv.hasValue() &&
+                        (p.includes(JSONConstants.PHENOMENONS_KEY) ||
+                         p.includes(mv.getPhenomenon().getName()))) {
                         ObjectNode phenomenon = values.objectNode();
                         phenomenon.putPOJO(JSONConstants.VALUE_KEY,
                                            mv.getValue());
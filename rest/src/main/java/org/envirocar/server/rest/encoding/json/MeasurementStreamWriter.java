@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.encoding.json;
+
+import java.io.IOException;
+import java.util.Map;
+
+import javax.ws.rs.core.MediaType;
+
+import org.envirocar.server.core.UserService;
+import org.envirocar.server.core.entities.EntityFactory;
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.Sensor;
+import org.envirocar.server.core.entities.Track;
+import org.envirocar.server.core.entities.User;
+import org.envirocar.server.core.exception.UserNotFoundException;
+import org.envirocar.server.core.util.GeoJSONConstants;
+import org.envirocar.server.core.util.MeasurementView;
+import org.envirocar.server.core.util.MeasurementVisitor;
+import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.encoding.JSONEntityEncoder;
+import org.envirocar.server.rest.rights.AccessRights;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormatter;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Maps;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
+/**
+ * Writes the GeoJSON features of {@link MeasurementsJSONEncoder} directly from
+ * a {@link org.envirocar.server.core.util.MeasurementStream}. Access rights
+ * are evaluated once per owner against a prototype measurement and reused if
+ * they grant every field; otherwise they are evaluated for every measurement.
+ * The encoded owner is reused in either case.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+class MeasurementStreamWriter implements MeasurementVisitor {
+    private final JsonGenerator g;
+    private final AccessRights rights;
+    private final MediaType mediaType;
+    private final DateTimeFormatter dateTimeFormat;
+    private final UserService userService;
+    private final EntityFactory entityFactory;
+    private final JSONEntityEncoder<User> userEncoder;
+    private final GeometryFactory geometryFactory;
+    private final boolean canSeeTracks;
+    private final Map<String, Owner> owners = Maps.newHashMap();
+    private Owner anonymous;
+
+    MeasurementStreamWriter(JsonGenerator g, AccessRights rights,
+                            MediaType mediaType,
+                            DateTimeFormatter dateTimeFormat,
+                            UserService userService,
+                            EntityFactory entityFactory,
+                            JSONEntityEncoder<User> userEncoder,
+                            GeometryFactory geometryFactory) {
+        this.g = g;
+        this.rights = rights;
+        this.mediaType = mediaType;
+        this.dateTimeFormat = dateTimeFormat;
+        this.userService = userService;
+        this.entityFactory = entityFactory;
+        this.userEncoder = userEncoder;
+        this.geometryFactory = geometryFactory;
+        this.canSeeTracks = rights.canSeeTracks();
+    }
+
+    @Override
+    public void visit(MeasurementView m) throws IOException {
+        Owner owner = getOwner(m);
+        Fields fields = owner.fields.all ? owner.fields
+                        : new Fields(materialize(m, owner.user));
+        g.writeStartObject();
+        g.writeStringField(GeoJSONConstants.TYPE_KEY,
+                           GeoJSONConstants.FEATURE_TYPE);
+        if (m.hasPoint() && fields.geometry) {
+            g.writeObjectFieldStart(JSONConstants.GEOMETRY_KEY);
+            g.writeStringField(GeoJSONConstants.TYPE_KEY,
+                               GeoJSONConstants.POINT_TYPE);
+            g.writeArrayFieldStart(GeoJSONConstants.COORDINATES_KEY);
+            g.writeNumber(m.getX());
+            g.writeNumber(m.getY());
+            g.writeEndArray();
+            g.writeEndObject();
+        }
+        g.writeObjectFieldStart(GeoJSONConstants.PROPERTIES_KEY);
+        String id = m.getIdentifier();
+        if (id != null) {
+            g.writeStringField(JSONConstants.IDENTIFIER_KEY, id);
+        }
+        if (m.hasTime() && fields.time) {
+            g.writeStringField(JSONConstants.TIME_KEY,
+                               dateTimeFormat.print(m.getTime()));
+        }
+        if (m.hasSensor() && fields.sensor) {
+            writeSensor(m);
+        }
+        if (owner.user != null && fields.user) {
+            g.writeFieldName(JSONConstants.USER_KEY);
+            g.writeTree(owner.getNode());
+        }
+        if (m.hasModificationTime() && fields.modified) {
+            g.writeStringField(JSONConstants.MODIFIED_KEY,
+                               dateTimeFormat.print(m.getModificationTime()));
+        }
+        if (m.hasCreationTime() && fields.created) {
+            g.writeStringField(JSONConstants.CREATED_KEY,
+                               dateTimeFormat.print(m.getCreationTime()));
+        }
+        if (m.hasTrack() && canSeeTracks) {
+            String track = m.getTrackIdentifier();
+            if (track != null) {
+                g.writeStringField(JSONConstants.TRACK_KEY, track);
+            }
+        }
+        if (fields.values) {
+            writeValues(m);
+        }
+        g.writeEndObject();
+        g.writeEndObject();
+    }
+
+    private void writeSensor(MeasurementView m) throws IOException {
+        g.writeObjectFieldStart(JSONConstants.SENSOR_KEY);
+        String type = m.getSensorType();
+        if (type != null) {
+            g.writeStringField(JSONConstants.TYPE_KEY, type);
+        }
+        g.writeObjectFieldStart(JSONConstants.PROPERTIES_KEY);
+        for (Map.Entry<String, Object> e : m.getSensorProperties().entrySet()) {
+            if (!e.getKey().equals(JSONConstants.IDENTIFIER_KEY)) {
+                g.writeObjectField(e.getKey(), e.getValue());
+            }
+        }
+        g.writeStringField(JSONConstants.IDENTIFIER_KEY,
+                           m.getSensorIdentifier());
+        g.writeEndObject();
+        g.writeEndObject();
+    }
+
+    private void writeValues(MeasurementView m) throws IOException {
+        g.writeObjectFieldStart(JSONConstants.PHENOMENONS_KEY);
+        for (int i = 0; i < m.getValueCount(); ++i) {
+            String name = m.getPhenomenonName(i);
+            Object value = m.getValue(i);
+            if (name != null && value != null) {
+                g.writeObjectFieldStart(name);
+                g.writeObjectField(JSONConstants.VALUE_KEY, value);
+                String unit = m.getPhenomenonUnit(i);
+                if (unit != null) {
+                    g.writeStringField(JSONConstants.UNIT_KEY, unit);
+                }
+                g.writeEndObject();
+            }
+        }
+        g.writeEndObject();
+    }
+
+    private Owner getOwner(MeasurementView m) {
+        String name = m.hasUser() ? m.getUserName() : null;
+        if (name == null) {
+            if (anonymous == null) {
+                anonymous = new Owner(null);
+            }
+            return anonymous;
+        }
+        Owner owner = owners.get(name);
+        if (owner == null) {
+            User user;
+            try {
+                user = userService.getUser(name);
+            } catch (UserNotFoundException e) {
+                user = null;
+            }
+            owner = new Owner(user);
+            owners.put(name, owner);
+        }
+        return owner;
+    }
+
+    /**
+     * Creates a measurement from the fields of the view to evaluate the
+     * access rights against. The creation and modification time are not
+     * copied, as entities do not allow to set them.
+     */
+    private Measurement materialize(MeasurementView m, User owner) {
+        Measurement measurement = entityFactory.createMeasurement();
+        if (owner != null) {
+            measurement.setUser(owner);
+        }
+        if (m.hasPoint()) {
+            measurement.setGeometry(geometryFactory
+                    .createPoint(new Coordinate(m.getX(), m.getY())));
+        }
+        if (m.hasTime()) {
+            measurement.setTime(new DateTime(m.getTime()));
+        }
+        if (m.hasSensor()) {
+            Sensor sensor = entityFactory.createSensor();
+            sensor.setIdentifier(m.getSensorIdentifier());
+            sensor.setType(m.getSensorType());
+            measurement.setSensor(sensor);
+        }
+        if (m.hasTrack() && m.getTrackIdentifier() != null) {
+            Track track = entityFactory.createTrack();
+            track.setIdentifier(m.getTrackIdentifier());
+            measurement.setTrack(track);
+        }
+        return measurement;
+    }
+
+    /**
+     * The fields of a measurement the current user is allowed to see.
+     */
+    private class Fields {
+        private final boolean geometry;
+        private final boolean time;
+        private final boolean sensor;
+        private final boolean user;
+        private final boolean modified;
+        private final boolean created;
+        private final boolean values;
+        private final boolean all;
+
+        Fields(Measurement measurement) {
+            this.geometry = rights.canSeeGeometryOf(measurement);
+            this.time = rights.canSeeTimeOf(measurement);
+            this.sensor = rights.canSeeSensorOf(measurement);
+            this.user = measurement.hasUser() &&
+                        rights.canSeeUserOf(measurement);
+            this.modified = rights.canSeeModificationTimeOf(measurement);
+            this.created = rights.canSeeCreationTimeOf(measurement);
+            this.values = rights.canSeeValuesOf(measurement);
+            this.all = geometry && time && sensor && modified && created &&
+                       values && (user || !measurement.hasUser());
+        }
+    }
+
+    /**
+     * The owner of measurements and the fields of a measurement of the owner
+     * the current user is allowed to see. These only apply to all
+     * measurements of the owner if every field is granted, as the rights
+     * may depend on more than the owner otherwise.
+     */
+    private class Owner {
+        private final User user;
+        private final Fields fields;
+        private ObjectNode node;
+
+        Owner(User user) {
+            Measurement prototype = entityFactory.createMeasurement();
+            if (user != null) {
+                prototype.setUser(user);
+            }
+            this.user = user;
+            this.fields = new Fields(prototype);
+        }
+
+        ObjectNode getNode() {
+            if (node == null) {
+                node = userEncoder.encodeJSON(user, rights, mediaType);
+            }
+            return node;
+        }
+    }
+}
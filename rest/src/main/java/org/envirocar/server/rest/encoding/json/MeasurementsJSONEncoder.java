@@ -16,22 +16,46 @@
  */
 package org.envirocar.server.rest.encoding.json;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Set;
+
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.ext.Provider;
 
+import org.envirocar.server.core.UserService;
+import org.envirocar.server.core.entities.EntityFactory;
 import org.envirocar.server.core.entities.Measurement;
 import org.envirocar.server.core.entities.Measurements;
+import org.envirocar.server.core.entities.User;
 import org.envirocar.server.core.util.GeoJSONConstants;
+import org.envirocar.server.rest.MediaTypes;
 import org.envirocar.server.rest.encoding.JSONEntityEncoder;
 import org.envirocar.server.rest.rights.AccessRights;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.inject.Inject;
+import com.vividsolutions.jts.geom.GeometryFactory;
 
 /**
  * TODO JavaDoc
+ * <p/>
+ * Measurements that can be streamed from the data store are written
+ * without creating entities or intermediate JSON trees, unless the client
+ * requested a subset of the properties.
  *
  * @author Christian Autermann <autermann@uni-muenster.de>
  * @author Arne de Wall <a.dewall@52north.org>
@@ -40,13 +64,52 @@ import com.google.inject.Inject;
 public class MeasurementsJSONEncoder extends AbstractJSONEntityEncoder<Measurements> {
     private final JSONEntityEncoder<Measurement> measurementEncoder;
     private final JsonNodeFactory factory;
+    private final JSONEntityEncoder<User> userEncoder;
+    private final UserService userService;
+    private final EntityFactory entityFactory;
+    private final JsonFactory jsonFactory;
+    private final GeometryFactory geometryFactory;
 
     @Inject
     public MeasurementsJSONEncoder(JsonNodeFactory factory,
-                                   JSONEntityEncoder<Measurement> measurementEncoder) {
+                                   JSONEntityEncoder<Measurement> measurementEncoder,
+                                   JSONEntityEncoder<User> userEncoder,
+                                   UserService userService,
+                                   EntityFactory entityFactory,
+                                   ObjectMapper mapper,
+                                   GeometryFactory geometryFactory) {
         super(Measurements.class);
         this.measurementEncoder = measurementEncoder;
         this.factory = factory;
+        this.userEncoder = userEncoder;
+        this.userService = userService;
+        this.entityFactory = entityFactory;
+        this.jsonFactory = mapper.getFactory();
+        this.geometryFactory = geometryFactory;
+    }
+
+    @Override
+    public void writeTo(Measurements t, Class<?> c, Type gt, Annotation[] a,
+                        MediaType mt, MultivaluedMap<String, Object> h,
+                        OutputStream out) throws IOException,
+                                                 WebApplicationException {
+        if (!t.hasStream() || !mt.equals(MediaTypes.MEASUREMENTS_TYPE) ||
+            !getProjection().isAll()) {
+            super.writeTo(t, c, gt, a, mt, h, out);
+            return;
+        }
+        AccessRights rights = getRights();
+        JsonGenerator g = jsonFactory.createGenerator(out, JsonEncoding.UTF8);
+        g.writeStartObject();
+        g.writeArrayFieldStart(GeoJSONConstants.FEATURES_KEY);
+        t.getStream().accept(new MeasurementStreamWriter(
+                g, rights, mt, getDateTimeFormat(), userService,
+                entityFactory, userEncoder, geometryFactory));
+        g.writeEndArray();
+        g.writeStringField(GeoJSONConstants.TYPE_KEY,
+                           GeoJSONConstants.FEATURE_COLLECTION_TYPE);
+        g.writeEndObject();
+        g.flush();
     }
 
     @Override
@@ -54,7 +117,13 @@ public class MeasurementsJSONEncoder extends AbstractJSONEntityEncoder<Measureme
                                  MediaType mediaType) {
         ObjectNode on = factory.objectNode();
         ArrayNode an = on.putArray(GeoJSONConstants.FEATURES_KEY);
-        for (Measurement measurement : t) {
+        List<Measurement> measurements = Lists.newArrayList(t);
+        Set<User> owners = Sets.newHashSet();
+        for (Measurement measurement : measurements) {
+            owners.add(measurement.getUser());
+        }
+        rights.prefetch(owners);
+        for (Measurement measurement : measurements) {
             an.add(measurementEncoder
                     .encodeJSON(measurement, rights, mediaType));
         }
@@ -16,47 +16,65 @@
  */
 package org.envirocar.server.rest.encoding.json;
 
+import java.util.List;
+
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
-import javax.ws.rs.ext.Provider;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriInfo;
 
 import org.envirocar.server.core.DataService;
 import org.envirocar.server.core.entities.Measurements;
 import org.envirocar.server.core.entities.Sensor;
 import org.envirocar.server.core.entities.Track;
 import org.envirocar.server.core.entities.User;
+import org.envirocar.server.core.exception.BadRequestException;
 import org.envirocar.server.core.filter.MeasurementFilter;
+import org.envirocar.server.core.filter.Projection;
 import org.envirocar.server.core.util.GeoJSONConstants;
 import org.envirocar.server.rest.JSONConstants;
 import org.envirocar.server.rest.MediaTypes;
+import org.envirocar.server.rest.RESTConstants;
 import org.envirocar.server.rest.encoding.JSONEntityEncoder;
 import org.envirocar.server.rest.rights.AccessRights;
+import org.envirocar.server.rest.util.Downsampling;
+import org.envirocar.server.rest.util.RequestScope;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Optional;
 import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.vividsolutions.jts.geom.Geometry;
 
 /**
  * TODO JavaDoc
  *
  * @author Christian Autermann <autermann@uni-muenster.de>
  */
-@Provider
+@javax.ws.rs.ext.Provider
 public class TrackJSONEncoder extends AbstractJSONEntityEncoder<Track> {
     private final JSONEntityEncoder<Sensor> sensorEncoder;
     private final JSONEntityEncoder<Measurements> measurementsEncoder;
     private final JSONEntityEncoder<User> userEncoder;
+    private final JSONEntityEncoder<Geometry> geometryEncoder;
     private final DataService dataService;
+    private final Provider<UriInfo> uriInfo;
 
     @Inject
     public TrackJSONEncoder(JSONEntityEncoder<Sensor> sensorEncoder,
                             JSONEntityEncoder<Measurements> measurementsEncoder,
                             JSONEntityEncoder<User> userEncoder,
-                            DataService dataService) {
+                            JSONEntityEncoder<Geometry> geometryEncoder,
+                            DataService dataService,
+                            Provider<UriInfo> uriInfo) {
         super(Track.class);
         this.sensorEncoder = sensorEncoder;
         this.userEncoder = userEncoder;
+        this.geometryEncoder = geometryEncoder;
         this.measurementsEncoder = measurementsEncoder;
         this.dataService = dataService;
+        this.uriInfo = uriInfo;
     }
 
     @Override
@@ -111,8 +129,17 @@ public class TrackJSONEncoder extends AbstractJSONEntityEncoder<Track> {
             }
             JsonNode features;
             if (rights.canSeeMeasurementsOf(t)) {
+                Projection projection = getProjection().without(
+                        rights.getHiddenPropertiesOfMeasurements());
                 Measurements values = dataService
-                        .getMeasurements(new MeasurementFilter(t));
+                        .getMeasurements(new MeasurementFilter(
+                                t, null, null, null, null, projection));
+                Integer resolution = getResolution();
+                if (resolution != null) {
+                    values = Downsampling.downsample(
+                            values, t, resolution,
+                            Downsampling.getPhenomena(uriInfo.get()));
+                }
                 features = measurementsEncoder
                         .encodeJSON(values, rights, mediaType)
                         .path(GeoJSONConstants.FEATURES_KEY);
@@ -121,18 +148,61 @@ public class TrackJSONEncoder extends AbstractJSONEntityEncoder<Track> {
             }
             track.put(GeoJSONConstants.FEATURES_KEY, features);
         } else {
+            Projection p = getProjection();
             if (t.hasIdentifier()) {
                 track.put(JSONConstants.IDENTIFIER_KEY, t.getIdentifier());
             }
             if (t.hasModificationTime() && rights
-                    .canSeeModificationTimeOf(t)) {
+                    .canSeeModificationTimeOf(t) &&
+                p.includes(JSONConstants.MODIFIED_KEY)) {
                 track.put(JSONConstants.MODIFIED_KEY, getDateTimeFormat()
                         .print(t.getModificationTime()));
             }
-            if (t.hasName() && rights.canSeeNameOf(t)) {
+            if (t.hasName() && rights.canSeeNameOf(t) &&
+                p.includes(JSONConstants.NAME_KEY)) {
                 track.put(JSONConstants.NAME_KEY, t.getName());
             }
+            if (t.hasOverview() && rights.canSeeMeasurementsOf(t) &&
+                isIncluded(JSONConstants.OVERVIEW_KEY)) {
+                track.put(JSONConstants.OVERVIEW_KEY, geometryEncoder
+                        .encodeJSON(t.getOverview(), rights, mediaType));
+            }
         }
         return track;
     }
+
+    private boolean isIncluded(String property) {
+        Optional<UriInfo> ui = RequestScope.get(uriInfo);
+        if (!ui.isPresent()) {
+            return false;
+        }
+        List<String> includes = ui.get().getQueryParameters()
+                .get(RESTConstants.INCLUDE);
+        if (includes != null) {
+            for (String include : includes) {
+                for (String s : include.split(",")) {
+                    if (s.trim().equals(property)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the requested resolution or {@code null} if the parameter is
+     *         absent or the encoder is used outside of a request
+     */
+    private Integer getResolution() {
+        Optional<UriInfo> ui = RequestScope.get(uriInfo);
+        if (!ui.isPresent()) {
+            return null;
+        }
+        try {
+            return Downsampling.getResolution(ui.get());
+        } catch (BadRequestException e) {
+            throw new WebApplicationException(e, Status.BAD_REQUEST);
+        }
+    }
 }
@@ -16,15 +16,21 @@
  */
 package org.envirocar.server.rest.encoding.json;
 
+import java.util.List;
+import java.util.Set;
+
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.ext.Provider;
 
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 
 import org.envirocar.server.core.entities.Track;
 import org.envirocar.server.core.entities.Tracks;
+import org.envirocar.server.core.entities.User;
 import org.envirocar.server.rest.JSONConstants;
 import org.envirocar.server.rest.encoding.JSONEntityEncoder;
 
@@ -50,7 +56,13 @@ public class TracksJSONEncoder extends AbstractJSONEntityEncoder<Tracks> {
                                  MediaType mediaType) {
         ObjectNode root = getJsonFactory().objectNode();
         ArrayNode tracks = root.putArray(JSONConstants.TRACKS_KEY);
-        for (Track u : t) {
+        List<Track> list = Lists.newArrayList(t);
+        Set<User> owners = Sets.newHashSet();
+        for (Track u : list) {
+            owners.add(u.getUser());
+        }
+        rights.prefetch(owners);
+        for (Track u : list) {
             tracks.add(trackEncoder.encodeJSON(u, rights, mediaType));
         }
         return root;
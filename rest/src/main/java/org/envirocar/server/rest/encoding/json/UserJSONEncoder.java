@@ -23,7 +23,9 @@ import javax.ws.rs.core.MediaType;
 import javax.ws.rs.ext.Provider;
 
 import org.envirocar.server.core.entities.User;
+import org.envirocar.server.core.filter.Projection;
 import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.MediaTypes;
 import org.envirocar.server.rest.encoding.JSONEntityEncoder;
 import org.envirocar.server.rest.rights.AccessRights;
 
@@ -50,28 +52,38 @@ public class UserJSONEncoder extends AbstractJSONEntityEncoder<User> {
     @Override
     public ObjectNode encodeJSON(User t, AccessRights rights,
                                  MediaType mediaType) {
+        Projection p = mediaType.equals(MediaTypes.USER_TYPE) ||
+                       mediaType.equals(MediaTypes.USERS_TYPE)
+                       ? getProjection() : Projection.all();
         ObjectNode j = getJsonFactory().objectNode();
-        if (t.hasName() && rights.canSeeNameOf(t)) {
+        if (t.hasName() && rights.canSeeNameOf(t) &&
+            p.includes(JSONConstants.NAME_KEY)) {
             j.put(JSONConstants.NAME_KEY, t.getName());
         }
-        if (t.hasMail() && rights.canSeeMailOf(t)) {
+        if (t.hasMail() && rights.canSeeMailOf(t) &&
+            p.includes(JSONConstants.MAIL_KEY)) {
             j.put(JSONConstants.MAIL_KEY, t.getMail());
         }
-        if (t.hasCreationTime() && rights.canSeeCreationTimeOf(t)) {
+        if (t.hasCreationTime() && rights.canSeeCreationTimeOf(t) &&
+            p.includes(JSONConstants.CREATED_KEY)) {
             j.put(JSONConstants.CREATED_KEY,
                   getDateTimeFormat().print(t.getCreationTime()));
         }
-        if (t.hasModificationTime() && rights.canSeeModificationTimeOf(t)) {
+        if (t.hasModificationTime() && rights.canSeeModificationTimeOf(t) &&
+            p.includes(JSONConstants.MODIFIED_KEY)) {
             j.put(JSONConstants.MODIFIED_KEY,
                   getDateTimeFormat().print(t.getModificationTime()));
         }
-        if (t.hasFirstName() && rights.canSeeFirstNameOf(t)) {
+        if (t.hasFirstName() && rights.canSeeFirstNameOf(t) &&
+            p.includes(JSONConstants.FIRST_NAME_KEY)) {
             j.put(JSONConstants.FIRST_NAME_KEY, t.getFirstName());
         }
-        if (t.hasLastName() && rights.canSeeLastNameOf(t)) {
+        if (t.hasLastName() && rights.canSeeLastNameOf(t) &&
+            p.includes(JSONConstants.LAST_NAME_KEY)) {
             j.put(JSONConstants.LAST_NAME_KEY, t.getLastName());
         }
-        if (t.hasGender() && rights.canSeeGenderOf(t)) {
+        if (t.hasGender() && rights.canSeeGenderOf(t) &&
+            p.includes(JSONConstants.GENDER_KEY)) {
             switch (t.getGender()) {
                 case MALE:
                     j.put(JSONConstants.GENDER_KEY, JSONConstants.MALE);
@@ -81,29 +93,36 @@ public class UserJSONEncoder extends AbstractJSONEntityEncoder<User> {
                     break;
             }
         }
-        if (t.hasDayOfBirth() && rights.canSeeDayOfBirthOf(t)) {
+        if (t.hasDayOfBirth() && rights.canSeeDayOfBirthOf(t) &&
+            p.includes(JSONConstants.DAY_OF_BIRTH_KEY)) {
             j.put(JSONConstants.DAY_OF_BIRTH_KEY, t.getDayOfBirth());
         }
-        if (t.hasAboutMe() && rights.canSeeAboutMeOf(t)) {
+        if (t.hasAboutMe() && rights.canSeeAboutMeOf(t) &&
+            p.includes(JSONConstants.ABOUT_ME_KEY)) {
             j.put(JSONConstants.ABOUT_ME_KEY, t.getAboutMe());
         }
-        if (t.hasCountry() && rights.canSeeCountryOf(t)) {
+        if (t.hasCountry() && rights.canSeeCountryOf(t) &&
+            p.includes(JSONConstants.COUNTRY_KEY)) {
             j.put(JSONConstants.COUNTRY_KEY, t.getCountry());
         }
-        if (t.hasLocation() && rights.canSeeLocationOf(t)) {
+        if (t.hasLocation() && rights.canSeeLocationOf(t) &&
+            p.includes(JSONConstants.LOCATION_KEY)) {
             j.put(JSONConstants.LOCATION_KEY,
                   geometryEncoder.encodeJSON(t.getLocation(), rights, mediaType));
         }
-        if (t.hasLanguage() && rights.canSeeLanguageOf(t)) {
+        if (t.hasLanguage() && rights.canSeeLanguageOf(t) &&
+            p.includes(JSONConstants.LANGUAGE_KEY)) {
             j.put(JSONConstants.LANGUAGE_KEY, t.getLanguage());
         }
-        if (t.hasBadges() && rights.canSeeBadgesOf(t)) {
+        if (t.hasBadges() && rights.canSeeBadgesOf(t) &&
+            p.includes(JSONConstants.BADGES)) {
             final ArrayNode badges = j.putArray(JSONConstants.BADGES);
             for (String badge : t.getBadges()) {
                 badges.add(badge);
             }
         }
-        if (t.getTermsOfUseVersion() != null) {
+        if (t.getTermsOfUseVersion() != null &&
+            p.includes(JSONConstants.TOU_VERSION_KEY)) {
         	j.put(JSONConstants.TOU_VERSION_KEY, t.getTermsOfUseVersion());
         	
         	// kept for backwards compatibility
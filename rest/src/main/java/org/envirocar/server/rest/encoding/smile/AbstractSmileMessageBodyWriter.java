@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.encoding.smile;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+
+import org.envirocar.server.rest.MediaTypes;
+import org.envirocar.server.rest.encoding.JSONEntityEncoder;
+import org.envirocar.server.rest.guice.JerseyCodingModule;
+import org.envirocar.server.rest.rights.AccessRights;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.name.Named;
+
+/**
+ * Writes entities as Smile, the binary encoding of the JSON data model. The
+ * tree is built by the corresponding {@link JSONEntityEncoder}, so both
+ * representations carry exactly the same content.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Produces(MediaTypes.APPLICATION_SMILE)
+public abstract class AbstractSmileMessageBodyWriter<T>
+        implements MessageBodyWriter<T> {
+    private final Class<T> classType;
+    private final MediaType jsonType;
+    private ObjectWriter writer;
+    private JSONEntityEncoder<T> encoder;
+    private Provider<AccessRights> rights;
+
+    /**
+     * @param classType the entity class
+     * @param jsonType  the JSON media type that is passed to the encoder
+     */
+    public AbstractSmileMessageBodyWriter(Class<T> classType,
+                                          MediaType jsonType) {
+        this.classType = classType;
+        this.jsonType = jsonType;
+    }
+
+    @Inject
+    public void setWriter(@Named(JerseyCodingModule.SMILE) ObjectWriter writer) {
+        this.writer = writer;
+    }
+
+    @Inject
+    public void setEncoder(JSONEntityEncoder<T> encoder) {
+        this.encoder = encoder;
+    }
+
+    @Inject
+    public void setRights(Provider<AccessRights> rights) {
+        this.rights = rights;
+    }
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType,
+                               Annotation[] annotations, MediaType mediaType) {
+        return this.classType.isAssignableFrom(type) &&
+               mediaType.isCompatible(MediaTypes.APPLICATION_SMILE_TYPE);
+    }
+
+    @Override
+    public void writeTo(T t, Class<?> c, Type gt, Annotation[] a, MediaType mt,
+                        MultivaluedMap<String, Object> h,
+                        OutputStream out) throws IOException,
+                                                 WebApplicationException {
+        writer.writeValue(out, encoder.encodeJSON(t, rights.get(), jsonType));
+        out.flush();
+    }
+
+    @Override
+    public long getSize(T t, Class<?> type, Type genericType,
+                        Annotation[] annotations, MediaType mediaType) {
+        return -1;
+    }
+}
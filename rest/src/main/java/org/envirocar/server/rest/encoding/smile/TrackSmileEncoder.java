@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.encoding.smile;
+
+import javax.ws.rs.ext.Provider;
+
+import org.envirocar.server.core.entities.Track;
+import org.envirocar.server.rest.MediaTypes;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Provider
+public class TrackSmileEncoder extends AbstractSmileMessageBodyWriter<Track> {
+    public TrackSmileEncoder() {
+        super(Track.class, MediaTypes.TRACK_TYPE);
+    }
+}
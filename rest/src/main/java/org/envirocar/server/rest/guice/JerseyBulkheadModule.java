@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.guice;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import org.envirocar.server.rest.bulkhead.AdaptiveLimiter;
+import org.envirocar.server.rest.bulkhead.Bulkheads;
+import org.envirocar.server.rest.bulkhead.Workload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.Closeables;
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+
+/**
+ * Configures the concurrency limits of the {@link Workload}s from
+ * {@code /bulkhead.properties}. For every workload the properties
+ * {@code bulkhead.<workload>.maxConcurrency},
+ * {@code bulkhead.<workload>.queueSize},
+ * {@code bulkhead.<workload>.maxWait} and
+ * {@code bulkhead.<workload>.targetLatency} (both in milliseconds) may be
+ * set. A warning is logged if the workloads together admit and queue more
+ * requests than {@code bulkhead.threadPool}, the size of the thread pool of
+ * the container (200 by default).
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class JerseyBulkheadModule extends AbstractModule {
+    private static final String PROPERTIES_FILE = "/bulkhead.properties";
+    private static final String PREFIX = "bulkhead.";
+    private static final String MAX_CONCURRENCY = ".maxConcurrency";
+    private static final String QUEUE_SIZE = ".queueSize";
+    private static final String MAX_WAIT = ".maxWait";
+    private static final String THREAD_POOL = PREFIX + "threadPool";
+    private static final int DEFAULT_THREAD_POOL = 200;
+    private static final String TARGET_LATENCY = ".targetLatency";
+    private static final Logger log = LoggerFactory
+            .getLogger(JerseyBulkheadModule.class);
+
+    @Override
+    protected void configure() {
+    }
+
+    @Provides
+    @Singleton
+    public Bulkheads bulkheads() {
+        Properties p;
+        try {
+            p = getProperties();
+        } catch (IOException ex) {
+            log.error("Error reading bulkhead.properties. Using default values", ex);
+            p = new Properties();
+        }
+        Map<Workload, AdaptiveLimiter> limiters =
+                new EnumMap<Workload, AdaptiveLimiter>(Workload.class);
+        int threads = 0;
+        for (Workload workload : Workload.values()) {
+            String prefix = PREFIX + workload.name().toLowerCase(Locale.ROOT);
+            int maxConcurrency = workload.getMaxConcurrency();
+            int queueSize = workload.getQueueSize();
+            long maxWait = workload.getMaxWait();
+            long targetLatency = workload.getTargetLatency();
+            if (p.containsKey(prefix + MAX_CONCURRENCY)) {
+                maxConcurrency = Integer.valueOf(p
+                        .getProperty(prefix + MAX_CONCURRENCY).trim());
+            }
+            if (p.containsKey(prefix + QUEUE_SIZE)) {
+                queueSize = Integer.valueOf(p
+                        .getProperty(prefix + QUEUE_SIZE).trim());
+            }
+            if (p.containsKey(prefix + MAX_WAIT)) {
+                maxWait = Long.valueOf(p
+                        .getProperty(prefix + MAX_WAIT).trim());
+            }
+            if (p.containsKey(prefix + TARGET_LATENCY)) {
+                targetLatency = Long.valueOf(p
+                        .getProperty(prefix + TARGET_LATENCY).trim());
+            }
+            limiters.put(workload, new AdaptiveLimiter(
+                    maxConcurrency, queueSize, maxWait, targetLatency));
+            threads += maxConcurrency + queueSize;
+        }
+        int pool = DEFAULT_THREAD_POOL;
+        if (p.containsKey(THREAD_POOL)) {
+            pool = Integer.valueOf(p.getProperty(THREAD_POOL).trim());
+        }
+        if (threads >= pool) {
+            log.warn("The workloads admit and queue {} requests, but the " +
+                     "container has only {} threads", threads, pool);
+        }
+        return new Bulkheads(limiters);
+    }
+
+    private Properties getProperties() throws IOException {
+        InputStream is = JerseyBulkheadModule.class
+                .getResourceAsStream(PROPERTIES_FILE);
+        Properties p = new Properties();
+        if (is != null) {
+            try {
+                p.load(is);
+            } finally {
+                Closeables.closeQuietly(is);
+            }
+        }
+        return p;
+    }
+}
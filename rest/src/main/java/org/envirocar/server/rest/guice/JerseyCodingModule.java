@@ -25,11 +25,13 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.ObjectReader;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
 import com.google.inject.Singleton;
 import com.google.inject.TypeLiteral;
+import com.google.inject.name.Named;
 
 /**
  * TODO JavaDoc
@@ -37,6 +39,8 @@ import com.google.inject.TypeLiteral;
  * @author Christian Autermann <autermann@uni-muenster.de>
  */
 public class JerseyCodingModule extends AbstractModule {
+    public static final String SMILE = "smile";
+
     @Override
     protected void configure() {
         bind(GeoJSON.class).in(Scopes.SINGLETON);
@@ -68,4 +72,26 @@ public class JerseyCodingModule extends AbstractModule {
         return new ObjectMapper().setNodeFactory(factory)
                 .disable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
     }
+
+    @Provides
+    @Singleton
+    @Named(SMILE)
+    public ObjectReader smileObjectReader(@Named(SMILE) ObjectMapper mapper) {
+        return mapper.reader();
+    }
+
+    @Provides
+    @Singleton
+    @Named(SMILE)
+    public ObjectWriter smileObjectWriter(@Named(SMILE) ObjectMapper mapper) {
+        return mapper.writer();
+    }
+
+    @Provides
+    @Singleton
+    @Named(SMILE)
+    public ObjectMapper smileObjectMapper(JsonNodeFactory factory) {
+        return new ObjectMapper(new SmileFactory()).setNodeFactory(factory)
+                .disable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    }
 }
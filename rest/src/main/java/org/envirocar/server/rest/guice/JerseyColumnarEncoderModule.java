@@ -0,0 +1,36 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.guice;
+
+import org.envirocar.server.rest.encoding.columnar.MeasurementsColumnarEncoder;
+import org.envirocar.server.rest.encoding.columnar.TrackColumnarEncoder;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Scopes;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class JerseyColumnarEncoderModule extends AbstractModule {
+    @Override
+    protected void configure() {
+        bind(TrackColumnarEncoder.class).in(Scopes.SINGLETON);
+        bind(MeasurementsColumnarEncoder.class).in(Scopes.SINGLETON);
+    }
+}
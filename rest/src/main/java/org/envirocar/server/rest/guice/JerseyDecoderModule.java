@@ -29,9 +29,11 @@ import org.envirocar.server.rest.decoding.json.GroupDecoder;
 import org.envirocar.server.rest.decoding.json.JSONEntityDecoder;
 import org.envirocar.server.rest.decoding.json.JsonNodeMessageBodyReader;
 import org.envirocar.server.rest.decoding.json.MeasurementDecoder;
+import org.envirocar.server.rest.decoding.json.MeasurementsDecoder;
 import org.envirocar.server.rest.decoding.json.PhenomenonDecoder;
 import org.envirocar.server.rest.decoding.json.ResetPasswordDecoder;
 import org.envirocar.server.rest.decoding.json.SensorDecoder;
+import org.envirocar.server.rest.decoding.json.StreamingTrackDecoder;
 import org.envirocar.server.rest.decoding.json.TrackDecoder;
 import org.envirocar.server.rest.decoding.json.UserDecoder;
 import org.envirocar.server.rest.encoding.json.UserReferenceProvider;
@@ -67,9 +69,11 @@ public class JerseyDecoderModule extends AbstractModule {
         bind(MeasurementDecoder.class).in(Scopes.SINGLETON);
         bind(new TypeLiteral<JSONEntityDecoder<Measurement>>() {
         }).to(MeasurementDecoder.class);
+        bind(MeasurementsDecoder.class).in(Scopes.SINGLETON);
         bind(TrackDecoder.class).in(Scopes.SINGLETON);
         bind(new TypeLiteral<JSONEntityDecoder<Track>>() {
         }).to(TrackDecoder.class);
+        bind(StreamingTrackDecoder.class).in(Scopes.SINGLETON);
         bind(SensorDecoder.class).in(Scopes.SINGLETON);
         bind(new TypeLiteral<JSONEntityDecoder<Sensor>>() {
         }).to(SensorDecoder.class);
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.guice;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.envirocar.server.rest.ingest.IngestionService;
+import org.envirocar.server.rest.ingest.UploadJournal;
+import org.envirocar.server.rest.ingest.UploadSessions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.Closeables;
+import com.google.inject.AbstractModule;
+import com.google.inject.name.Names;
+
+/**
+ * Configures the asynchronous track ingestion and the resumable upload
+ * sessions from {@code /ingest.properties}. Uploads are stored below
+ * {@code ingest.directory}, which defaults to {@code envirocar-ingest} in
+ * the home directory of the server, next to the mail configuration; it
+ * has to survive restarts.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class JerseyIngestModule extends AbstractModule {
+    private static final String PROPERTIES_FILE = "/ingest.properties";
+    private static final Logger log = LoggerFactory
+            .getLogger(JerseyIngestModule.class);
+
+    @Override
+    protected void configure() {
+        String directory = new File(System.getProperty("user.home"),
+                                    "envirocar-ingest").getPath();
+        int segmentSize = 64 * 1024 * 1024;
+        int maxUploadSize = 16 * 1024 * 1024;
+        int workers = 2;
+        int maxAttempts = 5;
+        int sessionTimeout = 24;
+        try {
+            Properties p = getProperties();
+            if (p.containsKey(UploadJournal.DIRECTORY)) {
+                directory = p.getProperty(UploadJournal.DIRECTORY).trim();
+            }
+            if (p.containsKey(UploadJournal.SEGMENT_SIZE)) {
+                segmentSize = Integer.valueOf(p
+                        .getProperty(UploadJournal.SEGMENT_SIZE).trim());
+            }
+            if (p.containsKey(IngestionService.MAX_UPLOAD_SIZE)) {
+                maxUploadSize = Integer.valueOf(p
+                        .getProperty(IngestionService.MAX_UPLOAD_SIZE).trim());
+            }
+            if (p.containsKey(IngestionService.WORKERS)) {
+                workers = Integer.valueOf(p
+                        .getProperty(IngestionService.WORKERS).trim());
+            }
+            if (p.containsKey(IngestionService.MAX_ATTEMPTS)) {
+                maxAttempts = Integer.valueOf(p
+                        .getProperty(IngestionService.MAX_ATTEMPTS).trim());
+            }
+            if (p.containsKey(UploadSessions.TIMEOUT)) {
+                sessionTimeout = Integer.valueOf(p
+                        .getProperty(UploadSessions.TIMEOUT).trim());
+            }
+        } catch (IOException ex) {
+            log.error("Error reading ingest.properties. Using default values", ex);
+        }
+        bindConstant().annotatedWith(Names.named(UploadJournal.DIRECTORY))
+                .to(directory);
+        bindConstant().annotatedWith(Names.named(UploadJournal.SEGMENT_SIZE))
+                .to(segmentSize);
+        bindConstant().annotatedWith(Names.named(IngestionService.MAX_UPLOAD_SIZE))
+                .to(maxUploadSize);
+        bindConstant().annotatedWith(Names.named(IngestionService.WORKERS))
+                .to(workers);
+        bindConstant().annotatedWith(Names.named(IngestionService.MAX_ATTEMPTS))
+                .to(maxAttempts);
+        bindConstant().annotatedWith(Names.named(UploadSessions.TIMEOUT))
+                .to(sessionTimeout);
+        bind(IngestionService.class).asEagerSingleton();
+    }
+
+    private Properties getProperties() throws IOException {
+        InputStream is = JerseyIngestModule.class
+                .getResourceAsStream(PROPERTIES_FILE);
+        Properties p = new Properties();
+        if (is != null) {
+            try {
+                p.load(is);
+            } finally {
+                Closeables.closeQuietly(is);
+            }
+        }
+        return p;
+    }
+}
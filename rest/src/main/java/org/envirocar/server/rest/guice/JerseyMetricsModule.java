@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.guice;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.envirocar.server.rest.resources.MetricsResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.Closeables;
+import com.google.inject.AbstractModule;
+import com.google.inject.name.Names;
+
+/**
+ * Configures the exposure of the metrics endpoint from
+ * {@code /metrics.properties}. The endpoint is disabled by default.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class JerseyMetricsModule extends AbstractModule {
+    private static final String PROPERTIES_FILE = "/metrics.properties";
+    private static final Logger log = LoggerFactory
+            .getLogger(JerseyMetricsModule.class);
+
+    @Override
+    protected void configure() {
+        boolean enabled = false;
+        String allowedAddresses = "";
+        try {
+            Properties p = getProperties();
+            if (p.containsKey(MetricsResource.ENABLED)) {
+                enabled = Boolean.valueOf(p
+                        .getProperty(MetricsResource.ENABLED).trim());
+            }
+            if (p.containsKey(MetricsResource.ALLOWED_ADDRESSES)) {
+                allowedAddresses = p
+                        .getProperty(MetricsResource.ALLOWED_ADDRESSES);
+            }
+        } catch (IOException ex) {
+            log.error("Error reading metrics.properties. Using default values", ex);
+        }
+        bindConstant().annotatedWith(Names.named(MetricsResource.ENABLED))
+                .to(enabled);
+        bindConstant().annotatedWith(Names.named(MetricsResource.ALLOWED_ADDRESSES))
+                .to(allowedAddresses);
+    }
+
+    private Properties getProperties() throws IOException {
+        InputStream is = JerseyMetricsModule.class
+                .getResourceAsStream(PROPERTIES_FILE);
+        Properties p = new Properties();
+        if (is != null) {
+            try {
+                p.load(is);
+            } finally {
+                Closeables.closeQuietly(is);
+            }
+        }
+        return p;
+    }
+}
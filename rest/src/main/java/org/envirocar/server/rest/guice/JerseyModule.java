@@ -23,6 +23,13 @@ import org.envirocar.server.rest.CachingFilter;
 import org.envirocar.server.rest.URIContentNegotiationFilter;
 import org.envirocar.server.rest.auth.AuthenticationFilter;
 import org.envirocar.server.rest.auth.AuthenticationResourceFilterFactory;
+import org.envirocar.server.rest.bulkhead.BulkheadFilter;
+import org.envirocar.server.rest.bulkhead.BulkheadResourceFilterFactory;
+import org.envirocar.server.rest.idempotency.IdempotencyFilter;
+import org.envirocar.server.rest.idempotency.IdempotencyResourceFilterFactory;
+import org.envirocar.server.rest.metrics.MetricsFilter;
+import org.envirocar.server.rest.metrics.MetricsResourceFilterFactory;
+import org.envirocar.server.rest.ratelimit.RateLimitFilter;
 import org.envirocar.server.rest.validation.JSONSchemaResourceFilterFactory;
 
 import com.google.common.base.Function;
@@ -46,6 +53,9 @@ import com.sun.jersey.spi.container.ResourceFilterFactory;
 public class JerseyModule extends JerseyServletModule {
     @Override
     protected void configureServlets() {
+        filter("/*").through(MetricsFilter.class);
+        filter("/*").through(BulkheadFilter.class);
+        filter("/*").through(IdempotencyFilter.class);
         serve("/*").with(GuiceContainer.class, getContainerFilterConfig());
     }
 
@@ -73,11 +83,15 @@ public class JerseyModule extends JerseyServletModule {
     protected ImmutableList<Class<? extends ContainerRequestFilter>> requestFilters() {
         return ImmutableList.of(GZIPContentEncodingFilter.class,
                                 URIContentNegotiationFilter.class,
-                                AuthenticationFilter.class);
+                                AuthenticationFilter.class,
+                                RateLimitFilter.class);
     }
 
     protected ImmutableList<Class<? extends ResourceFilterFactory>> filterFactories() {
-        return ImmutableList.of(AuthenticationResourceFilterFactory.class,
+        return ImmutableList.of(MetricsResourceFilterFactory.class,
+                                AuthenticationResourceFilterFactory.class,
+                                BulkheadResourceFilterFactory.class,
+                                IdempotencyResourceFilterFactory.class,
                                 JSONSchemaResourceFilterFactory.class);
     }
 }
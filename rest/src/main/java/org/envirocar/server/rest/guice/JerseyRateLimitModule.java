@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.guice;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+import org.envirocar.server.rest.ratelimit.RateLimitFilter;
+import org.envirocar.server.rest.ratelimit.RateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.io.Closeables;
+import com.google.inject.AbstractModule;
+import com.google.inject.name.Names;
+
+/**
+ * Configures the request budgets of clients, the budget of failed
+ * authentications per address and the trusted proxies from
+ * {@code /ratelimit.properties}. No proxies are trusted by default.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class JerseyRateLimitModule extends AbstractModule {
+    private static final String PROPERTIES_FILE = "/ratelimit.properties";
+    private static final Logger log = LoggerFactory
+            .getLogger(JerseyRateLimitModule.class);
+
+    @Override
+    protected void configure() {
+        int reads = 600;
+        int writes = 120;
+        int exports = 10;
+        int authenticationFailures = 10;
+        String trustedProxies = "";
+        try {
+            Properties p = getProperties();
+            if (p.containsKey(RateLimiter.READS)) {
+                reads = Integer.valueOf(p
+                        .getProperty(RateLimiter.READS).trim());
+            }
+            if (p.containsKey(RateLimiter.WRITES)) {
+                writes = Integer.valueOf(p
+                        .getProperty(RateLimiter.WRITES).trim());
+            }
+            if (p.containsKey(RateLimiter.EXPORTS)) {
+                exports = Integer.valueOf(p
+                        .getProperty(RateLimiter.EXPORTS).trim());
+            }
+            if (p.containsKey(RateLimiter.AUTHENTICATION_FAILURES)) {
+                authenticationFailures = Integer.valueOf(p
+                        .getProperty(RateLimiter.AUTHENTICATION_FAILURES).trim());
+            }
+            if (p.containsKey(RateLimitFilter.TRUSTED_PROXIES)) {
+                trustedProxies = p.getProperty(RateLimitFilter.TRUSTED_PROXIES);
+            }
+        } catch (IOException ex) {
+            log.error("Error reading ratelimit.properties. Using default values", ex);
+        }
+        bindConstant().annotatedWith(Names.named(RateLimiter.READS))
+                .to(reads);
+        bindConstant().annotatedWith(Names.named(RateLimiter.WRITES))
+                .to(writes);
+        bindConstant().annotatedWith(Names.named(RateLimiter.EXPORTS))
+                .to(exports);
+        bindConstant().annotatedWith(Names.named(RateLimiter.AUTHENTICATION_FAILURES))
+                .to(authenticationFailures);
+        bindConstant().annotatedWith(Names.named(RateLimitFilter.TRUSTED_PROXIES))
+                .to(trustedProxies);
+    }
+
+    private Properties getProperties() throws IOException {
+        InputStream is = JerseyRateLimitModule.class
+                .getResourceAsStream(PROPERTIES_FILE);
+        Properties p = new Properties();
+        if (is != null) {
+            try {
+                p.load(is);
+            } finally {
+                Closeables.closeQuietly(is);
+            }
+        }
+        return p;
+    }
+}
@@ -16,13 +16,15 @@
  */
 package org.envirocar.server.rest.guice;
 
+import java.util.List;
 import java.util.Set;
 
 import javax.ws.rs.core.SecurityContext;
+import javax.ws.rs.core.UriInfo;
 
-import org.envirocar.server.core.FriendService;
-import org.envirocar.server.core.GroupService;
 import org.envirocar.server.core.entities.User;
+import org.envirocar.server.core.filter.Projection;
+import org.envirocar.server.rest.RESTConstants;
 import org.envirocar.server.rest.auth.PrincipalImpl;
 import org.envirocar.server.rest.mapper.BadRequestExceptionMapper;
 import org.envirocar.server.rest.mapper.IllegalModificationExceptionMapper;
@@ -35,8 +37,11 @@ import org.envirocar.server.rest.resources.ResourceFactory;
 import org.envirocar.server.rest.resources.RootResource;
 import org.envirocar.server.rest.rights.AccessRights;
 import org.envirocar.server.rest.rights.AccessRightsImpl;
+import org.envirocar.server.rest.rights.RelationshipCache;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.collect.Sets;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
@@ -63,14 +68,31 @@ public class JerseyResourceModule extends AbstractModule {
         bind(BadRequestExceptionMapper.class).in(Scopes.SINGLETON);
         install(new FactoryModuleBuilder().build(ResourceFactory.class));
         bind(RootResource.class);
+        bind(RelationshipCache.class).asEagerSingleton();
     }
 
     @Provides
     public AccessRights accessRights(SecurityContext ctx,
-                                     GroupService groupService,
-                                     FriendService friendService) {
+                                     RelationshipCache relationships) {
         PrincipalImpl p = (PrincipalImpl) ctx.getUserPrincipal();
         User user = p == null ? null : p.getUser();
-        return new AccessRightsImpl(user, groupService, friendService);
+        return new AccessRightsImpl(user, relationships);
+    }
+
+    @Provides
+    public Projection projection(UriInfo uriInfo) {
+        List<String> params = uriInfo.getQueryParameters()
+                .get(RESTConstants.FIELDS);
+        if (params == null || params.isEmpty()) {
+            return Projection.all();
+        }
+        Set<String> fields = Sets.newHashSet();
+        Splitter splitter = Splitter.on(',').trimResults().omitEmptyStrings();
+        for (String param : params) {
+            for (String field : splitter.split(param)) {
+                fields.add(field);
+            }
+        }
+        return Projection.of(fields);
     }
 }
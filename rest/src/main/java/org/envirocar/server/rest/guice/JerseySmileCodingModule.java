@@ -0,0 +1,44 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.guice;
+
+import org.envirocar.server.rest.decoding.smile.MeasurementSmileDecoder;
+import org.envirocar.server.rest.decoding.smile.MeasurementsSmileDecoder;
+import org.envirocar.server.rest.decoding.smile.TrackSmileDecoder;
+import org.envirocar.server.rest.encoding.smile.MeasurementsSmileEncoder;
+import org.envirocar.server.rest.encoding.smile.TrackSmileEncoder;
+import org.envirocar.server.rest.encoding.smile.TracksSmileEncoder;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Scopes;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class JerseySmileCodingModule extends AbstractModule {
+    @Override
+    protected void configure() {
+        bind(TrackSmileEncoder.class).in(Scopes.SINGLETON);
+        bind(TracksSmileEncoder.class).in(Scopes.SINGLETON);
+        bind(MeasurementsSmileEncoder.class).in(Scopes.SINGLETON);
+        bind(TrackSmileDecoder.class).in(Scopes.SINGLETON);
+        bind(MeasurementSmileDecoder.class).in(Scopes.SINGLETON);
+        bind(MeasurementsSmileDecoder.class).in(Scopes.SINGLETON);
+    }
+}
@@ -16,10 +16,23 @@
  */
 package org.envirocar.server.rest.guice;
 
+import static org.envirocar.server.rest.validation.JSONSchemaResourceFilterFactory.RESPONSE_VALIDATION_EXECUTOR;
 import static org.envirocar.server.rest.validation.JSONSchemaResourceFilterFactory.VALIDATE_REQUESTS;
 import static org.envirocar.server.rest.validation.JSONSchemaResourceFilterFactory.VALIDATE_RESPONSES;
+import static org.envirocar.server.rest.validation.JSONSchemaResourceFilterFactory.VALIDATE_RESPONSES_MAX_SIZE;
+import static org.envirocar.server.rest.validation.JSONSchemaResourceFilterFactory.VALIDATE_RESPONSES_SAMPLE_RATE;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.envirocar.server.core.util.GroupedAndNamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.github.fge.jsonschema.main.JsonSchemaFactory;
@@ -27,18 +40,27 @@ import com.github.fge.jsonschema.util.JsonLoader;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.io.Closeables;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Scopes;
+import com.google.inject.Singleton;
 import com.google.inject.multibindings.Multibinder;
+import com.google.inject.name.Named;
 import com.google.inject.name.Names;
 
 /**
- * TODO JavaDoc
+ * Configures the JSON schema validation. Request and response validation,
+ * the response sample rate and the maximum size of validated responses can
+ * be set in {@code /validation.properties}.
  *
  * @author Christian Autermann <autermann@uni-muenster.de>
  */
 public class JerseyValidationModule extends AbstractModule {
+    private static final String PROPERTIES_FILE = "/validation.properties";
+    private static final Logger log = LoggerFactory
+            .getLogger(JerseyValidationModule.class);
+
     @Override
     protected void configure() {
         Multibinder<String> mb = Multibinder
@@ -52,6 +74,7 @@ public class JerseyValidationModule extends AbstractModule {
         mb.addBinding().toInstance("/schema/groups.json");
         mb.addBinding().toInstance("/schema/measurement.create.json");
         mb.addBinding().toInstance("/schema/measurement.json");
+        mb.addBinding().toInstance("/schema/measurements.create.json");
         mb.addBinding().toInstance("/schema/measurements.json");
         mb.addBinding().toInstance("/schema/phenomenon.create.json");
         mb.addBinding().toInstance("/schema/phenomenon.json");
@@ -61,6 +84,7 @@ public class JerseyValidationModule extends AbstractModule {
         mb.addBinding().toInstance("/schema/sensor.create.json");
         mb.addBinding().toInstance("/schema/sensor.json");
         mb.addBinding().toInstance("/schema/sensors.json");
+        mb.addBinding().toInstance("/schema/track.chunk.json");
         mb.addBinding().toInstance("/schema/track.create.json");
         mb.addBinding().toInstance("/schema/track.json");
         mb.addBinding().toInstance("/schema/track.modify.json");
@@ -85,13 +109,58 @@ public class JerseyValidationModule extends AbstractModule {
         mb.addBinding().toInstance("/schema/fuelings.json");
         mb.addBinding().toInstance("/schema/passwordResetRequest.json");
         mb.addBinding().toInstance("/schema/passwordResetVerification.json");
-        bindConstant().annotatedWith(Names.named(VALIDATE_REQUESTS)).to(true);
-        bindConstant().annotatedWith(Names.named(VALIDATE_RESPONSES)).to(true);
+        boolean validateRequests = true;
+        boolean validateResponses = true;
+        double sampleRate = 1.0d;
+        int maxSize = 4 * 1024 * 1024;
+        try {
+            Properties p = getProperties();
+            if (p.containsKey(VALIDATE_REQUESTS)) {
+                validateRequests = Boolean.valueOf(p
+                        .getProperty(VALIDATE_REQUESTS).trim());
+            }
+            if (p.containsKey(VALIDATE_RESPONSES)) {
+                validateResponses = Boolean.valueOf(p
+                        .getProperty(VALIDATE_RESPONSES).trim());
+            }
+            if (p.containsKey(VALIDATE_RESPONSES_SAMPLE_RATE)) {
+                sampleRate = Double.valueOf(p
+                        .getProperty(VALIDATE_RESPONSES_SAMPLE_RATE).trim());
+            }
+            if (p.containsKey(VALIDATE_RESPONSES_MAX_SIZE)) {
+                maxSize = Integer.valueOf(p
+                        .getProperty(VALIDATE_RESPONSES_MAX_SIZE).trim());
+            }
+        } catch (IOException ex) {
+            log.error("Error reading validation.properties. Using default values", ex);
+        }
+        bindConstant().annotatedWith(Names.named(VALIDATE_REQUESTS))
+                .to(validateRequests);
+        bindConstant().annotatedWith(Names.named(VALIDATE_RESPONSES))
+                .to(validateResponses);
+        bindConstant().annotatedWith(Names.named(VALIDATE_RESPONSES_SAMPLE_RATE))
+                .to(sampleRate);
+        bindConstant().annotatedWith(Names.named(VALIDATE_RESPONSES_MAX_SIZE))
+                .to(maxSize);
         bind(JsonSchemaFactory.class).
                 toProvider(JSONSchemaFactoryProvider.class)
                 .in(Scopes.SINGLETON);
     }
 
+    private Properties getProperties() throws IOException {
+        InputStream is = JerseyValidationModule.class
+                .getResourceAsStream(PROPERTIES_FILE);
+        Properties p = new Properties();
+        if (is != null) {
+            try {
+                p.load(is);
+            } finally {
+                Closeables.closeQuietly(is);
+            }
+        }
+        return p;
+    }
+
     @Provides
     public LoadingCache<String, JsonNode> schemaCache() {
         return CacheBuilder.newBuilder().build(new CacheLoader<String, JsonNode>() {
@@ -101,4 +170,16 @@ public class JerseyValidationModule extends AbstractModule {
             }
         });
     }
+
+    @Provides
+    @Singleton
+    @Named(RESPONSE_VALIDATION_EXECUTOR)
+    public Executor responseValidationExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                2, 2, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(64),
+                new GroupedAndNamedThreadFactory("response-validation"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
 }
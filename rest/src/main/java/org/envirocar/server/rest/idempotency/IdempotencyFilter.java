@@ -0,0 +1,94 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.idempotency;
+
+import java.io.IOException;
+import java.security.DigestInputStream;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.envirocar.server.core.DataService;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Releases the idempotency key reserved by the
+ * {@link IdempotencyResourceFilterFactory} if the request did not complete
+ * it, e.g. because a later filter rejected the request or it failed.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class IdempotencyFilter implements Filter {
+    /**
+     * Request attribute holding the {@link Reservation} of the request.
+     */
+    public static final String RESERVATION = IdempotencyFilter.class
+            .getName() + ".reservation";
+    private final DataService dataService;
+
+    @Inject
+    public IdempotencyFilter(DataService dataService) {
+        this.dataService = dataService;
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response,
+                         FilterChain chain) throws IOException,
+                                                   ServletException {
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            Reservation reservation = (Reservation) request
+                    .getAttribute(RESERVATION);
+            if (reservation != null) {
+                request.removeAttribute(RESERVATION);
+                dataService.releaseIdempotencyKey(reservation.user,
+                                                  reservation.key);
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * A reserved idempotency key.
+     */
+    static class Reservation {
+        final String user;
+        final String key;
+        final DigestInputStream in;
+
+        Reservation(String user, String key, DigestInputStream in) {
+            this.user = user;
+            this.key = key;
+            this.in = in;
+        }
+    }
+}
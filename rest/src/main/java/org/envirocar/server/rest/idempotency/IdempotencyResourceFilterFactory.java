@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.idempotency;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.envirocar.server.core.DataService;
+import org.envirocar.server.core.entities.IdempotencyKey;
+import org.envirocar.server.rest.JSONConstants;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.sun.jersey.api.container.ContainerException;
+import com.sun.jersey.api.model.AbstractMethod;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponse;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ResourceFilter;
+import com.sun.jersey.spi.container.ResourceFilterFactory;
+
+/**
+ * Answers repeated requests to {@link Idempotent} resource methods. The key
+ * is reserved before the request is processed and completed with a hash of
+ * the request and the location of the created resource. A replay with the
+ * same hash is answered with {@code 201 Created} without processing the
+ * request again, a replay with a different request is rejected. The request
+ * entity is hashed while it is consumed, so it is not buffered.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class IdempotencyResourceFilterFactory implements ResourceFilterFactory {
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+    private static final Logger log = LoggerFactory
+            .getLogger(IdempotencyResourceFilterFactory.class);
+    private static final int MAX_KEY_LENGTH = 255;
+    /* reservations of requests that never completed */
+    private static final int ABANDONED_AFTER_MINUTES = 10;
+    private static final int UNPROCESSABLE_ENTITY = 422;
+    private static final String ALGORITHM = "SHA-256";
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final int BUFFER_SIZE = 4096;
+    private final DataService dataService;
+    private final Provider<HttpServletRequest> servletRequest;
+    private final JsonNodeFactory factory;
+
+    @Inject
+    public IdempotencyResourceFilterFactory(
+            DataService dataService,
+            Provider<HttpServletRequest> servletRequest,
+            JsonNodeFactory factory) {
+        this.dataService = dataService;
+        this.servletRequest = servletRequest;
+        this.factory = factory;
+    }
+
+    @Override
+    public List<ResourceFilter> create(AbstractMethod am) {
+        if (am.isAnnotationPresent(Idempotent.class)) {
+            return Collections
+                    .<ResourceFilter>singletonList(new IdempotencyResourceFilter());
+        }
+        return null;
+    }
+
+    private WebApplicationException error(int status, String message) {
+        ObjectNode error = factory.objectNode();
+        error.put(JSONConstants.ERROR_KEY, message);
+        return new WebApplicationException(Response.status(status)
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .entity(error).build());
+    }
+
+    private MessageDigest digest(ContainerRequest request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance(ALGORITHM);
+            digest.update((request.getMethod() + " " + request.getPath())
+                    .getBytes(UTF8));
+            return digest;
+        } catch (NoSuchAlgorithmException e) {
+            throw new ContainerException(e);
+        }
+    }
+
+    private static String hash(DigestInputStream in) throws IOException {
+        /* the entity reader may have stopped before the end of the entity */
+        byte[] buffer = new byte[BUFFER_SIZE];
+        while (in.read(buffer) >= 0) {
+            /* only update the digest */
+        }
+        byte[] bytes = in.getMessageDigest().digest();
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; ++i) {
+            chars[2 * i] = HEX[(bytes[i] >> 4) & 0xf];
+            chars[2 * i + 1] = HEX[bytes[i] & 0xf];
+        }
+        return new String(chars);
+    }
+
+    private static boolean isAbandoned(IdempotencyKey key) {
+        return !key.isCompleted() && key.hasCreationTime() &&
+               key.getCreationTime().plusMinutes(ABANDONED_AFTER_MINUTES)
+                .isBefore(new DateTime());
+    }
+
+    private class IdempotencyResourceFilter implements ResourceFilter,
+                                                       ContainerRequestFilter,
+                                                       ContainerResponseFilter {
+        @Override
+        public ContainerRequestFilter getRequestFilter() {
+            return this;
+        }
+
+        @Override
+        public ContainerResponseFilter getResponseFilter() {
+            return this;
+        }
+
+        @Override
+        public ContainerRequest filter(ContainerRequest request) {
+            String key = request.getHeaderValue(IDEMPOTENCY_KEY);
+            Principal principal = request.getUserPrincipal();
+            if (key == null || principal == null) {
+                return request;
+            }
+            if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+                throw error(Status.BAD_REQUEST.getStatusCode(),
+                            "Invalid " + IDEMPOTENCY_KEY);
+            }
+            String user = principal.getName();
+            IdempotencyKey existing = dataService.getIdempotencyKey(user, key);
+            if (existing != null && isAbandoned(existing)) {
+                log.warn("Releasing abandoned idempotency key {}", existing);
+                dataService.releaseIdempotencyKey(user, key);
+                existing = null;
+            }
+            if (existing == null) {
+                if (dataService.reserveIdempotencyKey(user, key)) {
+                    DigestInputStream in = new DigestInputStream(
+                            request.getEntityInputStream(), digest(request));
+                    request.setEntityInputStream(in);
+                    servletRequest.get().setAttribute(
+                            IdempotencyFilter.RESERVATION,
+                            new IdempotencyFilter.Reservation(user, key, in));
+                    return request;
+                }
+                existing = dataService.getIdempotencyKey(user, key);
+            }
+            if (existing == null || !existing.isCompleted()) {
+                throw error(Status.CONFLICT.getStatusCode(),
+                            "A request with this " + IDEMPOTENCY_KEY +
+                            " is still being processed");
+            }
+            return replay(request, existing);
+        }
+
+        private ContainerRequest replay(ContainerRequest request,
+                                        IdempotencyKey existing) {
+            String hash;
+            try {
+                hash = hash(new DigestInputStream(
+                        request.getEntityInputStream(), digest(request)));
+            } catch (IOException e) {
+                throw new ContainerException(e);
+            }
+            if (!hash.equals(existing.getHash())) {
+                throw error(UNPROCESSABLE_ENTITY,
+                            "The " + IDEMPOTENCY_KEY +
+                            " was used for a different request");
+            }
+            throw new WebApplicationException(Response
+                    .created(URI.create(existing.getLocation()))
+                    .header(IDEMPOTENT_REPLAYED, Boolean.TRUE.toString())
+                    .build());
+        }
+
+        @Override
+        public ContainerResponse filter(ContainerRequest request,
+                                        ContainerResponse response) {
+            HttpServletRequest sr = servletRequest.get();
+            IdempotencyFilter.Reservation reservation =
+                    (IdempotencyFilter.Reservation) sr
+                    .getAttribute(IdempotencyFilter.RESERVATION);
+            Object location = response.getHttpHeaders()
+                    .getFirst(HttpHeaders.LOCATION);
+            /* anything else is released by the IdempotencyFilter */
+            if (reservation == null ||
+                response.getStatus() != Status.CREATED.getStatusCode() ||
+                location == null) {
+                return response;
+            }
+            try {
+                dataService.completeIdempotencyKey(reservation.user,
+                                                   reservation.key,
+                                                   hash(reservation.in),
+                                                   location.toString());
+                sr.removeAttribute(IdempotencyFilter.RESERVATION);
+            } catch (IOException e) {
+                log.warn("Can not hash request; releasing idempotency key", e);
+            }
+            return response;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.ingest;
+
+import org.joda.time.DateTime;
+
+/**
+ * The state of an asynchronous track upload.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class IngestionJob {
+    public enum State {
+        PENDING,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+    private final String identifier;
+    private final String user;
+    private final DateTime creationTime;
+    private DateTime modificationTime;
+    private State state = State.PENDING;
+    private int attempts;
+    private String track;
+    private String message;
+
+    public IngestionJob(String identifier, String user) {
+        this.identifier = identifier;
+        this.user = user;
+        this.creationTime = new DateTime();
+        this.modificationTime = creationTime;
+    }
+
+    public String getIdentifier() {
+        return identifier;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public DateTime getCreationTime() {
+        return creationTime;
+    }
+
+    public synchronized DateTime getModificationTime() {
+        return modificationTime;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getAttempts() {
+        return attempts;
+    }
+
+    /**
+     * @return the identifier of the created track or {@code null}
+     */
+    public synchronized String getTrack() {
+        return track;
+    }
+
+    /**
+     * @return the reason of the last failure or {@code null}
+     */
+    public synchronized String getMessage() {
+        return message;
+    }
+
+    synchronized void running() {
+        ++attempts;
+        update(State.RUNNING, null);
+    }
+
+    synchronized void retrying(String message) {
+        update(State.PENDING, message);
+    }
+
+    synchronized void succeeded(String track) {
+        this.track = track;
+        update(State.SUCCEEDED, null);
+    }
+
+    synchronized void failed(String message) {
+        update(State.FAILED, message);
+    }
+
+    private void update(State state, String message) {
+        this.state = state;
+        this.message = message;
+        this.modificationTime = new DateTime();
+    }
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.ingest;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.annotation.Annotation;
+import java.util.List;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+
+import org.envirocar.server.core.DataService;
+import org.envirocar.server.core.UserService;
+import org.envirocar.server.core.entities.Track;
+import org.envirocar.server.core.entities.User;
+import org.envirocar.server.core.exception.TrackNotFoundException;
+import org.envirocar.server.core.exception.UserNotFoundException;
+import org.envirocar.server.core.exception.ValidationException;
+import org.envirocar.server.core.util.GroupedAndNamedThreadFactory;
+import org.envirocar.server.core.util.ShutdownHooks;
+import org.envirocar.server.rest.StreamingTrack;
+import org.envirocar.server.rest.decoding.json.StreamingTrackDecoder;
+import org.envirocar.server.rest.validation.JSONValidationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.inject.Inject;
+import com.google.inject.ProvisionException;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+/**
+ * Ingests track uploads asynchronously. Uploads are appended to the
+ * {@link UploadJournal} and acknowledged; a pool of workers decodes and
+ * saves them afterwards. Failures caused by the upload itself are final,
+ * everything else is retried with an exponential back-off. Uploads that
+ * were not completed before a shutdown are resumed on startup. On shutdown
+ * the workers are stopped and the journal is closed.
+ * <p/>
+ * The track created from an upload gets the identifier of the journal
+ * entry, so a retry of an upload whose track was already saved only
+ * completes the job, and the state of a succeeded job can always be derived
+ * from its track. The state of other jobs is rebuilt from the journal.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class IngestionService implements Closeable {
+    public static final String WORKERS = "ingest.workers";
+    public static final String MAX_ATTEMPTS = "ingest.maxAttempts";
+    public static final String MAX_UPLOAD_SIZE = "ingest.maxUploadSize";
+    private static final Logger log = LoggerFactory
+            .getLogger(IngestionService.class);
+    private static final long RETRY_DELAY = 5000;
+    private static final long SHUTDOWN_TIMEOUT = 10;
+    private static final Annotation[] NO_ANNOTATIONS = new Annotation[0];
+    private final UploadJournal journal;
+    private final StreamingTrackDecoder decoder;
+    private final DataService dataService;
+    private final UserService userService;
+    private final ScheduledThreadPoolExecutor executor;
+    private final int maxAttempts;
+    private final int maxUploadSize;
+    private final Cache<String, IngestionJob> jobs = CacheBuilder
+            .newBuilder().expireAfterWrite(1, TimeUnit.DAYS).build();
+
+    @Inject
+    public IngestionService(UploadJournal journal,
+                            StreamingTrackDecoder decoder,
+                            DataService dataService,
+                            UserService userService,
+                            @Named(WORKERS) int workers,
+                            @Named(MAX_ATTEMPTS) int maxAttempts,
+                            @Named(MAX_UPLOAD_SIZE) int maxUploadSize,
+                            ShutdownHooks shutdownHooks) {
+        this.journal = journal;
+        this.decoder = decoder;
+        this.dataService = dataService;
+        this.userService = userService;
+        this.maxAttempts = maxAttempts;
+        this.maxUploadSize = maxUploadSize;
+        this.executor = new ScheduledThreadPoolExecutor(workers,
+                new GroupedAndNamedThreadFactory("ingest"));
+        /* retries are resumed from the journal after a restart */
+        this.executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+        shutdownHooks.register(this);
+        try {
+            List<UploadJournal.Entry> pending = journal.open();
+            for (UploadJournal.Completion completion
+                         : journal.getCompletions()) {
+                IngestionJob job = new IngestionJob(
+                        completion.getId(), completion.getUser());
+                if (completion.getTrack() != null) {
+                    job.succeeded(completion.getTrack());
+                } else {
+                    job.failed(completion.getMessage());
+                }
+                jobs.put(job.getIdentifier(), job);
+            }
+            for (UploadJournal.Entry entry : pending) {
+                log.info("Resuming upload {} of {}",
+                         entry.getId(), entry.getUser());
+                schedule(entry, 0);
+            }
+        } catch (IOException ex) {
+            throw new ProvisionException("Can not open upload journal", ex);
+        }
+    }
+
+    /**
+     * Journals the upload and schedules it for ingestion.
+     *
+     * @param user      the uploading user
+     * @param mediaType the media type of the upload
+     * @param in        the upload
+     *
+     * @return the job
+     *
+     * @throws UploadTooLargeException if the upload exceeds the
+     *                                 {@link #MAX_UPLOAD_SIZE}
+     * @throws IOException             if the upload can not be journaled
+     */
+    public IngestionJob submit(User user, MediaType mediaType, InputStream in)
+            throws IOException {
+        UploadJournal.Entry entry = journal.append(
+                user.getName(), mediaType.toString(), in, maxUploadSize);
+        return schedule(entry, 0);
+    }
+
+    /**
+     * Stops the workers and closes the journal. Uploads that are not
+     * completed yet are resumed on the next start.
+     */
+    @Override
+    public void close() {
+        if (ShutdownHooks.shutdown(executor, SHUTDOWN_TIMEOUT)) {
+            journal.close();
+        } else {
+            log.warn("Ingestion workers did not stop, " +
+                     "leaving the journal mapped");
+        }
+    }
+
+    /**
+     * @param id the job identifier
+     *
+     * @return the job or {@code null} if it is unknown or expired
+     */
+    public IngestionJob getJob(String id) {
+        IngestionJob job = jobs.getIfPresent(id);
+        if (job == null) {
+            /* the journal may have been compacted since */
+            Track track = getTrack(id);
+            if (track != null && track.hasUser()) {
+                job = new IngestionJob(id, track.getUser().getName());
+                job.succeeded(track.getIdentifier());
+                jobs.put(id, job);
+            }
+        }
+        return job;
+    }
+
+    private Track getTrack(String id) {
+        try {
+            return dataService.getTrack(id);
+        } catch (TrackNotFoundException e) {
+            return null;
+        }
+    }
+
+    private IngestionJob schedule(UploadJournal.Entry entry, long delay) {
+        IngestionJob job = jobs.getIfPresent(entry.getId());
+        if (job == null) {
+            job = new IngestionJob(entry.getId(), entry.getUser());
+        }
+        jobs.put(job.getIdentifier(), job);
+        executor.schedule(new Worker(job, entry),
+                          delay, TimeUnit.MILLISECONDS);
+        return job;
+    }
+
+    private void succeeded(IngestionJob job, UploadJournal.Entry entry,
+                           Track track) {
+        job.succeeded(track.getIdentifier());
+        jobs.put(job.getIdentifier(), job);
+        complete(entry, track.getIdentifier(), null);
+    }
+
+    private void failed(IngestionJob job, UploadJournal.Entry entry,
+                        String message) {
+        log.info("Upload {} failed: {}", job.getIdentifier(), message);
+        job.failed(message);
+        jobs.put(job.getIdentifier(), job);
+        complete(entry, null, message);
+    }
+
+    private void retry(IngestionJob job, UploadJournal.Entry entry,
+                       Exception e) {
+        if (job.getAttempts() >= maxAttempts) {
+            log.error("Giving up on upload " + job.getIdentifier(), e);
+            failed(job, entry, e.getMessage());
+        } else {
+            log.warn("Upload " + job.getIdentifier() + " failed, retrying", e);
+            job.retrying(e.getMessage());
+            schedule(entry, RETRY_DELAY << (job.getAttempts() - 1));
+        }
+    }
+
+    private void complete(UploadJournal.Entry entry, String track,
+                          String message) {
+        try {
+            journal.complete(entry, track, message);
+        } catch (IOException ex) {
+            log.error("Could not complete upload " + entry.getId(), ex);
+        }
+    }
+
+    private class Worker implements Runnable {
+        private final IngestionJob job;
+        private final UploadJournal.Entry entry;
+
+        Worker(IngestionJob job, UploadJournal.Entry entry) {
+            this.job = job;
+            this.entry = entry;
+        }
+
+        @Override
+        public void run() {
+            job.running();
+            try {
+                /* a previous attempt may have failed after saving the track */
+                Track existing = getTrack(entry.getId());
+                if (existing != null) {
+                    succeeded(job, entry, existing);
+                    return;
+                }
+                User user = userService.getUser(entry.getUser());
+                StreamingTrack upload = decoder.readFrom(
+                        StreamingTrack.class, StreamingTrack.class,
+                        NO_ANNOTATIONS, MediaType.valueOf(entry.getMediaType()),
+                        null, journal.read(entry));
+                Track track = upload.getTrack();
+                track.setIdentifier(entry.getId());
+                track.setUser(user);
+                track = dataService.createTrack(track, upload.getMeasurements());
+                succeeded(job, entry, track);
+            } catch (UserNotFoundException e) {
+                failed(job, entry, e.getMessage());
+            } catch (JSONValidationException e) {
+                failed(job, entry, String.valueOf(e.getError()));
+            } catch (ValidationException e) {
+                failed(job, entry, e.getMessage());
+            } catch (WebApplicationException e) {
+                failed(job, entry,
+                       String.valueOf(e.getResponse().getEntity()));
+            } catch (IOException e) {
+                retry(job, entry, e);
+            } catch (RuntimeException e) {
+                retry(job, entry, e);
+            }
+        }
+    }
+}
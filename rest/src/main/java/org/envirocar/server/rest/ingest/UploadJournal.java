@@ -0,0 +1,615 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.ingest;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+/**
+ * An append-only journal of track uploads, stored in memory-mapped segment
+ * files. Every upload is forced to disk before it is acknowledged and a
+ * completion record is appended once it was processed. Segments are deleted
+ * as soon as they and all older segments contain no pending uploads, so
+ * uploads that were not completed are recovered after a restart.
+ * <p/>
+ * Uploads are received into a spool file next to the segments, so they are
+ * neither buffered in memory nor is the journal locked while they are
+ * received. Afterwards a region of their exact size is reserved in the
+ * current segment and the upload is copied into it; a reserved region is
+ * skipped when the journal is read, until the copy is complete. Segments
+ * are unmapped when they are deleted or the journal is closed.
+ * <p/>
+ * Entry identifiers have the format of MongoDB object ids, so they can be
+ * used as the identifiers of the entities that are created from them.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class UploadJournal {
+    public static final String DIRECTORY = "ingest.directory";
+    public static final String SEGMENT_SIZE = "ingest.segmentSize";
+    private static final Logger log = LoggerFactory
+            .getLogger(UploadJournal.class);
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String PREFIX = "journal-";
+    private static final String SUFFIX = ".log";
+    private static final String SPOOL_SUFFIX = ".upload";
+    private static final int UPLOAD = 1;
+    private static final int COMPLETED = 2;
+    private static final int RESERVED = 3;
+    private final File directory;
+    private final int segmentSize;
+    private final LinkedList<Segment> segments = Lists.newLinkedList();
+    private final Map<String, Completion> completions =
+            new LinkedHashMap<String, Completion>();
+    private Segment current;
+    private long nextSegment;
+
+    @Inject
+    public UploadJournal(@Named(DIRECTORY) String directory,
+                         @Named(SEGMENT_SIZE) int segmentSize) {
+        this.directory = new File(directory);
+        this.segmentSize = segmentSize;
+    }
+
+    /**
+     * Opens the journal.
+     *
+     * @return the uploads that were not completed, in the order they were
+     *         appended
+     *
+     * @throws IOException if the journal can not be read
+     */
+    public synchronized List<Entry> open() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can not create " + directory);
+        }
+        File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                return f.isFile() && f.getName().startsWith(PREFIX) &&
+                       f.getName().endsWith(SUFFIX);
+            }
+        });
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(File a, File b) {
+                long x = number(a), y = number(b);
+                return x < y ? -1 : (x == y ? 0 : 1);
+            }
+        });
+        /* uploads that were still being received were not acknowledged */
+        File[] spooled = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                return f.isFile() && f.getName().endsWith(SPOOL_SUFFIX);
+            }
+        });
+        for (File file : spooled) {
+            delete(file);
+        }
+        Map<String, Entry> pending = new LinkedHashMap<String, Entry>();
+        for (File file : files) {
+            Segment segment = new Segment(number(file), file,
+                                          map(file, file.length()));
+            segment.recover(pending, completions);
+            segments.add(segment);
+            nextSegment = segment.number + 1;
+        }
+        for (Entry entry : pending.values()) {
+            entry.segment.pending++;
+        }
+        compact();
+        return Lists.newArrayList(pending.values());
+    }
+
+    /**
+     * @return the completions of uploads that are still contained in the
+     *         journal, read by {@link #open()}
+     */
+    public synchronized List<Completion> getCompletions() {
+        return Lists.newArrayList(completions.values());
+    }
+
+    /**
+     * Appends an upload and forces it to disk.
+     *
+     * @param user      the name of the uploading user
+     * @param mediaType the media type of the upload
+     * @param payload   the upload
+     *
+     * @return the journal entry
+     *
+     * @throws IOException if the upload can not be written
+     */
+    public Entry append(String user, String mediaType, byte[] payload)
+            throws IOException {
+        return append(user, mediaType, new ByteArrayInputStream(payload),
+                      payload.length);
+    }
+
+    /**
+     * Streams an upload into the journal and forces it to disk.
+     *
+     * @param user      the name of the uploading user
+     * @param mediaType the media type of the upload
+     * @param in        the upload
+     * @param maxLength the maximum length of the upload
+     *
+     * @return the journal entry
+     *
+     * @throws UploadTooLargeException if the upload exceeds {@code maxLength}
+     * @throws IOException             if the upload can not be read or
+     *                                 written
+     */
+    public Entry append(String user, String mediaType, InputStream in,
+                        int maxLength) throws IOException {
+        String id = newId();
+        File spool = new File(directory, id + SPOOL_SUFFIX);
+        try {
+            int length = receive(in, spool, maxLength);
+            byte[][] fields = { bytes(id), bytes(user), bytes(mediaType) };
+            int header = 8 + 4 * fields.length + 4;
+            for (byte[] field : fields) {
+                header += field.length;
+            }
+            Segment segment;
+            int start;
+            synchronized (this) {
+                segment = reserve(header + length);
+                ByteBuffer buffer = segment.writer();
+                start = buffer.position();
+                buffer.putInt(0).putInt(header + length);
+                for (byte[] field : fields) {
+                    buffer.putInt(field.length).put(field);
+                }
+                buffer.putInt(length);
+                segment.buffer.putInt(start, RESERVED);
+                segment.position = start + header + length;
+                segment.pending++;
+            }
+            int offset = start + header;
+            try {
+                copy(spool, segment, offset, length);
+            } catch (IOException e) {
+                abort(segment);
+                throw e;
+            } catch (RuntimeException e) {
+                abort(segment);
+                throw e;
+            }
+            synchronized (this) {
+                commit(segment, start, UPLOAD);
+            }
+            return new Entry(id, user, mediaType, segment, offset, length);
+        } finally {
+            delete(spool);
+        }
+    }
+
+    /**
+     * Writes the upload to the spool file.
+     *
+     * @return the length of the upload
+     */
+    private int receive(InputStream in, File spool, int maxLength)
+            throws IOException {
+        OutputStream out = new FileOutputStream(spool);
+        try {
+            byte[] b = new byte[8192];
+            int length = 0;
+            int n;
+            while ((n = in.read(b)) >= 0) {
+                if (n > maxLength - length) {
+                    throw new UploadTooLargeException(maxLength);
+                }
+                out.write(b, 0, n);
+                length += n;
+            }
+            return length;
+        } finally {
+            Closeables.closeQuietly(out);
+        }
+    }
+
+    private void copy(File spool, Segment segment, int offset, int length)
+            throws IOException {
+        ByteBuffer buffer = segment.buffer.duplicate();
+        buffer.position(offset);
+        buffer.limit(offset + length);
+        FileInputStream in = new FileInputStream(spool);
+        try {
+            FileChannel channel = in.getChannel();
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Truncated spool file " + spool);
+                }
+            }
+        } finally {
+            Closeables.closeQuietly(in);
+        }
+    }
+
+    private synchronized void abort(Segment segment) {
+        /* the region stays reserved and is skipped */
+        segment.pending--;
+        compact();
+    }
+
+    /**
+     * Marks the upload as processed. It will not be recovered again.
+     *
+     * @param entry   the entry
+     * @param track   the identifier of the created track or {@code null} if
+     *                the upload failed
+     * @param message the reason of the failure or {@code null}
+     *
+     * @throws IOException if the completion can not be written
+     */
+    public synchronized void complete(Entry entry, String track,
+                                      String message) throws IOException {
+        Completion completion = new Completion(entry.getId(), entry.getUser(),
+                                               track, message);
+        byte[][] fields = { bytes(completion.getId()),
+                            bytes(completion.getUser()),
+                            bytes(Strings.nullToEmpty(track)),
+                            bytes(Strings.nullToEmpty(message)) };
+        int length = 4 + 4 * fields.length;
+        for (byte[] field : fields) {
+            length += field.length;
+        }
+        Segment segment = reserve(length);
+        ByteBuffer buffer = segment.writer();
+        int start = buffer.position();
+        buffer.putInt(0);
+        for (byte[] field : fields) {
+            buffer.putInt(field.length).put(field);
+        }
+        segment.position = buffer.position();
+        commit(segment, start, COMPLETED);
+        completions.put(completion.getId(), completion);
+        segment.completed.add(completion.getId());
+        entry.segment.pending--;
+        compact();
+    }
+
+    /**
+     * Unmaps all segments. Entries can not be read afterwards; uploads that
+     * were not completed are recovered when the journal is opened again.
+     */
+    public synchronized void close() {
+        for (Segment segment : segments) {
+            segment.release();
+        }
+        segments.clear();
+        completions.clear();
+        current = null;
+    }
+
+    /**
+     * @param entry the entry
+     *
+     * @return a stream of the upload, backed by the mapped segment
+     *
+     * @throws IllegalStateException if the segment of the entry was released
+     */
+    public InputStream read(Entry entry) {
+        if (entry.segment.released) {
+            throw new IllegalStateException(
+                    "The journal segment of " + entry.getId() +
+                    " was released");
+        }
+        ByteBuffer buffer = entry.segment.buffer.duplicate();
+        buffer.position(entry.offset);
+        buffer.limit(entry.offset + entry.length);
+        return new ByteBufferInputStream(buffer.slice());
+    }
+
+    private Segment reserve(int length) throws IOException {
+        /* keep room for the terminating zero */
+        if (current == null ||
+            current.buffer.capacity() - current.position < length + 4) {
+            long number = nextSegment++;
+            File file = new File(directory, PREFIX + number + SUFFIX);
+            current = new Segment(number, file,
+                                  map(file, Math.max(segmentSize, length + 4)));
+            segments.add(current);
+            compact();
+        }
+        return current;
+    }
+
+    private void commit(Segment segment, int start, int type) {
+        /* the type is written last, a torn record reads as the end */
+        segment.buffer.putInt(start, type);
+        segment.buffer.force();
+    }
+
+    private void compact() {
+        while (!segments.isEmpty() && segments.getFirst() != current &&
+               segments.getFirst().pending == 0) {
+            Segment segment = segments.removeFirst();
+            segment.forget(completions);
+            segment.release();
+            delete(segment.file);
+        }
+    }
+
+    private static void delete(File file) {
+        if (file.exists() && !file.delete()) {
+            log.warn("Could not delete {}", file);
+        }
+    }
+
+    /**
+     * @return a 12 byte identifier: the seconds since the epoch followed by
+     *         8 random bytes
+     */
+    static String newId() {
+        return String.format("%08x%016x", System.currentTimeMillis() / 1000L,
+                             UUID.randomUUID().getLeastSignificantBits());
+    }
+
+    private MappedByteBuffer map(File file, long size) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static long number(File file) {
+        String name = file.getName();
+        return Long.parseLong(name.substring(PREFIX.length(),
+                                             name.length() - SUFFIX.length()));
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(UTF8);
+    }
+
+    private static String string(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    /**
+     * An upload in the journal.
+     */
+    public static class Entry {
+        private final String id;
+        private final String user;
+        private final String mediaType;
+        private final Segment segment;
+        private final int offset;
+        private final int length;
+
+        Entry(String id, String user, String mediaType, Segment segment,
+              int offset, int length) {
+            this.id = id;
+            this.user = user;
+            this.mediaType = mediaType;
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        public String getMediaType() {
+            return mediaType;
+        }
+
+        public int getLength() {
+            return length;
+        }
+    }
+
+    /**
+     * The result of a processed upload.
+     */
+    public static class Completion {
+        private final String id;
+        private final String user;
+        private final String track;
+        private final String message;
+
+        Completion(String id, String user, String track, String message) {
+            this.id = id;
+            this.user = user;
+            this.track = Strings.emptyToNull(track);
+            this.message = Strings.emptyToNull(message);
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getUser() {
+            return user;
+        }
+
+        /**
+         * @return the identifier of the created track or {@code null} if
+         *         the upload failed
+         */
+        public String getTrack() {
+            return track;
+        }
+
+        /**
+         * @return the reason of the failure or {@code null}
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private static class Segment {
+        private final long number;
+        private final File file;
+        private final MappedByteBuffer buffer;
+        private final List<String> completed = Lists.newLinkedList();
+        private int position;
+        private int pending;
+        private volatile boolean released;
+
+        Segment(long number, File file, MappedByteBuffer buffer) {
+            this.number = number;
+            this.file = file;
+            this.buffer = buffer;
+        }
+
+        /**
+         * Unmaps the segment. Mapped buffers are otherwise only unmapped
+         * when they are garbage collected, which keeps the files of deleted
+         * segments allocated.
+         */
+        void release() {
+            if (released) {
+                return;
+            }
+            released = true;
+            try {
+                Method cleaner = buffer.getClass().getMethod("cleaner");
+                cleaner.setAccessible(true);
+                Object c = cleaner.invoke(buffer);
+                if (c != null) {
+                    c.getClass().getMethod("clean").invoke(c);
+                }
+            } catch (Exception e) {
+                log.debug("Could not unmap journal segment " + file, e);
+            }
+        }
+
+        ByteBuffer writer() {
+            ByteBuffer writer = buffer.duplicate();
+            writer.position(position);
+            return writer;
+        }
+
+        void forget(Map<String, Completion> completions) {
+            for (String id : completed) {
+                completions.remove(id);
+            }
+        }
+
+        void recover(Map<String, Entry> pending,
+                     Map<String, Completion> completions) {
+            ByteBuffer reader = buffer.duplicate();
+            while (reader.remaining() >= 4) {
+                int start = reader.position();
+                int type = reader.getInt();
+                if (type == UPLOAD) {
+                    int end = start + reader.getInt();
+                    String id = string(reader);
+                    String user = string(reader);
+                    String mediaType = string(reader);
+                    int length = reader.getInt();
+                    pending.put(id, new Entry(id, user, mediaType, this,
+                                              reader.position(), length));
+                    reader.position(end);
+                } else if (type == RESERVED) {
+                    int end = start + reader.getInt();
+                    if (end <= start || end > reader.limit()) {
+                        reader.position(start);
+                        break;
+                    }
+                    reader.position(end);
+                } else if (type == COMPLETED) {
+                    Completion completion = new Completion(
+                            string(reader), string(reader),
+                            string(reader), string(reader));
+                    pending.remove(completion.getId());
+                    completions.put(completion.getId(), completion);
+                    completed.add(completion.getId());
+                } else {
+                    reader.position(start);
+                    break;
+                }
+            }
+            this.position = reader.position();
+        }
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.ingest;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.UUID;
+
+import org.envirocar.server.core.DataService;
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.Track;
+import org.envirocar.server.core.entities.User;
+import org.envirocar.server.core.exception.BadRequestException;
+import org.envirocar.server.core.exception.ResourceAlreadyExistException;
+import org.envirocar.server.core.exception.TrackNotFoundException;
+import org.envirocar.server.rest.decoding.json.StreamingTrackDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Function;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.collect.Iterators;
+import com.google.common.io.Files;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.sun.jersey.api.container.ContainerException;
+
+/**
+ * Stores resumable track uploads. A session holds the track properties and
+ * the chunks of measurements received so far, one file per sequence number,
+ * so a client only has to resend the chunks that were not acknowledged.
+ * Resending a chunk with the same content is a no-op. Completing a session
+ * creates the track from the chunks in sequence order and remembers the
+ * created track, so a repeated completion returns the same track. The
+ * identifier of the track is recorded before it is created, so a completion
+ * that was interrupted is resumed with the same identifier instead of
+ * creating a second track.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class UploadSessions {
+    public static final String TIMEOUT = "ingest.sessionTimeout";
+    private static final Logger log = LoggerFactory
+            .getLogger(UploadSessions.class);
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String SESSIONS = "sessions";
+    private static final String OWNER = "owner";
+    private static final String ENVELOPE = "track.json";
+    private static final String TRACK = "track";
+    static final String COMPLETING = "completing";
+    private static final String CHUNK_PREFIX = "chunk-";
+    private static final String CHUNK_SUFFIX = ".json";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private final File directory;
+    private final long timeout;
+    private final DataService dataService;
+    private final StreamingTrackDecoder decoder;
+    private final ObjectMapper mapper;
+    private final LoadingCache<String, Object> locks = CacheBuilder
+            .newBuilder().weakValues()
+            .build(new CacheLoader<String, Object>() {
+        @Override
+        public Object load(String key) {
+            return new Object();
+        }
+    });
+
+    /**
+     * @param directory the ingest directory
+     * @param timeout   the hours after the last modification of a session
+     *                  until it is deleted
+     */
+    @Inject
+    public UploadSessions(@Named(UploadJournal.DIRECTORY) String directory,
+                          @Named(TIMEOUT) int timeout,
+                          DataService dataService,
+                          StreamingTrackDecoder decoder,
+                          ObjectMapper mapper) {
+        this.directory = new File(directory, SESSIONS);
+        this.timeout = timeout * 60L * 60L * 1000L;
+        this.dataService = dataService;
+        this.decoder = decoder;
+        this.mapper = mapper;
+    }
+
+    /**
+     * Opens a new session and deletes expired ones.
+     *
+     * @param user     the name of the uploading user
+     * @param envelope the track properties
+     *
+     * @return the session
+     *
+     * @throws IOException if the session can not be stored
+     */
+    public Session open(String user, ObjectNode envelope) throws IOException {
+        purge();
+        String id = UUID.randomUUID().toString();
+        File dir = new File(directory, id);
+        if (!dir.mkdirs()) {
+            throw new IOException("Can not create " + dir);
+        }
+        write(new File(dir, ENVELOPE), mapper.writeValueAsBytes(envelope));
+        write(new File(dir, OWNER), user.getBytes(UTF8));
+        return new Session(id, user, dir);
+    }
+
+    /**
+     * @param id the session identifier
+     *
+     * @return the session or {@code null} if it does not exist
+     *
+     * @throws IOException if the session can not be read
+     */
+    public Session get(String id) throws IOException {
+        try {
+            if (!UUID.fromString(id).toString().equals(id)) {
+                return null;
+            }
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        File dir = new File(directory, id);
+        File owner = new File(dir, OWNER);
+        if (!owner.isFile()) {
+            return null;
+        }
+        return new Session(id, Files.toString(owner, UTF8), dir);
+    }
+
+    /**
+     * Stores a chunk.
+     *
+     * @param session  the session
+     * @param sequence the sequence number of the chunk
+     * @param chunk    the chunk
+     *
+     * @return {@code false} if the chunk was already received
+     *
+     * @throws IOException                   if the chunk can not be stored
+     * @throws ResourceAlreadyExistException if the session is completed or
+     *                                       a different chunk with the same
+     *                                       sequence number was received
+     */
+    public boolean append(Session session, int sequence, JsonNode chunk)
+            throws IOException, ResourceAlreadyExistException {
+        byte[] bytes = mapper.writeValueAsBytes(chunk);
+        synchronized (lock(session)) {
+            if (getTrack(session) != null ||
+                new File(session.directory, COMPLETING).isFile()) {
+                throw new ResourceAlreadyExistException(
+                        "The upload session is already completed");
+            }
+            File file = chunk(session, sequence);
+            if (file.isFile()) {
+                if (Arrays.equals(Files.toByteArray(file), bytes)) {
+                    return false;
+                }
+                throw new ResourceAlreadyExistException(String.format(
+                        "A different chunk %d was already received", sequence));
+            }
+            write(file, bytes);
+            return true;
+        }
+    }
+
+    /**
+     * @param session the session
+     *
+     * @return the sequence numbers of the received chunks
+     */
+    public SortedSet<Integer> getChunks(Session session) {
+        SortedSet<Integer> chunks = new TreeSet<Integer>();
+        String[] names = session.directory.list();
+        if (names == null) {
+            return chunks;
+        }
+        for (String name : names) {
+            if (name.startsWith(CHUNK_PREFIX) && name.endsWith(CHUNK_SUFFIX)) {
+                try {
+                    chunks.add(Integer.valueOf(name.substring(
+                            CHUNK_PREFIX.length(),
+                            name.length() - CHUNK_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    log.warn("Ignoring {} in {}", name, session.directory);
+                }
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * @param session the session
+     *
+     * @return the identifier of the created track or {@code null} if the
+     *         session is not completed
+     *
+     * @throws IOException if the session can not be read
+     */
+    public String getTrack(Session session) throws IOException {
+        File file = new File(session.directory, TRACK);
+        return file.isFile() ? Files.toString(file, UTF8) : null;
+    }
+
+    /**
+     * Creates the track from the received chunks in sequence order. If the
+     * session was already completed the previously created track is
+     * returned. If a previous completion was interrupted, it is resumed
+     * with the recorded track identifier.
+     *
+     * @param session the session
+     * @param user    the uploading user
+     *
+     * @return the identifier of the created track
+     *
+     * @throws IOException         if the session can not be read
+     * @throws BadRequestException if a chunk is missing
+     */
+    public String complete(final Session session, User user)
+            throws IOException, BadRequestException {
+        synchronized (lock(session)) {
+            String existing = getTrack(session);
+            if (existing != null) {
+                return existing;
+            }
+            SortedSet<Integer> chunks = getChunks(session);
+            File completing = new File(session.directory, COMPLETING);
+            String id;
+            if (completing.isFile()) {
+                id = Files.toString(completing, UTF8);
+                if (exists(id)) {
+                    log.info("Resuming completed upload session {}",
+                             session.getId());
+                    return completed(session, chunks, id);
+                }
+            } else {
+                int next = getNextChunk(chunks);
+                if (next != chunks.size()) {
+                    throw new BadRequestException(String.format(
+                            "Chunk %d is missing", next));
+                }
+                id = UploadJournal.newId();
+                write(completing, id.getBytes(UTF8));
+            }
+            ObjectNode envelope = (ObjectNode) mapper
+                    .readTree(new File(session.directory, ENVELOPE));
+            final Track track = decoder.readTrack(envelope);
+            track.setIdentifier(id);
+            track.setUser(user);
+            Iterator<Measurement> measurements = Iterators.concat(Iterators
+                    .transform(chunks.iterator(),
+                               new Function<Integer, Iterator<Measurement>>() {
+                @Override
+                public Iterator<Measurement> apply(Integer sequence) {
+                    try {
+                        return decoder.readFeatures(new ByteArrayInputStream(
+                                Files.toByteArray(chunk(session, sequence))),
+                                                    track);
+                    } catch (IOException e) {
+                        throw new ContainerException(e);
+                    }
+                }
+            }));
+            return completed(session, chunks, dataService
+                    .createTrack(track, measurements).getIdentifier());
+        }
+    }
+
+    private String completed(Session session, SortedSet<Integer> chunks,
+                             String track) throws IOException {
+        write(new File(session.directory, TRACK), track.getBytes(UTF8));
+        for (Integer sequence : chunks) {
+            File file = chunk(session, sequence);
+            if (!file.delete()) {
+                log.warn("Can not delete {}", file);
+            }
+        }
+        return track;
+    }
+
+    private boolean exists(String track) {
+        try {
+            dataService.getTrack(track);
+            return true;
+        } catch (TrackNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @param chunks the sequence numbers of the received chunks
+     *
+     * @return the lowest sequence number that was not received
+     */
+    public static int getNextChunk(SortedSet<Integer> chunks) {
+        int next = 0;
+        for (Integer sequence : chunks) {
+            if (sequence.intValue() != next) {
+                break;
+            }
+            next++;
+        }
+        return next;
+    }
+
+    private Object lock(Session session) {
+        return locks.getUnchecked(session.getId());
+    }
+
+    private File chunk(Session session, int sequence) {
+        return new File(session.directory, String.format(
+                "%s%08d%s", CHUNK_PREFIX, sequence, CHUNK_SUFFIX));
+    }
+
+    private void write(File file, byte[] bytes) throws IOException {
+        File tmp = new File(file.getParentFile(),
+                            file.getName() + TEMPORARY_SUFFIX);
+        FileOutputStream out = new FileOutputStream(tmp);
+        try {
+            out.write(bytes);
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Can not write " + file);
+        }
+    }
+
+    private void purge() {
+        File[] dirs = directory.listFiles();
+        if (dirs == null) {
+            return;
+        }
+        long expired = System.currentTimeMillis() - timeout;
+        for (File dir : dirs) {
+            if (dir.isDirectory() && dir.lastModified() < expired) {
+                log.info("Deleting expired upload session {}", dir.getName());
+                delete(dir);
+            }
+        }
+    }
+
+    private void delete(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.delete()) {
+                    log.warn("Can not delete {}", file);
+                }
+            }
+        }
+        if (!dir.delete()) {
+            log.warn("Can not delete {}", dir);
+        }
+    }
+
+    /**
+     * A resumable upload.
+     */
+    public static class Session {
+        private final String id;
+        private final String user;
+        private final File directory;
+
+        Session(String id, String user, File directory) {
+            this.id = id;
+            this.user = user;
+            this.directory = directory;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        /**
+         * @return the name of the uploading user
+         */
+        public String getUser() {
+            return user;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.ingest;
+
+import java.io.IOException;
+
+/**
+ * Thrown if an upload exceeds the maximum size of the {@link UploadJournal}.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class UploadTooLargeException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public UploadTooLargeException(int maxLength) {
+        super(String.format("The upload exceeds the limit of %d bytes",
+                            maxLength));
+    }
+}
@@ -0,0 +1,224 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.metrics;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import org.envirocar.server.core.metrics.Metrics;
+import org.envirocar.server.core.metrics.RequestContext;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Records the duration, status and payload sizes of every request. The
+ * resource method is attributed by the
+ * {@link MetricsResourceFilterFactory}; requests that never reach a
+ * resource method are recorded as unmatched.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class MetricsFilter implements Filter {
+    /**
+     * Request attribute holding the {@link ResourceMethodMetrics} of the
+     * request.
+     */
+    public static final String METRICS = MetricsFilter.class.getName() +
+                                         ".metrics";
+    private static final String UNMATCHED = "unmatched";
+    private final ResourceMethodMetrics unmatched;
+
+    @Inject
+    public MetricsFilter(Metrics metrics) {
+        this.unmatched = new ResourceMethodMetrics(metrics, UNMATCHED,
+                                                   UNMATCHED);
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response,
+                         FilterChain chain) throws IOException,
+                                                   ServletException {
+        long start = System.nanoTime();
+        MetricsResponse wrapper =
+                new MetricsResponse((HttpServletResponse) response);
+        boolean failed = true;
+        try {
+            chain.doFilter(request, wrapper);
+            wrapper.flushWriter();
+            failed = false;
+        } finally {
+            RequestContext.clear();
+            ResourceMethodMetrics metrics =
+                    (ResourceMethodMetrics) request.getAttribute(METRICS);
+            if (metrics != null) {
+                request.removeAttribute(METRICS);
+                metrics.exit();
+            } else {
+                metrics = unmatched;
+            }
+            metrics.record(failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR
+                           : wrapper.getStatus(),
+                           System.nanoTime() - start,
+                           request.getContentLength(),
+                           wrapper.getBytesWritten());
+        }
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    /**
+     * Captures the status and counts the bytes of the response, as neither
+     * can be queried from a servlet 2.5 response. A writer encodes into
+     * the counted stream, so its bytes are counted as well.
+     */
+    private static class MetricsResponse extends HttpServletResponseWrapper {
+        private int status = SC_OK;
+        private CountingOutputStream out;
+        private PrintWriter writer;
+
+        MetricsResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        int getStatus() {
+            return status;
+        }
+
+        long getBytesWritten() {
+            return out == null ? 0 : out.count;
+        }
+
+        @Override
+        public void setStatus(int sc) {
+            this.status = sc;
+            super.setStatus(sc);
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void setStatus(int sc, String sm) {
+            this.status = sc;
+            super.setStatus(sc, sm);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            this.status = sc;
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            this.status = sc;
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            this.status = SC_FOUND;
+            super.sendRedirect(location);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (writer != null) {
+                throw new IllegalStateException(
+                        "getWriter() was already called");
+            }
+            if (out == null) {
+                out = new CountingOutputStream(super.getOutputStream());
+            }
+            return out;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                if (out != null) {
+                    throw new IllegalStateException(
+                            "getOutputStream() was already called");
+                }
+                out = new CountingOutputStream(super.getOutputStream());
+                writer = new PrintWriter(new OutputStreamWriter(
+                        out, getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            flushWriter();
+            super.flushBuffer();
+        }
+
+        void flushWriter() {
+            if (writer != null) {
+                writer.flush();
+            }
+        }
+    }
+
+    private static class CountingOutputStream extends ServletOutputStream {
+        private final ServletOutputStream delegate;
+        private long count;
+
+        CountingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            ++count;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
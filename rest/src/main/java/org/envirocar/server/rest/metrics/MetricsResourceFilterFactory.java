@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.metrics;
+
+import java.util.Collections;
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.envirocar.server.core.metrics.Metrics;
+import org.envirocar.server.core.metrics.RequestContext;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.sun.jersey.api.model.AbstractMethod;
+import com.sun.jersey.api.model.AbstractResourceMethod;
+import com.sun.jersey.api.model.AbstractSubResourceLocator;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+import com.sun.jersey.spi.container.ContainerResponseFilter;
+import com.sun.jersey.spi.container.ResourceFilter;
+import com.sun.jersey.spi.container.ResourceFilterFactory;
+
+/**
+ * Attributes requests to the resource method handling them, so the
+ * {@link MetricsFilter} can record them per method and lower layers can
+ * name the resource through the {@link RequestContext}.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class MetricsResourceFilterFactory implements ResourceFilterFactory {
+    private final Metrics metrics;
+    private final Provider<HttpServletRequest> servletRequest;
+
+    @Inject
+    public MetricsResourceFilterFactory(
+            Metrics metrics, Provider<HttpServletRequest> servletRequest) {
+        this.metrics = metrics;
+        this.servletRequest = servletRequest;
+    }
+
+    @Override
+    public List<ResourceFilter> create(AbstractMethod am) {
+        if (am instanceof AbstractSubResourceLocator) {
+            /* attribute the request to the method that finally handles it */
+            return null;
+        }
+        String resource = am.getResource().getResourceClass().getSimpleName()
+                          + "." + am.getMethod().getName();
+        String method = am instanceof AbstractResourceMethod
+                        ? ((AbstractResourceMethod) am).getHttpMethod() : "";
+        return Collections.<ResourceFilter>singletonList(
+                new MetricsResourceFilter(
+                        new ResourceMethodMetrics(metrics, resource, method)));
+    }
+
+    private class MetricsResourceFilter implements ResourceFilter,
+                                                   ContainerRequestFilter {
+        private final ResourceMethodMetrics metrics;
+
+        MetricsResourceFilter(ResourceMethodMetrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public ContainerRequestFilter getRequestFilter() {
+            return this;
+        }
+
+        @Override
+        public ContainerResponseFilter getResponseFilter() {
+            return null;
+        }
+
+        @Override
+        public ContainerRequest filter(ContainerRequest request) {
+            HttpServletRequest sr = servletRequest.get();
+            if (sr.getAttribute(MetricsFilter.METRICS) == null) {
+                metrics.enter();
+                sr.setAttribute(MetricsFilter.METRICS, metrics);
+                RequestContext.setResource(metrics.getName());
+            }
+            return request;
+        }
+    }
+}
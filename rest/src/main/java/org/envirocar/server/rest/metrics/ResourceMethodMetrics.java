@@ -0,0 +1,102 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.metrics;
+
+import org.envirocar.server.core.metrics.Buckets;
+import org.envirocar.server.core.metrics.Gauge;
+import org.envirocar.server.core.metrics.Histogram;
+import org.envirocar.server.core.metrics.Metrics;
+
+/**
+ * The metrics of a single resource method. All metrics are looked up when
+ * the resource method is registered, so recording a request does not
+ * allocate.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+class ResourceMethodMetrics {
+    static final String DURATION = "envirocar_http_request_duration_seconds";
+    static final String IN_FLIGHT = "envirocar_http_requests_in_flight";
+    static final String REQUEST_SIZE = "envirocar_http_request_size_bytes";
+    static final String RESPONSE_SIZE = "envirocar_http_response_size_bytes";
+    private static final String RESOURCE = "resource";
+    private static final String METHOD = "method";
+    private static final String STATUS = "status";
+    private static final String[] STATUS_CLASSES = {
+        "1xx", "2xx", "3xx", "4xx", "5xx"
+    };
+    private final Histogram[] durations =
+            new Histogram[STATUS_CLASSES.length];
+    private final String name;
+    private final Gauge inFlight;
+    private final Histogram requestSize;
+    private final Histogram responseSize;
+
+    ResourceMethodMetrics(Metrics metrics, String resource, String method) {
+        this.name = method.isEmpty() ? resource : method + " " + resource;
+        for (int i = 0; i < STATUS_CLASSES.length; ++i) {
+            durations[i] = metrics.histogram(
+                    DURATION, "Duration of HTTP requests.", Buckets.LATENCY,
+                    RESOURCE, resource, METHOD, method,
+                    STATUS, STATUS_CLASSES[i]);
+        }
+        this.inFlight = metrics.gauge(
+                IN_FLIGHT, "HTTP requests currently being processed.",
+                RESOURCE, resource, METHOD, method);
+        this.requestSize = metrics.histogram(
+                REQUEST_SIZE, "Size of HTTP request entities.",
+                Buckets.SIZE, RESOURCE, resource, METHOD, method);
+        this.responseSize = metrics.histogram(
+                RESPONSE_SIZE, "Size of HTTP response entities.",
+                Buckets.SIZE, RESOURCE, resource, METHOD, method);
+    }
+
+    /**
+     * @return the name of the resource method, e.g.
+     *         {@code GET TracksResource.get}
+     */
+    String getName() {
+        return name;
+    }
+
+    void enter() {
+        inFlight.increment();
+    }
+
+    void exit() {
+        inFlight.decrement();
+    }
+
+    /**
+     * Records a finished request.
+     *
+     * @param status       the status code of the response
+     * @param nanos        the duration of the request
+     * @param requestSize  the size of the request entity or {@code -1} if
+     *                     unknown
+     * @param responseSize the number of bytes written for the response
+     */
+    void record(int status, long nanos, long requestSize, long responseSize) {
+        int statusClass = Math.min(Math.max(status / 100, 1),
+                                   STATUS_CLASSES.length) - 1;
+        durations[statusClass].record(nanos);
+        if (requestSize >= 0) {
+            this.requestSize.record(requestSize);
+        }
+        this.responseSize.record(responseSize);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.ratelimit;
+
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.envirocar.server.rest.ratelimit.RateLimiter.Budget;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+/**
+ * Limits the failed authentications per remote address. Requests with
+ * credentials from an address that exhausted its budget are rejected with
+ * {@code 429 Too Many Requests} before the credentials are checked, so
+ * guessing passwords does not cost a user lookup and a password check per
+ * attempt. Successful authentications are not charged.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class AuthenticationThrottle {
+    private final RateLimiter limiter;
+    private final Provider<HttpServletRequest> servletRequest;
+    private final JsonNodeFactory factory;
+    private final Set<String> trustedProxies;
+
+    @Inject
+    public AuthenticationThrottle(
+            RateLimiter limiter,
+            Provider<HttpServletRequest> servletRequest,
+            JsonNodeFactory factory,
+            @Named(RateLimitFilter.TRUSTED_PROXIES) String trustedProxies) {
+        this.limiter = limiter;
+        this.servletRequest = servletRequest;
+        this.factory = factory;
+        this.trustedProxies = RateLimitFilter.parseAddresses(trustedProxies);
+    }
+
+    /**
+     * Rejects the request if its address exhausted its budget.
+     */
+    public void check() {
+        long wait = limiter.check(getClient(), Budget.AUTHENTICATION);
+        if (wait > 0) {
+            throw RateLimitFilter.tooManyRequests(factory, wait);
+        }
+    }
+
+    /**
+     * Charges a failed authentication to the address of the request.
+     */
+    public void failed() {
+        limiter.tryAcquire(getClient(), Budget.AUTHENTICATION);
+    }
+
+    private String getClient() {
+        HttpServletRequest sr = servletRequest.get();
+        return "address:" + RateLimitFilter.getAddress(
+                sr.getRemoteAddr(), sr.getHeader(RateLimitFilter.X_FORWARDED_FOR),
+                trustedProxies);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.ratelimit;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.ratelimit.RateLimiter.Budget;
+import org.envirocar.server.rest.util.Exports;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.name.Named;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.ContainerRequestFilter;
+
+/**
+ * Rejects requests of clients that exhausted their budget with
+ * {@code 429 Too Many Requests}. Authenticated requests are charged to the
+ * user, anonymous requests to the remote address. If the request was
+ * received from one of the configured trusted proxies, the client address
+ * is taken from the {@code X-Forwarded-For} header instead: it is the last
+ * address in the header that is not a trusted proxy. Reading, modifying and
+ * exporting requests have separate budgets. Failed authentications are
+ * charged by the {@link AuthenticationThrottle}, as they are rejected
+ * before this filter runs. The filter has to run after the
+ * {@link org.envirocar.server.rest.auth.AuthenticationFilter} and the
+ * content negotiation.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class RateLimitFilter implements ContainerRequestFilter {
+    public static final int TOO_MANY_REQUESTS = 429;
+    public static final String RETRY_AFTER = "Retry-After";
+    public static final String X_FORWARDED_FOR = "X-Forwarded-For";
+    /**
+     * Comma separated list of the addresses of trusted proxies.
+     */
+    public static final String TRUSTED_PROXIES = "rateLimit.trustedProxies";
+    private final RateLimiter limiter;
+    private final Provider<HttpServletRequest> servletRequest;
+    private final JsonNodeFactory factory;
+    private final Set<String> trustedProxies;
+
+    @Inject
+    public RateLimitFilter(RateLimiter limiter,
+                           Provider<HttpServletRequest> servletRequest,
+                           JsonNodeFactory factory,
+                           @Named(TRUSTED_PROXIES) String trustedProxies) {
+        this.limiter = limiter;
+        this.servletRequest = servletRequest;
+        this.factory = factory;
+        this.trustedProxies = parseAddresses(trustedProxies);
+    }
+
+    @Override
+    public ContainerRequest filter(ContainerRequest request) {
+        if (request.getMethod().equals(HttpMethod.OPTIONS)) {
+            return request;
+        }
+        long wait = limiter.tryAcquire(getClient(request), getBudget(request));
+        if (wait > 0) {
+            throw tooManyRequests(factory, wait);
+        }
+        return request;
+    }
+
+    /**
+     * @param factory the factory for the error message
+     * @param wait    the nanoseconds until the request would be admitted
+     *
+     * @return the exception answering a request with
+     *         {@code 429 Too Many Requests}
+     */
+    static WebApplicationException tooManyRequests(JsonNodeFactory factory,
+                                                   long wait) {
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(
+                wait + TimeUnit.SECONDS.toNanos(1) - 1));
+        ObjectNode error = factory.objectNode();
+        error.put(JSONConstants.ERROR_KEY, "Too many requests");
+        return new WebApplicationException(Response
+                .status(TOO_MANY_REQUESTS)
+                .header(RETRY_AFTER, String.valueOf(seconds))
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .entity(error).build());
+    }
+
+    /**
+     * @param addresses a comma separated list of addresses
+     *
+     * @return the addresses
+     */
+    static Set<String> parseAddresses(String addresses) {
+        return ImmutableSet.copyOf(Splitter.on(',').trimResults()
+                .omitEmptyStrings().split(addresses));
+    }
+
+    private String getClient(ContainerRequest request) {
+        if (request.getUserPrincipal() != null) {
+            return "user:" + request.getUserPrincipal().getName();
+        }
+        HttpServletRequest sr = servletRequest.get();
+        return "address:" + getAddress(sr.getRemoteAddr(),
+                                       sr.getHeader(X_FORWARDED_FOR),
+                                       trustedProxies);
+    }
+
+    /**
+     * @param remoteAddress  the address the request was received from
+     * @param forwardedFor   the {@code X-Forwarded-For} header or
+     *                       {@code null}
+     * @param trustedProxies the addresses of trusted proxies
+     *
+     * @return the address of the client
+     */
+    static String getAddress(String remoteAddress, String forwardedFor,
+                             Set<String> trustedProxies) {
+        if (forwardedFor == null ||
+            !trustedProxies.contains(remoteAddress)) {
+            return remoteAddress;
+        }
+        String address = remoteAddress;
+        /* proxies append the address they received the request from */
+        for (String hop : Lists.reverse(Lists.newArrayList(Splitter.on(',')
+                .trimResults().omitEmptyStrings().split(forwardedFor)))) {
+            address = hop;
+            if (!trustedProxies.contains(hop)) {
+                break;
+            }
+        }
+        return address;
+    }
+
+    private Budget getBudget(ContainerRequest request) {
+        String method = request.getMethod();
+        if (!method.equals(HttpMethod.GET) && !method.equals(HttpMethod.HEAD)) {
+            return Budget.WRITE;
+        }
+        return Exports.isExport(request) ? Budget.EXPORT : Budget.READ;
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.ratelimit;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+/**
+ * Keeps a {@link TokenBucket} per client and budget. Buckets of clients that
+ * were idle for a while are discarded; the cache is segmented, so clients
+ * do not contend for a single lock.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class RateLimiter {
+    public static final String READS = "rateLimit.reads";
+    public static final String WRITES = "rateLimit.writes";
+    public static final String EXPORTS = "rateLimit.exports";
+    public static final String AUTHENTICATION_FAILURES =
+            "rateLimit.authenticationFailures";
+    private static final long IDLE_MINUTES = 10;
+    private final int[] capacities = new int[Budget.values().length];
+    private final LoadingCache<Key, TokenBucket> buckets = CacheBuilder
+            .newBuilder()
+            .expireAfterAccess(IDLE_MINUTES, TimeUnit.MINUTES)
+            .build(new CacheLoader<Key, TokenBucket>() {
+        @Override
+        public TokenBucket load(Key key) {
+            return new TokenBucket(capacities[key.budget.ordinal()],
+                                   1, TimeUnit.MINUTES, System.nanoTime());
+        }
+    });
+
+    /**
+     * Creates a new rate limiter. Every budget is given in requests per
+     * minute; a value of zero or less disables the limit.
+     *
+     * @param reads   the budget for reading requests
+     * @param writes  the budget for modifying requests
+     * @param exports the budget for export formats
+     * @param authenticationFailures the budget for failed authentications
+     */
+    @Inject
+    public RateLimiter(@Named(READS) int reads,
+                       @Named(WRITES) int writes,
+                       @Named(EXPORTS) int exports,
+                       @Named(AUTHENTICATION_FAILURES) int authenticationFailures) {
+        this.capacities[Budget.READ.ordinal()] = reads;
+        this.capacities[Budget.WRITE.ordinal()] = writes;
+        this.capacities[Budget.EXPORT.ordinal()] = exports;
+        this.capacities[Budget.AUTHENTICATION.ordinal()] =
+                authenticationFailures;
+    }
+
+    /**
+     * Tries to admit a request of the client.
+     *
+     * @param client the client identifier
+     * @param budget the budget to charge
+     *
+     * @return {@code 0} if the request is admitted, else the nanoseconds
+     *         until it would be
+     */
+    public long tryAcquire(String client, Budget budget) {
+        if (capacities[budget.ordinal()] <= 0) {
+            return 0;
+        }
+        try {
+            return buckets.get(new Key(client, budget))
+                    .tryAcquire(System.nanoTime());
+        } catch (ExecutionException e) {
+            throw new UncheckedExecutionException(e.getCause());
+        }
+    }
+
+    /**
+     * Checks if the client has budget left without charging it.
+     *
+     * @param client the client identifier
+     * @param budget the budget to check
+     *
+     * @return {@code 0} if a request would be admitted, else the
+     *         nanoseconds until it would be
+     */
+    public long check(String client, Budget budget) {
+        if (capacities[budget.ordinal()] <= 0) {
+            return 0;
+        }
+        TokenBucket bucket = buckets.getIfPresent(new Key(client, budget));
+        return bucket == null ? 0 : bucket.peek(System.nanoTime());
+    }
+
+    /**
+     * The budgets requests are charged to.
+     */
+    public enum Budget {
+        READ,
+        WRITE,
+        EXPORT,
+        /**
+         * Failed authentications of a remote address.
+         */
+        AUTHENTICATION
+    }
+
+    private static class Key {
+        private final String client;
+        private final Budget budget;
+
+        Key(String client, Budget budget) {
+            this.client = client;
+            this.budget = budget;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * client.hashCode() + budget.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof Key) {
+                Key that = (Key) obj;
+                return client.equals(that.client) && budget == that.budget;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket. Instead of counting tokens, the bucket keeps the
+ * time at which it would be full again (the generic cell rate algorithm),
+ * so that a single compare-and-set suffices to take a token.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class TokenBucket {
+    private final long interval;
+    private final long tolerance;
+    private final AtomicLong full;
+
+    /**
+     * Creates a new full bucket.
+     *
+     * @param capacity the number of tokens the bucket holds
+     * @param period   the period in which the bucket is refilled completely
+     * @param unit     the unit of {@code period}
+     * @param now      the current time in nanoseconds
+     */
+    public TokenBucket(int capacity, long period, TimeUnit unit, long now) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity < 1");
+        }
+        this.interval = Math.max(1, unit.toNanos(period) / capacity);
+        this.tolerance = this.interval * capacity;
+        this.full = new AtomicLong(now);
+    }
+
+    /**
+     * Checks if a token is available without taking it.
+     *
+     * @param now the current time in nanoseconds
+     *
+     * @return {@code 0} if a token is available, else the nanoseconds until
+     *         the next token is available
+     */
+    public long peek(long now) {
+        long wait = Math.max(full.get(), now) + interval - now - tolerance;
+        return Math.max(0, wait);
+    }
+
+    /**
+     * Tries to take a token from the bucket.
+     *
+     * @param now the current time in nanoseconds
+     *
+     * @return {@code 0} if a token was taken, else the nanoseconds until
+     *         the next token is available
+     */
+    public long tryAcquire(long now) {
+        while (true) {
+            long current = full.get();
+            long next = Math.max(current, now) + interval;
+            long wait = next - now - tolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (full.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
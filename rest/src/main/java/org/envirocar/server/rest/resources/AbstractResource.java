@@ -37,6 +37,7 @@ import org.envirocar.server.core.UserService;
 import org.envirocar.server.core.entities.EntityFactory;
 import org.envirocar.server.core.entities.User;
 import org.envirocar.server.core.exception.BadRequestException;
+import org.envirocar.server.core.filter.Projection;
 import org.envirocar.server.core.util.pagination.Pagination;
 import org.envirocar.server.rest.auth.PrincipalImpl;
 import org.envirocar.server.rest.pagination.PaginationProvider;
@@ -70,6 +71,7 @@ public abstract class AbstractResource {
     private Provider<EntityFactory> entityFactory;
     private Provider<Optional<Set<String>>> allowedMailAddresses;
     private PaginationProvider pagination;
+    private Provider<Projection> projection;
 
     protected AccessRights getRights() {
         return rights.get();
@@ -79,6 +81,10 @@ public abstract class AbstractResource {
         return pagination.get();
     }
 
+    protected Projection getProjection() {
+        return projection.get();
+    }
+
     protected UriInfo getUriInfo() {
         return uriInfo.get();
     }
@@ -179,6 +185,11 @@ public abstract class AbstractResource {
         this.pagination = pagination;
     }
 
+    @Inject
+    public void setProjection(Provider<Projection> projection) {
+        this.projection = projection;
+    }
+
     protected void checkMail(User user) {
         if (user.hasMail() && allowedMailAddresses.get().isPresent() &&
             !allowedMailAddresses.get().get().contains(user.getMail())) {
@@ -16,6 +16,9 @@
  */
 package org.envirocar.server.rest.resources;
 
+import java.net.URI;
+import java.util.List;
+
 import javax.annotation.Nullable;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
@@ -25,8 +28,10 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import org.envirocar.server.core.TemporalFilter;
 import org.envirocar.server.core.entities.Measurement;
 import org.envirocar.server.core.entities.Measurements;
 import org.envirocar.server.core.entities.Track;
@@ -38,13 +43,24 @@ import org.envirocar.server.core.exception.TrackNotFoundException;
 import org.envirocar.server.core.exception.UserNotFoundException;
 import org.envirocar.server.core.exception.ValidationException;
 import org.envirocar.server.core.filter.MeasurementFilter;
+import org.envirocar.server.core.filter.Projection;
 import org.envirocar.server.rest.BoundingBox;
+import org.envirocar.server.rest.JSONConstants;
 import org.envirocar.server.rest.MediaTypes;
 import org.envirocar.server.rest.RESTConstants;
 import org.envirocar.server.rest.Schemas;
 import org.envirocar.server.rest.auth.Authenticated;
+import org.envirocar.server.rest.bulkhead.Bulkhead;
+import org.envirocar.server.rest.bulkhead.Workload;
+import org.envirocar.server.rest.idempotency.Idempotent;
+import org.envirocar.server.rest.util.Downsampling;
 import org.envirocar.server.rest.validation.Schema;
+import org.joda.time.DateTime;
 
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.vividsolutions.jts.geom.GeometryFactory;
@@ -57,17 +73,21 @@ import com.vividsolutions.jts.geom.Polygon;
  */
 public class MeasurementsResource extends AbstractResource {
     public static final String MEASUREMENT = "{measurement}";
+    public static final String BATCH = "batch";
     private final Track track;
     private final User user;
     private final GeometryFactory geometryFactory;
+    private final JsonNodeFactory factory;
 
     @Inject
     public MeasurementsResource(@Assisted @Nullable Track track,
                                 @Assisted @Nullable User user,
-                                GeometryFactory geometryFactory) {
+                                GeometryFactory geometryFactory,
+                                JsonNodeFactory factory) {
         this.track = track;
         this.user = user;
         this.geometryFactory = geometryFactory;
+        this.factory = factory;
     }
 
     @GET
@@ -75,7 +95,9 @@ public class MeasurementsResource extends AbstractResource {
     @Produces({ MediaTypes.MEASUREMENTS,
                 MediaTypes.XML_RDF,
                 MediaTypes.TURTLE,
-                MediaTypes.TURTLE_ALT })
+                MediaTypes.TURTLE_ALT,
+                MediaTypes.APPLICATION_SMILE,
+                MediaTypes.COLUMNAR })
     public Measurements get(
             @QueryParam(RESTConstants.LIMIT) @DefaultValue("0") int limit,
             @QueryParam(RESTConstants.PAGE) @DefaultValue("0") int page,
@@ -85,16 +107,45 @@ public class MeasurementsResource extends AbstractResource {
         if (bbox != null) {
             poly = bbox.asPolygon(geometryFactory);
         }
-        return getDataService()
+        TemporalFilter tf = parseTemporalFilterForInstant();
+        Integer resolution = Downsampling.getResolution(getUriInfo());
+        Projection projection = getProjection().without(
+                getRights().getHiddenPropertiesOfMeasurements());
+        if (resolution == null) {
+            return getDataService()
+                    .getMeasurements(new MeasurementFilter(track, user, poly,
+                                                           tf, getPagination(),
+                                                           projection));
+        }
+        DateTime begin, end;
+        if (tf != null && tf.isInterval()) {
+            begin = tf.getBegin();
+            end = tf.getEnd();
+        } else if (track != null && track.hasBegin() && track.hasEnd()) {
+            begin = track.getBegin();
+            end = track.getEnd();
+        } else {
+            throw new BadRequestException(RESTConstants.RESOLUTION +
+                    " requires a track or a time interval");
+        }
+        if (!projection.includes(JSONConstants.TIME_KEY)) {
+            throw new BadRequestException(RESTConstants.RESOLUTION +
+                    " requires the " + JSONConstants.TIME_KEY + " field");
+        }
+        Measurements measurements = getDataService()
                 .getMeasurements(new MeasurementFilter(track, user, poly,
-                                                       parseTemporalFilterForInstant(),
-                                                       getPagination()));
+                                                       tf, null, projection));
+        return Downsampling.downsample(measurements, begin, end, resolution,
+                                       Downsampling.getPhenomena(getUriInfo()));
     }
 
     @POST
+    @Bulkhead(Workload.UPLOAD)
     @Authenticated
+    @Idempotent
     @Schema(request = Schemas.MEASUREMENT_CREATE)
-    @Consumes({ MediaTypes.MEASUREMENT_CREATE })
+    @Consumes({ MediaTypes.MEASUREMENT_CREATE,
+                MediaTypes.APPLICATION_SMILE })
     public Response create(Measurement measurement) throws
             ResourceAlreadyExistException, ValidationException,
             UserNotFoundException {
@@ -113,6 +164,48 @@ public class MeasurementsResource extends AbstractResource {
                 .path(m.getIdentifier()).build()).build();
     }
 
+    @POST
+    @Bulkhead(Workload.UPLOAD)
+    @Path(BATCH)
+    @Authenticated
+    @Idempotent
+    @Schema(request = Schemas.MEASUREMENTS_CREATE)
+    @Consumes({ MediaTypes.MEASUREMENTS_CREATE,
+                MediaTypes.APPLICATION_SMILE })
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response append(Measurements measurements) throws
+            BadRequestException, ValidationException {
+        if (track == null) {
+            throw new BadRequestException(
+                    "Measurements can only be appended to a track.");
+        }
+        checkRights(getRights().canModify(track));
+        List<Measurement> list = Lists.newArrayList(measurements);
+        for (Measurement measurement : list) {
+            measurement.setUser(getCurrentUser());
+        }
+        if (list.isEmpty()) {
+            throw new BadRequestException("No measurements to append.");
+        }
+        ObjectNode node = factory.objectNode();
+        ArrayNode created = node.putArray(JSONConstants.MEASUREMENTS_KEY);
+        URI first = null;
+        for (Measurement m : getDataService().createMeasurements(track, list)) {
+            URI uri = getUriInfo().getBaseUriBuilder()
+                    .path(RootResource.class)
+                    .path(RootResource.MEASUREMENTS)
+                    .path(MeasurementsResource.MEASUREMENT)
+                    .build(m.getIdentifier());
+            if (first == null) {
+                first = uri;
+            }
+            created.addObject()
+                    .put(JSONConstants.IDENTIFIER_KEY, m.getIdentifier())
+                    .put(JSONConstants.HREF_KEY, uri.toString());
+        }
+        return Response.created(first).entity(node).build();
+    }
+
     @Path(MEASUREMENT)
     public MeasurementResource measurement(@PathParam("measurement") String id)
             throws MeasurementNotFoundException {
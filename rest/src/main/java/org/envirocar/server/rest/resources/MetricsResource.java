@@ -0,0 +1,85 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.resources;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.GET;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Response.Status;
+
+import org.envirocar.server.core.entities.User;
+import org.envirocar.server.core.metrics.Metrics;
+
+import com.google.common.base.Splitter;
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.name.Named;
+
+/**
+ * Exposes the {@link Metrics} of this server in the Prometheus text
+ * exposition format. The endpoint is disabled unless {@link #ENABLED} is
+ * set and is then only available to admins and to the remote addresses
+ * listed in {@link #ALLOWED_ADDRESSES}.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class MetricsResource extends AbstractResource {
+    public static final String ENABLED = "metrics.enabled";
+    /**
+     * Comma separated list of addresses that may read the metrics without
+     * authentication, e.g. of the scraping monitoring system.
+     */
+    public static final String ALLOWED_ADDRESSES = "metrics.allowedAddresses";
+    @Inject
+    private Metrics metrics;
+    @Inject
+    private Provider<HttpServletRequest> servletRequest;
+    @Inject
+    @Named(ENABLED)
+    private boolean enabled;
+    @Inject
+    @Named(ALLOWED_ADDRESSES)
+    private String allowedAddresses;
+
+    @GET
+    @Produces(Metrics.CONTENT_TYPE)
+    public String get() throws IOException {
+        if (!enabled) {
+            throw new WebApplicationException(Status.NOT_FOUND);
+        }
+        User user = getCurrentUser();
+        checkRights((user != null && user.isAdmin()) ||
+                    isAllowed(servletRequest.get().getRemoteAddr()));
+        StringWriter writer = new StringWriter();
+        metrics.write(writer);
+        return writer.toString();
+    }
+
+    private boolean isAllowed(String address) {
+        for (String allowed : Splitter.on(',').trimResults()
+                .omitEmptyStrings().split(allowedAddresses)) {
+            if (allowed.equals(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
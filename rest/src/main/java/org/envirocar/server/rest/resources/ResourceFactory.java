@@ -56,6 +56,10 @@ public interface ResourceFactory {
 
     TracksResource createTracksResource(@Nullable User user);
 
+    TrackUploadsResource createTrackUploadsResource(@Nullable User user);
+
+    TrackUploadSessionsResource createTrackUploadSessionsResource(@Nullable User user);
+
     MeasurementResource createMeasurementResource(Measurement measurement,
                                                   @Nullable User user,
                                                   @Nullable Track track);
@@ -108,4 +112,6 @@ public interface ResourceFactory {
 	ResetPasswordResource createResetPasswordResource();
 
     FuelingsResource createFuelingsResource(User user);
+
+    MetricsResource createMetricsResource();
 }
@@ -50,6 +50,7 @@ public class RootResource extends AbstractResource {
     public static final String ANNOUNCEMENTS = "announcements";
     public static final String BADGES = "badges";
     public static final String RESET_PASSWORD = "resetPassword";
+    public static final String METRICS = "metrics";
     
     @Inject
     private JsonNodeFactory factory;
@@ -187,6 +188,11 @@ public class RootResource extends AbstractResource {
     	return getResourceFactory().createResetPasswordResource();
     }
 
+    @Path(METRICS)
+    public MetricsResource metrics() {
+        return getResourceFactory().createMetricsResource();
+    }
+
     @Path("rest")
     public RootResource redirect() {
         return this;
@@ -28,6 +28,8 @@ import org.envirocar.server.core.filter.StatisticsFilter;
 import org.envirocar.server.core.statistics.Statistic;
 import org.envirocar.server.rest.MediaTypes;
 import org.envirocar.server.rest.Schemas;
+import org.envirocar.server.rest.bulkhead.Bulkhead;
+import org.envirocar.server.rest.bulkhead.Workload;
 import org.envirocar.server.rest.validation.Schema;
 
 import com.google.inject.Inject;
@@ -38,6 +40,7 @@ import com.google.inject.assistedinject.Assisted;
  *
  * @author Christian Autermann <autermann@uni-muenster.de>
  */
+@Bulkhead(Workload.STATISTICS)
 public class StatisticResource extends AbstractResource {
     private final Track track;
     private final User user;
@@ -31,6 +31,8 @@ import org.envirocar.server.core.filter.StatisticsFilter;
 import org.envirocar.server.core.statistics.Statistics;
 import org.envirocar.server.rest.MediaTypes;
 import org.envirocar.server.rest.Schemas;
+import org.envirocar.server.rest.bulkhead.Bulkhead;
+import org.envirocar.server.rest.bulkhead.Workload;
 import org.envirocar.server.rest.validation.Schema;
 
 import com.google.inject.assistedinject.Assisted;
@@ -41,6 +43,7 @@ import com.google.inject.assistedinject.AssistedInject;
  *
  * @author Christian Autermann <autermann@uni-muenster.de>
  */
+@Bulkhead(Workload.STATISTICS)
 public class StatisticsResource extends AbstractResource {
     public static final String PHENOMENON = "{phen}";
     private final Track track;
@@ -75,7 +75,9 @@ public class TrackResource extends AbstractResource {
                 MediaTypes.TURTLE,
                 MediaTypes.TURTLE_ALT, 
                 MediaTypes.TEXT_CSV, 
-                MediaTypes.APPLICATION_ZIPPED_SHP})
+                MediaTypes.APPLICATION_ZIPPED_SHP,
+                MediaTypes.APPLICATION_SMILE,
+                MediaTypes.COLUMNAR })
     public Track get() throws TrackNotFoundException {
         return track;
     }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.resources;
+
+import java.io.IOException;
+import java.util.SortedSet;
+
+import javax.annotation.Nullable;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.PUT;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import org.envirocar.server.core.entities.User;
+import org.envirocar.server.core.exception.BadRequestException;
+import org.envirocar.server.core.exception.ResourceAlreadyExistException;
+import org.envirocar.server.core.exception.UploadNotFoundException;
+import org.envirocar.server.core.util.GeoJSONConstants;
+import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.MediaTypes;
+import org.envirocar.server.rest.Schemas;
+import org.envirocar.server.rest.auth.Authenticated;
+import org.envirocar.server.rest.bulkhead.Bulkhead;
+import org.envirocar.server.rest.bulkhead.Workload;
+import org.envirocar.server.rest.ingest.UploadSessions;
+import org.envirocar.server.rest.validation.Schema;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+
+/**
+ * Resumable track uploads. A session is opened with the track properties,
+ * the measurements are appended as numbered chunks that may be resent
+ * until they are acknowledged and the track is created once the session is
+ * completed by a {@code POST} to it.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class TrackUploadSessionsResource extends AbstractResource {
+    public static final String SESSION = "{session}";
+    public static final String CHUNK = "{session}/{chunk}";
+    private final User user;
+    private final UploadSessions sessions;
+    private final JsonNodeFactory factory;
+
+    @Inject
+    public TrackUploadSessionsResource(@Assisted @Nullable User user,
+                                       UploadSessions sessions,
+                                       JsonNodeFactory factory) {
+        this.user = user;
+        this.sessions = sessions;
+        this.factory = factory;
+    }
+
+    @POST
+    @Bulkhead(Workload.UPLOAD)
+    @Schema(request = Schemas.TRACK_CREATE)
+    @Consumes(MediaTypes.TRACK_CREATE)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Authenticated
+    public Response open(JsonNode envelope) throws BadRequestException,
+                                                   IOException {
+        if (user != null) {
+            checkRights(getRights().isSelf(user));
+        }
+        if (envelope.path(GeoJSONConstants.FEATURES_KEY).size() > 0) {
+            throw new BadRequestException(
+                    "Measurements have to be uploaded as chunks");
+        }
+        ObjectNode properties = (ObjectNode) envelope;
+        properties.remove(GeoJSONConstants.FEATURES_KEY);
+        UploadSessions.Session session = sessions
+                .open(getCurrentUser().getName(), properties);
+        return Response.created(getUriInfo().getAbsolutePathBuilder()
+                .path(session.getId()).build())
+                .entity(encode(session)).build();
+    }
+
+    @GET
+    @Path(SESSION)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Authenticated
+    public JsonNode get(@PathParam("session") String id)
+            throws UploadNotFoundException, IOException {
+        return encode(getSession(id));
+    }
+
+    @PUT
+    @Bulkhead(Workload.UPLOAD)
+    @Path(CHUNK)
+    @Schema(request = Schemas.TRACK_CHUNK)
+    @Consumes(MediaTypes.TRACK_CHUNK)
+    @Authenticated
+    public Response append(@PathParam("session") String id,
+                           @PathParam("chunk") int sequence,
+                           JsonNode chunk) throws UploadNotFoundException,
+                                                  BadRequestException,
+                                                  ResourceAlreadyExistException,
+                                                  IOException {
+        if (sequence < 0) {
+            throw new BadRequestException("Invalid chunk number.");
+        }
+        if (sessions.append(getSession(id), sequence, chunk)) {
+            return Response.created(getUriInfo().getAbsolutePath()).build();
+        }
+        return Response.noContent().build();
+    }
+
+    @POST
+    @Bulkhead(Workload.UPLOAD)
+    @Path(SESSION)
+    @Authenticated
+    public Response complete(@PathParam("session") String id)
+            throws UploadNotFoundException, BadRequestException, IOException {
+        String track = sessions.complete(getSession(id), getCurrentUser());
+        return Response.created(getUriInfo().getBaseUriBuilder()
+                .path(RootResource.TRACKS).path(track).build()).build();
+    }
+
+    private UploadSessions.Session getSession(String id)
+            throws UploadNotFoundException, IOException {
+        if (user != null) {
+            checkRights(getRights().isSelf(user));
+        }
+        UploadSessions.Session session = sessions.get(id);
+        if (session == null ||
+            !session.getUser().equals(getCurrentUser().getName())) {
+            throw new UploadNotFoundException(id);
+        }
+        return session;
+    }
+
+    private JsonNode encode(UploadSessions.Session session)
+            throws IOException {
+        SortedSet<Integer> chunks = sessions.getChunks(session);
+        ObjectNode node = factory.objectNode();
+        node.put(JSONConstants.IDENTIFIER_KEY, session.getId());
+        ArrayNode received = node.putArray(JSONConstants.CHUNKS_KEY);
+        for (Integer sequence : chunks) {
+            received.add(sequence);
+        }
+        String track = sessions.getTrack(session);
+        if (track == null) {
+            node.put(JSONConstants.NEXT_KEY,
+                     UploadSessions.getNextChunk(chunks));
+        } else {
+            node.put(JSONConstants.TRACK_KEY, track);
+        }
+        return node;
+    }
+}
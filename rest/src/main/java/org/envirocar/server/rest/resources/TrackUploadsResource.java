@@ -0,0 +1,154 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.resources;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nullable;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.envirocar.server.core.entities.User;
+import org.envirocar.server.core.exception.UploadNotFoundException;
+import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.MediaTypes;
+import org.envirocar.server.rest.Schemas;
+import org.envirocar.server.rest.auth.Authenticated;
+import org.envirocar.server.rest.bulkhead.Bulkhead;
+import org.envirocar.server.rest.bulkhead.Workload;
+import org.envirocar.server.rest.ingest.IngestionJob;
+import org.envirocar.server.rest.ingest.IngestionService;
+import org.envirocar.server.rest.ingest.UploadTooLargeException;
+import org.envirocar.server.rest.validation.Schema;
+import org.joda.time.format.DateTimeFormatter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.Inject;
+import com.google.inject.assistedinject.Assisted;
+
+/**
+ * Accepts track uploads for asynchronous ingestion. The upload is journaled
+ * and acknowledged with {@code 202 Accepted}; its progress can be followed
+ * at the returned location. Uploads exceeding the
+ * {@link IngestionService#MAX_UPLOAD_SIZE} are rejected with
+ * {@code 413 Request Entity Too Large}, uploads without content type with
+ * {@code 415 Unsupported Media Type}.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class TrackUploadsResource extends AbstractResource {
+    public static final String UPLOAD = "{upload}";
+    public static final int REQUEST_ENTITY_TOO_LARGE = 413;
+    private final User user;
+    private final IngestionService ingestionService;
+    private final JsonNodeFactory factory;
+    private final DateTimeFormatter dateTimeFormat;
+
+    @Inject
+    public TrackUploadsResource(@Assisted @Nullable User user,
+                                IngestionService ingestionService,
+                                JsonNodeFactory factory,
+                                DateTimeFormatter dateTimeFormat) {
+        this.user = user;
+        this.ingestionService = ingestionService;
+        this.factory = factory;
+        this.dateTimeFormat = dateTimeFormat;
+    }
+
+    @POST
+    @Bulkhead(Workload.UPLOAD)
+    @Schema(request = Schemas.TRACK_CREATE, streaming = true)
+    @Consumes({ MediaTypes.TRACK_CREATE,
+                MediaTypes.APPLICATION_SMILE })
+    @Produces(MediaType.APPLICATION_JSON)
+    @Authenticated
+    public Response create(InputStream in, @Context HttpHeaders headers)
+            throws IOException {
+        if (user != null) {
+            checkRights(getRights().isSelf(user));
+        }
+        MediaType mediaType = headers.getMediaType();
+        if (mediaType == null) {
+            throw error(Status.UNSUPPORTED_MEDIA_TYPE.getStatusCode(),
+                        "Missing Content-Type");
+        }
+        IngestionJob job;
+        try {
+            job = ingestionService.submit(getCurrentUser(), mediaType, in);
+        } catch (UploadTooLargeException e) {
+            throw error(REQUEST_ENTITY_TOO_LARGE, e.getMessage());
+        }
+        return Response.status(Status.ACCEPTED)
+                .location(getUriInfo().getAbsolutePathBuilder()
+                .path(job.getIdentifier()).build())
+                .entity(encode(job)).build();
+    }
+
+    @GET
+    @Path(UPLOAD)
+    @Produces(MediaType.APPLICATION_JSON)
+    @Authenticated
+    public JsonNode get(@PathParam("upload") String id)
+            throws UploadNotFoundException {
+        IngestionJob job = ingestionService.getJob(id);
+        if (job == null ||
+            !job.getUser().equals(getCurrentUser().getName())) {
+            throw new UploadNotFoundException(id);
+        }
+        return encode(job);
+    }
+
+    private WebApplicationException error(int status, String message) {
+        ObjectNode error = factory.objectNode();
+        error.put(JSONConstants.ERROR_KEY, message);
+        return new WebApplicationException(Response
+                .status(status)
+                .type(MediaType.APPLICATION_JSON_TYPE)
+                .entity(error).build());
+    }
+
+    private JsonNode encode(IngestionJob job) {
+        ObjectNode node = factory.objectNode();
+        node.put(JSONConstants.IDENTIFIER_KEY, job.getIdentifier());
+        node.put(JSONConstants.STATE_KEY, job.getState().name());
+        node.put(JSONConstants.ATTEMPTS_KEY, job.getAttempts());
+        if (job.getTrack() != null) {
+            node.put(JSONConstants.TRACK_KEY, job.getTrack());
+        }
+        if (job.getMessage() != null) {
+            node.put(JSONConstants.MESSAGE_KEY, job.getMessage());
+        }
+        node.put(JSONConstants.CREATED_KEY,
+                 dateTimeFormat.print(job.getCreationTime()));
+        node.put(JSONConstants.MODIFIED_KEY,
+                 dateTimeFormat.print(job.getModificationTime()));
+        return node;
+    }
+}
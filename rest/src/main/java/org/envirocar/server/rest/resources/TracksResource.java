@@ -34,13 +34,17 @@ import org.envirocar.server.core.exception.ResourceAlreadyExistException;
 import org.envirocar.server.core.exception.TrackNotFoundException;
 import org.envirocar.server.core.exception.UserNotFoundException;
 import org.envirocar.server.core.exception.ValidationException;
+import org.envirocar.server.core.filter.Projection;
 import org.envirocar.server.core.filter.TrackFilter;
 import org.envirocar.server.rest.BoundingBox;
 import org.envirocar.server.rest.MediaTypes;
 import org.envirocar.server.rest.RESTConstants;
 import org.envirocar.server.rest.Schemas;
-import org.envirocar.server.rest.TrackWithMeasurments;
+import org.envirocar.server.rest.StreamingTrack;
 import org.envirocar.server.rest.auth.Authenticated;
+import org.envirocar.server.rest.bulkhead.Bulkhead;
+import org.envirocar.server.rest.bulkhead.Workload;
+import org.envirocar.server.rest.idempotency.Idempotent;
 import org.envirocar.server.rest.validation.Schema;
 
 import com.google.inject.Inject;
@@ -55,6 +59,8 @@ import com.vividsolutions.jts.geom.Polygon;
  */
 public class TracksResource extends AbstractResource {
     public static final String TRACK = "{track}";
+    public static final String UPLOADS = "uploads";
+    public static final String SESSIONS = "sessions";
     private final User user;
     private final GeometryFactory factory;
 
@@ -70,41 +76,51 @@ public class TracksResource extends AbstractResource {
     @Produces({ MediaTypes.TRACKS,
                 MediaTypes.XML_RDF,
                 MediaTypes.TURTLE,
-                MediaTypes.TURTLE_ALT })
+                MediaTypes.TURTLE_ALT,
+                MediaTypes.APPLICATION_SMILE })
     public Tracks get(@QueryParam(RESTConstants.BBOX) BoundingBox bbox) throws UserNotFoundException, BadRequestException {
         Polygon poly = null;
         if (bbox != null) {
             poly = bbox.asPolygon(factory);
         }
+        Projection projection = getProjection()
+                .without(getRights().getHiddenPropertiesOfTracks());
         return getDataService()
                 .getTracks(new TrackFilter(user, poly,
                                            parseTemporalFilterForInterval(),
-                                           getPagination()));
+                                           getPagination(), projection));
     }
 
     @POST
-    @Schema(request = Schemas.TRACK_CREATE)
-    @Consumes({ MediaTypes.TRACK_CREATE })
+    @Bulkhead(Workload.UPLOAD)
+    @Idempotent
+    @Schema(request = Schemas.TRACK_CREATE, streaming = true)
+    @Consumes({ MediaTypes.TRACK_CREATE,
+                MediaTypes.APPLICATION_SMILE })
     @Authenticated
-    public Response create(Track track) throws ValidationException,
-                                               ResourceAlreadyExistException,
-                                               UserNotFoundException {
+    public Response create(StreamingTrack upload) throws ValidationException,
+                                                         ResourceAlreadyExistException,
+                                                         UserNotFoundException {
         if (user != null) {
             checkRights(getRights().isSelf(user));
         }
+        Track track = upload.getTrack();
         track.setUser(getCurrentUser());
-
-        if (track instanceof TrackWithMeasurments) {
-            TrackWithMeasurments twm = (TrackWithMeasurments) track;
-            track = getDataService().createTrack(twm.getTrack(),
-                                                 twm.getMeasurements());
-        } else {
-            track = getDataService().createTrack(track);
-        }
+        track = getDataService().createTrack(track, upload.getMeasurements());
         return Response.created(getUriInfo().getAbsolutePathBuilder()
                 .path(track.getIdentifier()).build()).build();
     }
 
+    @Path(UPLOADS)
+    public TrackUploadsResource uploads() {
+        return getResourceFactory().createTrackUploadsResource(user);
+    }
+
+    @Path(SESSIONS)
+    public TrackUploadSessionsResource sessions() {
+        return getResourceFactory().createTrackUploadSessionsResource(user);
+    }
+
     @Path(TRACK)
     public TrackResource track(@PathParam("track") String id)
             throws TrackNotFoundException {
@@ -55,7 +55,7 @@ public class UsersResource extends AbstractResource {
                 MediaTypes.TURTLE_ALT })
     public Users get() throws BadRequestException {
         checkRights(getRights().canSeeUsers());
-        return getUserService().getUsers(getPagination());
+        return getUserService().getUsers(getPagination(), getProjection());
     }
 
     @POST
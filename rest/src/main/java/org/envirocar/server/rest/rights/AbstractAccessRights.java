@@ -16,12 +16,6 @@
  */
 package org.envirocar.server.rest.rights;
 
-import java.util.Map;
-
-import com.google.common.collect.Maps;
-
-import org.envirocar.server.core.FriendService;
-import org.envirocar.server.core.GroupService;
 import org.envirocar.server.core.entities.Group;
 import org.envirocar.server.core.entities.User;
 
@@ -32,23 +26,15 @@ import org.envirocar.server.core.entities.User;
  */
 public abstract class AbstractAccessRights implements AccessRights {
     private final User user;
-    private final GroupService groupService;
-    private final FriendService friendService;
-    private final Map<User, Boolean> isFriend = Maps.newHashMap();
-    private final Map<User, Boolean> isFriendOf = Maps.newHashMap();
-    private final Map<Group, Boolean> isMember = Maps.newHashMap();
-    private final Map<User, Boolean> shareGroup = Maps.newHashMap();
+    private final RelationshipCache relationships;
 
     public AbstractAccessRights() {
-        this(null, null, null);
+        this(null, null);
     }
 
-    public AbstractAccessRights(User user,
-                                GroupService groupService,
-                                FriendService friendService) {
+    public AbstractAccessRights(User user, RelationshipCache relationships) {
         this.user = user;
-        this.groupService = groupService;
-        this.friendService = friendService;
+        this.relationships = relationships;
     }
 
     @Override
@@ -59,44 +45,39 @@ public abstract class AbstractAccessRights implements AccessRights {
         return user.equals(this.user);
     }
 
+    @Override
+    public void prefetch(Iterable<? extends User> users) {
+        if (this.user != null && relationships != null) {
+            relationships.prefetch(this.user, users);
+        }
+    }
+
     protected boolean isFriend(User user) {
-        if (this.user == null || user == null || friendService == null) {
+        if (this.user == null || user == null || relationships == null) {
             return false;
         }
-        if (!isFriend.containsKey(user)) {
-            isFriend.put(user, friendService.isFriend(this.user, user));
-        }
-        return isFriend.get(user).booleanValue();
+        return relationships.isFriend(this.user, user);
     }
 
     protected boolean isFriendOf(User user) {
-        if (this.user == null || user == null || friendService == null) {
+        if (this.user == null || user == null || relationships == null) {
             return false;
         }
-        if (!isFriendOf.containsKey(user)) {
-            isFriendOf.put(user, friendService.isFriend(user, this.user));
-        }
-        return isFriendOf.get(user).booleanValue();
+        return relationships.isFriend(user, this.user);
     }
 
     protected boolean shareGroup(User user) {
-        if (this.user == null || user == null || groupService == null) {
+        if (this.user == null || user == null || relationships == null) {
             return false;
         }
-        if (!shareGroup.containsKey(user)) {
-            shareGroup.put(user, groupService.shareGroup(this.user, user));
-        }
-        return shareGroup.get(user).booleanValue();
+        return relationships.shareGroup(this.user, user);
     }
 
     protected boolean isMember(Group group) {
-        if (this.user == null || group == null || groupService == null) {
+        if (this.user == null || group == null || relationships == null) {
             return false;
         }
-        if (!isMember.containsKey(group)) {
-            isMember.put(group, groupService.isGroupMember(group, this.user));
-        }
-        return isMember.get(group).booleanValue();
+        return relationships.isMember(group, this.user);
     }
 
     protected boolean isSelfFriendOfOrShareGroup(User user) {
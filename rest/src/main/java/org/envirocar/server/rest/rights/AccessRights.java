@@ -34,6 +34,14 @@ public interface AccessRights extends UserRights,
                                       TermsOfUseRights {
     boolean isSelf(User user);
 
+    /**
+     * Resolves the relations to the specified users in bulk, before the
+     * rights regarding their entities are checked one by one.
+     *
+     * @param users the users
+     */
+    void prefetch(Iterable<? extends User> users);
+
     boolean canSeeStatistics();
 
     boolean canSeeSchema();
@@ -16,10 +16,11 @@
  */
 package org.envirocar.server.rest.rights;
 
+import java.util.Collections;
+import java.util.Set;
+
 import javax.servlet.http.HttpServletRequest;
 
-import org.envirocar.server.core.FriendService;
-import org.envirocar.server.core.GroupService;
 import org.envirocar.server.core.entities.Group;
 import org.envirocar.server.core.entities.Measurement;
 import org.envirocar.server.core.entities.Phenomenon;
@@ -27,6 +28,9 @@ import org.envirocar.server.core.entities.Sensor;
 import org.envirocar.server.core.entities.TermsOfUseInstance;
 import org.envirocar.server.core.entities.Track;
 import org.envirocar.server.core.entities.User;
+import org.envirocar.server.rest.JSONConstants;
+
+import com.google.common.collect.ImmutableSet;
 
 /**
  * TODO JavaDoc
@@ -34,13 +38,26 @@ import org.envirocar.server.core.entities.User;
  * @author Christian Autermann <autermann@uni-muenster.de>
  */
 public class AccessRightsImpl extends AbstractAccessRights {
+    /**
+     * The properties of tracks only visible to the owner and related users.
+     */
+    private static final Set<String> PRIVATE_TRACK_PROPERTIES = ImmutableSet
+            .of(JSONConstants.NAME_KEY, JSONConstants.DESCRIPTION_KEY,
+                JSONConstants.CREATED_KEY, JSONConstants.MODIFIED_KEY);
+    /**
+     * The properties of measurements only visible to the owner and related
+     * users. The creation time is used by the RDF encoding regardless of the
+     * rights and has to be loaded.
+     */
+    private static final Set<String> PRIVATE_MEASUREMENT_PROPERTIES =
+            ImmutableSet.of(JSONConstants.MODIFIED_KEY);
+
     public AccessRightsImpl() {
         super();
     }
 
-    public AccessRightsImpl(User user, GroupService groupService,
-                            FriendService friendService) {
-        super(user, groupService, friendService);
+    public AccessRightsImpl(User user, RelationshipCache relationships) {
+        super(user, relationships);
     }
 
     @Override
@@ -388,11 +405,27 @@ public class AccessRightsImpl extends AbstractAccessRights {
         return true;
     }
 
+    @Override
+    public Set<String> getHiddenPropertiesOfTracks() {
+        if (isAuthenticated()) {
+            return Collections.emptySet();
+        }
+        return PRIVATE_TRACK_PROPERTIES;
+    }
+
     @Override
     public boolean canSeeMeasurements() {
         return true;
     }
 
+    @Override
+    public Set<String> getHiddenPropertiesOfMeasurements() {
+        if (isAuthenticated()) {
+            return Collections.emptySet();
+        }
+        return PRIVATE_MEASUREMENT_PROPERTIES;
+    }
+
     @Override
     public boolean canSeeGroups() {
         return isAuthenticated();
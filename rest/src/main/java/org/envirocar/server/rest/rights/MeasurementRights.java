@@ -16,6 +16,8 @@
  */
 package org.envirocar.server.rest.rights;
 
+import java.util.Set;
+
 import org.envirocar.server.core.entities.Measurement;
 
 /**
@@ -26,6 +28,12 @@ import org.envirocar.server.core.entities.Measurement;
 public interface MeasurementRights {
     boolean canSeeMeasurements();
 
+    /**
+     * @return the properties that can not be seen of any measurement and do
+     *         not have to be loaded
+     */
+    Set<String> getHiddenPropertiesOfMeasurements();
+
     boolean canSee(Measurement measurement);
 
     boolean canSeeUserOf(Measurement measurement);
@@ -16,6 +16,9 @@
  */
 package org.envirocar.server.rest.rights;
 
+import java.util.Collections;
+import java.util.Set;
+
 import javax.servlet.http.HttpServletRequest;
 
 import org.envirocar.server.core.entities.Group;
@@ -37,6 +40,10 @@ public class NonRestrictiveRights implements AccessRights {
         return true;
     }
 
+    @Override
+    public void prefetch(Iterable<? extends User> users) {
+    }
+
     @Override
     public boolean canSeeStatistics() {
         return true;
@@ -187,6 +194,11 @@ public class NonRestrictiveRights implements AccessRights {
         return true;
     }
 
+    @Override
+    public Set<String> getHiddenPropertiesOfTracks() {
+        return Collections.emptySet();
+    }
+
     @Override
     public boolean canSee(Track track) {
         return true;
@@ -247,6 +259,11 @@ public class NonRestrictiveRights implements AccessRights {
         return true;
     }
 
+    @Override
+    public Set<String> getHiddenPropertiesOfMeasurements() {
+        return Collections.emptySet();
+    }
+
     @Override
     public boolean canSee(Measurement measurement) {
         return true;
@@ -0,0 +1,302 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.rights;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.envirocar.server.core.FriendService;
+import org.envirocar.server.core.GroupService;
+import org.envirocar.server.core.entities.Group;
+import org.envirocar.server.core.entities.User;
+import org.envirocar.server.core.event.DeletedGroupEvent;
+import org.envirocar.server.core.event.DeletedUserEvent;
+import org.envirocar.server.core.event.FriendedUserEvent;
+import org.envirocar.server.core.event.JoinedGroupEvent;
+import org.envirocar.server.core.event.LeftGroupEvent;
+import org.envirocar.server.core.event.UnfriendedUserEvent;
+import org.envirocar.server.core.eventbus.EventLane;
+import org.envirocar.server.core.eventbus.Lane;
+
+import com.google.common.base.Objects;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Sets;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Caches the friendships and group memberships of users across requests.
+ * For every user the groups are stored together with their members, so
+ * that shared groups can be determined without further queries.
+ * Entries are invalidated by the events that change the relationship; as
+ * these are delivered asynchronously, entries additionally expire after a
+ * short period. Every invalidation increments a generation counter, and
+ * values that were loaded while the generation changed are not kept, so a
+ * load can not store a relationship that was read before a concurrent
+ * change.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+@EventLane(Lane.CRITICAL)
+public class RelationshipCache {
+    private static final long MAXIMUM_SIZE = 10000;
+    private static final long EXPIRATION_MINUTES = 10;
+    private final FriendService friendService;
+    private final GroupService groupService;
+    private final AtomicLong generation = new AtomicLong();
+    private final Cache<UserPair, Boolean> friends = CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterWrite(EXPIRATION_MINUTES, TimeUnit.MINUTES)
+            .build();
+    private final Cache<String, Map<String, Set<String>>> memberships =
+            CacheBuilder.newBuilder()
+            .maximumSize(MAXIMUM_SIZE)
+            .expireAfterWrite(EXPIRATION_MINUTES, TimeUnit.MINUTES)
+            .build();
+
+    @Inject
+    public RelationshipCache(FriendService friendService,
+                             GroupService groupService) {
+        this.friendService = friendService;
+        this.groupService = groupService;
+    }
+
+    /**
+     * Checks if {@code friend} is a friend of {@code user}.
+     *
+     * @param user   the user
+     * @param friend the possible friend
+     *
+     * @return if {@code friend} is a friend of {@code user}
+     */
+    public boolean isFriend(final User user, final User friend) {
+        UserPair key = new UserPair(user.getName(), friend.getName());
+        return get(friends, key, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return friendService.isFriend(user, friend);
+            }
+        }).booleanValue();
+    }
+
+    /**
+     * Resolves the relations of {@code user} to the specified users in bulk,
+     * so that subsequent checks are answered from the cache. This issues at
+     * most one query for the friendships and one for the group memberships.
+     *
+     * @param user  the user
+     * @param users the users to resolve the relations to
+     */
+    public void prefetch(User user, Iterable<? extends User> users) {
+        Set<String> missing = Sets.newHashSet();
+        for (User other : users) {
+            if (other != null && !other.equals(user) &&
+                friends.getIfPresent(new UserPair(other.getName(),
+                                                  user.getName())) == null) {
+                missing.add(other.getName());
+            }
+        }
+        if (!missing.isEmpty()) {
+            long current = generation.get();
+            Set<String> friendsOf = friendService
+                    .getUsersWithFriend(user, missing);
+            for (String name : missing) {
+                friends.put(new UserPair(name, user.getName()),
+                            friendsOf.contains(name));
+            }
+            if (generation.get() != current) {
+                for (String name : missing) {
+                    friends.invalidate(new UserPair(name, user.getName()));
+                }
+            }
+        }
+        getMemberships(user);
+    }
+
+    /**
+     * Checks if both users are members of at least one common group.
+     *
+     * @param user  the first user
+     * @param other the second user
+     *
+     * @return if the users share a group
+     */
+    public boolean shareGroup(User user, User other) {
+        for (Set<String> members : getMemberships(user).values()) {
+            if (members.contains(other.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks if the user is a member of the group.
+     *
+     * @param group the group
+     * @param user  the user
+     *
+     * @return if the user is a member
+     */
+    public boolean isMember(Group group, User user) {
+        return getMemberships(user).containsKey(group.getName());
+    }
+
+    private Map<String, Set<String>> getMemberships(final User user) {
+        return get(memberships, user.getName(),
+                   new Callable<Map<String, Set<String>>>() {
+            @Override
+            public Map<String, Set<String>> call() {
+                return groupService.getMemberships(user);
+            }
+        });
+    }
+
+    @Subscribe
+    @AllowConcurrentEvents
+    public void onFriendedUserEvent(FriendedUserEvent e) {
+        generation.incrementAndGet();
+        invalidateFriendship(e.getUser(), e.getOther());
+    }
+
+    @Subscribe
+    @AllowConcurrentEvents
+    public void onUnfriendedUserEvent(UnfriendedUserEvent e) {
+        generation.incrementAndGet();
+        invalidateFriendship(e.getUser(), e.getOther());
+    }
+
+    @Subscribe
+    @AllowConcurrentEvents
+    public void onJoinedGroupEvent(JoinedGroupEvent e) {
+        generation.incrementAndGet();
+        memberships.invalidate(e.getUser().getName());
+        invalidateGroup(e.getGroup().getName());
+    }
+
+    @Subscribe
+    @AllowConcurrentEvents
+    public void onLeftGroupEvent(LeftGroupEvent e) {
+        generation.incrementAndGet();
+        memberships.invalidate(e.getUser().getName());
+        invalidateGroup(e.getGroup().getName());
+    }
+
+    @Subscribe
+    @AllowConcurrentEvents
+    public void onDeletedGroupEvent(DeletedGroupEvent e) {
+        generation.incrementAndGet();
+        invalidateGroup(e.getGroup().getName());
+    }
+
+    @Subscribe
+    @AllowConcurrentEvents
+    public void onDeletedUserEvent(DeletedUserEvent e) {
+        generation.incrementAndGet();
+        String name = e.getUser().getName();
+        memberships.invalidate(name);
+        for (Map.Entry<String, Map<String, Set<String>>> entry :
+                 memberships.asMap().entrySet()) {
+            for (Set<String> members : entry.getValue().values()) {
+                if (members.contains(name)) {
+                    memberships.invalidate(entry.getKey());
+                    break;
+                }
+            }
+        }
+        for (UserPair pair : friends.asMap().keySet()) {
+            if (pair.contains(name)) {
+                friends.invalidate(pair);
+            }
+        }
+    }
+
+    private void invalidateGroup(String group) {
+        for (Map.Entry<String, Map<String, Set<String>>> entry :
+                 memberships.asMap().entrySet()) {
+            if (entry.getValue().containsKey(group)) {
+                memberships.invalidate(entry.getKey());
+            }
+        }
+    }
+
+    private void invalidateFriendship(User user, User other) {
+        friends.invalidate(new UserPair(user.getName(), other.getName()));
+        friends.invalidate(new UserPair(other.getName(), user.getName()));
+    }
+
+    /**
+     * Loads a value that is not cached. The generation is incremented
+     * before an entry is invalidated, so if it did not change after the
+     * value was stored, no invalidation happened since the value was read.
+     * Otherwise the value may be stale and is removed again.
+     */
+    private <K, V> V get(Cache<K, V> cache, K key,
+                         Callable<? extends V> loader) {
+        V value = cache.getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        long current = generation.get();
+        try {
+            value = loader.call();
+        } catch (Exception e) {
+            throw Throwables.propagate(e);
+        }
+        cache.put(key, value);
+        if (generation.get() != current) {
+            cache.invalidate(key);
+        }
+        return value;
+    }
+
+    private static class UserPair {
+        private final String user;
+        private final String other;
+
+        UserPair(String user, String other) {
+            this.user = user;
+            this.other = other;
+        }
+
+        boolean contains(String name) {
+            return user.equals(name) || other.equals(name);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(user, other);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj instanceof UserPair) {
+                UserPair that = (UserPair) obj;
+                return user.equals(that.user) && other.equals(that.other);
+            }
+            return false;
+        }
+    }
+}
@@ -16,6 +16,8 @@
  */
 package org.envirocar.server.rest.rights;
 
+import java.util.Set;
+
 import org.envirocar.server.core.entities.Track;
 
 /**
@@ -26,6 +28,12 @@ import org.envirocar.server.core.entities.Track;
 public interface TrackRights {
     boolean canSeeTracks();
 
+    /**
+     * @return the properties that can not be seen of any track and do not
+     *         have to be loaded
+     */
+    Set<String> getHiddenPropertiesOfTracks();
+
     boolean canSee(Track track);
 
     boolean canSeeUserOf(Track track);
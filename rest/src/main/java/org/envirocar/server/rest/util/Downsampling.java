@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.util;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.ws.rs.core.UriInfo;
+
+import org.envirocar.server.core.entities.Measurements;
+import org.envirocar.server.core.entities.Track;
+import org.envirocar.server.core.exception.BadRequestException;
+import org.envirocar.server.core.util.MeasurementDownsampler;
+import org.envirocar.server.rest.RESTConstants;
+import org.joda.time.DateTime;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.Sets;
+
+/**
+ * Helper for the {@link RESTConstants#RESOLUTION} parameter. The optional
+ * and repeatable {@link RESTConstants#PHENOMENON} parameter names the
+ * phenomena whose peaks are kept.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public final class Downsampling {
+    public static final int MAX_RESOLUTION = 10000;
+
+    private Downsampling() {
+    }
+
+    /**
+     * @return the requested resolution or {@code null} if the parameter is
+     *         absent
+     *
+     * @throws BadRequestException if the parameter is not a positive integer
+     */
+    public static Integer getResolution(UriInfo uriInfo)
+            throws BadRequestException {
+        String param = uriInfo.getQueryParameters()
+                .getFirst(RESTConstants.RESOLUTION);
+        if (param == null || param.isEmpty()) {
+            return null;
+        }
+        int resolution;
+        try {
+            resolution = Integer.parseInt(param);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("invalid resolution: " + param);
+        }
+        if (resolution <= 0 || resolution > MAX_RESOLUTION) {
+            throw new BadRequestException(String
+                    .format("resolution has to be in [1,%d]", MAX_RESOLUTION));
+        }
+        return resolution;
+    }
+
+    /**
+     * @return the requested reference phenomena or {@code null} if the
+     *         parameter is absent
+     */
+    public static Set<String> getPhenomena(UriInfo uriInfo) {
+        List<String> params = uriInfo.getQueryParameters()
+                .get(RESTConstants.PHENOMENON);
+        if (params == null) {
+            return null;
+        }
+        Set<String> phenomena = Sets.newHashSet();
+        for (String param : params) {
+            for (String phenomenon : Splitter.on(',').trimResults()
+                    .omitEmptyStrings().split(param)) {
+                phenomena.add(phenomenon);
+            }
+        }
+        return phenomena.isEmpty() ? null : phenomena;
+    }
+
+    public static Measurements downsample(Measurements measurements,
+                                          DateTime begin, DateTime end,
+                                          int resolution,
+                                          Set<String> phenomena) {
+        return Measurements.from(new MeasurementDownsampler(
+                measurements, begin, end, resolution, phenomena)).build();
+    }
+
+    /**
+     * Downsamples the measurements of the specified track if the track
+     * carries its time range. Otherwise the measurements are returned as is.
+     */
+    public static Measurements downsample(Measurements measurements,
+                                          Track track, int resolution,
+                                          Set<String> phenomena) {
+        if (!track.hasBegin() || !track.hasEnd()) {
+            return measurements;
+        }
+        return downsample(measurements, track.getBegin(), track.getEnd(),
+                          resolution, phenomena);
+    }
+}
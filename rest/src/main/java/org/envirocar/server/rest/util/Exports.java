@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.util;
+
+import java.util.List;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.core.MediaType;
+
+import org.envirocar.server.rest.MediaTypes;
+
+import com.google.common.collect.ImmutableList;
+import com.sun.jersey.spi.container.ContainerRequest;
+
+/**
+ * Helper to recognize requests for the export formats, which are
+ * considerably more expensive to produce than the JSON representations.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public final class Exports {
+    private static final List<MediaType> EXPORT_TYPES = ImmutableList.of(
+            MediaTypes.APPLICATION_ZIPPED_SHP_TYPE,
+            MediaTypes.TEXT_CSV_TYPE,
+            MediaTypes.XML_RDF_TYPE,
+            MediaTypes.TURTLE_TYPE,
+            MediaTypes.TURTLE_ALT_TYPE);
+
+    private Exports() {
+    }
+
+    /**
+     * @param request the request
+     *
+     * @return if the request retrieves an export format
+     */
+    public static boolean isExport(ContainerRequest request) {
+        String method = request.getMethod();
+        if (!method.equals(HttpMethod.GET) && !method.equals(HttpMethod.HEAD)) {
+            return false;
+        }
+        List<MediaType> accepted = request.getAcceptableMediaTypes();
+        if (accepted.isEmpty()) {
+            return false;
+        }
+        MediaType type = accepted.get(0);
+        if (type.isWildcardType() || type.isWildcardSubtype()) {
+            return false;
+        }
+        for (MediaType export : EXPORT_TYPES) {
+            if (type.isCompatible(export)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
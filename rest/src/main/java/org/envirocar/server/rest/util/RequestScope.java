@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.util;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.inject.OutOfScopeException;
+import com.google.inject.Provider;
+import com.google.inject.ProvisionException;
+
+/**
+ * Helper for request scoped objects that are also used outside of a
+ * request, e.g. by encoders invoked from event listeners or background
+ * workers.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public final class RequestScope {
+    private RequestScope() {
+    }
+
+    /**
+     * @return the object of the current request or {@link Optional#absent()}
+     *         if there is no request
+     */
+    public static <T> Optional<T> get(Provider<T> provider) {
+        try {
+            return Optional.fromNullable(provider.get());
+        } catch (OutOfScopeException e) {
+            return Optional.absent();
+        } catch (ProvisionException e) {
+            /* dependencies of provider methods are wrapped */
+            for (Throwable cause : Throwables.getCausalChain(e)) {
+                if (cause instanceof OutOfScopeException) {
+                    return Optional.absent();
+                }
+            }
+            throw e;
+        }
+    }
+}
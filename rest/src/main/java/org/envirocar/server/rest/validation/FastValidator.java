@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.validation;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A hand-written validator for a single hot schema. It may only accept
+ * instances that are valid according to the schema; everything it does not
+ * accept is handed to the generic schema validator, which produces the
+ * actual report.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public interface FastValidator {
+    /**
+     * @param instance the instance to check
+     *
+     * @return {@code true} if the instance is known to be valid, {@code false}
+     *         if it has to be validated against the schema
+     */
+    boolean accepts(JsonNode instance);
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.validation;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.envirocar.server.core.util.GeoJSONConstants;
+import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.Schemas;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.github.fge.jsonschema.exceptions.ProcessingException;
+import com.github.fge.jsonschema.main.JsonSchema;
+import com.github.fge.jsonschema.main.JsonSchemaFactory;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Inject;
+import com.google.inject.ProvisionException;
+import com.google.inject.Singleton;
+
+/**
+ * {@link FastValidator}s for the schemas of measurement uploads, tracks and
+ * measurement listings. They mirror {@code measurement.create.json},
+ * {@code measurement.json}, {@code track.json} and
+ * {@code measurements.json}, but only accept point geometries and times in
+ * the format written by the server. Sensors and users are checked against
+ * their schemas once per distinct value in a document.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@Singleton
+public class FastValidators {
+    private static final Pattern DATE_TIME = Pattern
+            .compile("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}Z");
+    private static final DateTimeFormatter DATE_TIME_FORMAT =
+            ISODateTimeFormat.dateTimeNoMillis();
+    private static final Set<String> FEATURE_KEYS = ImmutableSet
+            .of(GeoJSONConstants.TYPE_KEY,
+                JSONConstants.GEOMETRY_KEY,
+                GeoJSONConstants.PROPERTIES_KEY);
+    private static final Set<String> FEATURE_COLLECTION_KEYS = ImmutableSet
+            .of(GeoJSONConstants.TYPE_KEY,
+                GeoJSONConstants.FEATURES_KEY);
+    private static final Set<String> TRACK_KEYS = ImmutableSet
+            .of(GeoJSONConstants.TYPE_KEY,
+                GeoJSONConstants.FEATURES_KEY,
+                GeoJSONConstants.PROPERTIES_KEY);
+    private static final Set<String> POINT_KEYS = ImmutableSet
+            .of(GeoJSONConstants.TYPE_KEY,
+                GeoJSONConstants.COORDINATES_KEY);
+    private static final Set<String> MEASUREMENT_CREATE_PROPERTIES =
+            ImmutableSet.of(JSONConstants.SENSOR_KEY,
+                            JSONConstants.TIME_KEY,
+                            JSONConstants.PHENOMENONS_KEY);
+    private static final Set<String> VALUE_KEYS =
+            ImmutableSet.of(JSONConstants.VALUE_KEY);
+    private static final Set<String> MEASUREMENT_PROPERTIES =
+            ImmutableSet.of(JSONConstants.IDENTIFIER_KEY,
+                            JSONConstants.CREATED_KEY,
+                            JSONConstants.MODIFIED_KEY,
+                            JSONConstants.SENSOR_KEY,
+                            JSONConstants.TIME_KEY,
+                            JSONConstants.USER_KEY,
+                            JSONConstants.TRACK_KEY,
+                            JSONConstants.PHENOMENONS_KEY);
+    private static final Set<String> TRACK_PROPERTIES =
+            ImmutableSet.of(JSONConstants.IDENTIFIER_KEY,
+                            JSONConstants.CREATED_KEY,
+                            JSONConstants.MODIFIED_KEY,
+                            JSONConstants.SENSOR_KEY,
+                            JSONConstants.USER_KEY,
+                            JSONConstants.NAME_KEY,
+                            JSONConstants.DESCRIPTION_KEY,
+                            JSONConstants.APP_VERSION_KEY,
+                            JSONConstants.OBD_DEVICE_KEY,
+                            JSONConstants.TOU_VERSION_KEY);
+    private final JsonSchema sensorSchema;
+    private final JsonSchema userSchema;
+    private final Map<String, FastValidator> validators;
+
+    @Inject
+    public FastValidators(JsonSchemaFactory schemaFactory) {
+        try {
+            this.sensorSchema = schemaFactory.getJsonSchema(Schemas.SENSOR);
+            this.userSchema = schemaFactory.getJsonSchema(Schemas.USER);
+        } catch (ProcessingException ex) {
+            throw new ProvisionException("Error loading schemas", ex);
+        }
+        this.validators = ImmutableMap.<String, FastValidator>builder()
+                .put(Schemas.MEASUREMENT_CREATE, new MeasurementCreateValidator())
+                .put(Schemas.MEASUREMENT, new MeasurementValidator())
+                .put(Schemas.MEASUREMENTS, new MeasurementsValidator())
+                .put(Schemas.TRACK, new TrackValidator())
+                .build();
+    }
+
+    /**
+     * @param schema the schema URI
+     *
+     * @return the fast validator for the schema or {@code null}
+     */
+    public FastValidator get(String schema) {
+        return validators.get(schema);
+    }
+
+    private boolean isMeasurement(JsonNode node, Context ctx) {
+        if (!isFeature(node)) {
+            return false;
+        }
+        JsonNode p = node.get(GeoJSONConstants.PROPERTIES_KEY);
+        if (!p.isObject() || !hasOnly(p, MEASUREMENT_PROPERTIES) ||
+            !isString(p.get(JSONConstants.IDENTIFIER_KEY)) ||
+            !isDateTime(p.get(JSONConstants.TIME_KEY))) {
+            return false;
+        }
+        JsonNode phenomenons = p.get(JSONConstants.PHENOMENONS_KEY);
+        if (phenomenons == null || !phenomenons.isObject()) {
+            return false;
+        }
+        return isOptionalDateTime(p.get(JSONConstants.CREATED_KEY)) &&
+               isOptionalDateTime(p.get(JSONConstants.MODIFIED_KEY)) &&
+               isOptionalString(p.get(JSONConstants.TRACK_KEY)) &&
+               ctx.isOptionalSensor(p.get(JSONConstants.SENSOR_KEY)) &&
+               ctx.isOptionalUser(p.get(JSONConstants.USER_KEY));
+    }
+
+    private boolean isFeatures(JsonNode node, Context ctx) {
+        if (node == null || !node.isArray()) {
+            return false;
+        }
+        for (JsonNode feature : node) {
+            if (!isMeasurement(feature, ctx)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isFeature(JsonNode node) {
+        return node.isObject() && node.size() == FEATURE_KEYS.size() &&
+               hasOnly(node, FEATURE_KEYS) &&
+               isType(node, GeoJSONConstants.FEATURE_TYPE) &&
+               isPoint(node.get(JSONConstants.GEOMETRY_KEY));
+    }
+
+    private static boolean isPoint(JsonNode node) {
+        if (!node.isObject() || node.size() != POINT_KEYS.size() ||
+            !hasOnly(node, POINT_KEYS) ||
+            !isType(node, GeoJSONConstants.POINT_TYPE)) {
+            return false;
+        }
+        JsonNode coords = node.get(GeoJSONConstants.COORDINATES_KEY);
+        return coords.isArray() && coords.size() == 2 &&
+               coords.get(0).isNumber() && coords.get(1).isNumber();
+    }
+
+    private static boolean isType(JsonNode node, String type) {
+        JsonNode t = node.get(GeoJSONConstants.TYPE_KEY);
+        return t.isTextual() && t.textValue().equals(type);
+    }
+
+    private static boolean hasOnly(JsonNode node, Set<String> keys) {
+        Iterator<String> names = node.fieldNames();
+        while (names.hasNext()) {
+            if (!keys.contains(names.next())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isString(JsonNode node) {
+        return node != null && node.isTextual();
+    }
+
+    private static boolean isOptionalString(JsonNode node) {
+        return node == null || node.isTextual();
+    }
+
+    private static boolean isDateTime(JsonNode node) {
+        if (node == null || !node.isTextual() ||
+            !DATE_TIME.matcher(node.textValue()).matches()) {
+            return false;
+        }
+        try {
+            DATE_TIME_FORMAT.parseDateTime(node.textValue());
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static boolean isOptionalDateTime(JsonNode node) {
+        return node == null || isDateTime(node);
+    }
+
+    private static boolean isValue(JsonNode node) {
+        return node != null &&
+               (node.isTextual() || node.isNumber() || node.isBoolean());
+    }
+
+    /**
+     * Remembers the sensors and users of a single document that were already
+     * found valid.
+     */
+    private class Context {
+        private final Set<JsonNode> sensors = new HashSet<JsonNode>();
+        private final Set<JsonNode> users = new HashSet<JsonNode>();
+
+        boolean isOptionalSensor(JsonNode node) {
+            return node == null || isValid(node, sensorSchema, sensors);
+        }
+
+        boolean isOptionalUser(JsonNode node) {
+            return node == null || isValid(node, userSchema, users);
+        }
+
+        private boolean isValid(JsonNode node, JsonSchema schema,
+                                Set<JsonNode> valid) {
+            if (valid.contains(node)) {
+                return true;
+            }
+            try {
+                if (schema.validate(node).isSuccess()) {
+                    valid.add(node);
+                    return true;
+                }
+            } catch (ProcessingException e) {
+                /* let the schema validator report it */
+            }
+            return false;
+        }
+    }
+
+    private class MeasurementCreateValidator implements FastValidator {
+        @Override
+        public boolean accepts(JsonNode instance) {
+            if (!isFeature(instance)) {
+                return false;
+            }
+            JsonNode p = instance.get(GeoJSONConstants.PROPERTIES_KEY);
+            if (!p.isObject() || !hasOnly(p, MEASUREMENT_CREATE_PROPERTIES) ||
+                !isDateTime(p.get(JSONConstants.TIME_KEY)) ||
+                !isOptionalString(p.get(JSONConstants.SENSOR_KEY))) {
+                return false;
+            }
+            JsonNode phenomenons = p.get(JSONConstants.PHENOMENONS_KEY);
+            if (phenomenons == null) {
+                return true;
+            }
+            if (!phenomenons.isObject()) {
+                return false;
+            }
+            for (JsonNode phenomenon : phenomenons) {
+                if (!phenomenon.isObject() || !hasOnly(phenomenon, VALUE_KEYS) ||
+                    !isValue(phenomenon.get(JSONConstants.VALUE_KEY))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private class MeasurementValidator implements FastValidator {
+        @Override
+        public boolean accepts(JsonNode instance) {
+            return isMeasurement(instance, new Context());
+        }
+    }
+
+    private class MeasurementsValidator implements FastValidator {
+        @Override
+        public boolean accepts(JsonNode instance) {
+            return instance.isObject() &&
+                   instance.size() == FEATURE_COLLECTION_KEYS.size() &&
+                   hasOnly(instance, FEATURE_COLLECTION_KEYS) &&
+                   isType(instance, GeoJSONConstants.FEATURE_COLLECTION_TYPE) &&
+                   isFeatures(instance.get(GeoJSONConstants.FEATURES_KEY),
+                              new Context());
+        }
+    }
+
+    private class TrackValidator implements FastValidator {
+        @Override
+        public boolean accepts(JsonNode instance) {
+            if (!instance.isObject() ||
+                instance.size() != TRACK_KEYS.size() ||
+                !hasOnly(instance, TRACK_KEYS) ||
+                !isType(instance, GeoJSONConstants.FEATURE_COLLECTION_TYPE)) {
+                return false;
+            }
+            JsonNode p = instance.get(GeoJSONConstants.PROPERTIES_KEY);
+            if (!p.isObject() || !hasOnly(p, TRACK_PROPERTIES) ||
+                !isString(p.get(JSONConstants.IDENTIFIER_KEY)) ||
+                !p.has(JSONConstants.SENSOR_KEY)) {
+                return false;
+            }
+            Context ctx = new Context();
+            return isOptionalDateTime(p.get(JSONConstants.CREATED_KEY)) &&
+                   isOptionalDateTime(p.get(JSONConstants.MODIFIED_KEY)) &&
+                   isOptionalString(p.get(JSONConstants.NAME_KEY)) &&
+                   isOptionalString(p.get(JSONConstants.DESCRIPTION_KEY)) &&
+                   isOptionalString(p.get(JSONConstants.APP_VERSION_KEY)) &&
+                   isOptionalString(p.get(JSONConstants.OBD_DEVICE_KEY)) &&
+                   isOptionalString(p.get(JSONConstants.TOU_VERSION_KEY)) &&
+                   ctx.isOptionalSensor(p.get(JSONConstants.SENSOR_KEY)) &&
+                   ctx.isOptionalUser(p.get(JSONConstants.USER_KEY)) &&
+                   isFeatures(instance.get(GeoJSONConstants.FEATURES_KEY), ctx);
+        }
+    }
+}
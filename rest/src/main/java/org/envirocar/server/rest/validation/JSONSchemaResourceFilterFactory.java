@@ -19,10 +19,18 @@ package org.envirocar.server.rest.validation;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.FilterOutputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.charset.Charset;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.zip.GZIPInputStream;
 
 import javax.ws.rs.HttpMethod;
@@ -33,8 +41,12 @@ import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response.Status;
 
 import org.envirocar.server.core.exception.ValidationException;
+import org.envirocar.server.core.metrics.Gauge;
+import org.envirocar.server.core.metrics.Metrics;
 import org.envirocar.server.rest.JSONConstants;
 import org.envirocar.server.rest.MediaTypes;
+import org.envirocar.server.rest.RESTConstants;
+import org.envirocar.server.rest.guice.JerseyCodingModule;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -75,34 +87,122 @@ public class JSONSchemaResourceFilterFactory implements ResourceFilterFactory {
             .getLogger(JSONSchemaResourceFilterFactory.class);
     public static final String VALIDATE_REQUESTS = "validate_requests";
     public static final String VALIDATE_RESPONSES = "validate_responses";
+    /**
+     * Fraction of responses ({@code 0.0} to {@code 1.0}) that are validated.
+     * Below {@code 1.0} the sampled responses are validated asynchronously
+     * on the {@link #RESPONSE_VALIDATION_EXECUTOR}.
+     */
+    public static final String VALIDATE_RESPONSES_SAMPLE_RATE =
+            "validate_responses_sample_rate";
+    /**
+     * Maximum size in bytes of a response that is validated. Larger
+     * responses are passed through without keeping a copy.
+     */
+    public static final String VALIDATE_RESPONSES_MAX_SIZE =
+            "validate_responses_max_size";
+    public static final String RESPONSE_VALIDATION_EXECUTOR =
+            "response_validation_executor";
+    /**
+     * Request property holding the {@link JsonNode} that was parsed for
+     * validation. Message body readers use it instead of the entity stream.
+     */
+    public static final String PARSED_ENTITY =
+            JSONSchemaResourceFilterFactory.class.getName() + ".entity";
+    private static final String UTF = "UTF-";
+    static final String VALIDATED_RESPONSES =
+            "envirocar_response_validations_total";
+    private static final String RESULT = "result";
     private final boolean validateRequests;
     private final boolean validateResponses;
+    private final double sampleRate;
+    private final int maxSize;
+    private final Executor executor;
+    private final Random random = new Random();
+    private final Gauge invalidResponses;
+    private final Gauge skippedResponses;
+    private final Gauge oversizedResponses;
+    private final ConcurrentMap<String, JsonSchema> compiled =
+            new ConcurrentHashMap<String, JsonSchema>();
     private final JsonSchemaFactory schemaFactory;
+    private final FastValidators fastValidators;
     private final ObjectReader reader;
+    private final ObjectReader smileReader;
     private final ObjectWriter writer;
     private final JsonNodeFactory factory;
 
     @Inject
     public JSONSchemaResourceFilterFactory(JsonSchemaFactory schemaFactory,
+                                           FastValidators fastValidators,
                                            ObjectReader reader,
+                                           @Named(JerseyCodingModule.SMILE) ObjectReader smileReader,
                                            ObjectWriter writer,
                                            JsonNodeFactory factory,
                                            @Named(VALIDATE_REQUESTS) boolean validateRequests,
-                                           @Named(VALIDATE_RESPONSES) boolean validateResponses) {
+                                           @Named(VALIDATE_RESPONSES) boolean validateResponses,
+                                           @Named(VALIDATE_RESPONSES_SAMPLE_RATE) double sampleRate,
+                                           @Named(VALIDATE_RESPONSES_MAX_SIZE) int maxSize,
+                                           @Named(RESPONSE_VALIDATION_EXECUTOR) Executor executor,
+                                           Metrics metrics) {
         this.schemaFactory = schemaFactory;
+        this.fastValidators = fastValidators;
         this.reader = reader;
+        this.smileReader = smileReader;
         this.writer = writer;
         this.factory = factory;
         this.validateRequests = validateRequests;
         this.validateResponses = validateResponses;
+        this.sampleRate = sampleRate;
+        this.maxSize = maxSize;
+        this.executor = executor;
+        String help = "Responses that were sampled for validation.";
+        this.invalidResponses = metrics
+                .counter(VALIDATED_RESPONSES, help, RESULT, "invalid");
+        this.skippedResponses = metrics
+                .counter(VALIDATED_RESPONSES, help, RESULT, "skipped");
+        this.oversizedResponses = metrics
+                .counter(VALIDATED_RESPONSES, help, RESULT, "oversized");
+    }
+
+    /**
+     * @return the number of invalid responses that were detected
+     */
+    public long getInvalidResponses() {
+        return invalidResponses.get();
+    }
+
+    /**
+     * @return the number of sampled responses that were not validated
+     *         because the validation executor was saturated
+     */
+    public long getSkippedResponses() {
+        return skippedResponses.get();
+    }
+
+    /**
+     * @return the number of sampled responses that were not validated
+     *         because they exceeded the {@link #VALIDATE_RESPONSES_MAX_SIZE}
+     */
+    public long getOversizedResponses() {
+        return oversizedResponses.get();
+    }
+
+    protected boolean isSampling() {
+        return sampleRate < 1.0;
+    }
+
+    protected boolean sample() {
+        return !isSampling() ||
+               (sampleRate > 0.0 && random.nextDouble() < sampleRate);
     }
 
     @Override
     public List<ResourceFilter> create(AbstractMethod am) {
         String requestSchema = null;
         String responseSchema = null;
+        boolean streaming = false;
         Schema schema = am.getAnnotation(Schema.class);
         if (schema != null) {
+            streaming = schema.streaming();
             if (!schema.request().isEmpty()) {
                 requestSchema = schema.request();
             }
@@ -110,9 +210,16 @@ public class JSONSchemaResourceFilterFactory implements ResourceFilterFactory {
                 responseSchema = schema.response();
             }
         }
+        if (requestSchema != null && validateRequests) {
+            precompile(requestSchema);
+        }
+        if (responseSchema != null && validateResponses) {
+            precompile(responseSchema);
+        }
         if (requestSchema != null || responseSchema != null) {
             JSONSchemaResourceFilter filter =
-                    new JSONSchemaResourceFilter(requestSchema, responseSchema);
+                    new JSONSchemaResourceFilter(requestSchema, responseSchema,
+                                                 streaming);
             return Collections.<ResourceFilter>singletonList(filter);
         } else {
             return Collections.emptyList();
@@ -128,10 +235,43 @@ public class JSONSchemaResourceFilterFactory implements ResourceFilterFactory {
         return null;
     }
 
+    /**
+     * Resolves the schema and validates an empty object against it, so the
+     * first request does not pay for loading and compiling it. Schemas that
+     * can not be resolved now are resolved again on first use.
+     */
+    protected void precompile(String uri) {
+        if (compiled.containsKey(uri)) {
+            return;
+        }
+        try {
+            JsonSchema schema = getJsonSchema(uri);
+            schema.validate(factory.objectNode());
+        } catch (ProcessingException ex) {
+            log.warn("Could not precompile schema " + uri, ex);
+        }
+    }
+
+    protected JsonSchema getJsonSchema(String uri) throws ProcessingException {
+        JsonSchema schema = compiled.get(uri);
+        if (schema == null) {
+            schema = schemaFactory.getJsonSchema(uri);
+            JsonSchema previous = compiled.putIfAbsent(uri, schema);
+            if (previous != null) {
+                schema = previous;
+            }
+        }
+        return schema;
+    }
+
     protected void validate(JsonNode entity, String schema) throws
             ValidationException, IOException {
+        FastValidator fastValidator = fastValidators.get(schema);
+        if (fastValidator != null && fastValidator.accepts(entity)) {
+            return;
+        }
         try {
-            validate(entity, schemaFactory.getJsonSchema(schema));
+            validate(entity, getJsonSchema(schema));
         } catch (ProcessingException ex) {
             throw new ValidationException(ex);
         }
@@ -154,16 +294,19 @@ public class JSONSchemaResourceFilterFactory implements ResourceFilterFactory {
     private class JSONSchemaResourceFilter implements ResourceFilter {
         private final String request;
         private final String response;
+        private final boolean streaming;
 
-        JSONSchemaResourceFilter(String request, String response) {
+        JSONSchemaResourceFilter(String request, String response,
+                                 boolean streaming) {
             this.request = request;
             this.response = response;
+            this.streaming = streaming;
         }
 
         @Override
         public ContainerRequestFilter getRequestFilter() {
             return request == null || !validateRequests ? null
-                   : new JSONSchemaRequestFilter(request);
+                   : new JSONSchemaRequestFilter(request, streaming);
         }
 
         @Override
@@ -174,10 +317,12 @@ public class JSONSchemaResourceFilterFactory implements ResourceFilterFactory {
     }
 
     private class JSONSchemaRequestFilter implements ContainerRequestFilter {
-        private String schema;
+        private final String schema;
+        private final boolean streaming;
 
-        JSONSchemaRequestFilter(String schema) {
+        JSONSchemaRequestFilter(String schema, boolean streaming) {
             this.schema = schema;
+            this.streaming = streaming;
         }
 
         @Override
@@ -186,7 +331,13 @@ public class JSONSchemaResourceFilterFactory implements ResourceFilterFactory {
                 request.getMediaType()
                     .isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
                 adjustContentType(request);
-                validate(request);
+                if (!streaming) {
+                    validate(request);
+                }
+            } else if (!streaming && request.getMediaType() != null &&
+                       request.getMediaType()
+                    .isCompatible(MediaTypes.APPLICATION_SMILE_TYPE)) {
+                validateSmile(request);
             }
             return request;
         }
@@ -204,30 +355,66 @@ public class JSONSchemaResourceFilterFactory implements ResourceFilterFactory {
         }
 
         private void validate(ContainerRequest request) {
-            ByteArrayOutputStream out = new ByteArrayOutputStream();
-            InputStream in = request.getEntityInputStream();
             try {
-                ReaderWriter.writeTo(in, out);
-                byte[] requestEntity = out.toByteArray();
-                ByteArrayInputStream bais =
-                        new ByteArrayInputStream(requestEntity);
-                request.setEntityInputStream(bais);
-                String entity = new String(requestEntity, ReaderWriter
-                        .getCharset(request.getMediaType()));
-                if (entity.isEmpty()) {
-                    throw new WebApplicationException(Status.BAD_REQUEST);
+                PushbackInputStream in = nonEmpty(request);
+                Charset charset = ReaderWriter
+                        .getCharset(request.getMediaType());
+                JsonNode tree;
+                try {
+                    /* let jackson detect the unicode encoding itself */
+                    if (charset.name().startsWith(UTF)) {
+                        tree = reader.readTree(in);
+                    } else {
+                        tree = reader.readTree(
+                                new InputStreamReader(in, charset));
+                    }
+                } catch (JsonParseException e) {
+                    throw new WebApplicationException(e, Status.BAD_REQUEST);
                 }
+                consumed(request, tree);
+                JSONSchemaResourceFilterFactory.this.validate(tree, schema);
+            } catch (IOException ex) {
+                throw new ContainerException(ex);
+            }
+        }
+
+        private void validateSmile(ContainerRequest request) {
+            try {
+                PushbackInputStream in = nonEmpty(request);
                 JsonNode tree;
                 try {
-                    tree = reader.readTree(entity);
+                    tree = smileReader.readTree(in);
                 } catch (JsonParseException e) {
                     throw new WebApplicationException(e, Status.BAD_REQUEST);
                 }
+                consumed(request, tree);
                 JSONSchemaResourceFilterFactory.this.validate(tree, schema);
             } catch (IOException ex) {
                 throw new ContainerException(ex);
             }
         }
+
+        private PushbackInputStream nonEmpty(ContainerRequest request)
+                throws IOException {
+            PushbackInputStream in =
+                    new PushbackInputStream(request.getEntityInputStream());
+            int b = in.read();
+            if (b < 0) {
+                throw new WebApplicationException(Status.BAD_REQUEST);
+            }
+            in.unread(b);
+            return in;
+        }
+
+        /**
+         * Hands the parsed entity to the message body readers instead of
+         * letting them parse it again.
+         */
+        private void consumed(ContainerRequest request, JsonNode tree) {
+            request.getProperties().put(PARSED_ENTITY, tree);
+            request.setEntityInputStream(
+                    new ByteArrayInputStream(new byte[0]));
+        }
     }
 
     private class JSONSchemaResponseFilter implements ContainerResponseFilter {
@@ -243,11 +430,14 @@ public class JSONSchemaResourceFilterFactory implements ResourceFilterFactory {
             MediaType mt = response.getMediaType();
             if (mt != null && mt.isCompatible(MediaType.APPLICATION_JSON_TYPE)) {
                 adjustContentType(response);
-                if (!request.getMethod().equals(HttpMethod.HEAD)) {
+                /* sparse fieldsets intentionally omit required properties */
+                if (!request.getMethod().equals(HttpMethod.HEAD) &&
+                    !request.getQueryParameters()
+                        .containsKey(RESTConstants.FIELDS) && sample()) {
                     ContainerResponseWriter crw = response
                             .getContainerResponseWriter();
                     ContainerResponseWriter vcrw =
-                            new ValidatingWriter(crw, schema);
+                            new ValidatingWriter(crw, schema, isSampling());
                     response.setContainerResponseWriter(vcrw);
                 }
             }
@@ -270,17 +460,24 @@ public class JSONSchemaResourceFilterFactory implements ResourceFilterFactory {
         }
     }
 
+    /**
+     * Passes the response through to the container while keeping a copy that
+     * is validated once the response is finished. Sampled responses are
+     * validated asynchronously; violations are logged and counted.
+     */
     private class ValidatingWriter implements ContainerResponseWriter {
         private final ContainerResponseWriter crw;
-        private ByteArrayOutputStream baos;
-        private OutputStream crwout;
-        private MediaType mediaType;
         private final String schema;
+        private final boolean async;
+        private LimitedOutputStream copy;
+        private MediaType mediaType;
         private MultivaluedMap<String, Object> httpHeaders;
 
-        ValidatingWriter(ContainerResponseWriter crw, String schema) {
+        ValidatingWriter(ContainerResponseWriter crw, String schema,
+                         boolean async) {
             this.crw = crw;
             this.schema = schema;
+            this.async = async;
         }
 
         @Override
@@ -288,25 +485,50 @@ public class JSONSchemaResourceFilterFactory implements ResourceFilterFactory {
                                                   ContainerResponse response)
                 throws IOException {
             this.mediaType = response.getMediaType();
-            this.crwout = crw.writeStatusAndHeaders(contentLength, response);
-            this.baos = new ByteArrayOutputStream();
             this.httpHeaders = response.getHttpHeaders();
-            return this.baos;
+            this.copy = new LimitedOutputStream(maxSize);
+            return new TeeOutputStream(
+                    crw.writeStatusAndHeaders(contentLength, response),
+                    this.copy);
         }
 
         @Override
         public void finish() throws IOException {
-            byte[] bytes = this.baos.toByteArray();
-            ReaderWriter.writeTo(new ByteArrayInputStream(bytes), this.crwout);
             this.crw.finish();
-            if (bytes.length > 0) {
-                String contentEncoding = (String) httpHeaders
-                        .getFirst(HttpHeaders.CONTENT_ENCODING);
-                if (contentEncoding != null && contentEncoding.equals("gzip")) {
-                    validate(gunzip(bytes));
-                } else {
-                    validate(bytes);
-                }
+            LimitedOutputStream limited = this.copy;
+            this.copy = null;
+            if (limited.isExceeded()) {
+                oversizedResponses.increment();
+                return;
+            }
+            final byte[] bytes = limited.toByteArray();
+            if (bytes.length == 0) {
+                return;
+            }
+            String contentEncoding = (String) httpHeaders
+                    .getFirst(HttpHeaders.CONTENT_ENCODING);
+            final boolean gzipped = contentEncoding != null &&
+                                    contentEncoding.equals("gzip");
+            if (!async) {
+                validate(gzipped ? gunzip(bytes) : bytes);
+                return;
+            }
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            validate(gzipped ? gunzip(bytes) : bytes);
+                        } catch (IOException e) {
+                            log.warn("Could not validate response", e);
+                        } catch (WebApplicationException e) {
+                            /* already logged, the response is long gone */
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                skippedResponses.increment();
+                log.debug("Skipping response validation: executor saturated");
             }
         }
 
@@ -340,9 +562,11 @@ public class JSONSchemaResourceFilterFactory implements ResourceFilterFactory {
                 JSONSchemaResourceFilterFactory.this.validate(reader
                         .readTree(entity), schema);
             } catch (JSONValidationException v) {
+                invalidResponses.increment();
                 log.error("Created invalid response: Error:\n" +
                           writer.writeValueAsString(v.getError()), v);
             } catch (ValidationException v) {
+                invalidResponses.increment();
                 log.error("Created invalid response: Error:\n" +
                           v.getMessage() + "\nGenerated Response:\n" +
                           entity + "\n", v);
@@ -350,4 +574,66 @@ public class JSONSchemaResourceFilterFactory implements ResourceFilterFactory {
             }
         }
     }
+
+    /**
+     * Keeps the written bytes until more than {@code limit} bytes were
+     * written; everything beyond that is discarded.
+     */
+    private static class LimitedOutputStream extends ByteArrayOutputStream {
+        private final int limit;
+        private boolean exceeded;
+
+        LimitedOutputStream(int limit) {
+            this.limit = limit;
+        }
+
+        boolean isExceeded() {
+            return exceeded;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            if (!exceeded && ensureCapacity(1)) {
+                super.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            if (!exceeded && ensureCapacity(len)) {
+                super.write(b, off, len);
+            }
+        }
+
+        private boolean ensureCapacity(int len) {
+            if (count + len > limit) {
+                exceeded = true;
+                /* drop what was kept so far */
+                buf = new byte[0];
+                count = 0;
+            }
+            return !exceeded;
+        }
+    }
+
+    private static class TeeOutputStream extends FilterOutputStream {
+        private final OutputStream copy;
+
+        TeeOutputStream(OutputStream out, OutputStream copy) {
+            super(out);
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            copy.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            copy.write(b, off, len);
+        }
+    }
 }
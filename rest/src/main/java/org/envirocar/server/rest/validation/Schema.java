@@ -34,4 +34,11 @@ public @interface Schema {
     public String request() default "";
 
     public String response() default "";
+
+    /**
+     * If the request entity is read incrementally by its message body reader,
+     * which validates it piece by piece. The request filter then only adjusts
+     * the content type.
+     */
+    public boolean streaming() default false;
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.auth;
+
+import static org.envirocar.server.rest.stubs.Stubs.proxy;
+import static org.envirocar.server.rest.stubs.Stubs.unsupported;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.WebApplicationException;
+
+import org.envirocar.server.core.UserService;
+import org.envirocar.server.core.exception.UserNotFoundException;
+import org.envirocar.server.core.util.PasswordEncoder;
+import org.envirocar.server.rest.ratelimit.AuthenticationThrottle;
+import org.envirocar.server.rest.ratelimit.RateLimiter;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.google.inject.Provider;
+import com.sun.jersey.core.header.InBoundHeaders;
+import com.sun.jersey.spi.container.ContainerRequest;
+import com.sun.jersey.spi.container.WebApplication;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class AuthenticationFilterTest {
+    private static final int FAILURES = 3;
+    private final AtomicInteger lookups = new AtomicInteger();
+    private String address;
+    private AuthenticationFilter filter;
+
+    @Before
+    public void setUp() {
+        UserService users = proxy(UserService.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws Throwable {
+                if (method.getName().equals("getUser")) {
+                    lookups.incrementAndGet();
+                    throw new UserNotFoundException((String) args[0]);
+                }
+                throw unsupported(method);
+            }
+        });
+        final HttpServletRequest servletRequest = proxy(
+                HttpServletRequest.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws Throwable {
+                if (method.getName().equals("getRemoteAddr")) {
+                    return address;
+                } else if (method.getName().equals("getHeader")) {
+                    return null;
+                }
+                throw unsupported(method);
+            }
+        });
+        AuthenticationThrottle throttle = new AuthenticationThrottle(
+                new RateLimiter(600, 120, 10, FAILURES),
+                new Provider<HttpServletRequest>() {
+                    @Override
+                    public HttpServletRequest get() {
+                        return servletRequest;
+                    }
+                }, JsonNodeFactory.instance, "");
+        PasswordEncoder encoder = proxy(PasswordEncoder.class,
+                                        new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws Throwable {
+                throw unsupported(method);
+            }
+        });
+        filter = new AuthenticationFilter(users, encoder, throttle);
+        address = "192.0.2.1";
+    }
+
+    @Test
+    public void limitsFailedAuthentications() {
+        for (int i = 0; i < FAILURES; ++i) {
+            assertThat(authenticate("user" + i), is(403));
+        }
+        assertThat(authenticate("user"), is(429));
+        assertThat(lookups.get(), is(FAILURES));
+    }
+
+    @Test
+    public void limitsPerAddress() {
+        for (int i = 0; i < FAILURES; ++i) {
+            authenticate("user");
+        }
+        address = "192.0.2.2";
+        assertThat(authenticate("user"), is(403));
+        assertThat(lookups.get(), is(FAILURES + 1));
+    }
+
+    @Test
+    public void ignoresRequestsWithoutCredentials() {
+        for (int i = 0; i < FAILURES; ++i) {
+            authenticate("user");
+        }
+        ContainerRequest request = request(new InBoundHeaders());
+        assertThat(filter.filter(request), is(request));
+    }
+
+    private int authenticate(String username) {
+        InBoundHeaders headers = new InBoundHeaders();
+        headers.add(AuthConstants.USERNAME_HEADER, username);
+        headers.add(AuthConstants.TOKEN_HEADER, "password");
+        try {
+            filter.filter(request(headers));
+            fail("authentication succeeded");
+            return 200;
+        } catch (WebApplicationException e) {
+            return e.getResponse().getStatus();
+        }
+    }
+
+    private ContainerRequest request(InBoundHeaders headers) {
+        WebApplication application = proxy(WebApplication.class,
+                                           new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws Throwable {
+                if (method.getName().equals("isTracingEnabled")) {
+                    return false;
+                }
+                throw unsupported(method);
+            }
+        });
+        return new ContainerRequest(application, "GET",
+                                    URI.create("http://localhost/"),
+                                    URI.create("http://localhost/tracks"),
+                                    headers,
+                                    new ByteArrayInputStream(new byte[0]));
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.bulkhead;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class AdaptiveLimiterTest {
+    private static final long WAIT = 10;
+    private static final long TARGET = 100;
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void rejectsAboveLimitWithoutQueue() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(2, 0, WAIT, TARGET);
+        assertThat(limiter.acquire(), is(true));
+        assertThat(limiter.acquire(), is(true));
+        assertThat(limiter.acquire(), is(false));
+        limiter.release(FAST);
+        assertThat(limiter.acquire(), is(true));
+    }
+
+    @Test
+    public void decreasesLimitOnHighLatency() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(10, 0, WAIT, TARGET);
+        assertThat(limiter.acquire(), is(true));
+        limiter.release(SLOW);
+        assertThat(limiter.getLimit(), is(lessThan(10)));
+    }
+
+    @Test
+    public void recoversOnLowLatency() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(4, 0, WAIT, TARGET);
+        for (int i = 0; i < 10; ++i) {
+            limiter.acquire();
+            limiter.release(SLOW);
+        }
+        assertThat(limiter.getLimit(), is(1));
+        for (int i = 0; i < 20; ++i) {
+            limiter.acquire();
+            limiter.release(FAST);
+        }
+        assertThat(limiter.getLimit(), is(4));
+    }
+
+    @Test
+    public void timesOutInQueue() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(1, 1, 10, TARGET);
+        assertThat(limiter.acquire(), is(true));
+        assertThat(limiter.acquire(), is(false));
+        assertThat(limiter.getInFlight(), is(1));
+    }
+
+    @Test
+    public void waitsShorterThanTargetLatency() throws InterruptedException {
+        AdaptiveLimiter limiter = new AdaptiveLimiter(
+                1, 1, WAIT, TimeUnit.MINUTES.toMillis(1));
+        assertThat(limiter.acquire(), is(true));
+        long start = System.nanoTime();
+        assertThat(limiter.acquire(), is(false));
+        assertThat(System.nanoTime() - start, is(lessThan(SLOW)));
+    }
+}
@@ -37,6 +37,7 @@ import org.envirocar.server.core.dao.AnnouncementsDao;
 import org.envirocar.server.core.dao.BadgesDao;
 import org.envirocar.server.core.dao.FuelingDao;
 import org.envirocar.server.core.dao.GroupDao;
+import org.envirocar.server.core.dao.IdempotencyKeyDao;
 import org.envirocar.server.core.dao.MeasurementDao;
 import org.envirocar.server.core.dao.PhenomenonDao;
 import org.envirocar.server.core.dao.SensorDao;
@@ -65,6 +66,7 @@ import org.envirocar.server.mongo.dao.MongoAnnouncementsDao;
 import org.envirocar.server.mongo.dao.MongoBadgesDao;
 import org.envirocar.server.mongo.dao.MongoFuelingDao;
 import org.envirocar.server.mongo.dao.MongoGroupDao;
+import org.envirocar.server.mongo.dao.MongoIdempotencyKeyDao;
 import org.envirocar.server.mongo.dao.MongoMeasurementDao;
 import org.envirocar.server.mongo.dao.MongoPhenomenonDao;
 import org.envirocar.server.mongo.dao.MongoSensorDao;
@@ -148,6 +150,7 @@ public class EncodingTestModule extends AbstractModule {
         bind(BadgesDao.class).to(MongoBadgesDao.class);
         bind(PasswordResetDAO.class).to(MongoPasswordResetDAO.class);
         bind(FuelingDao.class).to(MongoFuelingDao.class);
+        bind(IdempotencyKeyDao.class).to(MongoIdempotencyKeyDao.class);
 	}
 
 
@@ -0,0 +1,232 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.encoding.columnar;
+
+import static org.envirocar.server.rest.stubs.Stubs.bean;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.MeasurementValue;
+import org.envirocar.server.core.entities.Measurements;
+import org.envirocar.server.core.entities.Phenomenon;
+import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.MediaTypes;
+import org.envirocar.server.rest.rights.AccessRights;
+import org.envirocar.server.rest.rights.NonRestrictiveRights;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Lists;
+import com.google.inject.util.Providers;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.PrecisionModel;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class MeasurementsColumnarEncoderTest {
+    private static final DateTime START =
+            new DateTime(2013, 6, 1, 12, 0, 0, 250);
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final GeometryFactory geometryFactory =
+            new GeometryFactory(new PrecisionModel(), 4326);
+    private final DateTimeFormatter format =
+            ISODateTimeFormat.dateTimeNoMillis();
+    private final Phenomenon speed = phenomenon("Speed", "km/h");
+    private final Phenomenon rpm = phenomenon("Rpm", null);
+    private final Phenomenon maf = phenomenon("MAF", "l/s");
+    private MeasurementsColumnarEncoder encoder;
+
+    @Before
+    public void setUp() {
+        encoder = new MeasurementsColumnarEncoder();
+        encoder.setObjectMapper(mapper);
+        encoder.setDateTimeFormat(format);
+        encoder.setRights(Providers.<AccessRights>of(
+                new NonRestrictiveRights()));
+    }
+
+    @Test
+    public void writesStartAndUnitsInHeaderOnly() throws IOException {
+        List<Measurement> measurements = series(2500);
+        JsonNode json = encode(measurements);
+        assertThat(json.path(JSONConstants.SIZE_KEY).asLong(), is(2500L));
+        assertThat(format.parseDateTime(json.path(JSONConstants.START_KEY)
+                .asText()), is(START.withMillisOfSecond(0)));
+        JsonNode units = json.path(JSONConstants.UNITS_KEY);
+        assertThat(units.size(), is(1));
+        assertThat(units.path(speed.getName()).asText(), is(speed.getUnit()));
+        JsonNode chunks = json.path(JSONConstants.CHUNKS_KEY);
+        assertThat(chunks.size(), is(3));
+        for (JsonNode chunk : chunks) {
+            assertThat(chunk.has(JSONConstants.START_KEY), is(false));
+        }
+        /* MAF first appears in the second chunk */
+        assertThat(chunks.get(0).has(JSONConstants.UNITS_KEY), is(false));
+        assertThat(chunks.get(1).path(JSONConstants.UNITS_KEY)
+                .path(maf.getName()).asText(), is(maf.getUnit()));
+        assertThat(chunks.get(2).has(JSONConstants.UNITS_KEY), is(false));
+    }
+
+    @Test
+    public void roundTripsSeriesAcrossChunks() throws IOException {
+        List<Measurement> measurements = series(2500);
+        assertRoundTrip(measurements, encode(measurements));
+    }
+
+    @Test
+    public void roundTripsMissingCells() throws IOException {
+        List<Measurement> measurements = series(1200);
+        measurements.get(0).setTime(null);
+        measurements.get(3).setGeometry(null);
+        measurements.get(1000).setTime(null);
+        assertRoundTrip(measurements, encode(measurements));
+    }
+
+    @Test
+    public void writesAbsoluteTimesWithoutStart() throws IOException {
+        List<Measurement> measurements = series(1001);
+        for (Measurement m : measurements.subList(0, 1000)) {
+            m.setTime(null);
+        }
+        JsonNode json = encode(measurements);
+        assertThat(json.has(JSONConstants.START_KEY), is(false));
+        assertRoundTrip(measurements, json);
+    }
+
+    @Test
+    public void writesEmptySeries() throws IOException {
+        JsonNode json = encode(Lists.<Measurement>newArrayList());
+        assertThat(json.path(JSONConstants.SIZE_KEY).asLong(), is(0L));
+        assertThat(json.has(JSONConstants.START_KEY), is(false));
+        assertThat(json.path(JSONConstants.UNITS_KEY).size(), is(0));
+        assertThat(json.path(JSONConstants.CHUNKS_KEY).size(), is(0));
+    }
+
+    private JsonNode encode(List<Measurement> measurements)
+            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        encoder.writeTo(Measurements.from(measurements).build(),
+                        Measurements.class, Measurements.class, null,
+                        MediaTypes.COLUMNAR_TYPE, null, out);
+        return mapper.readTree(out.toByteArray());
+    }
+
+    /**
+     * Decodes the columns and compares them with the measurements.
+     */
+    private void assertRoundTrip(List<Measurement> measurements,
+                                 JsonNode json) {
+        long time = json.has(JSONConstants.START_KEY)
+                    ? format.parseMillis(json.path(JSONConstants.START_KEY)
+                .asText()) : 0;
+        int row = 0;
+        for (JsonNode chunk : json.path(JSONConstants.CHUNKS_KEY)) {
+            int size = chunk.path(JSONConstants.SIZE_KEY).asInt();
+            JsonNode phenomenons = chunk.path(JSONConstants.PHENOMENONS_KEY);
+            for (int i = 0; i < size; ++i, ++row) {
+                Measurement m = measurements.get(row);
+                JsonNode delta = chunk.path(JSONConstants.TIME_KEY).get(i);
+                if (m.hasTime()) {
+                    time += delta.asLong();
+                    assertThat(time, is(m.getTime().getMillis()));
+                } else {
+                    assertThat(delta.isNull(), is(true));
+                }
+                JsonNode lon = chunk.path(JSONConstants.LONGITUDE_KEY).get(i);
+                JsonNode lat = chunk.path(JSONConstants.LATITUDE_KEY).get(i);
+                if (m.hasGeometry()) {
+                    Coordinate c = m.getGeometry().getCoordinate();
+                    assertThat(lon.asDouble(), is(c.x));
+                    assertThat(lat.asDouble(), is(c.y));
+                } else {
+                    assertThat(lon.isNull(), is(true));
+                    assertThat(lat.isNull(), is(true));
+                }
+                for (Phenomenon p : new Phenomenon[] { speed, rpm, maf }) {
+                    JsonNode cell = phenomenons.path(p.getName()).get(i);
+                    assertThat(cell == null || cell.isNull()
+                               ? null : cell.asDouble(),
+                               is(getValue(m, p)));
+                }
+            }
+        }
+        assertThat(row, is(measurements.size()));
+    }
+
+    private Double getValue(Measurement m, Phenomenon p) {
+        for (MeasurementValue mv : m.getValues()) {
+            if (mv.getPhenomenon() == p) {
+                return (Double) mv.getValue();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Creates measurements with irregular time steps. Every second one has
+     * a RPM value and MAF values are added after the first chunk.
+     */
+    private List<Measurement> series(int size) {
+        List<Measurement> measurements = Lists.newArrayList();
+        DateTime time = START;
+        for (int i = 0; i < size; ++i) {
+            Measurement m = bean(Measurement.class);
+            m.setTime(time);
+            m.setGeometry(geometryFactory.createPoint(
+                    new Coordinate(7.6 + i * 1e-4, 51.9 - i * 1e-4)));
+            m.addValue(value(speed, 30.0 + i % 50));
+            if (i % 2 == 0) {
+                m.addValue(value(rpm, 800.0 + i));
+            }
+            if (i > 1500) {
+                m.addValue(value(maf, i / 100.0));
+            }
+            measurements.add(m);
+            time = time.plusMillis(1000 + i % 7 * 13);
+        }
+        return measurements;
+    }
+
+    private MeasurementValue value(Phenomenon phenomenon, double v) {
+        MeasurementValue value = bean(MeasurementValue.class);
+        value.setPhenomenon(phenomenon);
+        value.setValue(v);
+        return value;
+    }
+
+    private static Phenomenon phenomenon(String name, String unit) {
+        Phenomenon phenomenon = bean(Phenomenon.class);
+        phenomenon.setName(name);
+        phenomenon.setUnit(unit);
+        return phenomenon;
+    }
+}
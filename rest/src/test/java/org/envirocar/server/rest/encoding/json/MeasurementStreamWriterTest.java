@@ -0,0 +1,398 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.encoding.json;
+
+import static org.envirocar.server.rest.stubs.Stubs.bean;
+import static org.envirocar.server.rest.stubs.Stubs.proxy;
+import static org.envirocar.server.rest.stubs.Stubs.unsupported;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.envirocar.server.core.UserService;
+import org.envirocar.server.core.entities.EntityFactory;
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.MeasurementValue;
+import org.envirocar.server.core.entities.Phenomenon;
+import org.envirocar.server.core.entities.Sensor;
+import org.envirocar.server.core.entities.Track;
+import org.envirocar.server.core.entities.User;
+import org.envirocar.server.core.exception.UserNotFoundException;
+import org.envirocar.server.core.filter.Projection;
+import org.envirocar.server.core.util.MeasurementView;
+import org.envirocar.server.rest.MediaTypes;
+import org.envirocar.server.rest.rights.AccessRights;
+import org.envirocar.server.rest.rights.NonRestrictiveRights;
+import org.envirocar.server.rest.util.GeoJSON;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.inject.util.Providers;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.PrecisionModel;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class MeasurementStreamWriterTest {
+    private static final DateTime TIME = new DateTime(2013, 6, 1, 12, 0, 0, 0);
+    /**
+     * Anonymous users may not see the geometry of measurements before this
+     * time, so the rights do not only depend on the owner.
+     */
+    private static final DateTime PUBLIC_SINCE = TIME.plusMinutes(1);
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final GeometryFactory geometryFactory =
+            new GeometryFactory(new PrecisionModel(), 4326);
+    private final DateTimeFormatter format =
+            ISODateTimeFormat.dateTimeNoMillis();
+    private final Map<String, User> users = Maps.newHashMap();
+    private MeasurementJSONEncoder measurementEncoder;
+    private UserJSONEncoder userEncoder;
+    private List<Measurement> measurements;
+
+    @Before
+    public void setUp() {
+        GeometryJSONEncoder geometryEncoder = configure(
+                new GeometryJSONEncoder(new GeoJSON(
+                geometryFactory, JsonNodeFactory.instance)));
+        userEncoder = configure(new UserJSONEncoder(geometryEncoder));
+        measurementEncoder = configure(new MeasurementJSONEncoder(
+                geometryEncoder, userEncoder,
+                configure(new SensorJSONEncoder())));
+        Sensor sensor = bean(Sensor.class);
+        sensor.setIdentifier("51c96afce4b0fe5a04fb8e05");
+        sensor.setType("car");
+        sensor.addProperty("manufacturer", "VW");
+        sensor.addProperty("fuelType", "diesel");
+        Track track = bean(Track.class);
+        track.setIdentifier("51c96afce4b0fe5a04fb8e06");
+        measurements = Lists.newArrayList(
+                measurement("1", user("owner"), sensor, track, 0),
+                measurement("2", user("owner"), sensor, track, 2),
+                measurement("3", user("friend"), sensor, track, 0),
+                measurement("4", user("friend"), sensor, null, 2),
+                measurement("5", user("stranger"), sensor, track, 0),
+                measurement("6", user("stranger"), null, track, 2),
+                measurement("7", null, sensor, track, 0),
+                measurement("8", null, sensor, track, 2));
+    }
+
+    @Test
+    public void matchesEncoderForOwner() throws IOException {
+        assertEquivalent(new Viewer("owner", "friend"));
+    }
+
+    @Test
+    public void matchesEncoderForFriend() throws IOException {
+        assertEquivalent(new Viewer("friend", "owner"));
+    }
+
+    @Test
+    public void matchesEncoderForAnonymousUser() throws IOException {
+        assertEquivalent(new Viewer(null));
+    }
+
+    private void assertEquivalent(AccessRights rights) throws IOException {
+        ArrayNode expected = mapper.createArrayNode();
+        for (Measurement m : measurements) {
+            expected.add(mapper.readTree(mapper.writeValueAsString(
+                    measurementEncoder.encodeJSON(
+                    m, rights, MediaTypes.MEASUREMENTS_TYPE))));
+        }
+        assertThat(stream(rights), is((JsonNode) expected));
+    }
+
+    private JsonNode stream(AccessRights rights) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        JsonGenerator g = mapper.getFactory()
+                .createGenerator(out, JsonEncoding.UTF8);
+        MeasurementStreamWriter writer = new MeasurementStreamWriter(
+                g, rights, MediaTypes.MEASUREMENTS_TYPE, format,
+                userService(), entityFactory(), userEncoder, geometryFactory);
+        g.writeStartArray();
+        for (Measurement m : measurements) {
+            writer.visit(new EntityView(m));
+        }
+        g.writeEndArray();
+        g.flush();
+        return mapper.readTree(out.toByteArray());
+    }
+
+    private <T extends AbstractJSONEntityEncoder<?>> T configure(T encoder) {
+        encoder.setJsonFactory(JsonNodeFactory.instance);
+        encoder.setDateTimeFormat(format);
+        encoder.setProjection(Providers.of(Projection.all()));
+        return encoder;
+    }
+
+    private User user(String name) {
+        User user = users.get(name);
+        if (user == null) {
+            user = bean(User.class);
+            user.setName(name);
+            user.setMail(name + "@example.com");
+            users.put(name, user);
+        }
+        return user;
+    }
+
+    private Measurement measurement(String id, User user, Sensor sensor,
+                                    Track track, int minutes) {
+        Measurement m = bean(Measurement.class);
+        m.setIdentifier(id);
+        m.setUser(user);
+        m.setSensor(sensor);
+        m.setTrack(track);
+        m.setTime(TIME.plusMinutes(minutes));
+        m.setGeometry(geometryFactory.createPoint(
+                new Coordinate(7.6 + minutes, 51.9)));
+        m.addValue(value("Speed", "km/h", 42.5));
+        m.addValue(value("Rpm", null, 1800.0));
+        return m;
+    }
+
+    private MeasurementValue value(String name, String unit, Object v) {
+        Phenomenon phenomenon = bean(Phenomenon.class);
+        phenomenon.setName(name);
+        phenomenon.setUnit(unit);
+        MeasurementValue value = bean(MeasurementValue.class);
+        value.setPhenomenon(phenomenon);
+        value.setValue(v);
+        return value;
+    }
+
+    private UserService userService() {
+        return proxy(UserService.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws UserNotFoundException {
+                if (method.getName().equals("getUser")) {
+                    User user = users.get((String) args[0]);
+                    if (user == null) {
+                        throw new UserNotFoundException((String) args[0]);
+                    }
+                    return user;
+                }
+                throw unsupported(method);
+            }
+        });
+    }
+
+    private EntityFactory entityFactory() {
+        return proxy(EntityFactory.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().startsWith("create")) {
+                    return bean(method.getReturnType());
+                }
+                throw unsupported(method);
+            }
+        });
+    }
+
+    /**
+     * Lets users see the user, creation and modification time of their own
+     * and their friends' measurements and hides the geometry of early
+     * measurements from anonymous users.
+     */
+    private static class Viewer extends NonRestrictiveRights {
+        private final String name;
+        private final Set<String> friends;
+
+        Viewer(String name, String... friends) {
+            this.name = name;
+            this.friends = ImmutableSet.copyOf(friends);
+        }
+
+        private boolean isSelfOrFriend(User user) {
+            return name != null && user != null &&
+                   (user.getName().equals(name) ||
+                    friends.contains(user.getName()));
+        }
+
+        @Override
+        public boolean canSeeUserOf(Measurement measurement) {
+            return isSelfOrFriend(measurement.getUser());
+        }
+
+        @Override
+        public boolean canSeeCreationTimeOf(Measurement measurement) {
+            return isSelfOrFriend(measurement.getUser());
+        }
+
+        @Override
+        public boolean canSeeModificationTimeOf(Measurement measurement) {
+            return isSelfOrFriend(measurement.getUser());
+        }
+
+        @Override
+        public boolean canSeeGeometryOf(Measurement measurement) {
+            return name != null || (measurement.hasTime() &&
+                    !measurement.getTime().isBefore(PUBLIC_SINCE));
+        }
+    }
+
+    /**
+     * Exposes a measurement entity like a streamed measurement.
+     */
+    private static class EntityView implements MeasurementView {
+        private final Measurement m;
+        private final List<MeasurementValue> values;
+
+        EntityView(Measurement m) {
+            this.m = m;
+            this.values = Lists.newArrayList(m.getValues());
+        }
+
+        @Override
+        public String getIdentifier() {
+            return m.getIdentifier();
+        }
+
+        @Override
+        public boolean hasPoint() {
+            return m.hasGeometry();
+        }
+
+        @Override
+        public double getX() {
+            return ((Point) m.getGeometry()).getX();
+        }
+
+        @Override
+        public double getY() {
+            return ((Point) m.getGeometry()).getY();
+        }
+
+        @Override
+        public boolean hasTime() {
+            return m.hasTime();
+        }
+
+        @Override
+        public long getTime() {
+            return m.getTime().getMillis();
+        }
+
+        @Override
+        public boolean hasCreationTime() {
+            return m.hasCreationTime();
+        }
+
+        @Override
+        public long getCreationTime() {
+            return m.getCreationTime().getMillis();
+        }
+
+        @Override
+        public boolean hasModificationTime() {
+            return m.hasModificationTime();
+        }
+
+        @Override
+        public long getModificationTime() {
+            return m.getModificationTime().getMillis();
+        }
+
+        @Override
+        public boolean hasSensor() {
+            return m.hasSensor();
+        }
+
+        @Override
+        public String getSensorIdentifier() {
+            return m.getSensor().getIdentifier();
+        }
+
+        @Override
+        public String getSensorType() {
+            return m.getSensor().getType();
+        }
+
+        @Override
+        public Map<String, Object> getSensorProperties() {
+            Map<String, Object> properties = m.getSensor().getProperties();
+            return properties == null
+                   ? Collections.<String, Object>emptyMap() : properties;
+        }
+
+        @Override
+        public boolean hasUser() {
+            return m.hasUser();
+        }
+
+        @Override
+        public String getUserName() {
+            return m.getUser().getName();
+        }
+
+        @Override
+        public boolean hasTrack() {
+            return m.hasTrack();
+        }
+
+        @Override
+        public String getTrackIdentifier() {
+            return m.getTrack().getIdentifier();
+        }
+
+        @Override
+        public int getValueCount() {
+            return values.size();
+        }
+
+        @Override
+        public String getPhenomenonName(int i) {
+            return values.get(i).getPhenomenon().getName();
+        }
+
+        @Override
+        public String getPhenomenonUnit(int i) {
+            return values.get(i).getPhenomenon().getUnit();
+        }
+
+        @Override
+        public Object getValue(int i) {
+            return values.get(i).getValue();
+        }
+    }
+}
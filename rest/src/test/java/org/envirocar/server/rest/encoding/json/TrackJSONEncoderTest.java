@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.encoding.json;
+
+import static org.envirocar.server.rest.stubs.Stubs.proxy;
+import static org.envirocar.server.rest.stubs.Stubs.unsupported;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.Collections;
+
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.UriInfo;
+
+import org.envirocar.server.core.DataService;
+import org.envirocar.server.core.entities.Measurement;
+import org.envirocar.server.core.entities.Measurements;
+import org.envirocar.server.core.entities.Sensor;
+import org.envirocar.server.core.entities.Track;
+import org.envirocar.server.core.entities.User;
+import org.envirocar.server.core.filter.MeasurementFilter;
+import org.envirocar.server.core.filter.Projection;
+import org.envirocar.server.core.util.GeoJSONConstants;
+import org.envirocar.server.rest.MediaTypes;
+import org.envirocar.server.rest.encoding.JSONEntityEncoder;
+import org.envirocar.server.rest.rights.AccessRights;
+import org.envirocar.server.rest.rights.NonRestrictiveRights;
+import org.joda.time.DateTime;
+import org.joda.time.format.DateTimeFormatter;
+import org.joda.time.format.ISODateTimeFormat;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Provider;
+import com.google.inject.Provides;
+import com.google.inject.TypeLiteral;
+import com.google.inject.servlet.ServletScopes;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class TrackJSONEncoderTest {
+    private static final DateTime BEGIN = new DateTime(2013, 1, 1, 0, 0, 0, 0);
+    private final AccessRights rights = new NonRestrictiveRights();
+    private TrackJSONEncoder encoder;
+    private MeasurementFilter filter;
+
+    @Before
+    public void setUp() {
+        encoder = Guice.createInjector(new EncoderModule())
+                .getInstance(TrackJSONEncoder.class);
+    }
+
+    @Test
+    public void testEncodeTrackOutsideOfRequest() {
+        Track track = track();
+        ObjectNode json = encoder
+                .encodeJSON(track, rights, MediaTypes.TRACK_TYPE);
+        assertThat(json.path(GeoJSONConstants.FEATURES_KEY).isArray(),
+                   is(true));
+        assertThat(filter.getProjection().isAll(), is(true));
+        json = encoder.encodeJSON(track, rights,
+                                  MediaType.APPLICATION_JSON_TYPE);
+        assertThat(json.has(GeoJSONConstants.FEATURES_KEY), is(false));
+    }
+
+    private Track track() {
+        return proxy(Track.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("getIdentifier")) {
+                    return "track";
+                } else if (name.equals("getBegin")) {
+                    return BEGIN;
+                } else if (name.equals("getEnd")) {
+                    return BEGIN.plusHours(1);
+                } else if (name.equals("hasIdentifier") ||
+                           name.equals("hasBegin") ||
+                           name.equals("hasEnd")) {
+                    return true;
+                } else if (method.getReturnType().equals(boolean.class)) {
+                    return false;
+                }
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Binds the request scoped objects like the Jersey integration does, so
+     * accessing them outside of a request fails the same way.
+     */
+    private class EncoderModule extends AbstractModule {
+        @Override
+        protected void configure() {
+            bind(UriInfo.class).toProvider(new Provider<UriInfo>() {
+                @Override
+                public UriInfo get() {
+                    throw new AssertionError("request scoped");
+                }
+            }).in(ServletScopes.REQUEST);
+            bind(AccessRights.class).to(NonRestrictiveRights.class);
+            bind(JsonNodeFactory.class).toInstance(JsonNodeFactory.instance);
+            bind(ObjectWriter.class).toInstance(new ObjectMapper().writer());
+            bind(DateTimeFormatter.class)
+                    .toInstance(ISODateTimeFormat.dateTimeNoMillis());
+            bind(DataService.class).toInstance(proxy(DataService.class,
+                                                     new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method,
+                                     Object[] args) {
+                    if (method.getName().equals("getMeasurements")) {
+                        filter = (MeasurementFilter) args[0];
+                        return Measurements.from(Collections
+                                .<Measurement>emptyList()).build();
+                    }
+                    throw unsupported(method);
+                }
+            }));
+            bind(new TypeLiteral<JSONEntityEncoder<Measurements>>() {
+            }).toInstance(new JSONEntityEncoder<Measurements>() {
+                @Override
+                public ObjectNode encodeJSON(Measurements t,
+                                             AccessRights rights,
+                                             MediaType mt) {
+                    ObjectNode node = JsonNodeFactory.instance.objectNode();
+                    node.putArray(GeoJSONConstants.FEATURES_KEY);
+                    return node;
+                }
+            });
+            bind(new TypeLiteral<JSONEntityEncoder<Sensor>>() {
+            }).toInstance(this.<Sensor>unused());
+            bind(new TypeLiteral<JSONEntityEncoder<User>>() {
+            }).toInstance(this.<User>unused());
+            bind(new TypeLiteral<JSONEntityEncoder<Geometry>>() {
+            }).toInstance(this.<Geometry>unused());
+        }
+
+        @Provides
+        public Projection projection(UriInfo uriInfo) {
+            fail("request scoped");
+            return null;
+        }
+
+        private <T> JSONEntityEncoder<T> unused() {
+            return new JSONEntityEncoder<T>() {
+                @Override
+                public ObjectNode encodeJSON(T t, AccessRights rights,
+                                             MediaType mt) {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+    }
+}
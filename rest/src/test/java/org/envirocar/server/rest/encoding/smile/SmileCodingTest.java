@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.encoding.smile;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.ws.rs.core.MediaType;
+
+import org.envirocar.server.core.entities.Measurements;
+import org.envirocar.server.core.entities.Track;
+import org.envirocar.server.core.entities.Tracks;
+import org.envirocar.server.core.util.GeoJSONConstants;
+import org.envirocar.server.rest.JSONConstants;
+import org.envirocar.server.rest.MediaTypes;
+import org.envirocar.server.rest.decoding.json.JSONEntityDecoder;
+import org.envirocar.server.rest.decoding.smile.AbstractSmileMessageBodyReader;
+import org.envirocar.server.rest.decoding.smile.MeasurementsSmileDecoder;
+import org.envirocar.server.rest.decoding.smile.TrackSmileDecoder;
+import org.envirocar.server.rest.encoding.JSONEntityEncoder;
+import org.envirocar.server.rest.rights.AccessRights;
+import org.envirocar.server.rest.rights.NonRestrictiveRights;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.inject.util.Providers;
+
+/**
+ * Checks that the Smile encoders and decoders carry exactly the tree of the
+ * JSON encoders and decoders.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class SmileCodingTest {
+    private final ObjectMapper json = new ObjectMapper();
+    private final ObjectMapper smile = new ObjectMapper(new SmileFactory())
+            .disable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    @Test
+    public void roundTripsTrack() throws IOException {
+        ObjectNode track = track(500);
+        JsonNode decoded = roundTrip(new TrackSmileEncoder(), Track.class,
+                                     MediaTypes.TRACK_TYPE, track,
+                                     new TrackSmileDecoder(),
+                                     MediaTypes.TRACK_CREATE_TYPE);
+        assertThat(decoded, is((JsonNode) track));
+    }
+
+    @Test
+    public void roundTripsMeasurements() throws IOException {
+        ObjectNode measurements = track(500);
+        measurements.remove(JSONConstants.PROPERTIES_KEY);
+        JsonNode decoded = roundTrip(new MeasurementsSmileEncoder(),
+                                     Measurements.class,
+                                     MediaTypes.MEASUREMENTS_TYPE,
+                                     measurements,
+                                     new MeasurementsSmileDecoder(),
+                                     MediaTypes.MEASUREMENTS_CREATE_TYPE);
+        assertThat(decoded, is((JsonNode) measurements));
+    }
+
+    @Test
+    public void encodesTracks() throws IOException {
+        ObjectNode tracks = JsonNodeFactory.instance.objectNode();
+        ArrayNode array = tracks.putArray(JSONConstants.TRACKS_KEY);
+        for (int i = 0; i < 10; ++i) {
+            array.add(track(0).path(JSONConstants.PROPERTIES_KEY));
+        }
+        byte[] encoded = encode(new TracksSmileEncoder(), Tracks.class,
+                                MediaTypes.TRACKS_TYPE, tracks);
+        assertThat(smile.readTree(encoded), is((JsonNode) tracks));
+    }
+
+    @Test
+    public void isSmallerThanJSON() throws IOException {
+        ObjectNode track = track(500);
+        byte[] encoded = encode(new TrackSmileEncoder(), Track.class,
+                                MediaTypes.TRACK_TYPE, track);
+        assertThat(encoded.length,
+                   lessThan(json.writeValueAsBytes(track).length));
+    }
+
+    private <T> JsonNode roundTrip(AbstractSmileMessageBodyWriter<T> writer,
+                                   Class<T> type, MediaType jsonType,
+                                   ObjectNode tree,
+                                   AbstractSmileMessageBodyReader<T> reader,
+                                   MediaType decoderType) throws IOException {
+        byte[] encoded = encode(writer, type, jsonType, tree);
+        CapturingDecoder<T> decoder = new CapturingDecoder<T>();
+        reader.setReader(smile.reader());
+        reader.setFactory(JsonNodeFactory.instance);
+        reader.setDecoder(decoder);
+        reader.readFrom(type, type, null, MediaTypes.APPLICATION_SMILE_TYPE,
+                        null, new ByteArrayInputStream(encoded));
+        assertThat(decoder.mediaType, is(decoderType));
+        return decoder.tree;
+    }
+
+    private <T> byte[] encode(AbstractSmileMessageBodyWriter<T> writer,
+                              Class<T> type, MediaType jsonType,
+                              ObjectNode tree) throws IOException {
+        writer.setWriter(smile.writer());
+        writer.setRights(Providers.<AccessRights>of(
+                new NonRestrictiveRights()));
+        writer.setEncoder(new FixedEncoder<T>(tree, jsonType));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.writeTo(null, type, type, null,
+                       MediaTypes.APPLICATION_SMILE_TYPE, null, out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Creates a track like the JSON encoder does.
+     */
+    private ObjectNode track(int size) {
+        JsonNodeFactory factory = JsonNodeFactory.instance;
+        ObjectNode track = factory.objectNode();
+        track.put(GeoJSONConstants.TYPE_KEY,
+                  GeoJSONConstants.FEATURE_COLLECTION_TYPE);
+        ObjectNode properties = track.putObject(JSONConstants.PROPERTIES_KEY);
+        properties.put(JSONConstants.IDENTIFIER_KEY, "51c96afce4b0fe5a04fb8e06");
+        properties.put(JSONConstants.NAME_KEY, "Track");
+        properties.put("length", 12.34567);
+        properties.putNull(JSONConstants.DESCRIPTION_KEY);
+        ArrayNode features = track.putArray(GeoJSONConstants.FEATURES_KEY);
+        for (int i = 0; i < size; ++i) {
+            ObjectNode feature = features.addObject();
+            feature.put(GeoJSONConstants.TYPE_KEY,
+                        GeoJSONConstants.FEATURE_TYPE);
+            ObjectNode geometry = feature
+                    .putObject(JSONConstants.GEOMETRY_KEY);
+            geometry.put(GeoJSONConstants.TYPE_KEY,
+                         GeoJSONConstants.POINT_TYPE);
+            geometry.putArray(GeoJSONConstants.COORDINATES_KEY)
+                    .add(7.6 + i * 1e-4).add(51.9 - i * 1e-4);
+            ObjectNode p = feature.putObject(GeoJSONConstants.PROPERTIES_KEY);
+            p.put(JSONConstants.IDENTIFIER_KEY, Integer.toHexString(i));
+            p.put(JSONConstants.TIME_KEY, "2013-06-01T12:00:00Z");
+            ObjectNode phenomenons = p.putObject(JSONConstants.PHENOMENONS_KEY);
+            ObjectNode speed = phenomenons.putObject("Speed");
+            speed.put(JSONConstants.VALUE_KEY, 30.5 + i % 50);
+            speed.put(JSONConstants.UNIT_KEY, "km/h");
+            ObjectNode rpm = phenomenons.putObject("Rpm");
+            rpm.put(JSONConstants.VALUE_KEY, 800 + i);
+            rpm.put(JSONConstants.UNIT_KEY, "u/min");
+        }
+        return track;
+    }
+
+    private static class FixedEncoder<T> implements JSONEntityEncoder<T> {
+        private final ObjectNode tree;
+        private final MediaType mediaType;
+
+        FixedEncoder(ObjectNode tree, MediaType mediaType) {
+            this.tree = tree;
+            this.mediaType = mediaType;
+        }
+
+        @Override
+        public ObjectNode encodeJSON(T t, AccessRights rights, MediaType mt) {
+            assertThat(mt, is(mediaType));
+            return tree;
+        }
+    }
+
+    private static class CapturingDecoder<T> implements JSONEntityDecoder<T> {
+        private JsonNode tree;
+        private MediaType mediaType;
+
+        @Override
+        public T decode(JsonNode j, MediaType mt) {
+            this.tree = j;
+            this.mediaType = mt;
+            return null;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.idempotency;
+
+import static org.envirocar.server.rest.stubs.Stubs.proxy;
+import static org.envirocar.server.rest.stubs.Stubs.unsupported;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+
+import org.envirocar.server.core.DataService;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class IdempotencyFilterTest {
+    private final List<String> released = new ArrayList<String>();
+    private final Map<String, Object> attributes =
+            new HashMap<String, Object>();
+    private IdempotencyFilter filter;
+    private ServletRequest request;
+
+    @Before
+    public void setUp() {
+        filter = new IdempotencyFilter(proxy(DataService.class,
+                                             new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("releaseIdempotencyKey")) {
+                    released.add(args[0] + "/" + args[1]);
+                    return null;
+                }
+                throw unsupported(method);
+            }
+        }));
+        request = proxy(ServletRequest.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getAttribute")) {
+                    return attributes.get((String) args[0]);
+                } else if (method.getName().equals("setAttribute")) {
+                    attributes.put((String) args[0], args[1]);
+                    return null;
+                } else if (method.getName().equals("removeAttribute")) {
+                    attributes.remove((String) args[0]);
+                    return null;
+                }
+                throw unsupported(method);
+            }
+        });
+    }
+
+    private static void reserve(ServletRequest request) {
+        request.setAttribute(IdempotencyFilter.RESERVATION,
+                             new IdempotencyFilter.Reservation("user", "key",
+                                                               null));
+    }
+
+    @Test
+    public void releasesRejectedRequests() throws IOException,
+                                                  ServletException {
+        filter.doFilter(request, null, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request,
+                                 ServletResponse response) {
+                reserve(request);
+                /* e.g. a later filter answered with 400 Bad Request */
+            }
+        });
+        assertThat(released, contains("user/key"));
+        assertThat(attributes.get(IdempotencyFilter.RESERVATION),
+                   is(nullValue()));
+    }
+
+    @Test
+    public void releasesFailedRequests() throws IOException,
+                                                ServletException {
+        try {
+            filter.doFilter(request, null, new FilterChain() {
+                @Override
+                public void doFilter(ServletRequest request,
+                                     ServletResponse response) {
+                    reserve(request);
+                    throw new IllegalStateException();
+                }
+            });
+            fail("expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            /* expected */
+        }
+        assertThat(released, contains("user/key"));
+    }
+
+    @Test
+    public void keepsCompletedRequests() throws IOException,
+                                                ServletException {
+        filter.doFilter(request, null, new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request,
+                                 ServletResponse response) {
+                reserve(request);
+                /* completed by the resource filter */
+                request.removeAttribute(IdempotencyFilter.RESERVATION);
+            }
+        });
+        assertThat(released, is(empty()));
+    }
+}
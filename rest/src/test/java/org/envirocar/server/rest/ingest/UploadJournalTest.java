@@ -0,0 +1,175 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.ingest;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class UploadJournalTest {
+    private static final String MEDIA_TYPE = "application/json";
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private UploadJournal journal(int segmentSize) {
+        return new UploadJournal(folder.getRoot().getPath(), segmentSize);
+    }
+
+    private byte[] payload(String s) {
+        return s.getBytes(Charsets.UTF_8);
+    }
+
+    @Test
+    public void readsAppendedUpload() throws IOException {
+        UploadJournal journal = journal(1024);
+        assertThat(journal.open(), hasSize(0));
+        UploadJournal.Entry entry = journal
+                .append("user", MEDIA_TYPE, payload("{\"a\":1}"));
+        assertThat(new String(ByteStreams.toByteArray(journal.read(entry)),
+                              Charsets.UTF_8), is("{\"a\":1}"));
+    }
+
+    @Test
+    public void recoversPendingUploads() throws IOException {
+        UploadJournal journal = journal(1024);
+        journal.open();
+        UploadJournal.Entry first = journal
+                .append("user1", MEDIA_TYPE, payload("first"));
+        UploadJournal.Entry second = journal
+                .append("user2", MEDIA_TYPE, payload("second"));
+        journal.complete(first, "track", null);
+
+        UploadJournal reopened = journal(1024);
+        List<UploadJournal.Entry> pending = reopened.open();
+        assertThat(pending, hasSize(1));
+        UploadJournal.Entry entry = pending.get(0);
+        assertThat(entry.getId(), is(second.getId()));
+        assertThat(entry.getUser(), is("user2"));
+        assertThat(entry.getMediaType(), is(MEDIA_TYPE));
+        assertThat(new String(ByteStreams.toByteArray(reopened.read(entry)),
+                              Charsets.UTF_8), is("second"));
+        List<UploadJournal.Completion> completions =
+                reopened.getCompletions();
+        assertThat(completions, hasSize(1));
+        assertThat(completions.get(0).getId(), is(first.getId()));
+        assertThat(completions.get(0).getUser(), is("user1"));
+        assertThat(completions.get(0).getTrack(), is("track"));
+        assertThat(completions.get(0).getMessage(), is(nullValue()));
+    }
+
+    @Test
+    public void rejectsTooLargeUploads() throws IOException {
+        UploadJournal journal = journal(1024);
+        journal.open();
+        try {
+            journal.append("user", MEDIA_TYPE,
+                           new ByteArrayInputStream(payload("too large")), 8);
+            fail("expected an UploadTooLargeException");
+        } catch (UploadTooLargeException e) {
+            /* expected */
+        }
+        UploadJournal.Entry entry = journal.append(
+                "user", MEDIA_TYPE, new ByteArrayInputStream(payload("fits")), 8);
+        assertThat(new String(ByteStreams.toByteArray(journal.read(entry)),
+                              Charsets.UTF_8), is("fits"));
+        /* the aborted upload is skipped */
+        List<UploadJournal.Entry> pending = journal(1024).open();
+        assertThat(pending, hasSize(1));
+        assertThat(pending.get(0).getId(), is(entry.getId()));
+    }
+
+    @Test
+    public void createsObjectIdCompatibleIdentifiers() throws IOException {
+        UploadJournal journal = journal(1024);
+        journal.open();
+        String id = journal.append("user", MEDIA_TYPE, payload("a")).getId();
+        assertThat(id.matches("[0-9a-f]{24}"), is(true));
+    }
+
+    @Test
+    public void deletesCompletedSegments() throws IOException {
+        UploadJournal journal = journal(64);
+        journal.open();
+        UploadJournal.Entry first = journal
+                .append("user", MEDIA_TYPE, payload("a payload that fills a segment"));
+        journal.append("user", MEDIA_TYPE, payload("another large payload"));
+        journal.complete(first, null, "failed");
+        assertThat(new File(folder.getRoot(), "journal-0.log").exists(),
+                   is(false));
+        assertThat(journal(64).open(), hasSize(1));
+    }
+
+    @Test
+    public void reservesOnlyTheReceivedLength() throws IOException {
+        UploadJournal journal = journal(1024);
+        journal.open();
+        for (int i = 0; i < 3; ++i) {
+            journal.append("user", MEDIA_TYPE,
+                           new ByteArrayInputStream(payload("small")),
+                           1024 * 1024);
+        }
+        assertThat(folder.getRoot().list(), is(new String[] {
+            "journal-0.log" }));
+        assertThat(journal(1024).open(), hasSize(3));
+    }
+
+    @Test
+    public void deletesAbandonedSpoolFiles() throws IOException {
+        File spool = new File(folder.getRoot(),
+                              UploadJournal.newId() + ".upload");
+        assertThat(spool.createNewFile(), is(true));
+        journal(1024).open();
+        assertThat(spool.exists(), is(false));
+    }
+
+    @Test
+    public void rejectsReadsAfterClose() throws IOException {
+        UploadJournal journal = journal(1024);
+        journal.open();
+        UploadJournal.Entry entry = journal
+                .append("user", MEDIA_TYPE, payload("a"));
+        journal.close();
+        try {
+            journal.read(entry);
+            fail("expected an IllegalStateException");
+        } catch (IllegalStateException e) {
+            /* expected */
+        }
+        List<UploadJournal.Entry> pending = journal(1024).open();
+        assertThat(pending, hasSize(1));
+        assertThat(pending.get(0).getId(), is(entry.getId()));
+    }
+}
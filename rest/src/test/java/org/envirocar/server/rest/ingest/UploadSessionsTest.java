@@ -0,0 +1,160 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.ingest;
+
+import static org.envirocar.server.rest.stubs.Stubs.proxy;
+import static org.envirocar.server.rest.stubs.Stubs.unsupported;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.envirocar.server.core.DataService;
+import org.envirocar.server.core.exception.ResourceAlreadyExistException;
+import org.envirocar.server.core.exception.TrackNotFoundException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class UploadSessionsTest {
+    private final ObjectMapper mapper = new ObjectMapper();
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private UploadSessions sessions() {
+        return sessions(null);
+    }
+
+    private UploadSessions sessions(DataService dataService) {
+        return new UploadSessions(folder.getRoot().getPath(), 24,
+                                  dataService, null, mapper);
+    }
+
+    private DataService dataService(final Set<String> tracks) {
+        return proxy(DataService.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws TrackNotFoundException {
+                if (method.getName().equals("getTrack") &&
+                    tracks.contains((String) args[0])) {
+                    return null;
+                } else if (method.getName().equals("getTrack")) {
+                    throw new TrackNotFoundException((String) args[0]);
+                }
+                throw unsupported(method);
+            }
+        });
+    }
+
+    private JsonNode json(String s) throws IOException {
+        return mapper.readTree(s);
+    }
+
+    @Test
+    public void tracksReceivedChunks() throws IOException,
+                                              ResourceAlreadyExistException {
+        UploadSessions sessions = sessions();
+        UploadSessions.Session session = sessions
+                .open("user", mapper.createObjectNode());
+        assertThat(sessions.append(session, 0, json("{\"a\":0}")), is(true));
+        assertThat(sessions.append(session, 2, json("{\"a\":2}")), is(true));
+        assertThat(sessions.getChunks(session), contains(0, 2));
+        assertThat(UploadSessions.getNextChunk(sessions.getChunks(session)),
+                   is(1));
+
+        UploadSessions.Session reopened = sessions().get(session.getId());
+        assertThat(reopened, is(notNullValue()));
+        assertThat(reopened.getUser(), is("user"));
+        assertThat(sessions.getTrack(reopened), is(nullValue()));
+    }
+
+    @Test
+    public void ignoresDuplicateChunks() throws IOException,
+                                                ResourceAlreadyExistException {
+        UploadSessions sessions = sessions();
+        UploadSessions.Session session = sessions
+                .open("user", mapper.createObjectNode());
+        assertThat(sessions.append(session, 0, json("{\"a\": 0}")), is(true));
+        assertThat(sessions.append(session, 0, json("{\"a\":0}")), is(false));
+        assertThat(sessions.getChunks(session), contains(0));
+    }
+
+    @Test(expected = ResourceAlreadyExistException.class)
+    public void rejectsConflictingChunks() throws IOException,
+                                                  ResourceAlreadyExistException {
+        UploadSessions sessions = sessions();
+        UploadSessions.Session session = sessions
+                .open("user", mapper.createObjectNode());
+        sessions.append(session, 0, json("{\"a\":0}"));
+        sessions.append(session, 0, json("{\"a\":1}"));
+    }
+
+    @Test
+    public void resumesInterruptedCompletions() throws Exception {
+        Set<String> tracks = new HashSet<String>();
+        UploadSessions sessions = sessions(dataService(tracks));
+        UploadSessions.Session session = sessions
+                .open("user", mapper.createObjectNode());
+        sessions.append(session, 0, json("{\"a\":0}"));
+        String id = UploadJournal.newId();
+        Files.write(id, new File(folder.getRoot(), "sessions/" +
+                session.getId() + "/" + UploadSessions.COMPLETING),
+                    Charsets.UTF_8);
+        tracks.add(id);
+
+        assertThat(sessions.complete(session, null), is(id));
+        assertThat(sessions.getTrack(session), is(id));
+        assertThat(sessions.getChunks(session), is(empty()));
+    }
+
+    @Test(expected = ResourceAlreadyExistException.class)
+    public void rejectsChunksWhileCompleting() throws Exception {
+        UploadSessions sessions = sessions();
+        UploadSessions.Session session = sessions
+                .open("user", mapper.createObjectNode());
+        Files.write(UploadJournal.newId(), new File(folder.getRoot(),
+                "sessions/" + session.getId() + "/" + UploadSessions.COMPLETING),
+                    Charsets.UTF_8);
+        sessions.append(session, 0, json("{\"a\":0}"));
+    }
+
+    @Test
+    public void ignoresUnknownSessions() throws IOException {
+        assertThat(sessions().get("../sessions"), is(nullValue()));
+        assertThat(sessions().get("6f1f3a3c-2b0e-4c39-9a3f-5f8f3c9e0b7a"),
+                   is(nullValue()));
+    }
+}
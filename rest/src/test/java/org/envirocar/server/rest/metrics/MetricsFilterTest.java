@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.metrics;
+
+import static org.envirocar.server.rest.stubs.Stubs.proxy;
+import static org.envirocar.server.rest.stubs.Stubs.unsupported;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletResponse;
+
+import org.envirocar.server.core.metrics.Metrics;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class MetricsFilterTest {
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private final Metrics metrics = new Metrics();
+    private ServletRequest request;
+    private HttpServletResponse response;
+
+    @Before
+    public void setUp() {
+        request = proxy(ServletRequest.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getAttribute")) {
+                    return null;
+                } else if (method.getName().equals("getContentLength")) {
+                    return -1;
+                }
+                throw unsupported(method);
+            }
+        });
+        final ServletOutputStream out = new ServletOutputStream() {
+            @Override
+            public void write(int b) {
+                body.write(b);
+            }
+        };
+        response = proxy(HttpServletResponse.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getOutputStream")) {
+                    return out;
+                } else if (method.getName().equals("getCharacterEncoding")) {
+                    return "UTF-8";
+                }
+                throw unsupported(method);
+            }
+        });
+    }
+
+    private String getResponseSize() throws IOException {
+        StringWriter writer = new StringWriter();
+        metrics.write(writer);
+        for (String line : writer.toString().split("\n")) {
+            if (line.startsWith(ResourceMethodMetrics.RESPONSE_SIZE + "_sum")) {
+                return line.substring(line.lastIndexOf(' ') + 1);
+            }
+        }
+        return null;
+    }
+
+    @Test
+    public void countsStreamedBytes() throws IOException, ServletException {
+        new MetricsFilter(metrics).doFilter(request, response,
+                                            new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request,
+                                 ServletResponse response) throws IOException {
+                response.getOutputStream().write(new byte[] { 1, 2, 3, 4 });
+            }
+        });
+        assertThat(body.size(), is(4));
+        assertThat(getResponseSize(), is("4"));
+    }
+
+    @Test
+    public void countsWrittenCharacters() throws IOException,
+                                                 ServletException {
+        new MetricsFilter(metrics).doFilter(request, response,
+                                            new FilterChain() {
+            @Override
+            public void doFilter(ServletRequest request,
+                                 ServletResponse response) throws IOException {
+                response.getWriter().write("äb");
+            }
+        });
+        /* the writer is flushed by the filter */
+        assertThat(body.toString("UTF-8"), is("äb"));
+        assertThat(getResponseSize(), is("3"));
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.ratelimit;
+
+import static org.envirocar.server.rest.ratelimit.RateLimitFilter.getAddress;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class RateLimitFilterTest {
+    private final Set<String> proxies = ImmutableSet.of("10.0.0.1",
+                                                        "10.0.0.2");
+
+    @Test
+    public void ignoresHeaderOfUntrustedClients() {
+        assertThat(getAddress("192.0.2.1", "198.51.100.1", proxies),
+                   is("192.0.2.1"));
+        assertThat(getAddress("10.0.0.1", "198.51.100.1",
+                              Collections.<String>emptySet()),
+                   is("10.0.0.1"));
+    }
+
+    @Test
+    public void usesLastUntrustedAddress() {
+        assertThat(getAddress("10.0.0.1", "198.51.100.1", proxies),
+                   is("198.51.100.1"));
+        /* the first entry can be forged by the client */
+        assertThat(getAddress("10.0.0.1",
+                              "203.0.113.7, 198.51.100.1, 10.0.0.2", proxies),
+                   is("198.51.100.1"));
+    }
+
+    @Test
+    public void usesRemoteAddressWithoutHeader() {
+        assertThat(getAddress("10.0.0.1", null, proxies), is("10.0.0.1"));
+        assertThat(getAddress("10.0.0.1", " , ", proxies), is("10.0.0.1"));
+    }
+}
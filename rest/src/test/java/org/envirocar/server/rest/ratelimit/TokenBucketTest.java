@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.ratelimit;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class TokenBucketTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void admitsBurstUpToCapacity() {
+        TokenBucket bucket = new TokenBucket(10, 10, TimeUnit.SECONDS, 0);
+        for (int i = 0; i < 10; ++i) {
+            assertThat(bucket.tryAcquire(0), is(0L));
+        }
+        assertThat(bucket.tryAcquire(0), is(SECOND));
+    }
+
+    @Test
+    public void refillsOverTime() {
+        TokenBucket bucket = new TokenBucket(10, 10, TimeUnit.SECONDS, 0);
+        for (int i = 0; i < 10; ++i) {
+            bucket.tryAcquire(0);
+        }
+        assertThat(bucket.tryAcquire(SECOND / 2), is(greaterThan(0L)));
+        assertThat(bucket.tryAcquire(SECOND), is(0L));
+        assertThat(bucket.tryAcquire(SECOND), is(greaterThan(0L)));
+    }
+
+    @Test
+    public void doesNotAccumulateMoreThanCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 2, TimeUnit.SECONDS, 0);
+        long now = 100 * SECOND;
+        assertThat(bucket.tryAcquire(now), is(0L));
+        assertThat(bucket.tryAcquire(now), is(0L));
+        assertThat(bucket.tryAcquire(now), is(greaterThan(0L)));
+    }
+}
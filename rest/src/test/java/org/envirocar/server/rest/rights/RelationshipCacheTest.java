@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.rights;
+
+import static org.envirocar.server.rest.stubs.Stubs.proxy;
+import static org.envirocar.server.rest.stubs.Stubs.unsupported;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.envirocar.server.core.FriendService;
+import org.envirocar.server.core.entities.User;
+import org.envirocar.server.core.event.FriendedUserEvent;
+import org.junit.Test;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public class RelationshipCacheTest {
+    private final AtomicInteger queries = new AtomicInteger();
+    private final AtomicBoolean friends = new AtomicBoolean();
+    private final User user = user("user");
+    private final User other = user("other");
+    private RelationshipCache cache;
+
+    private static User user(final String name) {
+        return proxy(User.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("getName")) {
+                    return name;
+                } else if (method.getName().equals("equals")) {
+                    return proxy == args[0];
+                } else if (method.getName().equals("hashCode")) {
+                    return name.hashCode();
+                }
+                throw unsupported(method);
+            }
+        });
+    }
+
+    private RelationshipCache cache(final Runnable duringQuery) {
+        FriendService friendService = proxy(FriendService.class,
+                                            new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("isFriend")) {
+                    queries.incrementAndGet();
+                    boolean result = friends.get();
+                    duringQuery.run();
+                    return result;
+                }
+                throw unsupported(method);
+            }
+        });
+        return new RelationshipCache(friendService, null);
+    }
+
+    @Test
+    public void cachesFriendships() {
+        cache = cache(new Runnable() {
+            @Override
+            public void run() {
+            }
+        });
+        assertThat(cache.isFriend(user, other), is(false));
+        assertThat(cache.isFriend(user, other), is(false));
+        assertThat(queries.get(), is(1));
+        friends.set(true);
+        cache.onFriendedUserEvent(new FriendedUserEvent(user, other));
+        assertThat(cache.isFriend(user, other), is(true));
+        assertThat(queries.get(), is(2));
+    }
+
+    @Test
+    public void discardsLoadsRacingWithInvalidations() {
+        cache = cache(new Runnable() {
+            @Override
+            public void run() {
+                /* the friendship changes after it was read */
+                if (!friends.get()) {
+                    friends.set(true);
+                    cache.onFriendedUserEvent(
+                            new FriendedUserEvent(user, other));
+                }
+            }
+        });
+        assertThat(cache.isFriend(user, other), is(false));
+        assertThat(cache.isFriend(user, other), is(true));
+        assertThat(queries.get(), is(2));
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.schema;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.util.Scanner;
+
+import org.envirocar.server.rest.Schemas;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * TODO JavaDoc
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+@RunWith(GuiceRunner.class)
+public class FastValidatorTest {
+    private static final String MEASUREMENT_CREATE =
+            "{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\"," +
+            "\"coordinates\":[7.62554,51.9557]},\"properties\":{" +
+            "\"time\":\"2013-06-08T11:35:15Z\"," +
+            "\"sensor\":\"51c96afce4b0fd063432096f\"," +
+            "\"phenomenons\":{\"Speed\":{\"value\":3.0}," +
+            "\"MAF\":{\"value\":\"9.6E-4\"}}}}";
+    @Rule
+    public final ValidationRule validate = new ValidationRule();
+
+    @Test
+    public void acceptsTrack() {
+        JsonNode track = validate.parse(load("track-instance.json"));
+        assertThat(validate.fastValidatorFor(Schemas.TRACK)
+                .accepts(track), is(true));
+        assertThat(track, is(validate.validInstanceOf(Schemas.TRACK)));
+    }
+
+    @Test
+    public void acceptsMeasurements() {
+        JsonNode measurements =
+                validate.parse(load("measurements-instance.json"));
+        assertThat(validate.fastValidatorFor(Schemas.MEASUREMENTS)
+                .accepts(measurements), is(true));
+        assertThat(measurements,
+                   is(validate.validInstanceOf(Schemas.MEASUREMENTS)));
+    }
+
+    @Test
+    public void acceptsMeasurementCreate() {
+        JsonNode measurement = validate.parse(MEASUREMENT_CREATE);
+        assertThat(validate.fastValidatorFor(Schemas.MEASUREMENT_CREATE)
+                .accepts(measurement), is(true));
+        assertThat(measurement,
+                   is(validate.validInstanceOf(Schemas.MEASUREMENT_CREATE)));
+    }
+
+    @Test
+    public void rejectsMeasurementCreateWithoutTime() {
+        ObjectNode measurement = (ObjectNode) validate.parse(MEASUREMENT_CREATE);
+        ((ObjectNode) measurement.get("properties")).remove("time");
+        assertThat(validate.fastValidatorFor(Schemas.MEASUREMENT_CREATE)
+                .accepts(measurement), is(false));
+        assertThat(measurement,
+                   is(not(validate.validInstanceOf(Schemas.MEASUREMENT_CREATE))));
+    }
+
+    @Test
+    public void rejectsMeasurementCreateWithAdditionalProperty() {
+        ObjectNode measurement = (ObjectNode) validate.parse(MEASUREMENT_CREATE);
+        ((ObjectNode) measurement.get("properties")).put("track", "1");
+        assertThat(validate.fastValidatorFor(Schemas.MEASUREMENT_CREATE)
+                .accepts(measurement), is(false));
+        assertThat(measurement,
+                   is(not(validate.validInstanceOf(Schemas.MEASUREMENT_CREATE))));
+    }
+
+    @Test
+    public void rejectsMeasurementsWithInvalidCoordinates() {
+        ObjectNode measurements =
+                (ObjectNode) validate.parse(load("measurements-instance.json"));
+        ((ObjectNode) measurements.get("features").get(0).get("geometry"))
+                .putArray("coordinates").add(7.62554);
+        assertThat(validate.fastValidatorFor(Schemas.MEASUREMENTS)
+                .accepts(measurements), is(false));
+        assertThat(measurements,
+                   is(not(validate.validInstanceOf(Schemas.MEASUREMENTS))));
+    }
+
+    private String load(String res) {
+        StringBuilder sb = new StringBuilder();
+        Scanner sc = new Scanner(getClass().getResourceAsStream(res));
+        while (sc.hasNext()) {
+            sb.append(sc.nextLine());
+        }
+        sc.close();
+        return sb.toString();
+    }
+}
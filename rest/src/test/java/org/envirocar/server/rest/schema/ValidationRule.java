@@ -24,6 +24,8 @@ import org.envirocar.server.rest.JSONConstants;
 import org.envirocar.server.rest.MediaTypes;
 import org.envirocar.server.rest.guice.JerseyCodingModule;
 import org.envirocar.server.rest.guice.JerseyValidationModule;
+import org.envirocar.server.rest.validation.FastValidator;
+import org.envirocar.server.rest.validation.FastValidators;
 import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 import org.hamcrest.TypeSafeDiagnosingMatcher;
@@ -59,6 +61,8 @@ public class ValidationRule implements TestRule {
     private JsonNodeFactory nodeFactory;
     @Inject
     private JsonSchemaFactory factory;
+    @Inject
+    private FastValidators fastValidators;
 
     public JsonNode parse(String json) {
         try {
@@ -77,6 +81,10 @@ public class ValidationRule implements TestRule {
         return new IsValidInstanceOf(uri);
     }
 
+    public FastValidator fastValidatorFor(String uri) {
+        return fastValidators.get(uri);
+    }
+
     @Override
     public Statement apply(Statement base,
                            org.junit.runner.Description description) {
@@ -96,6 +104,13 @@ public class ValidationRule implements TestRule {
             try {
                 JsonSchema jsonSchema = factory.getJsonSchema(schema);
                 ProcessingReport report = jsonSchema.validate(item);
+                FastValidator fastValidator = fastValidators.get(schema);
+                if (fastValidator != null && fastValidator.accepts(item) &&
+                    !report.isSuccess()) {
+                    throw new AssertionError(
+                            "fast validator accepted an invalid instance of " +
+                            schema);
+                }
                 if (!report.isSuccess()) {
                     ObjectNode objectNode = nodeFactory.objectNode();
                     objectNode.put(JSONConstants.INSTANCE_KEY, item);
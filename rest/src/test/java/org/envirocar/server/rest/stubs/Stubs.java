@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2013 The enviroCar project
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.envirocar.server.rest.stubs;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+
+import org.envirocar.server.core.entities.MeasurementValue;
+import org.envirocar.server.core.entities.MeasurementValues;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Creates proxies of service and entity interfaces.
+ *
+ * @author Christian Autermann <autermann@uni-muenster.de>
+ */
+public final class Stubs {
+    private Stubs() {
+    }
+
+    /**
+     * Creates a proxy of an interface. Handlers should fail calls they do
+     * not expect with {@link #unsupported(Method)}.
+     *
+     * @param type    the interface to implement
+     * @param handler the handler of the calls
+     *
+     * @return the proxy
+     */
+    public static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(
+                type.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    /**
+     * Creates an entity that stores the properties set on it. Measurement
+     * values and sensor properties can be added.
+     *
+     * @param type the entity interface
+     *
+     * @return the entity
+     */
+    public static <T> T bean(Class<T> type) {
+        return proxy(type, new InvocationHandler() {
+            private final Map<String, Object> properties = Maps.newHashMap();
+            private final Map<String, Object> added = Maps.newHashMap();
+            private final List<MeasurementValue> values = Lists.newArrayList();
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                String name = method.getName();
+                if (name.equals("equals")) {
+                    return proxy == args[0];
+                } else if (name.equals("hashCode")) {
+                    return System.identityHashCode(proxy);
+                } else if (name.equals("toString")) {
+                    return properties.toString();
+                } else if (name.equals("addValue")) {
+                    values.add((MeasurementValue) args[0]);
+                    return null;
+                } else if (name.equals("addProperty")) {
+                    added.put((String) args[0], args[1]);
+                    properties.put("Properties", added);
+                    return null;
+                } else if (name.equals("getValues")) {
+                    return MeasurementValues.from(values).build();
+                } else if (name.startsWith("set")) {
+                    properties.put(name.substring(3), args[0]);
+                    return null;
+                } else if (name.startsWith("get")) {
+                    return properties.get(name.substring(3));
+                } else if (name.startsWith("has")) {
+                    return properties.get(name.substring(3)) != null;
+                }
+                throw unsupported(method);
+            }
+        });
+    }
+
+    /**
+     * @param method the unexpected method
+     *
+     * @return the exception to fail the call with
+     */
+    public static UnsupportedOperationException unsupported(Method method) {
+        return new UnsupportedOperationException(method.getName());
+    }
+}
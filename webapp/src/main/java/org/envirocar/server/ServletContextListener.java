@@ -20,6 +20,9 @@ import java.util.logging.Handler;
 import java.util.logging.LogManager;
 import java.util.logging.Logger;
 
+import javax.servlet.ServletContextEvent;
+
+import org.envirocar.server.core.util.ShutdownHooks;
 import org.slf4j.bridge.SLF4JBridgeHandler;
 
 import com.google.inject.Guice;
@@ -45,6 +48,14 @@ public class ServletContextListener extends GuiceServletContextListener {
 
     }
 
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        if (injector != null) {
+            injector.getInstance(ShutdownHooks.class).shutdown();
+        }
+        super.contextDestroyed(event);
+    }
+
     protected void configureLogging() {
         Logger rootLogger = LogManager.getLogManager().getLogger("");
         Handler[] handlers = rootLogger.getHandlers();